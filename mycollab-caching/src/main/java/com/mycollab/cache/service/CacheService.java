@@ -17,16 +17,61 @@
 package com.mycollab.cache.service;
 
 /**
+ * Cache entries are organized as group &rarr; prefix &rarr; key. The prefix of a key is
+ * the part before the first {@link #KEY_SEPARATOR}, usually the name of the service class
+ * owns the entry, so all entries of a prefix can be evicted without scanning the group.
+ *
  * @author MyCollab Ltd
  * @since 5.1.4
  */
 public interface CacheService {
+    String KEY_SEPARATOR = "-";
 
     Object getValue(String group, String key);
 
     void putValue(String group, String key, Object value);
 
+    /**
+     * @param group
+     * @return a number changed by every removal of entries of <code>group</code>
+     */
+    long getGeneration(String group);
+
+    /**
+     * Put <code>value</code> unless entries of <code>group</code> were removed since
+     * <code>generation</code> was read by {@link #getGeneration(String)}, so a value loaded
+     * before a concurrent change does not outlive the removal of the change.
+     *
+     * @param group
+     * @param key
+     * @param value
+     * @param generation
+     * @return true if the value is kept in the cache
+     */
+    boolean putValue(String group, String key, Object value, long generation);
+
+    /**
+     * Remove all entries of <code>group</code> whose prefix is <code>prefixKey</code>. An
+     * empty prefix removes the whole group.
+     *
+     * @param group
+     * @param prefixKey
+     */
     void removeCacheItem(String group, String prefixKey);
 
+    /**
+     * Remove all entries of <code>group</code> whose prefix is the name of one of
+     * <code>cls</code> in one pass.
+     *
+     * @param group
+     * @param cls
+     */
     void removeCacheItems(String group, Class<?>... cls);
+
+    /**
+     * Remove the entries whose prefix is the name of one of <code>cls</code> in every group.
+     *
+     * @param cls
+     */
+    void removeCacheItemsOfAllGroups(Class<?>... cls);
 }
@@ -17,11 +17,14 @@
 package com.mycollab.cache.service.impl;
 
 import com.mycollab.cache.service.CacheService;
-import org.apache.commons.collections.CollectionUtils;
 import org.infinispan.AdvancedCache;
+import org.infinispan.Cache;
 import org.infinispan.commons.api.BasicCache;
 import org.infinispan.context.Flag;
 import org.infinispan.manager.DefaultCacheManager;
+import org.infinispan.notifications.Listener;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntriesEvicted;
+import org.infinispan.notifications.cachelistener.event.CacheEntriesEvictedEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
@@ -29,9 +32,21 @@ import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Service;
 
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
+ * Keeps a secondary index group &rarr; prefix &rarr; keys next to the Infinispan caches so
+ * evicting a prefix only touches its own keys. An index entry is added after its value is
+ * put, and a prefix is detached from the index before its keys are removed, so a key can
+ * not stay in the cache without being reachable from the index. Every removal increments the
+ * generation of its group before removing the keys, a put conditioned by a generation removes
+ * its own key again when the generation changed meanwhile.
+ *
  * @author MyCollab Ltd
  * @since 5.1.4
  */
@@ -42,6 +57,10 @@ public class InfinispanCacheService implements CacheService, InitializingBean {
 
     private DefaultCacheManager instance;
 
+    private final ConcurrentMap<String, ConcurrentMap<String, Set<String>>> keyIndex = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
     @Override
     public void afterPropertiesSet() throws Exception {
         try {
@@ -63,6 +82,39 @@ public class InfinispanCacheService implements CacheService, InitializingBean {
     public void putValue(String group, String key, Object value) {
         BasicCache<String, Object> cache = getCache(group);
         cache.put(key, value);
+        getGroupIndex(group).compute(getPrefix(key), (prefix, keys) -> {
+            Set<String> prefixKeys = (keys != null) ? keys : ConcurrentHashMap.newKeySet();
+            prefixKeys.add(key);
+            return prefixKeys;
+        });
+    }
+
+    @Override
+    public long getGeneration(String group) {
+        return getGenerationCounter(group).get();
+    }
+
+    @Override
+    public boolean putValue(String group, String key, Object value, long generation) {
+        AtomicLong generationCounter = getGenerationCounter(group);
+        if (generationCounter.get() != generation) {
+            return false;
+        }
+        putValue(group, key, value);
+        if (generationCounter.get() != generation) {
+            LOG.debug("Remove cache key {} put during a removal of group {}", key, group);
+            Set<String> keys = getGroupIndex(group).get(getPrefix(key));
+            if (keys != null) {
+                keys.remove(key);
+            }
+            getCache(group).remove(key);
+            return false;
+        }
+        return true;
+    }
+
+    private AtomicLong getGenerationCounter(String group) {
+        return generations.computeIfAbsent(group, key -> new AtomicLong());
     }
 
     private BasicCache<String, Object> getCache(String group) {
@@ -73,6 +125,19 @@ public class InfinispanCacheService implements CacheService, InitializingBean {
         return cache;
     }
 
+    private ConcurrentMap<String, Set<String>> getGroupIndex(String group) {
+        return keyIndex.computeIfAbsent(group, key -> {
+            Cache<String, Object> cache = instance.getCache(group);
+            cache.addListener(new EvictionListener(group));
+            return new ConcurrentHashMap<>();
+        });
+    }
+
+    private static String getPrefix(String key) {
+        int index = key.indexOf(KEY_SEPARATOR);
+        return (index == -1) ? key : key.substring(0, index);
+    }
+
     @Override
     public Object getValue(String group, String key) {
         BasicCache<String, Object> cache = getCache(group);
@@ -80,26 +145,79 @@ public class InfinispanCacheService implements CacheService, InitializingBean {
     }
 
     @Override
-    public void removeCacheItem(String id, String prefixKey) {
-        BasicCache<String, Object> cache = instance.getCache(id);
-        LOG.debug("Remove cache has prefix {} in group {}", prefixKey, id);
-        Set<String> keys = cache.keySet();
-        if (CollectionUtils.isNotEmpty(keys)) {
-
-            String[] keyArr = keys.toArray(new String[0]);
-            for (int i = 0; i < keyArr.length; i++) {
-                if (keyArr[i].startsWith(prefixKey)) {
-                    LOG.debug("Remove cache key {}", keyArr[i]);
-                    cache.remove(keyArr[i]);
-                }
-            }
+    public void removeCacheItem(String group, String prefixKey) {
+        if ("".equals(prefixKey)) {
+            LOG.debug("Remove all cache items in group {}", group);
+            getGenerationCounter(group).incrementAndGet();
+            getGroupIndex(group).clear();
+            instance.getCache(group).clear();
+            return;
         }
+        removePrefixes(group, prefixKey);
     }
 
     @Override
     public void removeCacheItems(String group, Class<?>... classes) {
-        for (Class<?> prefKey : classes) {
-            removeCacheItem(group, prefKey.getName());
+        String[] prefixKeys = new String[classes.length];
+        for (int i = 0; i < classes.length; i++) {
+            prefixKeys[i] = classes[i].getName();
+        }
+        removePrefixes(group, prefixKeys);
+    }
+
+    @Override
+    public void removeCacheItemsOfAllGroups(Class<?>... classes) {
+        for (String group : keyIndex.keySet()) {
+            removeCacheItems(group, classes);
+        }
+    }
+
+    private void removePrefixes(String group, String... prefixKeys) {
+        getGenerationCounter(group).incrementAndGet();
+        ConcurrentMap<String, Set<String>> groupIndex = keyIndex.get(group);
+        if (groupIndex == null) {
+            return;
+        }
+
+        List<Set<String>> removedKeys = new ArrayList<>(prefixKeys.length);
+        for (String prefixKey : prefixKeys) {
+            Set<String> keys = groupIndex.remove(prefixKey);
+            if (keys != null) {
+                removedKeys.add(keys);
+            }
+        }
+
+        if (!removedKeys.isEmpty()) {
+            BasicCache<String, Object> cache = getCache(group);
+            for (Set<String> keys : removedKeys) {
+                for (String key : keys) {
+                    LOG.debug("Remove cache key {}", key);
+                    cache.remove(key);
+                }
+            }
+        }
+    }
+
+    @Listener
+    public class EvictionListener {
+        private final String group;
+
+        EvictionListener(String group) {
+            this.group = group;
+        }
+
+        @CacheEntriesEvicted
+        public void entriesEvicted(CacheEntriesEvictedEvent<String, Object> event) {
+            ConcurrentMap<String, Set<String>> groupIndex = keyIndex.get(group);
+            if (groupIndex == null) {
+                return;
+            }
+            for (String key : event.getEntries().keySet()) {
+                Set<String> keys = groupIndex.get(getPrefix(key));
+                if (keys != null) {
+                    keys.remove(key);
+                }
+            }
         }
     }
 }
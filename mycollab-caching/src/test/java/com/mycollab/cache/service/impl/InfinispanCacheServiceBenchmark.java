@@ -0,0 +1,110 @@
+/**
+ * This file is part of mycollab-caching.
+ *
+ * mycollab-caching is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-caching is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-caching.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.cache.service.impl;
+
+import org.infinispan.Cache;
+import org.infinispan.manager.DefaultCacheManager;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the eviction of the keys of a few service classes, as done for a clean cache
+ * event, through the prefix index of {@link InfinispanCacheService} with the former scan of
+ * the whole key set of the group. The evicted keys are put back before each invocation. Run
+ * it with the main method from the test classpath.
+ *
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InfinispanCacheServiceBenchmark {
+    private static final String GROUP = "1";
+    private static final int PREFIXES = 100;
+    private static final Class<?>[] EVICTED_CLASSES = {String.class, Integer.class, Long.class};
+
+    @Param({"10000", "100000", "1000000"})
+    private int keys;
+
+    private InfinispanCacheService cacheService;
+    private DefaultCacheManager scanCacheManager;
+    private Cache<String, Object> scanCache;
+
+    @Setup
+    public void setUp() throws Exception {
+        cacheService = new InfinispanCacheService();
+        cacheService.afterPropertiesSet();
+        scanCacheManager = new DefaultCacheManager();
+        scanCache = scanCacheManager.getCache(GROUP);
+
+        for (int i = 0; i < keys; i++) {
+            String key = getPrefix(i % PREFIXES) + "-findById-" + i;
+            cacheService.putValue(GROUP, key, i);
+            scanCache.put(key, i);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void putEvictedKeys() {
+        for (int i = 0; i < keys; i += PREFIXES) {
+            for (int j = 0; j < EVICTED_CLASSES.length; j++) {
+                String key = EVICTED_CLASSES[j].getName() + "-findById-" + (i + j);
+                cacheService.putValue(GROUP, key, i);
+                scanCache.put(key, i);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        scanCacheManager.stop();
+    }
+
+    private static String getPrefix(int index) {
+        return (index < EVICTED_CLASSES.length) ? EVICTED_CLASSES[index].getName() : "com.mycollab.module.BenchmarkService" + index;
+    }
+
+    @Benchmark
+    public void removeByPrefixIndex() {
+        cacheService.removeCacheItems(GROUP, EVICTED_CLASSES);
+    }
+
+    @Benchmark
+    public void removeByKeyScan() {
+        for (Class<?> evictedClass : EVICTED_CLASSES) {
+            String prefixKey = evictedClass.getName();
+            String[] keyArr = scanCache.keySet().toArray(new String[0]);
+            for (String key : keyArr) {
+                if (key.startsWith(prefixKey)) {
+                    scanCache.remove(key);
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(InfinispanCacheServiceBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ * This file is part of mycollab-caching.
+ *
+ * mycollab-caching is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-caching is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-caching.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.cache.service.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+public class InfinispanCacheServiceTest {
+    private InfinispanCacheService cacheService;
+
+    @Before
+    public void setUp() throws Exception {
+        cacheService = new InfinispanCacheService();
+        cacheService.afterPropertiesSet();
+    }
+
+    @Test
+    public void testRemoveCacheItemOnlyRemovesMatchingPrefix() {
+        cacheService.putValue("1", String.class.getName() + "-findById-1", "a");
+        cacheService.putValue("1", String.class.getName() + "-findById-2", "b");
+        cacheService.putValue("1", Integer.class.getName() + "-findById-1", "c");
+        cacheService.putValue("2", String.class.getName() + "-findById-1", "d");
+
+        cacheService.removeCacheItem("1", String.class.getName());
+
+        assertThat(cacheService.getValue("1", String.class.getName() + "-findById-1")).isNull();
+        assertThat(cacheService.getValue("1", String.class.getName() + "-findById-2")).isNull();
+        assertThat(cacheService.getValue("1", Integer.class.getName() + "-findById-1")).isEqualTo("c");
+        assertThat(cacheService.getValue("2", String.class.getName() + "-findById-1")).isEqualTo("d");
+    }
+
+    @Test
+    public void testRemoveCacheItemsOfClasses() {
+        cacheService.putValue("1", String.class.getName() + "-getTotalCount", 1);
+        cacheService.putValue("1", Integer.class.getName() + "-getTotalCount", 2);
+        cacheService.putValue("1", Long.class.getName() + "-getTotalCount", 3);
+
+        cacheService.removeCacheItems("1", String.class, Integer.class);
+
+        assertThat(cacheService.getValue("1", String.class.getName() + "-getTotalCount")).isNull();
+        assertThat(cacheService.getValue("1", Integer.class.getName() + "-getTotalCount")).isNull();
+        assertThat(cacheService.getValue("1", Long.class.getName() + "-getTotalCount")).isEqualTo(3);
+    }
+
+    @Test
+    public void testRemoveWholeGroup() {
+        cacheService.putValue("1", "notification", "a");
+        cacheService.putValue("1", String.class.getName() + "-findById-1", "b");
+
+        cacheService.removeCacheItem("1", "");
+
+        assertThat(cacheService.getValue("1", "notification")).isNull();
+        assertThat(cacheService.getValue("1", String.class.getName() + "-findById-1")).isNull();
+    }
+
+    @Test
+    public void testReputAfterRemove() {
+        cacheService.putValue("1", String.class.getName() + "-findById-1", "a");
+        cacheService.removeCacheItems("1", String.class);
+        cacheService.putValue("1", String.class.getName() + "-findById-1", "b");
+        assertThat(cacheService.getValue("1", String.class.getName() + "-findById-1")).isEqualTo("b");
+
+        cacheService.removeCacheItems("1", String.class);
+        assertThat(cacheService.getValue("1", String.class.getName() + "-findById-1")).isNull();
+    }
+
+    @Test
+    public void testRemovePrefixAmongManyKeys() {
+        int prefixes = 100, keysPerPrefix = 50;
+        for (int i = 0; i < prefixes; i++) {
+            for (int j = 0; j < keysPerPrefix; j++) {
+                cacheService.putValue("1", "prefix" + i + "-" + j, j);
+            }
+        }
+
+        cacheService.removeCacheItem("1", "prefix0");
+
+        for (int j = 0; j < keysPerPrefix; j++) {
+            assertThat(cacheService.getValue("1", "prefix0-" + j)).isNull();
+            assertThat(cacheService.getValue("1", "prefix1-" + j)).isEqualTo(j);
+        }
+    }
+
+    @Test
+    public void testPutOfGenerationBeforeRemovalIsDropped() {
+        long generation = cacheService.getGeneration("1");
+        cacheService.removeCacheItems("1", String.class);
+
+        assertThat(cacheService.putValue("1", String.class.getName() + "-findById-1", "a", generation)).isFalse();
+        assertThat(cacheService.getValue("1", String.class.getName() + "-findById-1")).isNull();
+
+        generation = cacheService.getGeneration("1");
+        assertThat(cacheService.putValue("1", String.class.getName() + "-findById-1", "b", generation)).isTrue();
+        assertThat(cacheService.getValue("1", String.class.getName() + "-findById-1")).isEqualTo("b");
+    }
+
+    @Test
+    public void testRemoveCacheItemsOfAllGroups() {
+        cacheService.putValue("1", String.class.getName() + "-findById-1", "a");
+        cacheService.putValue("2", String.class.getName() + "-findById-1", "b");
+        cacheService.putValue("2", "notification", "c");
+
+        cacheService.removeCacheItemsOfAllGroups(String.class);
+
+        assertThat(cacheService.getValue("1", String.class.getName() + "-findById-1")).isNull();
+        assertThat(cacheService.getValue("2", String.class.getName() + "-findById-1")).isNull();
+        assertThat(cacheService.getValue("2", "notification")).isEqualTo("c");
+    }
+}
@@ -44,6 +44,9 @@ public class EmailConfiguration extends ValuedBean implements Cloneable {
     private boolean isSsl = false;
     private String notifyEmail;
 
+    public EmailConfiguration() {
+    }
+
     EmailConfiguration(String host, String username, String password, int port, boolean isStartTls, boolean isSsl, String notifyEmail) {
         this.host = host;
         this.user = username;
@@ -16,11 +16,13 @@
  */
 package com.mycollab.core;
 
+import java.io.Serializable;
+
 /**
  * @author MyCollab Ltd
  * @since 5.1.3
  */
-public abstract class AbstractNotification {
+public abstract class AbstractNotification implements Serializable {
     private String type;
     private String scope;
 
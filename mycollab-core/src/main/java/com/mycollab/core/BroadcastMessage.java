@@ -16,11 +16,13 @@
  */
 package com.mycollab.core;
 
+import java.io.Serializable;
+
 /**
  * @author MyCollab Ltd
  * @since 5.3.5
  */
-public class BroadcastMessage {
+public class BroadcastMessage implements Serializable {
 
     private Integer sAccountId;
 
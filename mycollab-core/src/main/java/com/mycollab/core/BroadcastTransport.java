@@ -0,0 +1,44 @@
+/**
+ * This file is part of mycollab-core.
+ *
+ * mycollab-core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.core;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries the broadcast messages between the servers of a cluster. A message published by a
+ * server is handed to the receivers of every server, including the publishing one. The
+ * messages and the objects they wrap must be serializable to cross the servers.
+ *
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+public interface BroadcastTransport {
+    /**
+     * @param message
+     */
+    void publish(BroadcastMessage message);
+
+    /**
+     * @param receiver delivers the messages published by all servers to the local listeners
+     */
+    void subscribe(Consumer<BroadcastMessage> receiver);
+
+    /**
+     * @param receiver
+     */
+    void unsubscribe(Consumer<BroadcastMessage> receiver);
+}
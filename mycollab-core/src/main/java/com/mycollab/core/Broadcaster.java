@@ -18,29 +18,45 @@ package com.mycollab.core;
 
 
 import java.io.Serializable;
-import java.util.LinkedList;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
+ * Entry point of the broadcast messages of the server, see {@link ShardedBroadcaster}.
+ *
  * @author MyCollab Ltd
  * @since 5.1.3
  */
 public class Broadcaster implements Serializable {
-    static ExecutorService executorService = Executors.newSingleThreadExecutor();
+    private static final ShardedBroadcaster broadcaster = new ShardedBroadcaster(new LocalBroadcastTransport());
+
+    /**
+     * Registers a listener receiving the messages of all accounts.
+     *
+     * @param listener
+     */
+    public static void register(BroadcastListener listener) {
+        broadcaster.register(null, listener);
+    }
 
-    private static LinkedList<BroadcastListener> listeners = new LinkedList<>();
+    public static void register(Integer sAccountId, BroadcastListener listener) {
+        broadcaster.register(sAccountId, listener);
+    }
+
+    public static void unregister(BroadcastListener listener) {
+        broadcaster.unregister(listener);
+    }
 
-    public static synchronized void register(BroadcastListener listener) {
-        listeners.add(listener);
+    public static void broadcast(final BroadcastMessage notification) {
+        broadcaster.broadcast(notification);
     }
 
-    public static synchronized void unregister(BroadcastListener listener) {
-        listeners.remove(listener);
+    /**
+     * @param transport transport sharing the messages with the other servers of the cluster
+     */
+    public static void setTransport(BroadcastTransport transport) {
+        broadcaster.setTransport(transport);
     }
 
-    public static synchronized void broadcast(final BroadcastMessage notification) {
-        for (final BroadcastListener listener : listeners)
-            executorService.execute(() -> listener.broadcast(notification));
+    public static ShardedBroadcaster getInstance() {
+        return broadcaster;
     }
 }
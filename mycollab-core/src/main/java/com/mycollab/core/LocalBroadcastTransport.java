@@ -0,0 +1,49 @@
+/**
+ * This file is part of mycollab-core.
+ *
+ * mycollab-core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.core;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Transport of a single server, a published message is handed directly to the receivers of
+ * this process.
+ *
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+public class LocalBroadcastTransport implements BroadcastTransport {
+    private final List<Consumer<BroadcastMessage>> receivers = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(BroadcastMessage message) {
+        for (Consumer<BroadcastMessage> receiver : receivers) {
+            receiver.accept(message);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<BroadcastMessage> receiver) {
+        receivers.add(receiver);
+    }
+
+    @Override
+    public void unsubscribe(Consumer<BroadcastMessage> receiver) {
+        receivers.remove(receiver);
+    }
+}
@@ -0,0 +1,321 @@
+/**
+ * This file is part of mycollab-core.
+ *
+ * mycollab-core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Delivers the broadcast messages to the listeners registered by the UI sessions. The
+ * listeners are grouped by account so a message of an account only visits the sessions of
+ * this account, a message without account is delivered to all listeners. Every listener has
+ * its own bounded mailbox drained by a shared bounded pool: the messages of a burst are
+ * delivered by one task in their arrival order, the equal messages of a burst are delivered
+ * once, and the oldest messages are dropped when a listener can not keep up. The messages go
+ * through a {@link BroadcastTransport} so they reach the listeners of every server.
+ *
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+public class ShardedBroadcaster {
+    private static final Logger LOG = LoggerFactory.getLogger(ShardedBroadcaster.class);
+
+    private final ConcurrentMap<Integer, Set<Mailbox>> shards = new ConcurrentHashMap<>();
+    private final Set<Mailbox> globalMailboxes = ConcurrentHashMap.newKeySet();
+    private final ConcurrentMap<BroadcastListener, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+    private final ThreadPoolExecutor executor;
+    private final int maxPendingMessages;
+    private final Consumer<BroadcastMessage> receiver = this::deliver;
+    private volatile BroadcastTransport transport;
+
+    private final AtomicLong deliveredCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong latencyCount = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    public ShardedBroadcaster(BroadcastTransport transport) {
+        this(transport, Math.max(2, Runtime.getRuntime().availableProcessors()), 10000, 50);
+    }
+
+    /**
+     * @param transport
+     * @param poolSize           number of threads delivering the messages
+     * @param queueCapacity      number of listeners waiting for a delivery thread, the messages
+     *                           of a listener are dropped when the queue is full
+     * @param maxPendingMessages number of messages kept for a listener waiting for its delivery
+     */
+    public ShardedBroadcaster(BroadcastTransport transport, int poolSize, int queueCapacity, int maxPendingMessages) {
+        this.maxPendingMessages = maxPendingMessages;
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "broadcaster-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        setTransport(transport);
+    }
+
+    /**
+     * @param transport replaces the current transport, the registered listeners are kept
+     */
+    public synchronized void setTransport(BroadcastTransport transport) {
+        if (this.transport != null) {
+            this.transport.unsubscribe(receiver);
+        }
+        transport.subscribe(receiver);
+        this.transport = transport;
+    }
+
+    /**
+     * @param sAccountId account of the session of <code>listener</code>, null if it receives
+     *                   the messages of all accounts
+     * @param listener
+     */
+    public void register(Integer sAccountId, BroadcastListener listener) {
+        unregister(listener);
+        Mailbox mailbox = new Mailbox(sAccountId, listener);
+        mailboxes.put(listener, mailbox);
+        if (sAccountId == null) {
+            globalMailboxes.add(mailbox);
+        } else {
+            shards.compute(sAccountId, (key, shard) -> {
+                Set<Mailbox> value = (shard != null) ? shard : ConcurrentHashMap.newKeySet();
+                value.add(mailbox);
+                return value;
+            });
+        }
+    }
+
+    public void unregister(BroadcastListener listener) {
+        Mailbox mailbox = mailboxes.remove(listener);
+        if (mailbox == null) {
+            return;
+        }
+        mailbox.close();
+        if (mailbox.sAccountId == null) {
+            globalMailboxes.remove(mailbox);
+        } else {
+            shards.computeIfPresent(mailbox.sAccountId, (key, shard) -> {
+                shard.remove(mailbox);
+                return shard.isEmpty() ? null : shard;
+            });
+        }
+    }
+
+    /**
+     * Sends <code>message</code> to the listeners of its account on all servers, or to all
+     * listeners if the message has no account.
+     *
+     * @param message
+     */
+    public void broadcast(BroadcastMessage message) {
+        transport.publish(message);
+    }
+
+    /**
+     * Queues <code>message</code> for the local listeners, it is called by the transport.
+     */
+    private void deliver(BroadcastMessage message) {
+        if (message.getsAccountId() == null) {
+            for (Mailbox mailbox : mailboxes.values()) {
+                mailbox.offer(message);
+            }
+        } else {
+            Set<Mailbox> shard = shards.get(message.getsAccountId());
+            if (shard != null) {
+                for (Mailbox mailbox : shard) {
+                    mailbox.offer(message);
+                }
+            }
+            for (Mailbox mailbox : globalMailboxes) {
+                mailbox.offer(message);
+            }
+        }
+    }
+
+    public void shutdown() {
+        transport.unsubscribe(receiver);
+        executor.shutdown();
+    }
+
+    public int getListenerCount() {
+        return mailboxes.size();
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     * @return number of messages handed to the listeners
+     */
+    public long getDeliveredCount() {
+        return deliveredCount.get();
+    }
+
+    /**
+     * @return number of messages not delivered because an equal message was delivered in the
+     * same burst
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * @return number of messages dropped because a listener or the delivery pool was saturated
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * @return average time between the reception of a message and its delivery to a listener
+     */
+    public long getAverageLatencyMillis() {
+        long count = latencyCount.get();
+        return (count == 0) ? 0 : TimeUnit.NANOSECONDS.toMillis(totalLatencyNanos.get() / count);
+    }
+
+    public long getMaxLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get());
+    }
+
+    private void recordLatency(long nanos) {
+        latencyCount.incrementAndGet();
+        totalLatencyNanos.addAndGet(nanos);
+        maxLatencyNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private class Mailbox {
+        private final Integer sAccountId;
+        private final BroadcastListener listener;
+        private final Queue<PendingMessage> pendingMessages = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingCount = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean closed = false;
+
+        Mailbox(Integer sAccountId, BroadcastListener listener) {
+            this.sAccountId = sAccountId;
+            this.listener = listener;
+        }
+
+        void offer(BroadcastMessage message) {
+            if (closed) {
+                return;
+            }
+            pendingMessages.add(new PendingMessage(message));
+            if (pendingCount.incrementAndGet() > maxPendingMessages && pendingMessages.poll() != null) {
+                pendingCount.decrementAndGet();
+                droppedCount.incrementAndGet();
+            }
+            schedule();
+        }
+
+        void close() {
+            closed = true;
+            discardPendingMessages();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    LOG.warn("The broadcast pool is saturated, drop the messages of listener {}", listener);
+                    discardPendingMessages();
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                List<PendingMessage> burst = new ArrayList<>();
+                PendingMessage pendingMessage;
+                while ((pendingMessage = pendingMessages.poll()) != null) {
+                    pendingCount.decrementAndGet();
+                    burst.add(pendingMessage);
+                }
+                if (!closed) {
+                    deliver(burst);
+                }
+            } finally {
+                scheduled.set(false);
+            }
+            if (!pendingMessages.isEmpty()) {
+                schedule();
+            }
+        }
+
+        private void deliver(List<PendingMessage> burst) {
+            List<BroadcastMessage> delivered = new ArrayList<>(burst.size());
+            for (PendingMessage pendingMessage : burst) {
+                BroadcastMessage message = pendingMessage.message;
+                if (delivered.stream().anyMatch(value -> isEqual(value, message))) {
+                    coalescedCount.incrementAndGet();
+                    continue;
+                }
+                delivered.add(message);
+                recordLatency(System.nanoTime() - pendingMessage.receivedTime);
+                try {
+                    listener.broadcast(message);
+                    deliveredCount.incrementAndGet();
+                } catch (Exception e) {
+                    LOG.error("Error while delivering the broadcast message to " + listener, e);
+                }
+            }
+        }
+
+        private void discardPendingMessages() {
+            while (pendingMessages.poll() != null) {
+                pendingCount.decrementAndGet();
+                droppedCount.incrementAndGet();
+            }
+        }
+    }
+
+    private static boolean isEqual(BroadcastMessage message1, BroadcastMessage message2) {
+        return Objects.equals(message1.getsAccountId(), message2.getsAccountId())
+                && Objects.equals(message1.getClientId(), message2.getClientId())
+                && Objects.equals(message1.getWrapObj(), message2.getWrapObj());
+    }
+
+    private static class PendingMessage {
+        private final BroadcastMessage message;
+        private final long receivedTime = System.nanoTime();
+
+        PendingMessage(BroadcastMessage message) {
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/**
+ * This file is part of mycollab-core.
+ *
+ * mycollab-core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.core.utils;
+
+import org.joda.time.DateTimeConstants;
+import org.joda.time.LocalDate;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Working days calendar, the working days are the days from Monday to Friday except the
+ * holidays. The calendar keeps for every day of a range of years the number of working days
+ * before it and the list of working days, so moving by working days and counting the working
+ * days between two dates are array lookups. The range grows when a date outside of it is used,
+ * up to {@link #MAX_YEAR_RANGE} years around the creation year; the days beyond are stepped
+ * one by one.
+ *
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+public final class BusinessCalendar {
+    private static final int YEAR_MARGIN = 10;
+    static final int MAX_YEAR_RANGE = 50;
+
+    private final Set<LocalDate> holidays;
+    private final int minYear;
+    private final int maxYear;
+    private volatile Table table;
+
+    public BusinessCalendar() {
+        this(Collections.emptySet());
+    }
+
+    /**
+     * @param holidays non working days besides the weekends
+     */
+    public BusinessCalendar(Collection<LocalDate> holidays) {
+        this.holidays = Collections.unmodifiableSet(new HashSet<>(holidays));
+        int year = LocalDate.now().getYear();
+        minYear = year - MAX_YEAR_RANGE;
+        maxYear = year + MAX_YEAR_RANGE;
+        table = new Table(year - YEAR_MARGIN, year + YEAR_MARGIN, this.holidays);
+    }
+
+    public Set<LocalDate> getHolidays() {
+        return holidays;
+    }
+
+    public boolean isWorkingDay(LocalDate date) {
+        Table current = tableFor(date.getYear(), date.getYear());
+        if (!current.contains(date)) {
+            return isWorkingDayOutOfTable(date);
+        }
+        int day = current.dayIndex(date);
+        return current.workingDaysBefore[day + 1] > current.workingDaysBefore[day];
+    }
+
+    /**
+     * @param start
+     * @param end
+     * @return number of working days from <code>start</code> to <code>end</code> inclusive, or
+     * -1 if <code>start</code> is after <code>end</code>
+     */
+    public int countWorkingDays(LocalDate start, LocalDate end) {
+        if (start.isAfter(end)) {
+            return -1;
+        }
+        Table current = tableFor(start.getYear(), end.getYear());
+        LocalDate tableStart = max(start, current.firstDay);
+        LocalDate tableEnd = min(end, current.lastDay);
+        if (tableStart.isAfter(tableEnd)) {
+            return countDayByDay(start, end);
+        }
+        int count = current.workingDaysBefore[current.dayIndex(tableEnd) + 1] - current.workingDaysBefore[current.dayIndex(tableStart)];
+        if (start.isBefore(tableStart)) {
+            count += countDayByDay(start, tableStart.minusDays(1));
+        }
+        if (end.isAfter(tableEnd)) {
+            count += countDayByDay(tableEnd.plusDays(1), end);
+        }
+        return count;
+    }
+
+    /**
+     * @param refDate
+     * @param workingDays number of working days to move, if it is positive the move starts
+     *                    from the last working day before <code>refDate</code>, otherwise
+     *                    from the first working day from <code>refDate</code>
+     * @return the working day reached by the move
+     */
+    public LocalDate moveByWorkingDays(LocalDate refDate, int workingDays) {
+        int year = refDate.getYear();
+        int yearSpan = Math.abs(workingDays) / 200 + 1;
+        Table current = tableFor(year - yearSpan, year + yearSpan);
+        while (current.contains(refDate)) {
+            int before = current.workingDaysBefore[current.dayIndex(refDate)];
+            int target = (workingDays >= 0) ? before - 1 + workingDays : before + workingDays;
+            if (target >= 0 && target < current.workingDays.length) {
+                return current.firstDay.plusDays(current.workingDays[target]);
+            }
+            if (current.fromYear <= minYear && current.toYear >= maxYear) {
+                break;
+            }
+            yearSpan *= 2;
+            current = tableFor(year - yearSpan, year + yearSpan);
+        }
+        return moveDayByDay(refDate, workingDays);
+    }
+
+    /**
+     * @return the table covering the years from <code>fromYear</code> to <code>toYear</code>
+     * within the allowed range, it may not contain the years out of the range
+     */
+    private Table tableFor(int fromYear, int toYear) {
+        fromYear = Math.max(fromYear, minYear);
+        toYear = Math.min(toYear, maxYear);
+        Table current = table;
+        if (fromYear > toYear || (fromYear >= current.fromYear && toYear <= current.toYear)) {
+            return current;
+        }
+        synchronized (this) {
+            current = table;
+            if (fromYear < current.fromYear || toYear > current.toYear) {
+                current = new Table(Math.max(Math.min(fromYear - YEAR_MARGIN, current.fromYear), minYear),
+                        Math.min(Math.max(toYear + YEAR_MARGIN, current.toYear), maxYear), holidays);
+                table = current;
+            }
+            return current;
+        }
+    }
+
+    private int countDayByDay(LocalDate start, LocalDate end) {
+        int count = 0;
+        for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
+            if (isWorkingDayOutOfTable(date)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Same move as {@link #moveByWorkingDays(LocalDate, int)} without the table.
+     */
+    private LocalDate moveDayByDay(LocalDate refDate, int workingDays) {
+        if (workingDays > 0) {
+            LocalDate date = refDate;
+            int count = isWorkingDayOutOfTable(date) ? 1 : 0;
+            while (count < workingDays) {
+                date = date.plusDays(1);
+                if (isWorkingDayOutOfTable(date)) {
+                    count++;
+                }
+            }
+            return date;
+        } else {
+            LocalDate date = refDate;
+            int count = 0;
+            while (count < Math.max(1, -workingDays)) {
+                date = date.minusDays(1);
+                if (isWorkingDayOutOfTable(date)) {
+                    count++;
+                }
+            }
+            return date;
+        }
+    }
+
+    private boolean isWorkingDayOutOfTable(LocalDate date) {
+        return date.getDayOfWeek() < DateTimeConstants.SATURDAY && !holidays.contains(date);
+    }
+
+    private static LocalDate max(LocalDate first, LocalDate second) {
+        return first.isAfter(second) ? first : second;
+    }
+
+    private static LocalDate min(LocalDate first, LocalDate second) {
+        return first.isBefore(second) ? first : second;
+    }
+
+    /**
+     * Working days of the years from <code>fromYear</code> to <code>toYear</code>, the days are
+     * indexed from the first day of <code>fromYear</code>.
+     */
+    private static final class Table {
+        private final int fromYear;
+        private final int toYear;
+        private final LocalDate firstDay;
+        private final LocalDate lastDay;
+        private final int[] yearFirstDays;
+        private final int[] workingDaysBefore;
+        private final int[] workingDays;
+
+        Table(int fromYear, int toYear, Set<LocalDate> holidays) {
+            this.fromYear = fromYear;
+            this.toYear = toYear;
+            firstDay = new LocalDate(fromYear, 1, 1);
+            lastDay = new LocalDate(toYear, 12, 31);
+            yearFirstDays = new int[toYear - fromYear + 2];
+            for (int year = fromYear; year <= toYear; year++) {
+                int daysOfYear = new LocalDate(year, 1, 1).dayOfYear().getMaximumValue();
+                yearFirstDays[year - fromYear + 1] = yearFirstDays[year - fromYear] + daysOfYear;
+            }
+
+            int totalDays = yearFirstDays[yearFirstDays.length - 1];
+            workingDaysBefore = new int[totalDays + 1];
+            int[] days = new int[totalDays];
+            int count = 0;
+            int dayOfWeek = firstDay.getDayOfWeek();
+            LocalDate date = firstDay;
+            for (int day = 0; day < totalDays; day++) {
+                if (dayOfWeek < DateTimeConstants.SATURDAY && !holidays.contains(date)) {
+                    days[count++] = day;
+                }
+                workingDaysBefore[day + 1] = count;
+                dayOfWeek = (dayOfWeek == DateTimeConstants.SUNDAY) ? DateTimeConstants.MONDAY : dayOfWeek + 1;
+                date = date.plusDays(1);
+            }
+            workingDays = new int[count];
+            System.arraycopy(days, 0, workingDays, 0, count);
+        }
+
+        boolean contains(LocalDate date) {
+            return date.getYear() >= fromYear && date.getYear() <= toYear;
+        }
+
+        int dayIndex(LocalDate date) {
+            return yearFirstDays[date.getYear() - fromYear] + date.getDayOfYear() - 1;
+        }
+    }
+}
@@ -16,93 +16,58 @@
  */
 package com.mycollab.core.utils;
 
-import net.objectlab.kit.datecalc.common.DateCalculator;
-import net.objectlab.kit.datecalc.joda.LocalDateKitCalculatorsFactory;
 import org.joda.time.LocalDate;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
+ * Working days arithmetic of the tasks. The working days are the days from Monday to Friday,
+ * an account may have its own holidays which are not working days too.
+ *
  * @author MyCollab Ltd
  * @since 5.1.3
  */
 public class BusinessDayTimeUtils {
-    private static Logger LOG = LoggerFactory.getLogger(BusinessDayTimeUtils.class);
+    private static final BusinessCalendar DEFAULT_CALENDAR = new BusinessCalendar();
 
-    public static LocalDate plusDays(LocalDate refDate, int lagDate) {
-        DateCalculator<LocalDate> calc1;
-        boolean isForward = false;
-        if (lagDate >= 0) {
-            calc1 = LocalDateKitCalculatorsFactory.forwardCalculator("MyCollab");
-            isForward = true;
+    private static final ConcurrentMap<Integer, BusinessCalendar> accountCalendars = new ConcurrentHashMap<>();
+
+    /**
+     * Sets the holidays of account <code>sAccountId</code>, they replace its previous holidays.
+     *
+     * @param sAccountId
+     * @param holidays
+     */
+    public static void setHolidays(Integer sAccountId, Collection<LocalDate> holidays) {
+        if (holidays == null || holidays.isEmpty()) {
+            accountCalendars.remove(sAccountId);
         } else {
-            calc1 = LocalDateKitCalculatorsFactory.backwardCalculator("MyCollab");
+            accountCalendars.put(sAccountId, new BusinessCalendar(holidays));
         }
+    }
 
-        if (isForward) {
-            refDate = refDate.minusDays(1);
-            while (calc1.isNonWorkingDay(refDate)) {
-                refDate = refDate.minusDays(1);
-            }
-        } else {
-            refDate.plusDays(1);
-            while (calc1.isNonWorkingDay(refDate)) {
-                refDate = refDate.plusDays(1);
-            }
+    public static BusinessCalendar getCalendar(Integer sAccountId) {
+        if (sAccountId == null) {
+            return DEFAULT_CALENDAR;
         }
+        return accountCalendars.getOrDefault(sAccountId, DEFAULT_CALENDAR);
+    }
 
-        calc1.setStartDate(refDate);
+    public static LocalDate plusDays(LocalDate refDate, int lagDate) {
+        return DEFAULT_CALENDAR.moveByWorkingDays(refDate, lagDate);
+    }
 
-        calc1.moveByBusinessDays(lagDate);
-        return calc1.getCurrentBusinessDate();
+    public static LocalDate plusDays(Integer sAccountId, LocalDate refDate, int lagDate) {
+        return getCalendar(sAccountId).moveByWorkingDays(refDate, lagDate);
     }
 
     public static int duration(LocalDate start, LocalDate end) {
-        int candidateDuration = 1;
-        if (start.isAfter(end)) {
-            return -1;
-        }
-        try {
-            DateCalculator<LocalDate> calc1 = LocalDateKitCalculatorsFactory.forwardCalculator("MyCollab");
-            calc1.setStartDate(start);
-            start = calc1.getCurrentBusinessDate();
-            calc1.setStartDate(end);
-            if (calc1.isNonWorkingDay(end)) {
-                candidateDuration -=1;
-                end = calc1.getCurrentBusinessDate();
-            }
-            long possibleDurations = (end.toDate().getTime() - start.toDate().getTime()) / DateTimeUtils.MILLISECONDS_IN_A_DAY;
-            int varDays = Math.round((possibleDurations + 1) / 2);
-            calc1.setStartDate(start);
-            LocalDate testDate;
-            while (true) {
-                LocalDate previousBizDate = calc1.getCurrentBusinessDate();
-                calc1.moveByBusinessDays(varDays);
-                testDate = calc1.getCurrentBusinessDate();
-                if (testDate.isAfter(end)) {
-                    varDays = Math.round((varDays + 1) / 2);
-                    calc1.setCurrentBusinessDate(previousBizDate);
-                } else if (testDate.isBefore(end)) {
-                    candidateDuration += varDays;
-                    varDays = Math.round(varDays / 2);
-                    calc1.setStartDate(testDate);
-                } else {
-                    return candidateDuration + varDays;
-                }
+        return DEFAULT_CALENDAR.countWorkingDays(start, end);
+    }
 
-                if (varDays == 0) {
-                    calc1.setStartDate(testDate);
-                    calc1.moveByBusinessDays(1);
-                    testDate = calc1.getCurrentBusinessDate();
-                    if (!testDate.isEqual(end)) {
-//                        LOG.error("Error while calculate duration of " + start + "--" + end);
-                    }
-                    return candidateDuration + 1;
-                }
-            }
-        } catch (Exception e) {
-            LOG.error("Error while calculate duration of " + start + "--" + end);
-            return candidateDuration;
-        }
+    public static int duration(Integer sAccountId, LocalDate start, LocalDate end) {
+        return getCalendar(sAccountId).countWorkingDays(start, end);
     }
 }
@@ -0,0 +1,142 @@
+/**
+ * This file is part of mycollab-core.
+ *
+ * mycollab-core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.core;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+public class ShardedBroadcasterTest {
+    private ShardedBroadcaster broadcaster;
+
+    @Before
+    public void setUp() {
+        broadcaster = new ShardedBroadcaster(new LocalBroadcastTransport(), 2, 100, 3);
+    }
+
+    @After
+    public void tearDown() {
+        broadcaster.shutdown();
+    }
+
+    @Test
+    public void testDeliverToAccountListeners() throws InterruptedException {
+        RecordListener listener1 = new RecordListener(1);
+        RecordListener listener2 = new RecordListener(0);
+        RecordListener globalListener = new RecordListener(1);
+        broadcaster.register(1, listener1);
+        broadcaster.register(2, listener2);
+        broadcaster.register(null, globalListener);
+
+        broadcaster.broadcast(new BroadcastMessage(1, null, "message"));
+        Assert.assertTrue(listener1.await());
+        Assert.assertTrue(globalListener.await());
+        Assert.assertEquals("message", listener1.messages.get(0).getWrapObj());
+        Assert.assertEquals("message", globalListener.messages.get(0).getWrapObj());
+        Assert.assertTrue(listener2.messages.isEmpty());
+        Assert.assertEquals(2, broadcaster.getShardCount());
+    }
+
+    @Test
+    public void testDeliverToAllListeners() throws InterruptedException {
+        RecordListener listener1 = new RecordListener(1);
+        RecordListener listener2 = new RecordListener(1);
+        broadcaster.register(1, listener1);
+        broadcaster.register(2, listener2);
+
+        broadcaster.broadcast(new BroadcastMessage("message"));
+        Assert.assertTrue(listener1.await());
+        Assert.assertTrue(listener2.await());
+    }
+
+    @Test
+    public void testUnregister() {
+        RecordListener listener = new RecordListener(0);
+        broadcaster.register(1, listener);
+        broadcaster.unregister(listener);
+
+        broadcaster.broadcast(new BroadcastMessage(1, null, "message"));
+        Assert.assertEquals(0, broadcaster.getListenerCount());
+        Assert.assertEquals(0, broadcaster.getShardCount());
+        Assert.assertTrue(listener.messages.isEmpty());
+    }
+
+    @Test
+    public void testCoalesceAndDropBurst() throws InterruptedException {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordListener listener = new RecordListener(3) {
+            @Override
+            public void broadcast(BroadcastMessage message) {
+                if ("first".equals(message.getWrapObj())) {
+                    blocked.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.broadcast(message);
+            }
+        };
+        broadcaster.register(1, listener);
+
+        broadcaster.broadcast(new BroadcastMessage(1, null, "first"));
+        Assert.assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        broadcaster.broadcast(new BroadcastMessage(1, null, "dropped"));
+        broadcaster.broadcast(new BroadcastMessage(1, null, "update"));
+        broadcaster.broadcast(new BroadcastMessage(1, null, "update"));
+        broadcaster.broadcast(new BroadcastMessage(1, null, "last"));
+        release.countDown();
+
+        Assert.assertTrue(listener.await());
+        Assert.assertEquals(3, listener.messages.size());
+        Assert.assertEquals("update", listener.messages.get(1).getWrapObj());
+        Assert.assertEquals("last", listener.messages.get(2).getWrapObj());
+        Assert.assertEquals(1, broadcaster.getDroppedCount());
+        Assert.assertEquals(1, broadcaster.getCoalescedCount());
+    }
+
+    private static class RecordListener implements BroadcastListener {
+        private final List<BroadcastMessage> messages = new CopyOnWriteArrayList<>();
+        private final CountDownLatch latch;
+
+        RecordListener(int expectedMessages) {
+            latch = new CountDownLatch(expectedMessages);
+        }
+
+        @Override
+        public void broadcast(BroadcastMessage message) {
+            messages.add(message);
+            latch.countDown();
+        }
+
+        boolean await() throws InterruptedException {
+            return latch.await(5, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -16,10 +16,15 @@
  */
 package com.mycollab.core.utils;
 
+import org.joda.time.DateTimeConstants;
 import org.joda.time.LocalDate;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
 /**
  * @author MyCollab Ltd
  * @since 5.1.3
@@ -128,6 +133,87 @@ public class BusinessDateTimeUtilsTest {
 
         startDate = new LocalDate(2015, 12, 21);
         endDate = new LocalDate(2016, 2, 17);
-        Assert.assertEquals(42, BusinessDayTimeUtils.duration(startDate, endDate));
+        // 5 + 4 days in December, 21 days in January and 13 days in February
+        Assert.assertEquals(43, BusinessDayTimeUtils.duration(startDate, endDate));
+    }
+
+    @Test
+    public void testSameResultsAsObjectLabCalculators() {
+        Random random = new Random(5L);
+        LocalDate firstDate = new LocalDate(2014, 1, 1);
+        for (int i = 0; i < 2000; i++) {
+            LocalDate date = firstDate.plusDays(random.nextInt(1500));
+            int lag = random.nextInt(200) - 100;
+            Assert.assertEquals(date + " " + lag, ObjectLabBusinessDays.plusDays(date, lag),
+                    BusinessDayTimeUtils.plusDays(date, lag));
+
+            LocalDate endDate = date.plusDays(random.nextInt(200) - 10);
+            Assert.assertEquals(date + " " + endDate, ObjectLabBusinessDays.duration(date, endDate),
+                    BusinessDayTimeUtils.duration(date, endDate));
+        }
+    }
+
+    @Test
+    public void testDatesOutOfPrecomputedYears() {
+        LocalDate startDate = new LocalDate(1950, 12, 29);
+        LocalDate endDate = new LocalDate(1951, 1, 2);
+        Assert.assertEquals(3, BusinessDayTimeUtils.duration(startDate, endDate));
+        Assert.assertEquals(new LocalDate(2101, 1, 3), BusinessDayTimeUtils.plusDays(new LocalDate(2100, 12, 31), 2));
+        Assert.assertEquals(new LocalDate(2030, 1, 1), BusinessDayTimeUtils.plusDays(new LocalDate(2015, 1, 1), 3914));
+    }
+
+    @Test
+    public void testDatesOutOfCalendarRange() {
+        BusinessCalendar calendar = new BusinessCalendar(Collections.singletonList(new LocalDate(3000, 1, 1)));
+        int lastYear = LocalDate.now().getYear() + BusinessCalendar.MAX_YEAR_RANGE;
+        LocalDate startDate = nextWorkingDay(new LocalDate(lastYear, 12, 1));
+        LocalDate endDate = nextWorkingDay(new LocalDate(lastYear + 1, 2, 1));
+        Assert.assertEquals(countWorkingDays(startDate, endDate), calendar.countWorkingDays(startDate, endDate));
+        Assert.assertEquals(endDate, calendar.moveByWorkingDays(startDate, countWorkingDays(startDate, endDate)));
+        Assert.assertEquals(startDate, calendar.moveByWorkingDays(endDate, -(countWorkingDays(startDate, endDate) - 1)));
+
+        Assert.assertFalse(calendar.isWorkingDay(new LocalDate(3000, 1, 1)));
+        Assert.assertEquals(1, calendar.countWorkingDays(new LocalDate(2999, 12, 31), new LocalDate(3000, 1, 1)));
+        Assert.assertEquals(new LocalDate(3000, 1, 2), calendar.moveByWorkingDays(new LocalDate(2999, 12, 31), 2));
+        Assert.assertEquals(new LocalDate(2999, 12, 31), calendar.moveByWorkingDays(new LocalDate(3000, 1, 2), -1));
+        Assert.assertEquals(new LocalDate(2999, 12, 31), calendar.moveByWorkingDays(new LocalDate(3000, 1, 2), 0));
+    }
+
+    private static LocalDate nextWorkingDay(LocalDate date) {
+        while (date.getDayOfWeek() >= DateTimeConstants.SATURDAY) {
+            date = date.plusDays(1);
+        }
+        return date;
+    }
+
+    private static int countWorkingDays(LocalDate startDate, LocalDate endDate) {
+        int count = 0;
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            if (date.getDayOfWeek() < DateTimeConstants.SATURDAY) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void testAccountHolidays() {
+        BusinessDayTimeUtils.setHolidays(1, Arrays.asList(new LocalDate(2015, 8, 31), new LocalDate(2015, 9, 2)));
+        try {
+            LocalDate startDate = new LocalDate(2015, 8, 28);
+            LocalDate endDate = new LocalDate(2015, 9, 4);
+            Assert.assertEquals(4, BusinessDayTimeUtils.duration(1, startDate, endDate));
+            Assert.assertEquals(6, BusinessDayTimeUtils.duration(2, startDate, endDate));
+            Assert.assertEquals(6, BusinessDayTimeUtils.duration(startDate, endDate));
+
+            Assert.assertEquals(new LocalDate(2015, 9, 3), BusinessDayTimeUtils.plusDays(1, startDate, 3));
+            Assert.assertEquals(new LocalDate(2015, 9, 1), BusinessDayTimeUtils.plusDays(2, startDate, 3));
+            Assert.assertEquals(new LocalDate(2015, 9, 1), BusinessDayTimeUtils.plusDays(1, new LocalDate(2015, 8, 31), 1));
+            Assert.assertEquals(new LocalDate(2015, 8, 28), BusinessDayTimeUtils.plusDays(1, new LocalDate(2015, 9, 2), -2));
+            Assert.assertFalse(BusinessDayTimeUtils.getCalendar(1).isWorkingDay(new LocalDate(2015, 9, 2)));
+        } finally {
+            BusinessDayTimeUtils.setHolidays(1, null);
+        }
+        Assert.assertEquals(6, BusinessDayTimeUtils.duration(1, new LocalDate(2015, 8, 28), new LocalDate(2015, 9, 4)));
     }
 }
@@ -0,0 +1,101 @@
+/**
+ * This file is part of mycollab-core.
+ *
+ * mycollab-core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.core.utils;
+
+import org.joda.time.LocalDate;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link BusinessDayTimeUtils} with the objectlab calculators over the start and end
+ * dates of 100k tasks. Run it with the main method from the test classpath.
+ *
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BusinessDayTimeUtilsBenchmark {
+    private static final int TASKS = 100000;
+
+    private LocalDate[] startDates;
+    private LocalDate[] endDates;
+    private int[] lags;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(20170120L);
+        LocalDate firstDate = new LocalDate(2015, 1, 1);
+        startDates = new LocalDate[TASKS];
+        endDates = new LocalDate[TASKS];
+        lags = new int[TASKS];
+        for (int i = 0; i < TASKS; i++) {
+            startDates[i] = firstDate.plusDays(random.nextInt(1000));
+            endDates[i] = startDates[i].plusDays(random.nextInt(120));
+            lags[i] = random.nextInt(80);
+        }
+    }
+
+    @Benchmark
+    public long calendarPlusDays() {
+        long sum = 0;
+        for (int i = 0; i < TASKS; i++) {
+            sum += BusinessDayTimeUtils.plusDays(startDates[i], lags[i]).getDayOfMonth();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long calendarDuration() {
+        long sum = 0;
+        for (int i = 0; i < TASKS; i++) {
+            sum += BusinessDayTimeUtils.duration(startDates[i], endDates[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long objectLabPlusDays() {
+        long sum = 0;
+        for (int i = 0; i < TASKS; i++) {
+            sum += ObjectLabBusinessDays.plusDays(startDates[i], lags[i]).getDayOfMonth();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long objectLabDuration() {
+        long sum = 0;
+        for (int i = 0; i < TASKS; i++) {
+            sum += ObjectLabBusinessDays.duration(startDates[i], endDates[i]);
+        }
+        return sum;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(BusinessDayTimeUtilsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * This file is part of mycollab-core.
+ *
+ * mycollab-core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.core.utils;
+
+import net.objectlab.kit.datecalc.common.DateCalculator;
+import net.objectlab.kit.datecalc.joda.LocalDateKitCalculatorsFactory;
+import org.joda.time.LocalDate;
+
+/**
+ * The working days arithmetic made with the objectlab calculators before
+ * {@link BusinessCalendar}, it is the reference of the tests and the benchmark.
+ *
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+class ObjectLabBusinessDays {
+    static LocalDate plusDays(LocalDate refDate, int lagDate) {
+        DateCalculator<LocalDate> calc1;
+        if (lagDate >= 0) {
+            calc1 = LocalDateKitCalculatorsFactory.forwardCalculator("MyCollab");
+            refDate = refDate.minusDays(1);
+            while (calc1.isNonWorkingDay(refDate)) {
+                refDate = refDate.minusDays(1);
+            }
+        } else {
+            calc1 = LocalDateKitCalculatorsFactory.backwardCalculator("MyCollab");
+            while (calc1.isNonWorkingDay(refDate)) {
+                refDate = refDate.plusDays(1);
+            }
+        }
+
+        calc1.setStartDate(refDate);
+        calc1.moveByBusinessDays(lagDate);
+        return calc1.getCurrentBusinessDate();
+    }
+
+    static int duration(LocalDate start, LocalDate end) {
+        if (start.isAfter(end)) {
+            return -1;
+        }
+        DateCalculator<LocalDate> calc1 = LocalDateKitCalculatorsFactory.forwardCalculator("MyCollab");
+        calc1.setStartDate(start);
+        int duration = 0;
+        LocalDate date = calc1.getCurrentBusinessDate();
+        while (!date.isAfter(end)) {
+            duration++;
+            calc1.moveByBusinessDays(1);
+            date = calc1.getCurrentBusinessDate();
+        }
+        return duration;
+    }
+}
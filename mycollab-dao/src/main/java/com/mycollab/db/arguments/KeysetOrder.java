@@ -0,0 +1,99 @@
+/**
+ * This file is part of mycollab-dao.
+ *
+ * mycollab-dao is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-dao is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-dao.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.db.arguments;
+
+import org.apache.commons.beanutils.PropertyUtils;
+
+import java.util.*;
+
+/**
+ * Order columns of a search which can be paged by keys. The order fields of the search
+ * criteria are followed by the default order fields, the last default order field must be
+ * unique so the items have a total order.
+ *
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+public class KeysetOrder {
+    private final Map<String, String> columns = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final List<SearchCriteria.OrderField> defaultOrderFields = new ArrayList<>();
+
+    /**
+     * @param field  order field, it is also the property of the items holding the column value
+     * @param column SQL expression of the field
+     * @return
+     */
+    public KeysetOrder column(String field, String column) {
+        columns.put(field, column);
+        return this;
+    }
+
+    public KeysetOrder defaultOrder(String field, String direction) {
+        defaultOrderFields.add(new SearchCriteria.OrderField(field, direction));
+        return this;
+    }
+
+    /**
+     * @param orderFields order fields of the search criteria
+     * @param lastItem    last item of a page
+     * @param page        page following the page of <code>lastItem</code>
+     * @return the cursor of the page, or null if an order field has no column or the value of an
+     * order field is null in <code>lastItem</code>
+     */
+    public SearchCursor createCursor(List<SearchCriteria.OrderField> orderFields, Object lastItem, int page) {
+        List<SearchCriteria.OrderField> fields = new ArrayList<>();
+        if (orderFields != null) {
+            fields.addAll(orderFields);
+        }
+        fields.addAll(defaultOrderFields);
+
+        Set<String> usedColumns = new HashSet<>();
+        List<KeysetTerm> terms = new ArrayList<>();
+        for (SearchCriteria.OrderField field : fields) {
+            String column = columns.get(field.getField());
+            if (column == null) {
+                return null;
+            }
+            if (!usedColumns.add(column)) {
+                continue;
+            }
+
+            Object value;
+            try {
+                value = PropertyUtils.getProperty(lastItem, field.getField());
+            } catch (Exception e) {
+                return null;
+            }
+            if (value == null) {
+                return null;
+            }
+            String operator = SearchCriteria.DESC.equalsIgnoreCase(field.getDirection()) ? "<" : ">";
+            terms.add(new KeysetTerm(column, operator, value));
+        }
+
+        List<List<KeysetTerm>> conditions = new ArrayList<>();
+        for (int i = 0; i < terms.size(); i++) {
+            List<KeysetTerm> condition = new ArrayList<>();
+            for (int j = 0; j < i; j++) {
+                condition.add(new KeysetTerm(terms.get(j).getColumn(), "=", terms.get(j).getValue()));
+            }
+            condition.add(terms.get(i));
+            conditions.add(condition);
+        }
+        return new SearchCursor(page, conditions);
+    }
+}
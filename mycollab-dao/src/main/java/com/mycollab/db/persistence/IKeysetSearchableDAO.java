@@ -0,0 +1,42 @@
+/**
+ * This file is part of mycollab-dao.
+ *
+ * mycollab-dao is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-dao is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-dao.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.db.persistence;
+
+import com.mycollab.db.arguments.SearchCriteria;
+import com.mycollab.db.arguments.SearchCursor;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.RowBounds;
+
+import java.util.List;
+
+/**
+ * Search mapper able to read a page after a cursor.
+ *
+ * @param <S>
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+public interface IKeysetSearchableDAO<S extends SearchCriteria> extends ISearchableDAO<S> {
+    /**
+     * @param criteria
+     * @param cursor
+     * @param rowBounds
+     * @return the items following the cursor in the order of the search
+     */
+    List findPageableListAfterCursor(@Param("searchCriteria") S criteria, @Param("cursor") SearchCursor cursor,
+                                     RowBounds rowBounds);
+}
@@ -0,0 +1,531 @@
+/**
+ * This file is part of mycollab-dao.
+ *
+ * mycollab-dao is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-dao is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-dao.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.db.persistence;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.reflection.property.PropertyTokenizer;
+import org.apache.ibatis.session.Configuration;
+
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Caches the SQL rendered by a Velocity template by the shape of its parameter object. As the
+ * values are bound with <code>@{...}</code>, the SQL text only depends on which properties of
+ * the parameter are set, on the types of the search fields, on the size of the iterated
+ * collections and on the few properties written with <code>${...}</code> such as the
+ * operations of the search fields. The first call of a shape renders the template, the next
+ * calls reuse its SQL and parameter mappings and only look up the bound values again.
+ * <p>
+ * The bound values of a rendering come from the variables of the template (<code>#set</code>,
+ * <code>#repeat</code> and <code>#foreach</code> items), each variable is mapped to its path in
+ * the parameter object.
+ * When a variable can not be mapped without ambiguity, the shape is always rendered.
+ *
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+class ShapeCachedSqlSource implements SqlSource {
+    private static final int MAX_SHAPES = 256;
+    private static final int MAX_NODES = 4000;
+
+    private static final Pattern DIRECTIVE_PATTERN = Pattern.compile("#\\{?([A-Za-z]+)}?\\s*\\(");
+    private static final Pattern REFERENCE_PATTERN = Pattern.compile("\\$!?\\{?([A-Za-z_]\\w*(?:\\.[A-Za-z_]\\w*)*)");
+    private static final Pattern BOUND_VALUE_PATTERN = Pattern.compile("@\\{[^}]*}");
+    private static final Pattern OPERATOR_PATTERN = Pattern.compile("==|!=|<|>|&&|\\|\\||!\\$| eq | ne | lt | gt | le | ge ");
+
+    private static final ConcurrentMap<Class<?>, Property[]> properties = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Class<?>, String> typeIds = new ConcurrentHashMap<>();
+    private static final AtomicInteger typeCount = new AtomicInteger();
+
+    private static final AtomicLong hitCount = new AtomicLong();
+    private static final AtomicLong missCount = new AtomicLong();
+    private static final AtomicLong renderCount = new AtomicLong();
+
+    private static final Skeleton UNCACHEABLE = new Skeleton(null, null, null);
+
+    private final Configuration configuration;
+    private final SqlSource delegate;
+    private final TemplateReferences references;
+    private final Cache<String, Skeleton> skeletons = CacheBuilder.newBuilder().maximumSize(MAX_SHAPES).build();
+
+    ShapeCachedSqlSource(Configuration configuration, SqlSource delegate, String template) {
+        this.configuration = configuration;
+        this.delegate = delegate;
+        this.references = new TemplateReferences(template);
+    }
+
+    @Override
+    public BoundSql getBoundSql(Object parameterObject) {
+        Shape shape = Shape.of(parameterObject, references);
+        if (shape == null) {
+            renderCount.incrementAndGet();
+            return delegate.getBoundSql(parameterObject);
+        }
+
+        Skeleton skeleton = skeletons.getIfPresent(shape.key);
+        if (skeleton == UNCACHEABLE) {
+            renderCount.incrementAndGet();
+            return delegate.getBoundSql(parameterObject);
+        } else if (skeleton != null) {
+            BoundSql boundSql = skeleton.bind(configuration, parameterObject);
+            if (boundSql != null) {
+                hitCount.incrementAndGet();
+                return boundSql;
+            }
+        }
+
+        missCount.incrementAndGet();
+        BoundSql boundSql = delegate.getBoundSql(parameterObject);
+        skeletons.put(shape.key, Skeleton.record(boundSql, shape, parameterObject, references));
+        return boundSql;
+    }
+
+    /**
+     * @return the source rendering the template on every call
+     */
+    SqlSource getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * @return number of calls served from the SQL of a previous rendering
+     */
+    static long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return number of renderings recorded for a new shape
+     */
+    static long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return number of renderings of a shape which can not be cached
+     */
+    static long getRenderCount() {
+        return renderCount.get();
+    }
+
+    private static boolean isLeaf(Class<?> type) {
+        return type.isEnum() || !(type.getName().startsWith("com.mycollab.") || type.isArray() ||
+                Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type));
+    }
+
+    private static String typeId(Class<?> type) {
+        return typeIds.computeIfAbsent(type, key -> Integer.toString(typeCount.incrementAndGet(), 36));
+    }
+
+    private static Property[] getProperties(Class<?> type) {
+        return properties.computeIfAbsent(type, key -> {
+            try {
+                List<Property> result = new ArrayList<>();
+                for (PropertyDescriptor descriptor : Introspector.getBeanInfo(key, Object.class).getPropertyDescriptors()) {
+                    Method readMethod = descriptor.getReadMethod();
+                    if (readMethod != null) {
+                        readMethod.setAccessible(true);
+                        result.add(new Property(descriptor.getName(), readMethod));
+                    }
+                }
+                return result.toArray(new Property[result.size()]);
+            } catch (Exception e) {
+                throw new IllegalStateException("Can not read the properties of " + key, e);
+            }
+        });
+    }
+
+    /**
+     * Names of the properties whose values are written in the SQL text by the template, the
+     * other properties only change the SQL by being null or not.
+     */
+    private static class TemplateReferences {
+        private final Set<String> textNames = new HashSet<>();
+        private final Set<String> textElementNames = new HashSet<>();
+        /**
+         * Variables assigned by the template, a scalar variable can not be mapped to a path
+         */
+        private final Set<String> setTargets = new HashSet<>();
+
+        TemplateReferences(String template) {
+            String text = BOUND_VALUE_PATTERN.matcher(template).replaceAll("");
+            Map<String, String> setSources = new HashMap<>();
+            Map<String, String> repeatSources = new HashMap<>();
+            StringBuilder outputText = new StringBuilder();
+
+            Matcher matcher = DIRECTIVE_PATTERN.matcher(text);
+            int position = 0;
+            while (matcher.find(position)) {
+                int argumentsEnd = findClosingParenthesis(text, matcher.end());
+                String directive = matcher.group(1);
+                List<String> references = findReferences(text.substring(matcher.end(), argumentsEnd));
+                outputText.append(text, position, matcher.start());
+                if ("macro".equals(directive)) {
+                    setTargets.addAll(references);
+                } else if ("set".equals(directive) && !references.isEmpty()) {
+                    setTargets.add(references.get(0));
+                    if (references.size() >= 2) {
+                        setSources.put(references.get(0), lastName(references.get(1)));
+                    }
+                } else if ("repeat".equals(directive) && references.size() >= 2) {
+                    // #repeat($list $item ...)
+                    repeatSources.put(references.get(1), lastName(references.get(0)));
+                } else if ("foreach".equals(directive) && references.size() >= 2) {
+                    // #foreach($item in $list)
+                    repeatSources.put(references.get(0), lastName(references.get(1)));
+                } else if (("if".equals(directive) || "elseif".equals(directive)) &&
+                        OPERATOR_PATTERN.matcher(text.substring(matcher.end(), argumentsEnd)).find()) {
+                    references.forEach(reference -> textNames.add(lastName(reference)));
+                }
+                position = Math.min(argumentsEnd + 1, text.length());
+            }
+            outputText.append(text, position, text.length());
+
+            for (String reference : findReferences(outputText.toString())) {
+                textNames.add(lastName(reference));
+                if (setSources.containsKey(reference)) {
+                    textNames.add(setSources.get(reference));
+                }
+                if (repeatSources.containsKey(reference)) {
+                    textElementNames.add(repeatSources.get(reference));
+                }
+            }
+        }
+
+        boolean isText(String name, boolean element) {
+            return (element ? textElementNames : textNames).contains(name);
+        }
+
+        private static List<String> findReferences(String text) {
+            List<String> references = new ArrayList<>();
+            Matcher matcher = REFERENCE_PATTERN.matcher(text);
+            while (matcher.find()) {
+                references.add(matcher.group(1));
+            }
+            return references;
+        }
+
+        private static String lastName(String reference) {
+            return reference.substring(reference.lastIndexOf('.') + 1);
+        }
+
+        private static int findClosingParenthesis(String text, int start) {
+            int depth = 1;
+            for (int i = start; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '(') {
+                    depth++;
+                } else if (c == ')' && --depth == 0) {
+                    return i;
+                }
+            }
+            return text.length();
+        }
+    }
+
+    /**
+     * Shape of a parameter object: the key lists the types of the objects reachable from the
+     * parameter, null values, collection sizes, shared objects and the values of the text
+     * properties. The walked objects are kept to find the paths of the template variables.
+     */
+    private static class Shape {
+        private final TemplateReferences references;
+        private final StringBuilder keyBuilder = new StringBuilder();
+        private final List<Node> nodes = new ArrayList<>();
+        private final Map<Object, Integer> visited = new IdentityHashMap<>();
+        private String key;
+
+        private Shape(TemplateReferences references) {
+            this.references = references;
+        }
+
+        static Shape of(Object parameterObject, TemplateReferences references) {
+            Shape shape = new Shape(references);
+            try {
+                if (!shape.walk(parameterObject, -1, null, null, false)) {
+                    return null;
+                }
+            } catch (Exception e) {
+                return null;
+            }
+            shape.key = shape.keyBuilder.toString();
+            return shape;
+        }
+
+        private boolean walk(Object value, int parent, Step step, String name, boolean element) throws Exception {
+            if (value == null) {
+                keyBuilder.append('~');
+                return true;
+            }
+            if (nodes.size() >= MAX_NODES) {
+                return false;
+            }
+
+            Class<?> type = value.getClass();
+            if (isLeaf(type)) {
+                if (element) {
+                    nodes.add(new Node(value, parent, step, true));
+                }
+                keyBuilder.append(typeId(type));
+                if (value instanceof Boolean || references.isText(name, element)) {
+                    String text = value.toString();
+                    keyBuilder.append('=').append(text.length()).append(':').append(text);
+                }
+                keyBuilder.append(';');
+                return true;
+            }
+
+            Integer seen = visited.get(value);
+            if (seen != null) {
+                keyBuilder.append('^').append(seen).append(';');
+                return true;
+            }
+            int index = nodes.size();
+            nodes.add(new Node(value, parent, step, element));
+            visited.put(value, index);
+
+            if (value instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) value;
+                List<String> mapKeys = new ArrayList<>(map.size());
+                for (Object mapKey : map.keySet()) {
+                    if (!(mapKey instanceof String)) {
+                        return false;
+                    }
+                    mapKeys.add((String) mapKey);
+                }
+                Collections.sort(mapKeys);
+                keyBuilder.append('{');
+                for (String mapKey : mapKeys) {
+                    keyBuilder.append(mapKey.length()).append(':').append(mapKey);
+                    if (!walk(map.get(mapKey), index, new MapKey(mapKey), mapKey, false)) {
+                        return false;
+                    }
+                }
+                keyBuilder.append('}');
+            } else if (value instanceof Collection || type.isArray()) {
+                int size = (value instanceof Collection) ? ((Collection<?>) value).size() : Array.getLength(value);
+                keyBuilder.append('[').append(size).append(':');
+                int itemIndex = 0;
+                for (Object item : (value instanceof Collection) ? (Collection<?>) value : asList(value)) {
+                    if (!walk(item, index, new ItemIndex(itemIndex++), name, true)) {
+                        return false;
+                    }
+                }
+                keyBuilder.append(']');
+            } else {
+                keyBuilder.append('<').append(typeId(type)).append(':');
+                for (Property property : getProperties(type)) {
+                    if (!walk(property.read(value), index, property, property.name, false)) {
+                        return false;
+                    }
+                }
+                keyBuilder.append('>');
+            }
+            return true;
+        }
+
+        /**
+         * @return the path of <code>value</code>, the value of the template variable
+         * <code>variable</code>, or null if it is not found or ambiguous
+         */
+        Step[] findPath(Object parameterObject, String variable, Object value) throws Exception {
+            if (value == parameterObject) {
+                return new Step[0];
+            }
+            if (value == null) {
+                return null;
+            }
+            if (parameterObject instanceof Map && ((Map<?, ?>) parameterObject).containsKey(variable)
+                    && ((Map<?, ?>) parameterObject).get(variable) == value) {
+                return new Step[]{new MapKey(variable)};
+            }
+            if (!isLeaf(value.getClass())) {
+                Integer index = visited.get(value);
+                return (index != null) ? getPath(index) : null;
+            }
+            if (references.setTargets.contains(variable)) {
+                return null;
+            }
+
+            int found = -1;
+            for (int i = 0; i < nodes.size(); i++) {
+                Node node = nodes.get(i);
+                if (node.element && node.value == value) {
+                    if (found != -1) {
+                        return null;
+                    }
+                    found = i;
+                }
+            }
+            return (found != -1) ? getPath(found) : null;
+        }
+
+        private Step[] getPath(int index) {
+            LinkedList<Step> path = new LinkedList<>();
+            for (Node node = nodes.get(index); node.parent != -1; node = nodes.get(node.parent)) {
+                path.addFirst(node.step);
+            }
+            return path.toArray(new Step[path.size()]);
+        }
+
+        private static List<Object> asList(Object array) {
+            List<Object> items = new ArrayList<>(Array.getLength(array));
+            for (int i = 0; i < Array.getLength(array); i++) {
+                items.add(Array.get(array, i));
+            }
+            return items;
+        }
+    }
+
+    private static class Node {
+        private final Object value;
+        private final int parent;
+        private final Step step;
+        private final boolean element;
+
+        Node(Object value, int parent, Step step, boolean element) {
+            this.value = value;
+            this.parent = parent;
+            this.step = step;
+            this.element = element;
+        }
+    }
+
+    /**
+     * SQL and parameter mappings of a shape, with the paths of the template variables used by
+     * the parameter mappings.
+     */
+    private static class Skeleton {
+        private final String sql;
+        private final List<ParameterMapping> parameterMappings;
+        private final Map<String, Step[]> variablePaths;
+
+        Skeleton(String sql, List<ParameterMapping> parameterMappings, Map<String, Step[]> variablePaths) {
+            this.sql = sql;
+            this.parameterMappings = parameterMappings;
+            this.variablePaths = variablePaths;
+        }
+
+        static Skeleton record(BoundSql boundSql, Shape shape, Object parameterObject, TemplateReferences references) {
+            Map<String, Step[]> variablePaths = new HashMap<>();
+            try {
+                for (ParameterMapping parameterMapping : boundSql.getParameterMappings()) {
+                    String variable = new PropertyTokenizer(parameterMapping.getProperty()).getName();
+                    if (!variablePaths.containsKey(variable) && boundSql.hasAdditionalParameter(variable)) {
+                        Step[] path = shape.findPath(parameterObject, variable, boundSql.getAdditionalParameter(variable));
+                        if (path == null) {
+                            return UNCACHEABLE;
+                        }
+                        variablePaths.put(variable, path);
+                    }
+                }
+            } catch (Exception e) {
+                return UNCACHEABLE;
+            }
+            return new Skeleton(boundSql.getSql(), Collections.unmodifiableList(new ArrayList<>(boundSql.getParameterMappings())),
+                    variablePaths);
+        }
+
+        /**
+         * @return the bound SQL of <code>parameterObject</code>, or null if a template variable
+         * can not be resolved
+         */
+        BoundSql bind(Configuration configuration, Object parameterObject) {
+            BoundSql boundSql = new BoundSql(configuration, sql, parameterMappings, parameterObject);
+            try {
+                for (Map.Entry<String, Step[]> entry : variablePaths.entrySet()) {
+                    Object value = parameterObject;
+                    for (Step step : entry.getValue()) {
+                        value = step.read(value);
+                    }
+                    boundSql.setAdditionalParameter(entry.getKey(), value);
+                }
+            } catch (Exception e) {
+                return null;
+            }
+            return boundSql;
+        }
+    }
+
+    private interface Step {
+        Object read(Object target) throws Exception;
+    }
+
+    private static class Property implements Step {
+        private final String name;
+        private final Method readMethod;
+
+        Property(String name, Method readMethod) {
+            this.name = name;
+            this.readMethod = readMethod;
+        }
+
+        @Override
+        public Object read(Object target) throws Exception {
+            return readMethod.invoke(target);
+        }
+    }
+
+    private static class MapKey implements Step {
+        private final String key;
+
+        MapKey(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public Object read(Object target) {
+            return ((Map<?, ?>) target).get(key);
+        }
+    }
+
+    private static class ItemIndex implements Step {
+        private final int index;
+
+        ItemIndex(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public Object read(Object target) {
+            if (target instanceof List) {
+                return ((List<?>) target).get(index);
+            } else if (target.getClass().isArray()) {
+                return Array.get(target, index);
+            }
+            Iterator<?> iterator = ((Collection<?>) target).iterator();
+            for (int i = 0; i < index; i++) {
+                iterator.next();
+            }
+            return iterator.next();
+        }
+    }
+}
@@ -30,8 +30,18 @@ import org.mybatis.scripting.velocity.SQLScriptSource;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
+ * Velocity language driver of the mappers. The search values must be bound with
+ * <code>@{...}</code> so they are sent as parameters of the prepared statement, for example
+ * <code>LIKE CONCAT('%', @{searchCriteria.name.value}, '%')</code>. The SQL text then only
+ * depends on the criteria in use, not on their values, and the statement can be reused from
+ * the statement caches of the driver and of MySQL. A template writing a value into the SQL
+ * text is rejected when the mapper is loaded. The rendered SQL is cached by the shape of the
+ * parameter object, see {@link ShapeCachedSqlSource}.
+ *
  * @author MyCollab Ltd.
  * @since 4.0
  */
@@ -40,6 +50,13 @@ public class VelocityDriverDeclare implements LanguageDriver {
     private static final String TOTAL_COUNT_EXPR_MACRO;
     private static final String SELECT_EXPR_MACRO;
 
+    /**
+     * A quoted variable or a value of search field written with <code>${...}</code>, the values
+     * iterated by <code>#repeat</code> are bound by the loop.
+     */
+    private static final Pattern LITERAL_VALUE_PATTERN = Pattern.compile(
+            "'%?\\$\\{[^}]*}|(?<!#repeat\\()\\$\\{[\\w.]+\\.(value|secondValue)}");
+
     static {
         TOTAL_COUNT_EXPR_MACRO = loadResource("totalCountExpr");
         SELECT_EXPR_MACRO = loadResource("selectExpr");
@@ -55,9 +72,12 @@ public class VelocityDriverDeclare implements LanguageDriver {
         if (parameterTypeClass == null) {
             parameterTypeClass = Object.class;
         }
-        String templateStr = TOTAL_COUNT_EXPR_MACRO + " " + SELECT_EXPR_MACRO + " " + script.getNode().getTextContent();
+        String scriptStr = script.getNode().getTextContent();
+        checkBoundValues(scriptStr);
+        String templateStr = TOTAL_COUNT_EXPR_MACRO + " " + SELECT_EXPR_MACRO + " " + scriptStr;
 
-        return new SQLScriptSource(configuration, templateStr, parameterTypeClass);
+        return new ShapeCachedSqlSource(configuration, new SQLScriptSource(configuration, templateStr, parameterTypeClass),
+                templateStr);
     }
 
     @Override
@@ -65,11 +85,20 @@ public class VelocityDriverDeclare implements LanguageDriver {
         if (parameterTypeClass == null) {
             parameterTypeClass = Object.class;
         }
+        checkBoundValues(script);
         String templateStr = new StringBuilder().append(SELECT_EXPR_MACRO)
                 .append(" ").append(TOTAL_COUNT_EXPR_MACRO).append(" ")
                 .append(script).toString();
-        return new SQLScriptSource(configuration, templateStr,
-                parameterTypeClass);
+        return new ShapeCachedSqlSource(configuration, new SQLScriptSource(configuration, templateStr, parameterTypeClass),
+                templateStr);
+    }
+
+    static void checkBoundValues(String script) {
+        Matcher matcher = LITERAL_VALUE_PATTERN.matcher(script);
+        if (matcher.find()) {
+            throw new MyCollabException(String.format("The value %s must be bound with @{...} instead of being " +
+                    "written in the SQL text", matcher.group()));
+        }
     }
 
     private static String loadResource(String id) {
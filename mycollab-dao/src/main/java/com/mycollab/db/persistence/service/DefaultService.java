@@ -16,9 +16,12 @@
  */
 package com.mycollab.db.persistence.service;
 
+import com.mycollab.db.arguments.KeysetOrder;
 import com.mycollab.db.arguments.SearchCriteria;
+import com.mycollab.db.arguments.SearchCursor;
 import com.mycollab.db.arguments.SearchField;
 import com.mycollab.db.arguments.BasicSearchRequest;
+import com.mycollab.db.persistence.IKeysetSearchableDAO;
 import com.mycollab.db.persistence.IMassUpdateDAO;
 import com.mycollab.db.persistence.ISearchableDAO;
 import org.apache.commons.beanutils.PropertyUtils;
@@ -43,6 +46,13 @@ public abstract class DefaultService<K extends Serializable, T, S extends Search
 
     public abstract ISearchableDAO<S> getSearchMapper();
 
+    /**
+     * @return the order columns of the search if its mapper can read a page after a cursor
+     */
+    protected KeysetOrder getKeysetOrder() {
+        return null;
+    }
+
     @Override
     public Integer getTotalCount(S criteria) {
         return getSearchMapper().getTotalCount(criteria);
@@ -50,11 +60,28 @@ public abstract class DefaultService<K extends Serializable, T, S extends Search
 
     @Override
     public List findPageableListByCriteria(BasicSearchRequest<S> searchRequest) {
+        SearchCursor cursor = searchRequest.getCursor();
+        if (cursor != null && cursor.getPage().equals(searchRequest.getCurrentPage())
+                && getSearchMapper() instanceof IKeysetSearchableDAO) {
+            return ((IKeysetSearchableDAO<S>) getSearchMapper()).findPageableListAfterCursor(searchRequest.getSearchCriteria(),
+                    cursor, new RowBounds(0, searchRequest.getNumberOfItems()));
+        }
         return getSearchMapper().findPageableListByCriteria(searchRequest.getSearchCriteria(),
                 new RowBounds((searchRequest.getCurrentPage() - 1) * searchRequest.getNumberOfItems(),
                         searchRequest.getNumberOfItems()));
     }
 
+    @Override
+    public SearchCursor getNextPageCursor(BasicSearchRequest<S> searchRequest, Object lastItem) {
+        KeysetOrder keysetOrder = getKeysetOrder();
+        if (keysetOrder == null || lastItem == null || !(getSearchMapper() instanceof IKeysetSearchableDAO)) {
+            return null;
+        }
+        S searchCriteria = searchRequest.getSearchCriteria();
+        return keysetOrder.createCursor((searchCriteria != null) ? searchCriteria.getOrderFields() : null, lastItem,
+                searchRequest.getCurrentPage() + 1);
+    }
+
     @Override
     public List findAbsoluteListByCriteria(S searchCriteria, Integer firstIndex, Integer numberOfItems) {
         return getSearchMapper().findPageableListByCriteria(searchCriteria,
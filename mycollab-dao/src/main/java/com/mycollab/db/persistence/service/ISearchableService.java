@@ -18,6 +18,7 @@ package com.mycollab.db.persistence.service;
 
 import com.mycollab.db.arguments.SearchCriteria;
 import com.mycollab.db.arguments.BasicSearchRequest;
+import com.mycollab.db.arguments.SearchCursor;
 import com.mycollab.core.cache.CacheEvict;
 import com.mycollab.core.cache.CacheKey;
 import com.mycollab.core.cache.Cacheable;
@@ -44,6 +45,14 @@ public interface ISearchableService<S extends SearchCriteria> extends IService {
     @Cacheable
     List findPageableListByCriteria(@CacheKey BasicSearchRequest<S> searchRequest);
 
+    /**
+     * @param searchRequest request of the current page
+     * @param lastItem      last item of the current page
+     * @return the cursor reading the next page after <code>lastItem</code>, or null if the
+     * search can not be paged by keys
+     */
+    SearchCursor getNextPageCursor(BasicSearchRequest<S> searchRequest, Object lastItem);
+
     /**
      * @param searchCriteria
      * @param firstIndex
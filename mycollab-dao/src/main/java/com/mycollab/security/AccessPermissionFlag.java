@@ -34,7 +34,7 @@ public class AccessPermissionFlag extends PermissionFlag {
      * @param flag
      * @return true of <code>flag</code> implies read permission
      */
-    public static boolean canRead(Integer flag) {
+    public static boolean canRead(int flag) {
         return ((flag & READ_ONLY) == READ_ONLY)
                 || ((flag & READ_WRITE) == READ_WRITE)
                 || ((flag & ACCESS) == ACCESS);
@@ -56,7 +56,7 @@ public class AccessPermissionFlag extends PermissionFlag {
      * @param flag
      * @return true of <code>flag</code> implies access permission
      */
-    public static boolean canAccess(Integer flag) {
+    public static boolean canAccess(int flag) {
         return ((flag & ACCESS) == ACCESS);
     }
 }
@@ -34,7 +34,7 @@ public class BooleanPermissionFlag extends PermissionFlag {
      * @param flag
      * @return
      */
-    public static boolean beTrue(Integer flag) {
+    public static boolean beTrue(int flag) {
         return (flag == TRUE);
     }
 
@@ -44,7 +44,7 @@ public class BooleanPermissionFlag extends PermissionFlag {
      * @param flag
      * @return
      */
-    public static boolean beFalse(Integer flag) {
+    public static boolean beFalse(int flag) {
         return (flag == FALSE);
     }
 
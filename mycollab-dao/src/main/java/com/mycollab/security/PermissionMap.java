@@ -16,18 +16,23 @@
  */
 package com.mycollab.security;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.mycollab.core.arguments.ValuedBean;
 import com.mycollab.core.utils.JsonDeSerializer;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.mycollab.security.RolePermissionCollections.CREATE_NEW_PROJECT;
 
 /**
  * Map contains all permissions in MyCollab, it is used to all permissions if
- * logged in user.
+ * logged in user. A map returned by {@link #compile()} is immutable and keeps its flags
+ * in an array indexed by the permission keys, so it can be shared between sessions.
  *
  * @author MyCollab Ltd.
  * @since 1.0
@@ -35,14 +40,40 @@ import static com.mycollab.security.RolePermissionCollections.CREATE_NEW_PROJECT
 public class PermissionMap extends ValuedBean {
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Flag of the permissions are not in the map
+     */
+    private static final int UNDEFINED = Integer.MIN_VALUE;
+
+    private static final Map<String, Integer> KEY_INDEXES = new ConcurrentHashMap<>();
+
+    static {
+        for (List<PermissionDefItem> items : Arrays.asList(RolePermissionCollections.CRM_PERMISSIONS_ARR,
+                RolePermissionCollections.ACCOUNT_PERMISSION_ARR, RolePermissionCollections.PROJECT_PERMISSION_ARR,
+                RolePermissionCollections.DOCUMENT_PERMISSION_ARR)) {
+            for (PermissionDefItem item : items) {
+                getKeyIndex(item.getKey());
+            }
+        }
+    }
+
     @JsonProperty("perMap")
     private Map<String, Integer> perMap = new HashMap<>();
 
+    @JsonIgnore
+    private boolean compiled = false;
+
+    @JsonIgnore
+    private transient volatile int[] flags;
+
     /**
      * @param permissionItem
      * @param value
      */
     public void addPath(String permissionItem, Integer value) {
+        if (compiled) {
+            throw new UnsupportedOperationException("Can not change a compiled permission map");
+        }
         perMap.put(permissionItem, value);
     }
 
@@ -51,8 +82,8 @@ public class PermissionMap extends ValuedBean {
      * @return
      */
     public Integer getPermissionFlag(String permissionItem) {
-        Object value = perMap.get(permissionItem);
-        return (value == null) ? AccessPermissionFlag.NO_ACCESS : (Integer) value;
+        int value = getFlag(permissionItem);
+        return (value == UNDEFINED) ? AccessPermissionFlag.NO_ACCESS : value;
     }
 
     /**
@@ -60,7 +91,8 @@ public class PermissionMap extends ValuedBean {
      * @return
      */
     public Integer get(String permissionItem) {
-        return perMap.get(permissionItem);
+        int value = getFlag(permissionItem);
+        return (value == UNDEFINED) ? null : value;
     }
 
     /**
@@ -68,8 +100,8 @@ public class PermissionMap extends ValuedBean {
      * @return
      */
     public boolean canBeYes(String permissionItem) {
-        Object value = perMap.get(permissionItem);
-        return (value != null) && BooleanPermissionFlag.beTrue((Integer) value);
+        int value = getFlag(permissionItem);
+        return (value != UNDEFINED) && BooleanPermissionFlag.beTrue(value);
     }
 
     /**
@@ -77,8 +109,8 @@ public class PermissionMap extends ValuedBean {
      * @return
      */
     public boolean canBeFalse(String permissionItem) {
-        Object value = perMap.get(permissionItem);
-        return (value != null) && BooleanPermissionFlag.beFalse((Integer) value);
+        int value = getFlag(permissionItem);
+        return (value != UNDEFINED) && BooleanPermissionFlag.beFalse(value);
     }
 
     /**
@@ -86,8 +118,8 @@ public class PermissionMap extends ValuedBean {
      * @return
      */
     public boolean canRead(String permissionItem) {
-        Object value = perMap.get(permissionItem);
-        return (value != null) && AccessPermissionFlag.canRead((Integer) value);
+        int value = getFlag(permissionItem);
+        return (value != UNDEFINED) && AccessPermissionFlag.canRead(value);
     }
 
     /**
@@ -95,8 +127,8 @@ public class PermissionMap extends ValuedBean {
      * @return
      */
     public boolean canWrite(String permissionItem) {
-        Object value = perMap.get(permissionItem);
-        return (value != null) && AccessPermissionFlag.canWrite((Integer) value);
+        int value = getFlag(permissionItem);
+        return (value != UNDEFINED) && AccessPermissionFlag.canWrite(value);
     }
 
     /**
@@ -104,8 +136,62 @@ public class PermissionMap extends ValuedBean {
      * @return
      */
     public boolean canAccess(String permissionItem) {
-        Object value = perMap.get(permissionItem);
-        return (value != null) && AccessPermissionFlag.canAccess((Integer) value);
+        int value = getFlag(permissionItem);
+        return (value != UNDEFINED) && AccessPermissionFlag.canAccess(value);
+    }
+
+    /**
+     * @return an immutable copy of this map, its flags are looked up by array index
+     */
+    public PermissionMap compile() {
+        if (compiled) {
+            return this;
+        }
+        PermissionMap permissionMap = new PermissionMap();
+        permissionMap.perMap.putAll(perMap);
+        permissionMap.compiled = true;
+        permissionMap.flags = permissionMap.buildFlags();
+        return permissionMap;
+    }
+
+    private int getFlag(String permissionItem) {
+        if (!compiled) {
+            Integer value = perMap.get(permissionItem);
+            return (value == null) ? UNDEFINED : value;
+        }
+
+        int[] currentFlags = flags;
+        if (currentFlags == null) {
+            // the key indexes are local to the JVM, the flags are rebuilt after deserialization
+            currentFlags = flags = buildFlags();
+        }
+        Integer index = KEY_INDEXES.get(permissionItem);
+        return (index == null || index >= currentFlags.length) ? UNDEFINED : currentFlags[index];
+    }
+
+    private int[] buildFlags() {
+        int maxIndex = -1;
+        for (String key : perMap.keySet()) {
+            maxIndex = Math.max(maxIndex, getKeyIndex(key));
+        }
+        int[] values = new int[maxIndex + 1];
+        Arrays.fill(values, UNDEFINED);
+        for (Map.Entry<String, Integer> entry : perMap.entrySet()) {
+            if (entry.getValue() != null) {
+                values[getKeyIndex(entry.getKey())] = entry.getValue();
+            }
+        }
+        return values;
+    }
+
+    private static int getKeyIndex(String key) {
+        Integer index = KEY_INDEXES.get(key);
+        if (index == null) {
+            synchronized (KEY_INDEXES) {
+                index = KEY_INDEXES.computeIfAbsent(key, k -> KEY_INDEXES.size());
+            }
+        }
+        return index;
     }
 
     /**
@@ -0,0 +1,79 @@
+/**
+ * This file is part of mycollab-dao.
+ *
+ * mycollab-dao is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-dao is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-dao.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.security;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Local cache of the compiled permission maps of roles. An entry is kept with the version of
+ * its role at loading time, saving a role increases the version so a map loaded concurrently
+ * with the save is never cached. Entries expire after a while to catch up the changes made
+ * by other servers.
+ *
+ * @param <K> key of role
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+public class PermissionMapCache<K> {
+    private final Cache<K, VersionedPermissionMap> cache = CacheBuilder.newBuilder().maximumSize(10000)
+            .expireAfterWrite(10, TimeUnit.MINUTES).build();
+    private final ConcurrentMap<K, Long> versions = new ConcurrentHashMap<>();
+
+    /**
+     * @param key
+     * @param loader loads the permission map of role, it may return null
+     * @return the shared immutable permission map of role <code>key</code>
+     */
+    public PermissionMap get(K key, Supplier<PermissionMap> loader) {
+        long version = versions.getOrDefault(key, 0L);
+        VersionedPermissionMap value = cache.getIfPresent(key);
+        if (value != null && value.version == version) {
+            return value.permissionMap;
+        }
+
+        PermissionMap permissionMap = loader.get();
+        if (permissionMap == null) {
+            return null;
+        }
+        permissionMap = permissionMap.compile();
+        if (versions.getOrDefault(key, 0L) == version) {
+            cache.put(key, new VersionedPermissionMap(version, permissionMap));
+        }
+        return permissionMap;
+    }
+
+    public void invalidate(K key) {
+        versions.merge(key, 1L, Long::sum);
+        cache.invalidate(key);
+    }
+
+    private static class VersionedPermissionMap {
+        private final long version;
+        private final PermissionMap permissionMap;
+
+        private VersionedPermissionMap(long version, PermissionMap permissionMap) {
+            this.version = version;
+            this.permissionMap = permissionMap;
+        }
+    }
+}
@@ -26,4 +26,10 @@ class BasicSearchRequest[S <: SearchCriteria](@BeanProperty val searchCriteria:
                                               currentPage: Integer, numberOfItems: Integer)
   extends SearchRequest(currentPage, numberOfItems) {
   def this(searchCriteria: S) = this(searchCriteria, 1, Integer.MAX_VALUE)
+
+  /**
+    * Position after the last item of the previous page, it is used only if its page is the
+    * current page.
+    */
+  @BeanProperty var cursor: SearchCursor = _
 }
@@ -0,0 +1,39 @@
+/**
+ * This file is part of mycollab-dao.
+ *
+ * mycollab-dao is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-dao is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-dao.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.db.arguments
+
+import scala.beans.BeanProperty
+
+/**
+  * Position of a search after the last item of a page. The next page is read by comparing the
+  * order columns with the values of that item instead of skipping the rows of the previous
+  * pages. The conditions are joined by OR, the terms of a condition are joined by AND.
+  *
+  * @author MyCollab Ltd
+  * @since 5.4.7
+  */
+@SerialVersionUID(1L)
+class SearchCursor(@BeanProperty val page: Integer,
+                   @BeanProperty val conditions: java.util.List[java.util.List[KeysetTerm]]) extends Serializable
+
+/**
+  * @param column   SQL expression of an order column
+  * @param operator comparison operator of the column with value
+  */
+@SerialVersionUID(1L)
+class KeysetTerm(@BeanProperty val column: String, @BeanProperty val operator: String,
+                 @BeanProperty val value: AnyRef) extends Serializable
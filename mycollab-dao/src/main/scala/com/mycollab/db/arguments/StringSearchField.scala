@@ -16,6 +16,7 @@
  */
 package com.mycollab.db.arguments
 
+import com.fasterxml.jackson.annotation.JsonIgnore
 import com.mycollab.core.utils.StringUtils
 
 import scala.beans.BeanProperty
@@ -26,8 +27,49 @@ import scala.beans.BeanProperty
   */
 class StringSearchField(operation: String, @BeanProperty val value: String) extends SearchField(operation) {
   def this() = this(SearchField.AND, "")
+
+  /**
+    * @return the value as a MySQL boolean mode query of the n-gram full text indexes, it matches
+    *         the items containing every word of value so it selects a superset of the items
+    *         matching the pattern '%value%'; or null if the full text indexes are not available
+    *         or value has a word shorter than the n-gram size, the search is then only done by
+    *         pattern
+    */
+  @JsonIgnore
+  def getFullTextValue: String = StringSearchField.toFullTextQuery(value)
 }
 
 object StringSearchField {
+  /**
+    * The n-gram size of the full text indexes. It is global because the search fields are
+    * created everywhere with the constructors, it is set once at startup by
+    * MyBatisConfiguration after checking the indexes. The default 0 keeps the full text
+    * queries disabled, e.g. on the databases without the n-gram parser and in the integration
+    * tests, then the searches only use the LIKE patterns.
+    */
+  @volatile private var fullTextTokenSize = 0
+
   def and(value: String): StringSearchField = if (StringUtils.isNotBlank(value)) new StringSearchField(SearchField.AND, value) else null
+
+  /**
+    * Enables the full text queries of the search fields.
+    *
+    * @param tokenSize the n-gram size of the full text indexes, 0 if there are no full text indexes
+    */
+  def setFullTextTokenSize(tokenSize: Int): Unit = fullTextTokenSize = tokenSize
+
+  def getFullTextTokenSize: Int = fullTextTokenSize
+
+  def toFullTextQuery(value: String): String = toFullTextQuery(value, fullTextTokenSize)
+
+  /**
+    * Every word is searched as a phrase, the n-gram parser turns it into the sequence of its
+    * n-grams so it matches the word inside any longer word.
+    */
+  def toFullTextQuery(value: String, tokenSize: Int): String = {
+    if (value == null || tokenSize <= 0) return null
+    val words = value.split("[^\\p{L}\\p{N}_]+").filter(_.nonEmpty)
+    if (words.isEmpty || words.exists(word => word.codePointCount(0, word.length) < tokenSize)) null
+    else words.map(word => "+\"" + word + "\"").mkString(" ")
+  }
 }
@@ -16,83 +16,87 @@
  */
 package com.mycollab.module.common.esb
 
+import java.util
 import java.util.concurrent.TimeUnit
+import javax.sql.DataSource
 
 import com.google.common.eventbus.{AllowConcurrentEvents, Subscribe}
-import com.mycollab.common.dao.TimelineTrackingMapper
-import com.mycollab.common.domain.{TimelineTracking, TimelineTrackingExample}
+import com.mycollab.aspect.L2CacheAspect
+import com.mycollab.cache.CleanCacheEvent
+import com.mycollab.common.TimelineTrackingCoalescer
+import com.mycollab.common.dao.TimelineTrackingMapperExt
+import com.mycollab.common.domain.TimelineTracking
 import com.mycollab.common.event.TimelineTrackingUpdateEvent
+import com.mycollab.common.service.TimelineTrackingService
+import com.mycollab.core.MyCollabException
 import com.mycollab.lock.DistributionLockUtil
 import com.mycollab.module.esb.GenericCommand
-import org.joda.time.LocalDate
 import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.jdbc.core.JdbcTemplate
 import org.springframework.stereotype.Component
+import org.springframework.transaction.support.{TransactionCallbackWithoutResult, TransactionTemplate}
+import org.springframework.transaction.{PlatformTransactionManager, TransactionStatus}
+
+import scala.collection.JavaConverters._
 
 /**
+  * Records the field changes of items for the timeline reports. The changes received within
+  * a short window are written together by a [[TimelineTrackingCoalescer]], in one transaction
+  * under the lock of their account. A window which can not be written is retried by the next
+  * one. The cached timelines of the account are cleaned once a window is written.
+  *
   * @author MyCollab Ltd
   * @since 5.2.2
   */
 @Component class TimelineTrackingUpdateCommand extends GenericCommand {
-  @Autowired var timelineMapper: TimelineTrackingMapper = _
+  @Autowired var timelineMapperExt: TimelineTrackingMapperExt = _
+  @Autowired var dataSource: DataSource = _
+  @Autowired var transactionManager: PlatformTransactionManager = _
 
-  @AllowConcurrentEvents
-  @Subscribe
-  def execute(event: TimelineTrackingUpdateEvent): Unit = {
-    if (event.fieldVal == null) {
-      return
+  private val coalescer = new TimelineTrackingCoalescer(new TimelineTrackingCoalescer.Store {
+    override def findLatestTimelines(sAccountId: Integer, keys: util.List[TimelineTracking]): util.List[TimelineTracking] =
+      timelineMapperExt.findLatestTimelines(sAccountId, keys)
+
+    override def insertTimelines(timelines: util.List[TimelineTracking]): Unit =
+      timelineMapperExt.insertTimelines(timelines)
+
+    override def updateTimelines(timelines: util.List[TimelineTracking]): Unit = {
+      val jdbcTemplate = new JdbcTemplate(dataSource)
+      jdbcTemplate.batchUpdate("UPDATE `s_timeline_tracking` SET `fieldval` = ? WHERE `id` = ?",
+        timelines.asScala.map(timeline => Array[AnyRef](timeline.getFieldval, timeline.getId)).asJava)
     }
-    val lock = DistributionLockUtil.getLock("timeline-" + event.accountId)
-    try {
-      if (lock.tryLock(120, TimeUnit.SECONDS)) {
-        val ex = new TimelineTrackingExample
-        val criteria = ex.createCriteria()
-        val now = new LocalDate()
-        criteria.andTypeEqualTo(event.typevar).andTypeidEqualTo(event.typeId).
-          andFieldgroupEqualTo(event.fieldgroup).andSaccountidEqualTo(event.accountId).andFlagEqualTo(Byte.box(1))
-        ex.setOrderByClause("forDay DESC, id DESC")
-        if (event.extratypeid != null) {
-          criteria.andExtratypeidEqualTo(event.extratypeid)
-        }
-        val items = timelineMapper.selectByExample(ex)
-        var isNew = true
-        if (items != null && items.size() > 0) {
-          val timeline = items.get(0)
-          val forDay = new LocalDate(timeline.getForday)
-          if (now.isEqual(forDay)) {
-            if (event.fieldVal != timeline.getFieldval) {
-              timeline.setFieldval(event.fieldVal)
-              timelineMapper.updateByPrimaryKey(timeline)
-              isNew = false
-            }
-          } else {
-            val minusTimeline = new TimelineTracking
-            minusTimeline.setType(event.typevar)
-            minusTimeline.setTypeid(event.typeId)
-            minusTimeline.setFieldgroup(event.fieldgroup)
-            minusTimeline.setFieldval(timeline.getFieldval)
-            minusTimeline.setExtratypeid(event.extratypeid)
-            minusTimeline.setSaccountid(event.accountId)
-            minusTimeline.setForday(now.toDate)
-            minusTimeline.setFlag(Byte.box(-1))
-            timelineMapper.insert(minusTimeline)
+  }, 500, 2000) {
+    override protected def runForAccount(sAccountId: Integer, write: Runnable): Unit = {
+      val lock = DistributionLockUtil.getLock("timeline-" + sAccountId)
+      try {
+        if (lock.tryLock(120, TimeUnit.SECONDS)) {
+          try {
+            L2CacheAspect.withoutMapperEviction(() => new TransactionTemplate(transactionManager).execute(new TransactionCallbackWithoutResult {
+              override def doInTransactionWithoutResult(status: TransactionStatus): Unit = write.run()
+            }))
+            asyncEventBus.post(new CleanCacheEvent(sAccountId, Array(classOf[TimelineTrackingService])))
+          } finally {
+            lock.unlock()
           }
+        } else {
+          throw new MyCollabException("Can not acquire the timeline lock of account " + sAccountId)
         }
-        if (isNew) {
-          val timeline = new TimelineTracking
-          timeline.setType(event.typevar)
-          timeline.setTypeid(event.typeId)
-          timeline.setFieldgroup(event.fieldgroup)
-          timeline.setFieldval(event.fieldVal)
-          timeline.setExtratypeid(event.extratypeid)
-          timeline.setSaccountid(event.accountId)
-          timeline.setForday(now.toDate)
-          timeline.setFlag(Byte.box(1))
-          timelineMapper.insert(timeline)
-        }
+      } finally {
+        DistributionLockUtil.removeLock("timeline-" + sAccountId)
       }
-    } finally {
-      DistributionLockUtil.removeLock("timeline-" + event.accountId)
-      lock.unlock()
     }
   }
+
+  @AllowConcurrentEvents
+  @Subscribe
+  def execute(event: TimelineTrackingUpdateEvent): Unit = {
+    coalescer.submit(event)
+  }
+
+  override def unregisterHandler(): Unit = {
+    super.unregisterHandler()
+    coalescer.shutdown()
+  }
+
+  def getCoalescer: TimelineTrackingCoalescer = coalescer
 }
@@ -16,11 +16,8 @@
  */
 package com.mycollab.module.ecm.esb
 
-import java.util.concurrent.TimeUnit
-
 import com.google.common.eventbus.{AllowConcurrentEvents, Subscribe}
 import com.mycollab.core.utils.StringUtils
-import com.mycollab.lock.DistributionLockUtil
 import com.mycollab.module.ecm.service.DriveInfoService
 import com.mycollab.module.esb.GenericCommand
 import com.mycollab.module.file.service.RawContentService
@@ -43,39 +40,23 @@ object DeleteResourcesCommandImpl {
   @AllowConcurrentEvents
   @Subscribe
   def removeResource(event: DeleteResourcesEvent): Unit = {
-    if (event.sAccountId == null) {
+    val isUpdateDriveInfo = event.sAccountId != null && event.isUpdateDriveInfo
+    var totalSize = 0L
+    try {
       for (path <- event.paths) {
         if (StringUtils.isNotBlank(path)) {
-          rawContentService.removePath(path)
-        }
-      }
-      return
-    }
-    if (event.isUpdateDriveInfo) {
-      val lock = DistributionLockUtil.getLock("ecm-" + event.sAccountId)
-      try {
-        if (lock.tryLock(1, TimeUnit.HOURS)) {
-          var totalSize = 0L
-          val driveInfo = driveInfoService.getDriveInfo(event.sAccountId)
-          for (path <- event.paths) {
-            if (StringUtils.isNotBlank(path)) {
-              totalSize += rawContentService.getSize(path)
-              rawContentService.removePath(path)
-            }
-          }
-          if (driveInfo.getUsedvolume == null || (driveInfo.getUsedvolume < totalSize)) {
-            driveInfo.setUsedvolume(0L)
-          } else {
-            driveInfo.setUsedvolume(driveInfo.getUsedvolume - totalSize)
+          // the size is read just before the removal, a folder is measured once as its bytes are gone after
+          if (isUpdateDriveInfo) {
+            totalSize += rawContentService.getSize(path)
           }
-          driveInfoService.saveOrUpdateDriveInfo(driveInfo)
+          rawContentService.removePath(path)
         }
       }
-      catch {
-        case e: Exception => DeleteResourcesCommandImpl.LOG.error("Error while delete content " + event.paths.mkString, e)
-      } finally {
-        DistributionLockUtil.removeLock("ecm-" + event.sAccountId)
-        lock.unlock()
+    } catch {
+      case e: Exception => DeleteResourcesCommandImpl.LOG.error("Error while delete content " + event.paths.mkString, e)
+    } finally {
+      if (isUpdateDriveInfo) {
+        driveInfoService.addUsedVolume(event.sAccountId, -totalSize)
       }
     }
   }
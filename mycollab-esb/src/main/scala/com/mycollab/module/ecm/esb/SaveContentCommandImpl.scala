@@ -16,11 +16,8 @@
  */
 package com.mycollab.module.ecm.esb
 
-import java.util.concurrent.TimeUnit
-
 import com.google.common.eventbus.{AllowConcurrentEvents, Subscribe}
 import com.mycollab.core.utils.{BeanUtility, StringUtils}
-import com.mycollab.lock.DistributionLockUtil
 import com.mycollab.module.ecm.service.DriveInfoService
 import com.mycollab.module.esb.GenericCommand
 import com.mycollab.module.file.service.RawContentService
@@ -48,29 +45,10 @@ object SaveContentCommandImpl {
     if (event.sAccountId == null) {
       return
     }
-    val lock = DistributionLockUtil.getLock("ecm-" + event.sAccountId)
-    var totalSize = event.content.getSize
+    var totalSize: Long = if (event.content.getSize == null) 0L else event.content.getSize.longValue
     if (StringUtils.isNotBlank(event.content.getThumbnail)) {
       totalSize += rawContentService.getSize(event.content.getThumbnail)
     }
-    try {
-      if (lock.tryLock(1, TimeUnit.HOURS)) {
-        val driveInfo = driveInfoService.getDriveInfo(event.sAccountId)
-        if (driveInfo.getUsedvolume == null) {
-          driveInfo.setUsedvolume(totalSize)
-        }
-        else {
-          driveInfo.setUsedvolume(totalSize + driveInfo.getUsedvolume)
-        }
-        driveInfoService.saveOrUpdateDriveInfo(driveInfo)
-      }
-    }
-    catch {
-      case e: Exception => SaveContentCommandImpl.LOG.error(String.format("Error while save content %s",
-        BeanUtility.printBeanObj(event.content)), e)
-    } finally {
-      DistributionLockUtil.removeLock("ecm-" + event.sAccountId)
-      lock.unlock()
-    }
+    driveInfoService.addUsedVolume(event.sAccountId, totalSize)
   }
 }
\ No newline at end of file
@@ -0,0 +1,47 @@
+/**
+ * This file is part of mycollab-esb.
+ *
+ * mycollab-esb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-esb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-esb.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.module.project.esb
+
+import java.util.Arrays
+
+import com.google.common.eventbus.{AllowConcurrentEvents, Subscribe}
+import com.mycollab.cache.service.CacheService
+import com.mycollab.module.esb.GenericCommand
+import com.mycollab.module.project.dao.ProjectStatisticMapperExt
+import com.mycollab.module.project.service.ProjectService
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.stereotype.Component
+
+/**
+  * @author MyCollab Ltd
+  * @since 5.4.7
+  */
+@Component class RefreshProjectStatisticCommand extends GenericCommand {
+  @Autowired private val projectStatisticMapperExt: ProjectStatisticMapperExt = null
+  @Autowired private val cacheService: CacheService = null
+
+  @AllowConcurrentEvents
+  @Subscribe
+  def refreshStatistics(event: RefreshProjectStatisticEvent): Unit = {
+    if (event.projectIds == null || event.projectIds.isEmpty) {
+      projectStatisticMapperExt.refreshAccountProjectStatistics(event.accountId)
+    } else {
+      projectStatisticMapperExt.refreshProjectStatistics(Arrays.asList(event.projectIds: _*))
+    }
+    cacheService.removeCacheItems(event.accountId.toString, classOf[ProjectService])
+  }
+}
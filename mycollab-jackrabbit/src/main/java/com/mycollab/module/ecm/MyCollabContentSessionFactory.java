@@ -19,7 +19,6 @@ package com.mycollab.module.ecm;
 import org.apache.jackrabbit.core.util.db.ConnectionHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.extensions.jcr.JcrSessionFactory;
 
 import javax.jcr.PropertyType;
 import javax.jcr.RepositoryException;
@@ -33,7 +32,7 @@ import javax.jcr.nodetype.PropertyDefinitionTemplate;
  * @author MyCollab Ltd.
  * @since 1.0
  */
-public class MyCollabContentSessionFactory extends JcrSessionFactory {
+public class MyCollabContentSessionFactory extends PooledJcrSessionFactory {
     private static final Logger LOG = LoggerFactory.getLogger(MyCollabContentSessionFactory.class);
     ConnectionHelper a;
 
@@ -0,0 +1,200 @@
+/**
+ * This file is part of mycollab-jackrabbit.
+ *
+ * mycollab-jackrabbit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-jackrabbit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-jackrabbit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.module.ecm;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.commons.lang3.SerializationUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.extensions.jcr.SessionFactory;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.observation.Event;
+import javax.jcr.observation.EventIterator;
+import javax.jcr.observation.EventListener;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Read through cache of the children of folder nodes. A listing is dropped when the
+ * repository reports a change of its folder, a child of it or a property of a child, the
+ * changes saved by the other cluster nodes are reported too. The cached items are copied for
+ * every caller.
+ *
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+public class NodeListingCache implements EventListener, InitializingBean, DisposableBean {
+    private static final Logger LOG = LoggerFactory.getLogger(NodeListingCache.class);
+
+    private static final int EVENT_TYPES = Event.NODE_ADDED | Event.NODE_REMOVED | Event.NODE_MOVED |
+            Event.PROPERTY_ADDED | Event.PROPERTY_CHANGED | Event.PROPERTY_REMOVED;
+
+    private final SessionFactory sessionFactory;
+    private final Cache<String, List<? extends Serializable>> listings = CacheBuilder.newBuilder()
+            .maximumSize(5000).expireAfterAccess(30, TimeUnit.MINUTES).build();
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    private Session observationSession;
+
+    public NodeListingCache(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        observationSession = sessionFactory.getSession();
+        observationSession.getWorkspace().getObservationManager().addEventListener(this, EVENT_TYPES, "/",
+                true, null, null, false);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (observationSession != null) {
+            observationSession.getWorkspace().getObservationManager().removeEventListener(this);
+            observationSession.logout();
+            observationSession = null;
+        }
+    }
+
+    /**
+     * @param kind       kind of listing, a folder may have several listings filtering its children
+     * @param folderPath
+     * @param loader     reads the listing from the repository, it may return null
+     * @return a copy of the listing <code>kind</code> of folder <code>folderPath</code>
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Serializable> List<T> get(String kind, String folderPath, Supplier<List<T>> loader) {
+        String key = toKey(kind, folderPath);
+        List<T> listing = (List<T>) listings.getIfPresent(key);
+        if (listing != null) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+            long loadGeneration = generation.get();
+            listing = loader.get();
+            if (listing == null) {
+                return null;
+            }
+            listing = new ArrayList<>(listing);
+            // a listing read while its folder changes may be stale, it is not kept
+            synchronized (this) {
+                if (generation.get() == loadGeneration) {
+                    listings.put(key, listing);
+                }
+            }
+        }
+
+        List<T> copy = new ArrayList<>(listing.size());
+        for (T item : listing) {
+            copy.add(SerializationUtils.clone(item));
+        }
+        return copy;
+    }
+
+    /**
+     * Drops the listings of folder <code>folderPath</code>
+     *
+     * @param folderPath
+     * @param isSubTree  true if the listings of all descendant folders are dropped too
+     */
+    public synchronized void invalidate(String folderPath, boolean isSubTree) {
+        generation.incrementAndGet();
+        String normalizedPath = normalize(folderPath);
+        String subTreePrefix = normalizedPath.isEmpty() ? "" : normalizedPath + "/";
+        listings.asMap().keySet().removeIf(key -> {
+            String path = key.substring(key.indexOf(':') + 1);
+            return path.equals(normalizedPath) || (isSubTree && path.startsWith(subTreePrefix));
+        });
+    }
+
+    /**
+     * Drops the listings changed by a write of node <code>path</code>, they are the listings of
+     * its ancestors and of its sub tree. The writers call it to read their changes before the
+     * repository reports them.
+     *
+     * @param path
+     */
+    public synchronized void invalidateNode(String path) {
+        generation.incrementAndGet();
+        String normalizedPath = normalize(path);
+        listings.asMap().keySet().removeIf(key -> {
+            String folderPath = key.substring(key.indexOf(':') + 1);
+            return normalizedPath.isEmpty() || folderPath.isEmpty() || folderPath.equals(normalizedPath) || normalizedPath.startsWith(folderPath + "/")
+                    || folderPath.startsWith(normalizedPath + "/");
+        });
+    }
+
+    @Override
+    public void onEvent(EventIterator events) {
+        while (events.hasNext()) {
+            Event event = events.nextEvent();
+            try {
+                String path = event.getPath();
+                if (event.getType() == Event.PROPERTY_ADDED || event.getType() == Event.PROPERTY_CHANGED ||
+                        event.getType() == Event.PROPERTY_REMOVED) {
+                    invalidate(getParentPath(getParentPath(path)), false);
+                } else {
+                    invalidate(getParentPath(path), false);
+                    invalidate(path, true);
+                }
+            } catch (RepositoryException e) {
+                LOG.error("Can not read the JCR event, clear all folder listings", e);
+                invalidate("", true);
+            }
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    private static String toKey(String kind, String folderPath) {
+        return kind + ":" + normalize(folderPath);
+    }
+
+    private static String getParentPath(String path) {
+        String normalizedPath = normalize(path);
+        int index = normalizedPath.lastIndexOf('/');
+        return (index == -1) ? "" : normalizedPath.substring(0, index);
+    }
+
+    private static String normalize(String path) {
+        String result = (path == null) ? "" : path.trim();
+        while (result.startsWith("/")) {
+            result = result.substring(1);
+        }
+        while (result.endsWith("/")) {
+            result = result.substring(0, result.length() - 1);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * This file is part of mycollab-jackrabbit.
+ *
+ * mycollab-jackrabbit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-jackrabbit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-jackrabbit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.module.ecm;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.extensions.jcr.JcrSessionFactory;
+import org.springframework.util.ClassUtils;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Session factory keeping the logged out sessions to serve the next requests, so a
+ * {@link org.springframework.extensions.jcr.JcrTemplate} call does not log in the repository.
+ * All sessions are opened with the same credentials, a session returned to the pool drops its
+ * pending changes and keeps seeing the changes saved by the other sessions.
+ *
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+public class PooledJcrSessionFactory extends JcrSessionFactory {
+    private static final Logger LOG = LoggerFactory.getLogger(PooledJcrSessionFactory.class);
+
+    private final Deque<Session> idleSessions = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicLong loginCount = new AtomicLong();
+    private final AtomicLong reuseCount = new AtomicLong();
+
+    private int maxIdleSessions = 16;
+    private volatile boolean closed = false;
+
+    @Override
+    public Session getSession() throws RepositoryException {
+        Session session;
+        while ((session = idleSessions.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+            if (session.isLive()) {
+                reuseCount.incrementAndGet();
+                return wrap(session);
+            }
+        }
+        loginCount.incrementAndGet();
+        return wrap(super.getSession());
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        closed = true;
+        Session session;
+        while ((session = idleSessions.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+            session.logout();
+        }
+        super.destroy();
+    }
+
+    private Session wrap(Session session) {
+        Class<?>[] interfaces = ClassUtils.getAllInterfaces(session);
+        return (Session) Proxy.newProxyInstance(session.getClass().getClassLoader(), interfaces,
+                new PooledSessionHandler(session));
+    }
+
+    private void release(Session session) {
+        try {
+            if (!closed && session.isLive()) {
+                if (session.hasPendingChanges()) {
+                    session.refresh(false);
+                }
+                if (idleCount.incrementAndGet() <= maxIdleSessions) {
+                    idleSessions.offerFirst(session);
+                    return;
+                }
+                idleCount.decrementAndGet();
+            }
+        } catch (RepositoryException e) {
+            LOG.warn("Can not reset the JCR session, it is logged out", e);
+        }
+        session.logout();
+    }
+
+    /**
+     * @param maxIdleSessions number of sessions kept open while they are not used
+     */
+    public void setMaxIdleSessions(int maxIdleSessions) {
+        this.maxIdleSessions = maxIdleSessions;
+    }
+
+    public int getIdleSessionCount() {
+        return idleCount.get();
+    }
+
+    /**
+     * @return number of sessions opened by a repository login
+     */
+    public long getLoginCount() {
+        return loginCount.get();
+    }
+
+    /**
+     * @return number of sessions served from the pool
+     */
+    public long getReuseCount() {
+        return reuseCount.get();
+    }
+
+    /**
+     * Forwards the calls to a pooled session, except the logout which returns the session to the
+     * pool. The proxy can not be used after its logout.
+     */
+    private class PooledSessionHandler implements InvocationHandler {
+        private final Session session;
+        private boolean released = false;
+
+        PooledSessionHandler(Session session) {
+            this.session = session;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String methodName = method.getName();
+            if ("logout".equals(methodName) && method.getParameterCount() == 0) {
+                if (!released) {
+                    released = true;
+                    release(session);
+                }
+                return null;
+            } else if ("isLive".equals(methodName) && method.getParameterCount() == 0) {
+                return !released && session.isLive();
+            } else if ("equals".equals(methodName) && method.getParameterCount() == 1) {
+                return proxy == args[0];
+            } else if ("hashCode".equals(methodName) && method.getParameterCount() == 0) {
+                return System.identityHashCode(proxy);
+            }
+
+            if (released && method.getDeclaringClass() != Object.class) {
+                throw new IllegalStateException("The session is logged out");
+            }
+            try {
+                return method.invoke(session, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+}
@@ -17,9 +17,9 @@
 package com.mycollab.module.page;
 
 import com.mycollab.module.ecm.ContentException;
+import com.mycollab.module.ecm.PooledJcrSessionFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.extensions.jcr.JcrSessionFactory;
 
 import javax.jcr.PropertyType;
 import javax.jcr.RepositoryException;
@@ -33,7 +33,7 @@ import javax.jcr.nodetype.PropertyDefinitionTemplate;
  * @author MyCollab Ltd.
  * @since 4.4.0
  */
-public class PageSessionFactory extends JcrSessionFactory {
+public class PageSessionFactory extends PooledJcrSessionFactory {
     private static final Logger LOG = LoggerFactory.getLogger(PageSessionFactory.class);
 
     @Override
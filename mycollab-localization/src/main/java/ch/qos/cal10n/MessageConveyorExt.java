@@ -7,16 +7,21 @@ import ch.qos.cal10n.util.CAL10NBundleFinderByClassloaderExt;
 import java.text.MessageFormat;
 import java.util.Locale;
 import java.util.Map;
+import java.util.MissingResourceException;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
+ * Message conveyor of a locale. The messages of an enum type are read once into an immutable
+ * table indexed by the ordinal of the enum constants, the messages having arguments are
+ * parsed at that time. A table is rebuilt when its resource file is modified.
+ *
  * @author MyCollab Ltd.
  * @since 4.5.2
  */
 public class MessageConveyorExt implements IMessageConveyor {
     static final ResourceLoader resourceLoader = new ResourceLoader();
     final Locale locale;
-    final Map<String, CAL10NBundleExt> cache = new ConcurrentHashMap<>();
+    final Map<Class<?>, MessageTable> cache = new ConcurrentHashMap<>();
 
     /**
      * The {@link Locale} associated with this instance.
@@ -43,22 +48,14 @@ public class MessageConveyorExt implements IMessageConveyor {
 
         Class<? extends Enum<?>> declaringClass = key.getDeclaringClass();
 
-        String declaringClassName = declaringClass.getName();
-        CAL10NBundleExt rb = cache.get(declaringClassName);
-        if (rb == null || rb.hasChanged()) {
-            rb = lookupResourceBundleByEnumClassAndLocale(declaringClass);
-            cache.put(declaringClassName, rb);
+        MessageTable table = cache.get(declaringClass);
+        if (table == null || table.bundle.hasChanged()) {
+            CAL10NBundleExt rb = lookupResourceBundleByEnumClassAndLocale(declaringClass);
+            table = new MessageTable(declaringClass, rb);
+            cache.put(declaringClass, table);
             resourceLoader.registerBundleAndFile(rb);
         }
-
-        String keyAsStr = key.toString();
-
-        String value = rb.getString(keyAsStr);
-        if (args == null || args.length == 0) {
-            return value;
-        } else {
-            return MessageFormat.format(value, args);
-        }
+        return table.getMessage(key, args);
     }
 
     private <E extends Enum<?>> CAL10NBundleExt lookupResourceBundleByEnumClassAndLocale(
@@ -104,4 +101,58 @@ public class MessageConveyorExt implements IMessageConveyor {
         }
         return getMessage(mpo.getKey(), mpo.getArgs());
     }
+
+    /**
+     * Messages of an enum type, a table is never modified after its creation so it can be shared
+     * by all threads.
+     */
+    static final class MessageTable {
+        private final CAL10NBundleExt bundle;
+        private final String[] patterns;
+        private final MessageFormat[] formats;
+
+        MessageTable(Class<? extends Enum<?>> enumClass, CAL10NBundleExt bundle) {
+            this.bundle = bundle;
+            Enum<?>[] keys = enumClass.getEnumConstants();
+            patterns = new String[keys.length];
+            formats = new MessageFormat[keys.length];
+            for (Enum<?> key : keys) {
+                String pattern;
+                try {
+                    pattern = bundle.getString(key.toString());
+                } catch (MissingResourceException e) {
+                    continue;
+                }
+                patterns[key.ordinal()] = pattern;
+                if (pattern.indexOf('{') != -1 || pattern.indexOf('\'') != -1) {
+                    try {
+                        formats[key.ordinal()] = new MessageFormat(pattern);
+                    } catch (IllegalArgumentException e) {
+                        // the message is formatted at each call to report its error
+                    }
+                }
+            }
+        }
+
+        String getMessage(Enum<?> key, Object... args) {
+            String pattern = patterns[key.ordinal()];
+            if (pattern == null) {
+                throw new MissingResourceException("Can not find resource for key " + key,
+                        key.getDeclaringClass().getName(), key.toString());
+            }
+            if (args == null || args.length == 0) {
+                return pattern;
+            }
+
+            MessageFormat format = formats[key.ordinal()];
+            if (format != null) {
+                // a MessageFormat is not thread safe, its copy is cheaper than parsing the message
+                return ((MessageFormat) format.clone()).format(args);
+            } else if (pattern.indexOf('{') == -1 && pattern.indexOf('\'') == -1) {
+                return pattern;
+            } else {
+                return MessageFormat.format(pattern, args);
+            }
+        }
+    }
 }
@@ -62,7 +62,7 @@ public class ResourceLoader {
         }).start();
     }
 
-    void registerBundleAndFile(CAL10NBundleExt cal10NBundleExt) {
+    synchronized void registerBundleAndFile(CAL10NBundleExt cal10NBundleExt) {
         File hostFile = cal10NBundleExt.getHostFile();
         if (hostFile != null) {
             File parentFile = hostFile.getParentFile();
@@ -23,37 +23,32 @@ import com.mycollab.core.utils.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
 import java.util.Locale;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
- * Wrapper class to get localization string.
+ * Wrapper class to get localization string. The message conveyors are shared by all threads,
+ * one conveyor is created per locale on its first use.
  *
  * @author MyCollab Ltd.
  * @since 1.0
  */
 public class LocalizationHelper {
     private static final Logger LOG = LoggerFactory.getLogger(LocalizationHelper.class);
-    private static final Map<Locale, IMessageConveyor> languageMap;
-    private static IMessageConveyor defaultMessage = new MessageConveyorExt(Locale.US);
+    private static final ConcurrentMap<Locale, IMessageConveyor> languageMap = new ConcurrentHashMap<>();
+    private static final IMessageConveyor defaultMessage = new MessageConveyorExt(Locale.US);
 
     static {
-        languageMap = new HashMap<>();
         languageMap.put(Locale.US, defaultMessage);
     }
 
     public static IMessageConveyor getMessageConveyor(Locale language) {
         if (language == null) {
-            return languageMap.get(Locale.US);
+            return defaultMessage;
         } else {
             IMessageConveyor messageConveyor = languageMap.get(language);
-            if (messageConveyor == null) {
-                messageConveyor = new MessageConveyorExt(language);
-                languageMap.put(language, messageConveyor);
-            }
-
-            return messageConveyor;
+            return (messageConveyor != null) ? messageConveyor : languageMap.computeIfAbsent(language, MessageConveyorExt::new);
         }
     }
 
@@ -0,0 +1,89 @@
+/**
+ * This file is part of mycollab-localization.
+ *
+ * mycollab-localization is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-localization is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-localization.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.i18n;
+
+import ch.qos.cal10n.util.CAL10NBundleExt;
+import ch.qos.cal10n.util.CAL10NBundleFinderByClassloaderExt;
+import com.mycollab.common.i18n.GenericI18Enum;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.text.MessageFormat;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the message tables of {@link LocalizationHelper} with the former lookup, which read
+ * the resource bundle and parsed the message at every call. Run it with the main method from
+ * the test classpath.
+ *
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LocalizationHelperBenchmark {
+    private Map<String, CAL10NBundleExt> bundles;
+
+    @Setup
+    public void setUp() {
+        CAL10NBundleFinderByClassloaderExt bundleFinder = new CAL10NBundleFinderByClassloaderExt(
+                GenericI18Enum.class.getClassLoader());
+        bundles = new HashMap<>();
+        bundles.put(GenericI18Enum.class.getName(), bundleFinder.getBundle("common-generic", Locale.US, "UTF-8"));
+        LocalizationHelper.getMessage(Locale.US, GenericI18Enum.BUTTON_YES);
+    }
+
+    @Benchmark
+    public String bundleLookup() {
+        return bundles.get(GenericI18Enum.class.getName()).getString(GenericI18Enum.BUTTON_YES.toString());
+    }
+
+    @Benchmark
+    public String bundleLookupWithArguments() {
+        String pattern = bundles.get(GenericI18Enum.class.getName()).getString(GenericI18Enum.WINDOW_ATTENTION_TITLE.toString());
+        return MessageFormat.format(pattern, "MyCollab");
+    }
+
+    @Benchmark
+    public String messageTable() {
+        return LocalizationHelper.getMessage(Locale.US, GenericI18Enum.BUTTON_YES);
+    }
+
+    @Benchmark
+    public String messageTableWithArguments() {
+        return LocalizationHelper.getMessage(Locale.US, GenericI18Enum.WINDOW_ATTENTION_TITLE, "MyCollab");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String messageTableConcurrent() {
+        return LocalizationHelper.getMessage(Locale.US, GenericI18Enum.WINDOW_ATTENTION_TITLE, "MyCollab");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(LocalizationHelperBenchmark.class.getSimpleName()).build()).run();
+    }
+}
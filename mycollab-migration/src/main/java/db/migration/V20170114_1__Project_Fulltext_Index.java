@@ -0,0 +1,66 @@
+/**
+ * This file is part of mycollab-migration.
+ *
+ * mycollab-migration is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-migration is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-migration.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package db.migration;
+
+import org.flywaydb.core.api.migration.spring.SpringJdbcMigration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Creates the n-gram full text indexes of the project item searches. The n-gram parser indexes
+ * every sequence of characters, so a search matches the middle of the words and the texts
+ * without spaces (Chinese, Japanese...) like the former LIKE patterns. The stopwords are not
+ * used for these indexes, a stopword would drop every n-gram containing it. The indexes are
+ * not created on the databases without the n-gram parser (before MySQL 5.7.6), the searches
+ * only use LIKE patterns there.
+ *
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+public class V20170114_1__Project_Fulltext_Index implements SpringJdbcMigration {
+    private static final Logger LOG = LoggerFactory.getLogger(V20170114_1__Project_Fulltext_Index.class);
+
+    private static final String[][] INDEXES = {
+            {"m_prj_task", "FT_m_prj_task_1", "`name`"},
+            {"m_prj_task", "FT_m_prj_task_2", "`name`, `description`"},
+            {"m_tracker_bug", "FT_m_tracker_bug_1", "`name`"},
+            {"m_tracker_bug", "FT_m_tracker_bug_2", "`name`, `environment`, `description`"},
+            {"m_prj_risk", "FT_m_prj_risk_1", "`name`"},
+            {"m_prj_risk", "FT_m_prj_risk_2", "`name`, `description`"},
+            {"m_prj_milestone", "FT_m_prj_milestone_1", "`name`"},
+            {"m_prj_milestone", "FT_m_prj_milestone_2", "`name`, `description`"},
+            {"m_prj_message", "FT_m_prj_message_1", "`title`, `message`"},
+            {"m_tracker_component", "FT_m_tracker_component_1", "`name`, `description`"},
+            {"m_tracker_version", "FT_m_tracker_version_1", "`name`, `description`"}};
+
+    @Override
+    public void migrate(JdbcTemplate jdbcTemplate) throws Exception {
+        Integer ngramParsers = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.PLUGINS " +
+                "WHERE PLUGIN_NAME = 'ngram' AND PLUGIN_STATUS = 'ACTIVE'", Integer.class);
+        if (ngramParsers == 0) {
+            LOG.info("The database does not support the ngram full text parser, the searches will use LIKE patterns");
+            return;
+        }
+
+        jdbcTemplate.execute("SET SESSION innodb_ft_enable_stopword = OFF");
+        for (String[] index : INDEXES) {
+            jdbcTemplate.execute(String.format("ALTER TABLE `%s` ADD FULLTEXT INDEX `%s` (%s) WITH PARSER ngram",
+                    index[0], index[1], index[2]));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+CREATE TABLE `m_prj_project_statistic` (
+  `projectId` INT(10) UNSIGNED NOT NULL,
+  `sAccountId` INT(11) NOT NULL,
+  `numBugs` INT(11) NOT NULL DEFAULT 0,
+  `numOpenBugs` INT(11) NOT NULL DEFAULT 0,
+  `numTasks` INT(11) NOT NULL DEFAULT 0,
+  `numOpenTasks` INT(11) NOT NULL DEFAULT 0,
+  `numRisks` INT(11) NOT NULL DEFAULT 0,
+  `numOpenRisks` INT(11) NOT NULL DEFAULT 0,
+  `numActiveMembers` INT(11) NOT NULL DEFAULT 0,
+  `numClosedPhase` INT(11) NOT NULL DEFAULT 0,
+  `numInProgressPhase` INT(11) NOT NULL DEFAULT 0,
+  `numFuturePhase` INT(11) NOT NULL DEFAULT 0,
+  `totalBillableHours` DOUBLE NOT NULL DEFAULT 0,
+  `totalNonBillableHours` DOUBLE NOT NULL DEFAULT 0,
+  `lastUpdatedTime` DATETIME NOT NULL,
+  PRIMARY KEY (`projectId`),
+  INDEX `FK_m_prj_project_statistic_2_idx` (`sAccountId` ASC),
+  CONSTRAINT `FK_m_prj_project_statistic_1`
+    FOREIGN KEY (`projectId`)
+    REFERENCES `m_prj_project` (`id`)
+    ON DELETE CASCADE
+    ON UPDATE CASCADE,
+  CONSTRAINT `FK_m_prj_project_statistic_2`
+    FOREIGN KEY (`sAccountId`)
+    REFERENCES `s_account` (`id`)
+    ON DELETE CASCADE
+    ON UPDATE CASCADE);
+
+INSERT INTO `m_prj_project_statistic` (`projectId`, `sAccountId`, `numBugs`, `numOpenBugs`, `numTasks`, `numOpenTasks`,
+  `numRisks`, `numOpenRisks`, `numActiveMembers`, `numClosedPhase`, `numInProgressPhase`, `numFuturePhase`,
+  `totalBillableHours`, `totalNonBillableHours`, `lastUpdatedTime`)
+SELECT m_prj_project.id, m_prj_project.sAccountId,
+  (SELECT COUNT(*) FROM m_tracker_bug WHERE m_tracker_bug.projectId=m_prj_project.id),
+  (SELECT COUNT(*) FROM m_tracker_bug WHERE m_tracker_bug.projectId=m_prj_project.id AND m_tracker_bug.status NOT IN ('Resolved', 'Verified')),
+  (SELECT COUNT(*) FROM m_prj_task WHERE m_prj_task.projectId=m_prj_project.id),
+  (SELECT COUNT(*) FROM m_prj_task WHERE m_prj_task.projectId=m_prj_project.id AND m_prj_task.status <> 'Closed'),
+  (SELECT COUNT(*) FROM m_prj_risk WHERE m_prj_risk.projectId=m_prj_project.id),
+  (SELECT COUNT(*) FROM m_prj_risk WHERE m_prj_risk.projectId=m_prj_project.id AND m_prj_risk.status <> 'Closed'),
+  (SELECT COUNT(*) FROM m_prj_member WHERE m_prj_member.projectId = m_prj_project.id AND m_prj_member.status='Active'),
+  (SELECT COUNT(*) FROM m_prj_milestone WHERE m_prj_milestone.projectId = m_prj_project.id AND m_prj_milestone.status = 'Closed'),
+  (SELECT COUNT(*) FROM m_prj_milestone WHERE m_prj_milestone.projectId = m_prj_project.id AND m_prj_milestone.status = 'InProgress'),
+  (SELECT COUNT(*) FROM m_prj_milestone WHERE m_prj_milestone.projectId = m_prj_project.id AND m_prj_milestone.status = 'Future'),
+  (SELECT COALESCE(SUM(m_prj_time_logging.logValue), 0) FROM m_prj_time_logging WHERE m_prj_time_logging.projectId = m_prj_project.id AND m_prj_time_logging.isBillable = 1),
+  (SELECT COALESCE(SUM(m_prj_time_logging.logValue), 0) FROM m_prj_time_logging WHERE m_prj_time_logging.projectId = m_prj_project.id AND m_prj_time_logging.isBillable = 0),
+  NOW()
+FROM m_prj_project;
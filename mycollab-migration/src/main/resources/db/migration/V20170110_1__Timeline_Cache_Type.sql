@@ -0,0 +1,4 @@
+DELETE FROM `s_timeline_tracking_cache` WHERE id > 0;
+ALTER TABLE `s_timeline_tracking_cache`
+CHANGE COLUMN `id` `id` INT(11) UNSIGNED NOT NULL AUTO_INCREMENT,
+ADD INDEX `IDX_s_timeline_tracking_cache_1` (`extratypeid` ASC, `forDay` ASC);
@@ -0,0 +1,17 @@
+CREATE TABLE `s_mail_queue` (
+  `id` INT(11) UNSIGNED NOT NULL AUTO_INCREMENT,
+  `fromEmail` VARCHAR(255) NOT NULL,
+  `fromName` VARCHAR(255) NULL,
+  `toEmails` TEXT NOT NULL,
+  `ccEmails` TEXT NULL,
+  `bccEmails` TEXT NULL,
+  `subject` VARCHAR(1000) NULL,
+  `html` LONGTEXT NULL,
+  `canRetry` BIT(1) NOT NULL DEFAULT b'1',
+  `attempts` INT(11) NOT NULL DEFAULT 0,
+  `nextAttemptTime` DATETIME NOT NULL,
+  `claimToken` VARCHAR(45) NULL,
+  `claimTime` DATETIME NULL,
+  `createdTime` DATETIME NOT NULL,
+  PRIMARY KEY (`id`),
+  INDEX `IDX_s_mail_queue_1` (`claimToken` ASC, `nextAttemptTime` ASC));
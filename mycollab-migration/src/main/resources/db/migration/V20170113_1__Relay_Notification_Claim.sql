@@ -0,0 +1,5 @@
+ALTER TABLE `s_relay_email_notification`
+ADD COLUMN `createdTime` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+ADD COLUMN `claimToken` VARCHAR(45) NULL,
+ADD COLUMN `claimTime` DATETIME NULL,
+ADD INDEX `IDX_s_relay_email_notification_4` (`claimToken` ASC, `type` ASC);
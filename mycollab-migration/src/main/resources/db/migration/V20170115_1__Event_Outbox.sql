@@ -0,0 +1,13 @@
+CREATE TABLE `s_event_outbox` (
+  `id` BIGINT(20) UNSIGNED NOT NULL AUTO_INCREMENT,
+  `eventType` VARCHAR(255) NOT NULL,
+  `payload` LONGBLOB NOT NULL,
+  `status` TINYINT(4) NOT NULL DEFAULT 0,
+  `attempts` INT(11) NOT NULL DEFAULT 0,
+  `lastError` TEXT NULL,
+  `nextAttemptTime` DATETIME NOT NULL,
+  `claimToken` VARCHAR(45) NULL,
+  `claimTime` DATETIME NULL,
+  `createdTime` DATETIME NOT NULL,
+  PRIMARY KEY (`id`),
+  INDEX `IDX_s_event_outbox_1` (`claimToken` ASC, `status` ASC, `nextAttemptTime` ASC));
@@ -0,0 +1,2 @@
+DELETE `d1` FROM `m_ecm_driveinfo` `d1` INNER JOIN `m_ecm_driveinfo` `d2` ON `d1`.`sAccountId` = `d2`.`sAccountId` AND `d1`.`id` > `d2`.`id`;
+ALTER TABLE `m_ecm_driveinfo` ADD UNIQUE INDEX `UK_m_ecm_driveinfo_sAccountId` (`sAccountId`);
@@ -0,0 +1,16 @@
+CREATE TABLE `m_prj_ticket_key_sequence` (
+  `projectId` INT(10) UNSIGNED NOT NULL,
+  `ticketType` VARCHAR(45) NOT NULL,
+  `nextKey` INT(11) NOT NULL,
+  PRIMARY KEY (`projectId`, `ticketType`),
+  CONSTRAINT `FK_m_prj_ticket_key_sequence_1`
+    FOREIGN KEY (`projectId`)
+    REFERENCES `m_prj_project` (`id`)
+    ON DELETE CASCADE
+    ON UPDATE CASCADE);
+
+INSERT INTO `m_prj_ticket_key_sequence`(`projectId`, `ticketType`, `nextKey`)
+  SELECT `projectId`, 'Project-Bug', IFNULL(MAX(`bugkey`), 0) + 1 FROM `m_tracker_bug` GROUP BY `projectId`;
+
+INSERT INTO `m_prj_ticket_key_sequence`(`projectId`, `ticketType`, `nextKey`)
+  SELECT `projectId`, 'Project-Task', IFNULL(MAX(`taskkey`), 0) + 1 FROM `m_prj_task` GROUP BY `projectId`;
@@ -0,0 +1,4 @@
+DELETE FROM `s_timeline_tracking_cache` WHERE id > 0;
+ALTER TABLE `s_timeline_tracking_cache`
+DROP INDEX `IDX_s_timeline_tracking_cache_1`,
+ADD UNIQUE INDEX `UK_s_timeline_tracking_cache_day` (`sAccountId` ASC, `extratypeid` ASC, `type` ASC, `fieldgroup` ASC, `fieldval` ASC, `forDay` ASC);
@@ -0,0 +1,2 @@
+ALTER TABLE `s_event_outbox`
+ADD COLUMN `pendingSubscribers` TEXT NULL AFTER `lastError`;
@@ -18,73 +18,276 @@ package com.mycollab.reporting;
 
 import com.mycollab.db.arguments.BasicSearchRequest;
 import com.mycollab.db.arguments.SearchCriteria;
+import com.mycollab.db.arguments.SearchCursor;
+import com.mycollab.db.persistence.ISearchableDAO;
+import com.mycollab.db.persistence.service.DefaultSearchService;
+import com.mycollab.db.persistence.service.DefaultService;
 import com.mycollab.db.persistence.service.ISearchableService;
-import net.sf.jasperreports.engine.JRDataSource;
+import com.mycollab.spring.AppContextUtil;
 import net.sf.jasperreports.engine.JRException;
 import net.sf.jasperreports.engine.JRField;
+import net.sf.jasperreports.engine.JRRewindableDataSource;
 import org.apache.commons.beanutils.PropertyUtils;
+import org.apache.ibatis.binding.MapperMethod;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.aop.framework.Advised;
 
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 /**
+ * Iterates the items of a search for a report. When the search service is backed by a
+ * MyBatis mapper, the items are streamed from one forward only result set instead of being
+ * paged by offset, so the export reads every row once. Search results with nested result
+ * maps (items carrying collections) can not be streamed row by row, they are read by large
+ * pages instead, each page after the keyset cursor of the previous one when the service
+ * supports it.
+ *
  * @author MyCollab Ltd.
  * @since 1.0
  */
-public class GroupIteratorDataSource<SearchService extends ISearchableService<S>, S extends SearchCriteria> implements JRDataSource {
-    private static final int ITEMS_PER_PAGE = 20;
+public class GroupIteratorDataSource<SearchService extends ISearchableService<S>, S extends SearchCriteria> implements JRRewindableDataSource {
+    private static final int ITEMS_PER_PAGE = 500;
+    private static final String STREAM_STATEMENT_SUFFIX = "-stream";
     private static final Logger LOG = LoggerFactory.getLogger(GroupIteratorDataSource.class);
 
-    private int currentIndex = 0;
-    private int currentPage = 0;
-
     private SearchService searchService;
     private S searchCriteria;
+    private int totalItems;
+    private final int itemsPerPage;
 
-    private List<?> currentData;
+    private int currentIndex = 0;
     private Object currentItem;
 
-    private int totalItems;
+    private SqlSession session;
+    private Cursor<?> cursor;
+    private Iterator<?> iterator;
+
+    private final Map<Class<?>, Map<String, Method>> readMethods = new HashMap<>();
 
     public GroupIteratorDataSource(SearchService searchService, S searchCriteria, int totalItems) {
+        this(searchService, searchCriteria, totalItems, ITEMS_PER_PAGE);
+    }
+
+    GroupIteratorDataSource(SearchService searchService, S searchCriteria, int totalItems, int itemsPerPage) {
         this.searchService = searchService;
         this.searchCriteria = searchCriteria;
-
         this.totalItems = totalItems;
-        BasicSearchRequest<S> searchRequest = new BasicSearchRequest<>(searchCriteria, currentPage, ITEMS_PER_PAGE);
-        currentData = searchService.findPageableListByCriteria(searchRequest);
+        this.itemsPerPage = itemsPerPage;
     }
 
     @Override
     public boolean next() throws JRException {
-        boolean result = (currentIndex < totalItems);
-        if (result) {
-            if (currentIndex == (currentPage + 1) * ITEMS_PER_PAGE) {
-                currentPage = currentPage + 1;
-                BasicSearchRequest<S> searchRequest = new BasicSearchRequest<>(searchCriteria, currentPage, ITEMS_PER_PAGE);
-                currentData = searchService.findPageableListByCriteria(searchRequest);
-                LOG.debug("Current data {}", currentData.size());
-            }
+        if (currentIndex >= totalItems) {
+            close();
+            return false;
+        }
 
-            LOG.debug("Current index {} - {} - {} - {}", currentIndex, currentPage, currentData.size(), totalItems);
-            if (currentIndex % ITEMS_PER_PAGE < currentData.size()) {
-                currentItem = currentData.get(currentIndex % ITEMS_PER_PAGE);
-            }
+        if (iterator == null) {
+            iterator = openIterator();
+        }
 
-            currentIndex = currentIndex + 1;
+        if (!iterator.hasNext()) {
+            close();
+            return false;
         }
+        currentItem = iterator.next();
+        currentIndex++;
+        return true;
+    }
 
-        return result;
+    @Override
+    public void moveFirst() throws JRException {
+        close();
+        currentIndex = 0;
+        currentItem = null;
     }
 
     @Override
     public Object getFieldValue(JRField jrField) throws JRException {
+        if (currentItem == null) {
+            return null;
+        }
         try {
             String fieldName = jrField.getName();
-            return PropertyUtils.getProperty(currentItem, fieldName);
+            Method readMethod = getReadMethod(currentItem.getClass(), fieldName);
+            return (readMethod != null) ? readMethod.invoke(currentItem) : PropertyUtils.getProperty(currentItem, fieldName);
         } catch (Exception e) {
             throw new JRException(e);
         }
     }
+
+    /**
+     * Releases the result set and the database connection of the iteration. It is safe to
+     * call this method several times.
+     */
+    public void close() {
+        iterator = null;
+        if (cursor != null) {
+            try {
+                cursor.close();
+            } catch (Exception e) {
+                LOG.error("Error while closing the report cursor", e);
+            }
+            cursor = null;
+        }
+        if (session != null) {
+            session.close();
+            session = null;
+        }
+    }
+
+    /**
+     * @return true if the items are streamed from a result set
+     */
+    boolean isStreamed() {
+        return cursor != null;
+    }
+
+    private Iterator<?> openIterator() {
+        String statementId = getSearchStatementId();
+        if (statementId != null) {
+            SqlSessionFactory sqlSessionFactory = AppContextUtil.getSpringBean(SqlSessionFactory.class);
+            Configuration configuration = sqlSessionFactory.getConfiguration();
+            MappedStatement statement = configuration.getMappedStatement(statementId);
+            if (!statement.hasNestedResultMaps()) {
+                MapperMethod.ParamMap<Object> params = new MapperMethod.ParamMap<>();
+                params.put("searchCriteria", searchCriteria);
+                params.put("param1", searchCriteria);
+                session = sqlSessionFactory.openSession();
+                cursor = session.selectCursor(getStreamStatementId(configuration, statement), params);
+                return cursor.iterator();
+            }
+        }
+        return new PageIterator();
+    }
+
+    private String getSearchStatementId() {
+        Object service = searchService;
+        try {
+            while (service instanceof Advised) {
+                service = ((Advised) service).getTargetSource().getTarget();
+            }
+        } catch (Exception e) {
+            LOG.warn("Can not resolve the target of search service " + searchService, e);
+            return null;
+        }
+
+        ISearchableDAO<?> mapper = null;
+        if (service instanceof DefaultSearchService) {
+            mapper = ((DefaultSearchService<?>) service).getSearchMapper();
+        } else if (service instanceof DefaultService) {
+            mapper = ((DefaultService<?, ?, ?>) service).getSearchMapper();
+        }
+        if (mapper != null && Proxy.isProxyClass(mapper.getClass())) {
+            for (Class<?> mapperInterface : mapper.getClass().getInterfaces()) {
+                String statementId = mapperInterface.getName() + ".findPageableListByCriteria";
+                SqlSessionFactory sqlSessionFactory = AppContextUtil.getSpringBean(SqlSessionFactory.class);
+                if (sqlSessionFactory.getConfiguration().hasStatement(statementId, false)) {
+                    return statementId;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Registers once a copy of <code>statement</code> reading its rows through a forward only
+     * streaming result set.
+     */
+    private static String getStreamStatementId(Configuration configuration, MappedStatement statement) {
+        String streamStatementId = statement.getId() + STREAM_STATEMENT_SUFFIX;
+        synchronized (configuration) {
+            if (!configuration.hasStatement(streamStatementId, false)) {
+                MappedStatement streamStatement = new MappedStatement.Builder(configuration, streamStatementId,
+                        statement.getSqlSource(), statement.getSqlCommandType())
+                        .resource(statement.getResource())
+                        .parameterMap(statement.getParameterMap())
+                        .resultMaps(statement.getResultMaps())
+                        .statementType(statement.getStatementType())
+                        .timeout(statement.getTimeout())
+                        .databaseId(statement.getDatabaseId())
+                        .lang(statement.getLang())
+                        .resultSetType(ResultSetType.FORWARD_ONLY)
+                        .fetchSize(Integer.MIN_VALUE)
+                        .useCache(false)
+                        .flushCacheRequired(false)
+                        .build();
+                configuration.addMappedStatement(streamStatement);
+            }
+        }
+        return streamStatementId;
+    }
+
+    private Method getReadMethod(Class<?> itemClass, String fieldName) throws Exception {
+        Map<String, Method> classMethods = readMethods.get(itemClass);
+        if (classMethods == null) {
+            classMethods = new HashMap<>();
+            readMethods.put(itemClass, classMethods);
+        }
+
+        if (classMethods.containsKey(fieldName)) {
+            return classMethods.get(fieldName);
+        }
+
+        Method readMethod = null;
+        if (fieldName.indexOf('.') == -1 && fieldName.indexOf('[') == -1 && fieldName.indexOf('(') == -1) {
+            PropertyDescriptor descriptor = PropertyUtils.getPropertyDescriptor(currentItem, fieldName);
+            if (descriptor != null && descriptor.getReadMethod() != null) {
+                readMethod = descriptor.getReadMethod();
+                readMethod.setAccessible(true);
+            }
+        }
+        classMethods.put(fieldName, readMethod);
+        return readMethod;
+    }
+
+    /**
+     * Reads the search result by pages, a page is read after the keyset cursor of the previous
+     * page if the service can build one, otherwise by offset.
+     */
+    private class PageIterator implements Iterator<Object> {
+        private BasicSearchRequest<S> searchRequest = new BasicSearchRequest<>(searchCriteria, 1, itemsPerPage);
+        private List<?> currentData = Collections.emptyList();
+        private int pageIndex = 0;
+        private boolean lastPage = false;
+
+        @Override
+        public boolean hasNext() {
+            if (pageIndex < currentData.size()) {
+                return true;
+            }
+            if (lastPage) {
+                return false;
+            }
+            if (!currentData.isEmpty()) {
+                SearchCursor nextCursor = searchService.getNextPageCursor(searchRequest, currentData.get(currentData.size() - 1));
+                searchRequest = new BasicSearchRequest<>(searchCriteria, searchRequest.getCurrentPage() + 1, itemsPerPage);
+                searchRequest.setCursor(nextCursor);
+            }
+            currentData = searchService.findPageableListByCriteria(searchRequest);
+            LOG.debug("Load report page {} - {}", searchRequest.getCurrentPage(), currentData.size());
+            pageIndex = 0;
+            lastPage = currentData.size() < itemsPerPage;
+            return !currentData.isEmpty();
+        }
+
+        @Override
+        public Object next() {
+            return currentData.get(pageIndex++);
+        }
+    }
 }
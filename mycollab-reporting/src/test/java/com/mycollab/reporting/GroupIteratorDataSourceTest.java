@@ -0,0 +1,105 @@
+/**
+ * This file is part of mycollab-reporting.
+ *
+ * mycollab-reporting is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-reporting is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-reporting.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.reporting;
+
+import com.mycollab.db.arguments.BasicSearchRequest;
+import com.mycollab.db.arguments.NumberSearchField;
+import com.mycollab.db.arguments.SearchCriteria;
+import com.mycollab.module.tracker.domain.SimpleBug;
+import com.mycollab.module.tracker.domain.SimpleVersion;
+import com.mycollab.module.tracker.domain.criteria.BugSearchCriteria;
+import com.mycollab.module.tracker.domain.criteria.VersionSearchCriteria;
+import com.mycollab.module.tracker.service.BugService;
+import com.mycollab.module.tracker.service.VersionService;
+import com.mycollab.test.DataSet;
+import com.mycollab.test.service.IntegrationServiceTest;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.design.JRDesignField;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+public class GroupIteratorDataSourceTest extends IntegrationServiceTest {
+    @Autowired
+    private BugService bugService;
+
+    @Autowired
+    private VersionService versionService;
+
+    @DataSet
+    @Test
+    public void testStreamDefaultServiceItems() throws JRException {
+        VersionSearchCriteria criteria = new VersionSearchCriteria();
+        criteria.setSaccountid(new NumberSearchField(1));
+        criteria.setProjectId(new NumberSearchField(1));
+        List<SimpleVersion> versions = versionService.findPageableListByCriteria(new BasicSearchRequest<>(criteria));
+
+        GroupIteratorDataSource<VersionService, VersionSearchCriteria> dataSource = new GroupIteratorDataSource<>(
+                versionService, criteria, versions.size());
+        assertThat(dataSource.next()).isTrue();
+        assertThat(dataSource.isStreamed()).isTrue();
+        dataSource.moveFirst();
+
+        assertThat(readIds(dataSource)).containsExactlyElementsOf(versions.stream().map(SimpleVersion::getId)
+                .collect(Collectors.toList()));
+    }
+
+    @DataSet
+    @Test
+    public void testReadDefaultServiceItemsByKeysetPages() throws JRException {
+        BugSearchCriteria criteria = new BugSearchCriteria();
+        criteria.setSaccountid(new NumberSearchField(1));
+        List<SimpleBug> bugs = bugService.findPageableListByCriteria(new BasicSearchRequest<>(criteria));
+        assertThat(bugs).hasSize(5);
+
+        BugService recordingService = mock(BugService.class, delegatesTo(bugService));
+        GroupIteratorDataSource<BugService, BugSearchCriteria> dataSource = new GroupIteratorDataSource<>(
+                recordingService, criteria, bugs.size(), 2);
+
+        assertThat(readIds(dataSource)).containsExactlyElementsOf(bugs.stream().map(SimpleBug::getId)
+                .collect(Collectors.toList()));
+        verify(recordingService, times(2)).findPageableListByCriteria(
+                argThat((BasicSearchRequest<BugSearchCriteria> request) -> request.getCursor() != null));
+    }
+
+    private static List<Object> readIds(GroupIteratorDataSource<?, ? extends SearchCriteria> dataSource) throws JRException {
+        JRDesignField idField = new JRDesignField();
+        idField.setName("id");
+        List<Object> ids = new ArrayList<>();
+        while (dataSource.next()) {
+            ids.add(dataSource.getFieldValue(idField));
+        }
+        return ids;
+    }
+}
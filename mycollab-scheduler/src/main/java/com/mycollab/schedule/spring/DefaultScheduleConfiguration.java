@@ -70,6 +70,20 @@ public class DefaultScheduleConfiguration {
         return bean;
     }
 
+    @Bean
+    public JobDetailFactoryBean rebuildProjectStatisticsJob() {
+        JobDetailFactoryBean bean = new JobDetailFactoryBean();
+        bean.setJobClass(RebuildProjectStatisticsJob.class);
+        return bean;
+    }
+
+    @Bean
+    public JobDetailFactoryBean reconcileDriveUsageJob() {
+        JobDetailFactoryBean bean = new JobDetailFactoryBean();
+        bean.setJobClass(ReconcileDriveUsageJob.class);
+        return bean;
+    }
+
     @Bean
     public CronTriggerFactoryBean projectSendRelayNotificationEmailTrigger() {
         CronTriggerFactoryBean bean = new CronTriggerFactoryBean();
@@ -110,6 +124,22 @@ public class DefaultScheduleConfiguration {
         return bean;
     }
 
+    @Bean
+    public CronTriggerFactoryBean rebuildProjectStatisticsTrigger() {
+        CronTriggerFactoryBean bean = new CronTriggerFactoryBean();
+        bean.setJobDetail(rebuildProjectStatisticsJob().getObject());
+        bean.setCronExpression("0 0 3 * * ?");
+        return bean;
+    }
+
+    @Bean
+    public CronTriggerFactoryBean reconcileDriveUsageTrigger() {
+        CronTriggerFactoryBean bean = new CronTriggerFactoryBean();
+        bean.setJobDetail(reconcileDriveUsageJob().getObject());
+        bean.setCronExpression("0 30 3 * * ?");
+        return bean;
+    }
+
     @Autowired
     private ApplicationContext applicationContext;
 
@@ -133,7 +163,9 @@ public class DefaultScheduleConfiguration {
                 projectOverdueAssignmentsNotificationEmailTrigger().getObject(),
                 crmSendRelayNotificationEmailTrigger().getObject(),
                 cleanUpTimelineCacheDataTrigger().getObject(),
-                liveInstanceMonitorTrigger().getObject()
+                liveInstanceMonitorTrigger().getObject(),
+                rebuildProjectStatisticsTrigger().getObject(),
+                reconcileDriveUsageTrigger().getObject()
         );
         return bean;
     }
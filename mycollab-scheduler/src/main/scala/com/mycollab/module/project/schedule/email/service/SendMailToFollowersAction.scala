@@ -16,6 +16,8 @@
  */
 package com.mycollab.module.project.schedule.email.service
 
+import java.util.Locale
+
 import com.hp.gagawa.java.elements.A
 import com.mycollab.common.domain.criteria.CommentSearchCriteria
 import com.mycollab.common.domain.{MailRecipientField, SimpleRelayEmailNotification}
@@ -36,6 +38,8 @@ import com.mycollab.schedule.email.format.WebItem
 import com.mycollab.schedule.email.{ItemFieldMapper, MailContext, SendingRelayEmailNotificationAction}
 import org.springframework.beans.factory.annotation.Autowired
 
+import scala.collection.mutable
+
 /**
   * @author MyCollab Ltd.
   * @since 4.6.0
@@ -61,22 +65,18 @@ abstract class SendMailToFollowersAction[B] extends SendingRelayEmailNotificatio
       bean = getBeanInContext(projectRelayEmailNotification)
       if (bean != null) {
         contentGenerator.putVariable("logoPath", LinkUtils.accountLogoPath(notification.getSaccountid, notification.getAccountLogo))
-        import scala.collection.JavaConversions._
-        for (user <- notifiers) {
+        contentGenerator.putVariable("mapper", getItemFieldMapper)
+        val localeFragments = mutable.HashMap[Locale, Map[String, String]]()
+        val mails = for (user <- notifiers.toList) yield {
           val context = new MailContext[B](notification, user, siteUrl)
           context.setWrappedBean(bean)
           buildExtraTemplateVariables(context)
           contentGenerator.putVariable("context", context)
-          contentGenerator.putVariable("mapper", getItemFieldMapper)
           contentGenerator.putVariable("userName", user.getDisplayName)
-          contentGenerator.putVariable("copyRight", LocalizationHelper.getMessage(context.locale, MailI18nEnum.Copyright,
-            DateTimeUtils.getCurrentYear))
-          contentGenerator.putVariable("Project_Footer", getProjectFooter(context))
-          val userMail = new MailRecipientField(user.getEmail, user.getUsername)
-          val recipients = List[MailRecipientField](userMail)
-          extMailService.sendHTMLMail(SiteConfiguration.getNotifyEmail, SiteConfiguration.getDefaultSiteName, recipients,
-            getCreateSubject(context), contentGenerator.parseFile("mailProjectItemCreatedNotifier.ftl", context.getLocale))
+          putLocaleFragments(localeFragments, context, locale => getFooterFragments(context))
+          new RecipientMail(user, getCreateSubject(context), context.getLocale, contentGenerator.createModel())
         }
+        sendMails("mailProjectItemCreatedNotifier.ftl", mails)
       }
     }
   }
@@ -89,7 +89,6 @@ abstract class SendMailToFollowersAction[B] extends SendingRelayEmailNotificatio
       bean = getBeanInContext(projectRelayEmailNotification)
       if (bean != null) {
         contentGenerator.putVariable("logoPath", LinkUtils.accountLogoPath(notification.getSaccountid, notification.getAccountLogo))
-        import scala.collection.JavaConversions._
         val auditLog = auditLogService.findLastestLog(notification.getTypeid.toInt, notification.getSaccountid)
         contentGenerator.putVariable("historyLog", auditLog)
         contentGenerator.putVariable("mapper", getItemFieldMapper)
@@ -100,26 +99,25 @@ abstract class SendMailToFollowersAction[B] extends SendingRelayEmailNotificatio
         val comments = commentService.findPageableListByCriteria(new BasicSearchRequest[CommentSearchCriteria](searchCriteria, 0, 5))
         contentGenerator.putVariable("lastComments", comments)
         
-        for (user <- notifiers) {
+        val localeFragments = mutable.HashMap[Locale, Map[String, String]]()
+        val mails = for (user <- notifiers.toList) yield {
           val context = new MailContext[B](notification, user, siteUrl)
           context.setWrappedBean(bean)
           buildExtraTemplateVariables(context)
           contentGenerator.putVariable("context", context)
-          if (comments.size() > 0) {
-            contentGenerator.putVariable("lastCommentsValue", LocalizationHelper.getMessage(context.locale, MailI18nEnum.Last_Comments_Value, "" + comments.size()))
-          }
-          contentGenerator.putVariable("Changes", LocalizationHelper.getMessage(context.locale, MailI18nEnum.Changes))
-          contentGenerator.putVariable("Field", LocalizationHelper.getMessage(context.locale, MailI18nEnum.Field))
-          contentGenerator.putVariable("Old_Value", LocalizationHelper.getMessage(context.locale, MailI18nEnum.Old_Value))
-          contentGenerator.putVariable("New_Value", LocalizationHelper.getMessage(context.locale, MailI18nEnum.New_Value))
-          contentGenerator.putVariable("copyRight", LocalizationHelper.getMessage(context.locale, MailI18nEnum.Copyright,
-            DateTimeUtils.getCurrentYear))
-          contentGenerator.putVariable("Project_Footer", getProjectFooter(context))
-          val userMail = new MailRecipientField(user.getEmail, user.getUsername)
-          val recipients = List[MailRecipientField](userMail)
-          extMailService.sendHTMLMail(SiteConfiguration.getNotifyEmail, SiteConfiguration.getDefaultSiteName, recipients,
-            getUpdateSubject(context), contentGenerator.parseFile("mailProjectItemUpdatedNotifier.ftl", context.getLocale))
+          putLocaleFragments(localeFragments, context, locale => {
+            val fragments = getFooterFragments(context) ++ Map(
+              "Changes" -> LocalizationHelper.getMessage(locale, MailI18nEnum.Changes),
+              "Field" -> LocalizationHelper.getMessage(locale, MailI18nEnum.Field),
+              "Old_Value" -> LocalizationHelper.getMessage(locale, MailI18nEnum.Old_Value),
+              "New_Value" -> LocalizationHelper.getMessage(locale, MailI18nEnum.New_Value))
+            if (comments.size() > 0) fragments + ("lastCommentsValue" -> LocalizationHelper.getMessage(locale,
+              MailI18nEnum.Last_Comments_Value, "" + comments.size()))
+            else fragments
+          })
+          new RecipientMail(user, getUpdateSubject(context), context.getLocale, contentGenerator.createModel())
         }
+        sendMails("mailProjectItemUpdatedNotifier.ftl", mails)
       }
     }
   }
@@ -132,7 +130,6 @@ abstract class SendMailToFollowersAction[B] extends SendingRelayEmailNotificatio
       bean = getBeanInContext(projectRelayEmailNotification)
       if (bean != null) {
         contentGenerator.putVariable("logoPath", LinkUtils.accountLogoPath(notification.getSaccountid, notification.getAccountLogo))
-        import scala.collection.JavaConversions._
         val searchCriteria = new CommentSearchCriteria
         searchCriteria.setType(StringSearchField.and(notification.getType))
         searchCriteria.setTypeId(StringSearchField.and(notification.getTypeid))
@@ -140,25 +137,51 @@ abstract class SendMailToFollowersAction[B] extends SendingRelayEmailNotificatio
         val comments = commentService.findPageableListByCriteria(new BasicSearchRequest[CommentSearchCriteria](searchCriteria, 0, 5))
         contentGenerator.putVariable("lastComments", comments)
         
-        for (user <- notifiers) {
+        val localeFragments = mutable.HashMap[Locale, Map[String, String]]()
+        val mails = for (user <- notifiers.toList) yield {
           val context = new MailContext[B](notification, user, siteUrl)
           context.wrappedBean = bean
           buildExtraTemplateVariables(context)
-          val userLocale = LocalizationHelper.getLocaleInstance(user.getLanguage)
-          contentGenerator.putVariable("lastCommentsValue", LocalizationHelper.getMessage(userLocale, MailI18nEnum.Last_Comments_Value, "" + comments.size()))
           contentGenerator.putVariable("comment", context.getEmailNotification)
-          contentGenerator.putVariable("copyRight", LocalizationHelper.getMessage(context.locale, MailI18nEnum.Copyright,
-            DateTimeUtils.getCurrentYear))
-          contentGenerator.putVariable("Project_Footer", getProjectFooter(context))
-          val userMail = new MailRecipientField(user.getEmail, user.getUsername)
-          val toRecipients = List[MailRecipientField](userMail)
-          extMailService.sendHTMLMail(SiteConfiguration.getNotifyEmail, SiteConfiguration.getDefaultSiteName, toRecipients,
-            getCommentSubject(context), contentGenerator.parseFile("mailProjectItemCommentNotifier.ftl", context.getLocale))
+          putLocaleFragments(localeFragments, context, locale => getFooterFragments(context) + ("lastCommentsValue" ->
+            LocalizationHelper.getMessage(locale, MailI18nEnum.Last_Comments_Value, "" + comments.size())))
+          new RecipientMail(user, getCommentSubject(context), context.getLocale, contentGenerator.createModel())
         }
+        sendMails("mailProjectItemCommentNotifier.ftl", mails)
       }
     }
   }
   
+  /**
+    * Puts the localized fragments of the recipient locale, they are computed once per locale
+    * for all recipients of the notification.
+    */
+  private def putLocaleFragments(localeFragments: mutable.Map[Locale, Map[String, String]], context: MailContext[B],
+                                 fragments: Locale => Map[String, String]): Unit = {
+    val values = localeFragments.getOrElseUpdate(context.locale, fragments(context.locale))
+    values.foreach { case (key, value) => contentGenerator.putVariable(key, value) }
+  }
+  
+  private def getFooterFragments(context: MailContext[B]): Map[String, String] = Map(
+    "copyRight" -> LocalizationHelper.getMessage(context.locale, MailI18nEnum.Copyright, DateTimeUtils.getCurrentYear),
+    "Project_Footer" -> getProjectFooter(context))
+  
+  /**
+    * Renders the recipient models in parallel, each model is an immutable copy of the template variables.
+    */
+  private def sendMails(templateFilePath: String, mails: List[RecipientMail]): Unit = {
+    import scala.collection.JavaConverters._
+    mails.par.foreach(mail => {
+      val content = contentGenerator.parseFile(templateFilePath, mail.locale, mail.model)
+      val recipients = List(new MailRecipientField(mail.user.getEmail, mail.user.getUsername))
+      extMailService.sendHTMLMail(SiteConfiguration.getNotifyEmail, SiteConfiguration.getDefaultSiteName,
+        recipients.asJava, mail.subject, content)
+    })
+  }
+  
+  private class RecipientMail(val user: SimpleUser, val subject: String, val locale: Locale,
+                              val model: java.util.Map[String, Any])
+  
   private def onInitAction(notification: ProjectRelayEmailNotification) {
     projectId = notification.getProjectId
     siteUrl = MailUtils.getSiteUrl(notification.getSaccountid)
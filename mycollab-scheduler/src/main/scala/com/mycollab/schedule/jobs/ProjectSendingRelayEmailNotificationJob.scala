@@ -16,12 +16,9 @@
  */
 package com.mycollab.schedule.jobs
 
-import com.mycollab.module.project.service.ProjectService
-import com.mycollab.common.MonitorTypeConstants
-import com.mycollab.common.dao.RelayEmailNotificationMapper
-import com.mycollab.spring.AppContextUtil
+import com.mycollab.module.project.ProjectTypeConstants
+import com.mycollab.module.project.dao.ProjectMapperExt
 import org.quartz.{DisallowConcurrentExecution, JobExecutionContext}
-import org.slf4j.{Logger, LoggerFactory}
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.beans.factory.config.BeanDefinition
 import org.springframework.context.annotation.Scope
@@ -35,38 +32,24 @@ import org.springframework.stereotype.Component
 @Scope(BeanDefinition.SCOPE_PROTOTYPE)
 @DisallowConcurrentExecution
 class ProjectSendingRelayEmailNotificationJob extends GenericQuartzJobBean {
-  private val LOG: Logger = LoggerFactory.getLogger(classOf[ProjectSendingRelayEmailNotificationJob])
-
   @Autowired
-  private val projectService: ProjectService = null
+  private val projectMapperExt: ProjectMapperExt = null
 
   @Autowired
-  private val relayNotificationMapper: RelayEmailNotificationMapper = null
+  private val relayNotificationExecutor: RelayNotificationExecutor = null
 
   def executeJob(context: JobExecutionContext) {
     import scala.collection.JavaConverters._
-    val relayEmailNotifications = projectService.findProjectRelayEmailNotifications.asScala.toList
-    for (notification <- relayEmailNotifications) {
-      try {
-        val mailServiceCls = MailServiceMap.service(notification.getType)
-        if (mailServiceCls != null) {
-          val emailNotificationAction = AppContextUtil.getSpringBean(mailServiceCls)
-          if (emailNotificationAction != null) {
-            notification.getAction match {
-              case MonitorTypeConstants.CREATE_ACTION => emailNotificationAction.sendNotificationForCreateAction(notification)
-              case MonitorTypeConstants.UPDATE_ACTION => emailNotificationAction.sendNotificationForUpdateAction(notification)
-              case MonitorTypeConstants.ADD_COMMENT_ACTION => emailNotificationAction.sendNotificationForCommentAction(notification)
-            }
-          } else {
-            LOG.error("Can not find the spring class " + mailServiceCls)
-          }
-        }
-      }
-      catch {
-        case ex: Exception => LOG.error("Error while sending scheduler command", ex)
-      } finally {
-        relayNotificationMapper.deleteByPrimaryKey(notification.getId)
-      }
-    }
+    relayNotificationExecutor.process("ProjectSendingRelayEmailNotificationJob", ProjectSendingRelayEmailNotificationJob.TYPES,
+      claimToken => projectMapperExt.findProjectRelayEmailNotifications(claimToken).asScala.toList)
   }
 }
+
+object ProjectSendingRelayEmailNotificationJob {
+  /**
+    * Project types loaded by ProjectMapperExt.findProjectRelayEmailNotifications
+    */
+  val TYPES = List(ProjectTypeConstants.BUG, ProjectTypeConstants.TASK, ProjectTypeConstants.MESSAGE,
+    ProjectTypeConstants.MILESTONE, ProjectTypeConstants.RISK, ProjectTypeConstants.BUG_COMPONENT,
+    ProjectTypeConstants.BUG_VERSION)
+}
@@ -0,0 +1,42 @@
+/**
+ * This file is part of mycollab-scheduler.
+ *
+ * mycollab-scheduler is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-scheduler is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-scheduler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.schedule.jobs
+
+import com.mycollab.module.project.dao.ProjectStatisticMapperExt
+import org.quartz.JobExecutionContext
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.config.BeanDefinition
+import org.springframework.context.annotation.Scope
+import org.springframework.stereotype.Component
+
+/**
+  * Recomputes the project statistics of all projects to fix any drift of the counters
+  * which are refreshed on every change of tickets, members, milestones and time logs.
+  *
+  * @author MyCollab Ltd
+  * @since 5.4.7
+  */
+@Component
+@Scope(BeanDefinition.SCOPE_PROTOTYPE)
+class RebuildProjectStatisticsJob extends GenericQuartzJobBean {
+  @Autowired
+  private val projectStatisticMapperExt: ProjectStatisticMapperExt = null
+
+  def executeJob(context: JobExecutionContext): Unit = {
+    projectStatisticMapperExt.rebuildProjectStatistics()
+  }
+}
@@ -0,0 +1,71 @@
+/**
+ * This file is part of mycollab-scheduler.
+ *
+ * mycollab-scheduler is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-scheduler is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-scheduler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.schedule.jobs
+
+import com.mycollab.module.ecm.dao.DriveInfoMapper
+import com.mycollab.module.ecm.domain.{DriveInfo, DriveInfoExample}
+import com.mycollab.module.ecm.service.DriveInfoService
+import com.mycollab.module.file.service.RawContentService
+import org.quartz.JobExecutionContext
+import org.slf4j.LoggerFactory
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.config.BeanDefinition
+import org.springframework.context.annotation.Scope
+import org.springframework.stereotype.Component
+
+import scala.collection.JavaConverters._
+
+/**
+  * Measures the storage of every account to fix any drift of the used volumes which are
+  * maintained by the byte deltas of uploads and deletions. The measured volume replaces the
+  * recorded one only if no upload or deletion changed it while the account was measured,
+  * otherwise the account is reconciled by the next run.
+  *
+  * @author MyCollab Ltd
+  * @since 5.4.7
+  */
+@Component
+@Scope(BeanDefinition.SCOPE_PROTOTYPE)
+class ReconcileDriveUsageJob extends GenericQuartzJobBean {
+  private val LOG = LoggerFactory.getLogger(classOf[ReconcileDriveUsageJob])
+
+  @Autowired
+  private val driveInfoMapper: DriveInfoMapper = null
+
+  @Autowired
+  private val driveInfoService: DriveInfoService = null
+
+  @Autowired
+  private val rawContentService: RawContentService = null
+
+  def executeJob(context: JobExecutionContext): Unit = {
+    val driveInfos = driveInfoMapper.selectByExample(new DriveInfoExample).asInstanceOf[java.util.List[DriveInfo]].asScala
+    for (driveInfo <- driveInfos) {
+      val sAccountId = driveInfo.getSaccountid
+      val recordedVolume: Long = if (driveInfo.getUsedvolume == null) 0L else driveInfo.getUsedvolume.longValue
+      val measuredVolume = rawContentService.getSize(sAccountId.toString) +
+        rawContentService.getSize(s".thumbnail/$sAccountId")
+      if (measuredVolume != recordedVolume) {
+        if (driveInfoService.replaceUsedVolume(sAccountId, recordedVolume, measuredVolume)) {
+          LOG.info(s"Reconcile the used volume of account $sAccountId from $recordedVolume to $measuredVolume")
+        } else {
+          LOG.info(s"Skip the reconciliation of account $sAccountId, its used volume changed while it was measured")
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,127 @@
+/**
+ * This file is part of mycollab-scheduler.
+ *
+ * mycollab-scheduler is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-scheduler is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-scheduler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.schedule.jobs
+
+import java.util.concurrent.{ConcurrentHashMap, ExecutionException, Executors, Future}
+import java.util.{Date, UUID}
+
+import com.mycollab.common.MonitorTypeConstants
+import com.mycollab.common.dao.RelayEmailNotificationMapperExt
+import com.mycollab.common.domain.SimpleRelayEmailNotification
+import com.mycollab.spring.AppContextUtil
+import org.joda.time.DateTime
+import org.slf4j.{Logger, LoggerFactory}
+import org.springframework.beans.factory.DisposableBean
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.stereotype.Component
+
+import scala.collection.JavaConverters._
+
+/**
+  * Sends the relay email notifications of the scheduler jobs. Notifications are claimed in
+  * batches with a claim token, so several nodes running the scheduler never process the same
+  * notification, then the notifications of each account are sent in parallel on a bounded
+  * pool while the notifications of one account keep their order. Processed notifications
+  * are removed in bulk.
+  *
+  * @author MyCollab Ltd
+  * @since 5.4.7
+  */
+@Component
+class RelayNotificationExecutor extends DisposableBean {
+  private val LOG: Logger = LoggerFactory.getLogger(classOf[RelayNotificationExecutor])
+
+  @Autowired
+  private val relayEmailNotificationMapperExt: RelayEmailNotificationMapperExt = null
+
+  private val executor = Executors.newFixedThreadPool(RelayNotificationExecutor.POOL_SIZE)
+
+  private val metrics = new ConcurrentHashMap[String, RelayNotificationMetrics]()
+
+  /**
+    * @param jobName metrics name of the job
+    * @param types   notification types processed by the job
+    * @param loader  loads the notifications of a claim token
+    */
+  def process(jobName: String, types: List[String], loader: String => List[_ <: SimpleRelayEmailNotification]): Unit = {
+    val jobMetrics = getMetrics(jobName)
+    relayEmailNotificationMapperExt.releaseExpiredClaims(new DateTime().minusMinutes(RelayNotificationExecutor.CLAIM_TIMEOUT_MINUTES).toDate)
+    var claimed = 0
+    do {
+      val claimToken = UUID.randomUUID.toString
+      claimed = relayEmailNotificationMapperExt.claimNotifications(types.asJava, claimToken, new Date, RelayNotificationExecutor.BATCH_SIZE)
+      if (claimed > 0) {
+        val startTime = System.currentTimeMillis
+        val oldestTime = relayEmailNotificationMapperExt.getOldestClaimedTime(claimToken)
+        val notifications = loader(claimToken)
+        val futures: Iterable[Future[_]] = notifications.groupBy(_.getSaccountid).values.map(accountNotifications =>
+          executor.submit(new Runnable {
+            override def run(): Unit = accountNotifications.sortBy(_.getId.intValue).foreach(sendNotification(_, jobMetrics))
+          }))
+        futures.foreach(future => try {
+          future.get
+        } catch {
+          case e: ExecutionException => LOG.error("Error while sending relay notifications", e)
+        })
+        relayEmailNotificationMapperExt.removeClaimedNotifications(claimToken)
+        val lag = if (oldestTime != null) startTime - oldestTime.getTime else 0L
+        jobMetrics.recordBatch(claimed, lag, System.currentTimeMillis - startTime)
+        LOG.debug(s"$jobName processed $claimed notifications, lag ${lag}ms, throughput ${jobMetrics.getThroughput}/s")
+      }
+    } while (claimed == RelayNotificationExecutor.BATCH_SIZE)
+  }
+
+  def getMetrics(jobName: String): RelayNotificationMetrics = {
+    val jobMetrics = metrics.get(jobName)
+    if (jobMetrics != null) jobMetrics
+    else {
+      val newMetrics = new RelayNotificationMetrics
+      val existingMetrics = metrics.putIfAbsent(jobName, newMetrics)
+      if (existingMetrics != null) existingMetrics else newMetrics
+    }
+  }
+
+  private def sendNotification(notification: SimpleRelayEmailNotification, jobMetrics: RelayNotificationMetrics): Unit = {
+    try {
+      val mailServiceCls = MailServiceMap.service(notification.getType)
+      if (mailServiceCls != null) {
+        val emailNotificationAction = AppContextUtil.getSpringBean(mailServiceCls)
+        if (emailNotificationAction != null) {
+          notification.getAction match {
+            case MonitorTypeConstants.CREATE_ACTION => emailNotificationAction.sendNotificationForCreateAction(notification)
+            case MonitorTypeConstants.UPDATE_ACTION => emailNotificationAction.sendNotificationForUpdateAction(notification)
+            case MonitorTypeConstants.ADD_COMMENT_ACTION => emailNotificationAction.sendNotificationForCommentAction(notification)
+          }
+        } else {
+          LOG.error("Can not find the spring class " + mailServiceCls)
+        }
+      }
+    } catch {
+      case ex: Exception =>
+        jobMetrics.recordFailure()
+        LOG.error("Error while sending the relay notification " + notification.getType, ex)
+    }
+  }
+
+  override def destroy(): Unit = executor.shutdown()
+}
+
+object RelayNotificationExecutor {
+  val BATCH_SIZE = 200
+  val POOL_SIZE = 4
+  val CLAIM_TIMEOUT_MINUTES = 30
+}
@@ -0,0 +1,55 @@
+/**
+ * This file is part of mycollab-scheduler.
+ *
+ * mycollab-scheduler is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-scheduler is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-scheduler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.schedule.jobs
+
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+  * Lag and throughput of a relay notification job. The lag is the age of the oldest
+  * notification of the last batch when the batch was claimed.
+  *
+  * @author MyCollab Ltd
+  * @since 5.4.7
+  */
+class RelayNotificationMetrics {
+  private val processedCount = new AtomicLong
+  private val failedCount = new AtomicLong
+  private val processingTime = new AtomicLong
+  @volatile private var lastLag = 0L
+
+  def recordBatch(processed: Int, lag: Long, duration: Long): Unit = {
+    processedCount.addAndGet(processed)
+    processingTime.addAndGet(duration)
+    lastLag = lag
+  }
+
+  def recordFailure(): Unit = failedCount.incrementAndGet()
+
+  def getProcessedCount: Long = processedCount.get
+
+  def getFailedCount: Long = failedCount.get
+
+  def getLastLagMillis: Long = lastLag
+
+  /**
+    * @return processed notifications per second of processing time
+    */
+  def getThroughput: Double = {
+    val time = processingTime.get
+    if (time > 0) processedCount.get * 1000.0 / time else 0
+  }
+}
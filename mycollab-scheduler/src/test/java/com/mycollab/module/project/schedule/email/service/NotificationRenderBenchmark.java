@@ -0,0 +1,184 @@
+/**
+ * This file is part of mycollab-scheduler.
+ *
+ * mycollab-scheduler is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-scheduler is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-scheduler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.module.project.schedule.email.service;
+
+import com.mycollab.common.i18n.MailI18nEnum;
+import com.mycollab.configuration.SiteConfiguration;
+import com.mycollab.core.utils.DateTimeUtils;
+import com.mycollab.i18n.LocalizationHelper;
+import com.mycollab.module.mail.service.IContentGenerator;
+import com.mycollab.module.mail.service.impl.ContentGenerator;
+import com.mycollab.spring.FreeMarkerConfiguration;
+import freemarker.template.Configuration;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.io.StringWriter;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the rendering of the comment notification of one item for its followers, as done
+ * by {@link SendMailToFollowersAction}. The former rendering resolves the localized fragments
+ * and looks up the template for every recipient in one shared mutable context, the current
+ * rendering resolves the fragments once per locale, then renders an immutable model per
+ * recipient in parallel through the compiled template cache of {@link ContentGenerator}. The
+ * score is the time to render all recipients of the notification. Run it with the main method
+ * from the test classpath.
+ *
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NotificationRenderBenchmark {
+    private static final String TEMPLATE = "mailProjectItemCommentNotifier.ftl";
+    private static final Locale[] LOCALES = {Locale.US, Locale.JAPAN};
+
+    @Param({"10", "100"})
+    private int recipients;
+
+    private AnnotationConfigApplicationContext context;
+    private Configuration templateEngine;
+    private IContentGenerator contentGenerator;
+    private List<Comment> comments;
+
+    @Setup
+    public void setUp() {
+        SiteConfiguration.loadConfiguration();
+        context = new AnnotationConfigApplicationContext();
+        context.register(FreeMarkerConfiguration.class, ContentGenerator.class);
+        context.refresh();
+        templateEngine = context.getBean(Configuration.class);
+        contentGenerator = context.getBean(IContentGenerator.class);
+
+        contentGenerator.putVariable("actionHeading", "Hai Nguyen commented on the bug");
+        contentGenerator.putVariable("projectHyperLink", new WebLink("MyCollab", "https://community.mycollab.com/project/1"));
+        contentGenerator.putVariable("name", "Can not export the report");
+        contentGenerator.putVariable("summaryLink", "https://community.mycollab.com/project/bug/1");
+        comments = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            comments.add(new Comment("Hai Nguyen", "The export fails when the report has more than " + i + " pages"));
+        }
+        contentGenerator.putVariable("lastComments", comments);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void renderPerRecipient(Blackhole blackhole) throws Exception {
+        Map<String, Object> templateContext = new HashMap<>(contentGenerator.createModel());
+        for (int i = 0; i < recipients; i++) {
+            Locale locale = LOCALES[i % LOCALES.length];
+            templateContext.put("userName", "User " + i);
+            templateContext.put("lastCommentsValue", LocalizationHelper.getMessage(locale, MailI18nEnum.Last_Comments_Value,
+                    "" + comments.size()));
+            templateContext.put("copyRight", LocalizationHelper.getMessage(locale, MailI18nEnum.Copyright,
+                    DateTimeUtils.getCurrentYear()));
+            StringWriter writer = new StringWriter();
+            templateEngine.getTemplate(TEMPLATE, locale).process(templateContext, writer);
+            blackhole.consume(writer.toString());
+        }
+    }
+
+    @Benchmark
+    public void renderWithLocaleFragments(Blackhole blackhole) {
+        Map<Locale, Map<String, String>> localeFragments = new HashMap<>();
+        List<RecipientModel> models = new ArrayList<>(recipients);
+        for (int i = 0; i < recipients; i++) {
+            Locale locale = LOCALES[i % LOCALES.length];
+            contentGenerator.putVariable("userName", "User " + i);
+            localeFragments.computeIfAbsent(locale, key -> {
+                Map<String, String> fragments = new HashMap<>();
+                fragments.put("lastCommentsValue", LocalizationHelper.getMessage(key, MailI18nEnum.Last_Comments_Value,
+                        "" + comments.size()));
+                fragments.put("copyRight", LocalizationHelper.getMessage(key, MailI18nEnum.Copyright,
+                        DateTimeUtils.getCurrentYear()));
+                return fragments;
+            }).forEach(contentGenerator::putVariable);
+            models.add(new RecipientModel(locale, contentGenerator.createModel()));
+        }
+        blackhole.consume(models.parallelStream().map(model -> contentGenerator.parseFile(TEMPLATE, model.locale,
+                model.model)).collect(Collectors.toList()));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(NotificationRenderBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    private static class RecipientModel {
+        private final Locale locale;
+        private final Map<String, Object> model;
+
+        private RecipientModel(Locale locale, Map<String, Object> model) {
+            this.locale = locale;
+            this.model = model;
+        }
+    }
+
+    public static class WebLink {
+        private final String displayName;
+        private final String webLink;
+
+        WebLink(String displayName, String webLink) {
+            this.displayName = displayName;
+            this.webLink = webLink;
+        }
+
+        public String displayName() {
+            return displayName;
+        }
+
+        public String webLink() {
+            return webLink;
+        }
+    }
+
+    public static class Comment {
+        private final String ownerFullName;
+        private final String comment;
+
+        Comment(String ownerFullName, String comment) {
+            this.ownerFullName = ownerFullName;
+            this.comment = comment;
+        }
+
+        public String getOwnerAvatarId() {
+            return "";
+        }
+
+        public String getOwnerFullName() {
+            return ownerFullName;
+        }
+
+        public String getComment() {
+            return comment;
+        }
+    }
+}
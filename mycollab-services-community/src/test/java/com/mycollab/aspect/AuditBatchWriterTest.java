@@ -0,0 +1,88 @@
+/**
+ * This file is part of mycollab-services-community.
+ *
+ * mycollab-services-community is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-services-community is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-services-community.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.aspect;
+
+import com.mycollab.common.domain.ActivityStreamWithBLOBs;
+import com.mycollab.common.domain.AuditLog;
+import com.mycollab.test.DataSet;
+import com.mycollab.test.service.IntegrationServiceTest;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+public class AuditBatchWriterTest extends IntegrationServiceTest {
+    @Autowired
+    private AuditBatchWriter auditBatchWriter;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @DataSet
+    @Test
+    public void testFailingRecordLeavesNoRowsOfItsBatch() {
+        AuditBatchWriter.AuditRecord validRecord = newRecord(1, "[]");
+        AuditBatchWriter.AuditRecord invalidRecord = newRecord(2, null);
+        long failedCount = auditBatchWriter.getFailedCount();
+
+        auditBatchWriter.write(Arrays.asList(validRecord, invalidRecord));
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        assertThat(jdbcTemplate.queryForList("SELECT typeId FROM s_activitystream WHERE sAccountId=1", String.class))
+                .containsExactly("1");
+        assertThat(jdbcTemplate.queryForList("SELECT typeid FROM m_audit_log WHERE sAccountId=1", Integer.class))
+                .containsExactly(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM m_audit_log INNER JOIN s_activitystream " +
+                "ON m_audit_log.activityLogId = s_activitystream.id WHERE m_audit_log.sAccountId=1", Integer.class))
+                .isEqualTo(1);
+        assertThat(auditBatchWriter.getFailedCount()).isEqualTo(failedCount + 1);
+    }
+
+    private static AuditBatchWriter.AuditRecord newRecord(int typeId, String changeset) {
+        ActivityStreamWithBLOBs activity = new ActivityStreamWithBLOBs();
+        activity.setSaccountid(1);
+        activity.setType("Project-Bug");
+        activity.setTypeid(String.valueOf(typeId));
+        activity.setModule("Project");
+        activity.setAction("update");
+        activity.setCreateduser("admin");
+        activity.setCreatedtime(new Date());
+
+        AuditLog auditLog = new AuditLog();
+        auditLog.setSaccountid(1);
+        auditLog.setType("Project-Bug");
+        auditLog.setTypeid(typeId);
+        auditLog.setModule("Project");
+        auditLog.setObjectClass("com.mycollab.module.tracker.domain.BugWithBLOBs");
+        auditLog.setPosteduser("admin");
+        auditLog.setPosteddate(new Date());
+        auditLog.setChangeset(changeset);
+        return new AuditBatchWriter.AuditRecord().setActivity(activity).setAuditLog(auditLog);
+    }
+}
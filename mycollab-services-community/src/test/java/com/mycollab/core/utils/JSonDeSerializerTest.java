@@ -20,7 +20,10 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import org.junit.Test;
 
+import com.mycollab.security.AccessPermissionFlag;
+import com.mycollab.security.BooleanPermissionFlag;
 import com.mycollab.security.PermissionMap;
+import com.mycollab.security.RolePermissionCollections;
 
 public class JSonDeSerializerTest {
 	@Test
@@ -45,4 +48,27 @@ public class JSonDeSerializerTest {
 		PermissionMap permissionMap = JsonDeSerializer.fromJson(json, PermissionMap.class);
 		assertThat(permissionMap.get("a")).isEqualTo(new Integer(1));
 	}
+
+	@Test
+	public void testSerializeCompiledPermissionMap() {
+		PermissionMap map = new PermissionMap();
+		map.addPath(RolePermissionCollections.CRM_ACCOUNT, AccessPermissionFlag.READ_WRITE);
+		map.addPath("a", BooleanPermissionFlag.TRUE);
+		PermissionMap compiledMap = map.compile();
+		assertThat(compiledMap.canWrite(RolePermissionCollections.CRM_ACCOUNT)).isTrue();
+		assertThat(compiledMap.canAccess(RolePermissionCollections.CRM_ACCOUNT)).isFalse();
+		assertThat(compiledMap.canBeYes("a")).isTrue();
+		assertThat(compiledMap.get("b")).isNull();
+		assertThat(compiledMap.getPermissionFlag(RolePermissionCollections.CRM_LEAD)).isEqualTo(AccessPermissionFlag.NO_ACCESS);
+
+		String json = JsonDeSerializer.toJson(compiledMap);
+		PermissionMap permissionMap = JsonDeSerializer.fromJson(json, PermissionMap.class);
+		assertThat(permissionMap.get(RolePermissionCollections.CRM_ACCOUNT)).isEqualTo(AccessPermissionFlag.READ_WRITE);
+		assertThat(permissionMap.get("a")).isEqualTo(BooleanPermissionFlag.TRUE);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testChangeCompiledPermissionMap() {
+		new PermissionMap().compile().addPath("a", 1);
+	}
 }
@@ -0,0 +1,56 @@
+/**
+ * This file is part of mycollab-services-community.
+ *
+ * mycollab-services-community is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-services-community is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-services-community.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.db.arguments;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StringSearchFieldTest {
+    @Test
+    public void testFullTextValue() {
+        assertThat(StringSearchField.toFullTextQuery("login page", 2)).isEqualTo("+\"login\" +\"page\"");
+        assertThat(StringSearchField.toFullTextQuery("\"crash\" -when (saving)", 2)).isEqualTo("+\"crash\" +\"when\" +\"saving\"");
+        assertThat(StringSearchField.toFullTextQuery("UI bug", 2)).isEqualTo("+\"UI\" +\"bug\"");
+        assertThat(StringSearchField.toFullTextQuery("\u30ed\u30b0\u30a4\u30f3", 2)).isEqualTo("+\"\u30ed\u30b0\u30a4\u30f3\"");
+    }
+
+    @Test
+    public void testFullTextValueOfShortWords() {
+        assertThat(StringSearchField.toFullTextQuery("a bug", 2)).isNull();
+        assertThat(StringSearchField.toFullTextQuery("UI bug", 3)).isNull();
+        assertThat(StringSearchField.toFullTextQuery("+-*", 2)).isNull();
+    }
+
+    @Test
+    public void testFullTextValueWithoutIndexes() {
+        assertThat(StringSearchField.toFullTextQuery("login page", 0)).isNull();
+    }
+
+    @Test
+    public void testFullTextValueOfSearchField() {
+        assertThat(StringSearchField.getFullTextTokenSize()).isEqualTo(0);
+        assertThat(StringSearchField.and("login page").getFullTextValue()).isNull();
+
+        StringSearchField.setFullTextTokenSize(2);
+        try {
+            assertThat(StringSearchField.and("login page").getFullTextValue()).isEqualTo("+\"login\" +\"page\"");
+        } finally {
+            StringSearchField.setFullTextTokenSize(0);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/**
+ * This file is part of mycollab-services-community.
+ *
+ * mycollab-services-community is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-services-community is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-services-community.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.db.persistence;
+
+import com.mycollab.common.i18n.QueryI18nEnum.StringI18nEnum;
+import com.mycollab.configuration.SiteConfiguration;
+import com.mycollab.db.arguments.NumberSearchField;
+import com.mycollab.db.arguments.SearchCriteria;
+import com.mycollab.db.arguments.SearchField;
+import com.mycollab.db.arguments.SetSearchField;
+import com.mycollab.db.arguments.StringSearchField;
+import com.mycollab.db.query.StringParam;
+import com.mycollab.module.crm.domain.criteria.AccountSearchCriteria;
+import com.mycollab.module.project.domain.criteria.ProjectTicketSearchCriteria;
+import com.mycollab.module.project.domain.criteria.TaskSearchCriteria;
+import com.mycollab.module.tracker.domain.criteria.BugSearchCriteria;
+import com.mycollab.spring.test.service.RootConfigurationTest;
+import org.apache.ibatis.binding.MapperMethod;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares the rendering of the search statements through the shape cache of
+ * {@link ShapeCachedSqlSource} with the full Velocity rendering of the same statements. Every
+ * invocation searches new values with the same criteria shape, as a list view does when the
+ * user types in its search box. It runs on the test configuration, run it with the main method
+ * from the test classpath.
+ *
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchSqlRenderBenchmark {
+    @Param({"bug", "task", "ticket", "account"})
+    private String criteria;
+
+    private AnnotationConfigApplicationContext context;
+    private SqlSource cachedSource;
+    private SqlSource renderSource;
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Setup
+    public void setUp() {
+        SiteConfiguration.loadConfiguration();
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().setActiveProfiles("test");
+        context.register(RootConfigurationTest.class);
+        context.refresh();
+
+        String statementId;
+        switch (criteria) {
+            case "bug":
+                statementId = "com.mycollab.module.tracker.dao.BugMapperExt.findPageableListByCriteria";
+                break;
+            case "task":
+                statementId = "com.mycollab.module.project.dao.TaskMapperExt.findPageableListByCriteria";
+                break;
+            case "ticket":
+                statementId = "com.mycollab.module.project.dao.ProjectTicketMapper.findPageableListByCriteria";
+                break;
+            default:
+                statementId = "com.mycollab.module.crm.dao.AccountMapperExt.findPageableListByCriteria";
+        }
+        cachedSource = context.getBean(SqlSessionFactory.class).getConfiguration().getMappedStatement(statementId).getSqlSource();
+        renderSource = ((ShapeCachedSqlSource) cachedSource).getDelegate();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    private MapperMethod.ParamMap<Object> nextParams() {
+        int index = counter.incrementAndGet();
+        String name = "name " + index;
+        SearchCriteria searchCriteria;
+        switch (criteria) {
+            case "bug":
+                BugSearchCriteria bugCriteria = new BugSearchCriteria();
+                bugCriteria.setProjectId(new NumberSearchField(index));
+                bugCriteria.setName(StringSearchField.and(name));
+                bugCriteria.setStatuses(new SetSearchField<>("Open", "ReOpen"));
+                searchCriteria = bugCriteria;
+                break;
+            case "task":
+                TaskSearchCriteria taskCriteria = new TaskSearchCriteria();
+                taskCriteria.setProjectId(new NumberSearchField(index));
+                taskCriteria.setName(StringSearchField.and(name));
+                taskCriteria.setStatuses(new SetSearchField<>("Open", "InProgress"));
+                searchCriteria = taskCriteria;
+                break;
+            case "ticket":
+                ProjectTicketSearchCriteria ticketCriteria = new ProjectTicketSearchCriteria();
+                ticketCriteria.setProjectIds(new SetSearchField<>(index, index + 1));
+                ticketCriteria.addExtraField(((StringParam) ProjectTicketSearchCriteria.p_name).buildSearchField(
+                        SearchField.AND, StringI18nEnum.CONTAINS.name(), name));
+                searchCriteria = ticketCriteria;
+                break;
+            default:
+                AccountSearchCriteria accountCriteria = new AccountSearchCriteria();
+                accountCriteria.setAccountname(StringSearchField.and(name));
+                accountCriteria.setTypes(new SetSearchField<>("Customer", "Partner"));
+                searchCriteria = accountCriteria;
+        }
+        searchCriteria.setSaccountid(new NumberSearchField(1));
+
+        MapperMethod.ParamMap<Object> params = new MapperMethod.ParamMap<>();
+        params.put("searchCriteria", searchCriteria);
+        params.put("param1", searchCriteria);
+        return params;
+    }
+
+    @Benchmark
+    public BoundSql renderWithShapeCache() {
+        return cachedSource.getBoundSql(nextParams());
+    }
+
+    @Benchmark
+    public BoundSql renderWithVelocity() {
+        return renderSource.getBoundSql(nextParams());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SearchSqlRenderBenchmark.class.getSimpleName()).build()).run();
+    }
+}
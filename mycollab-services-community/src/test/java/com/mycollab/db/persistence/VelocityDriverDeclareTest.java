@@ -0,0 +1,177 @@
+/**
+ * This file is part of mycollab-services-community.
+ *
+ * mycollab-services-community is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-services-community is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-services-community.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.db.persistence;
+
+import com.mycollab.common.i18n.QueryI18nEnum.StringI18nEnum;
+import com.mycollab.core.MyCollabException;
+import com.mycollab.db.arguments.SearchField;
+import com.mycollab.db.arguments.SetSearchField;
+import com.mycollab.db.arguments.StringSearchField;
+import com.mycollab.db.query.StringParam;
+import com.mycollab.module.project.domain.criteria.ProjectTicketSearchCriteria;
+import com.mycollab.module.tracker.domain.criteria.BugSearchCriteria;
+import com.mycollab.test.service.IntegrationServiceTest;
+import org.apache.ibatis.binding.MapperMethod;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+public class VelocityDriverDeclareTest extends IntegrationServiceTest {
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+
+    @Test
+    public void testSearchValuesAreBound() {
+        BoundSql loginSearch = getBoundSql("com.mycollab.module.tracker.dao.BugMapperExt.getTotalCount",
+                newBugSearchCriteria("login", "hai79"));
+        BoundSql exportSearch = getBoundSql("com.mycollab.module.tracker.dao.BugMapperExt.getTotalCount",
+                newBugSearchCriteria("export' OR '1'='1", "linhduong"));
+
+        assertThat(loginSearch.getSql()).isEqualTo(exportSearch.getSql()).doesNotContain("login").contains("?");
+        assertThat(getParameterValues(loginSearch)).containsExactly("hai79", "login");
+        assertThat(getParameterValues(exportSearch)).containsExactly("linhduong", "export' OR '1'='1");
+    }
+
+    @Test
+    public void testExtraFieldValuesAreBound() {
+        BoundSql loginSearch = getBoundSql("com.mycollab.module.project.dao.ProjectTicketMapper.getTotalCountFromBug",
+                newTicketSearchCriteria("login"));
+        BoundSql exportSearch = getBoundSql("com.mycollab.module.project.dao.ProjectTicketMapper.getTotalCountFromBug",
+                newTicketSearchCriteria("export"));
+
+        assertThat(loginSearch.getSql()).isEqualTo(exportSearch.getSql()).doesNotContain("login");
+        assertThat(getParameterValues(loginSearch)).containsExactly("%login%");
+        assertThat(getParameterValues(exportSearch)).containsExactly("%export%");
+    }
+
+    @Test
+    public void testSameShapeReusesRenderedSql() {
+        String statementId = "com.mycollab.module.project.dao.ProjectTicketMapper.getTotalCountFromBug";
+        ProjectTicketSearchCriteria loginSearch = newTicketSearchCriteria("login");
+        loginSearch.setProjectIds(new SetSearchField<>(1, 2));
+        ProjectTicketSearchCriteria exportSearch = newTicketSearchCriteria("export");
+        exportSearch.setProjectIds(new SetSearchField<>(3, 4));
+
+        BoundSql loginSql = getBoundSql(statementId, loginSearch);
+        long hitCount = ShapeCachedSqlSource.getHitCount();
+        BoundSql exportSql = getBoundSql(statementId, exportSearch);
+
+        assertThat(ShapeCachedSqlSource.getHitCount()).isEqualTo(hitCount + 1);
+        assertThat(exportSql.getSql()).isEqualTo(loginSql.getSql());
+        assertThat(getParameterValues(exportSql)).isEqualTo(getParameterValues(getRenderedBoundSql(statementId, exportSearch)))
+                .contains(3, 4, "%export%").doesNotContain(1, 2, "%login%");
+    }
+
+    @Test
+    public void testDifferentShapeIsRendered() {
+        String statementId = "com.mycollab.module.project.dao.ProjectTicketMapper.getTotalCountFromBug";
+        ProjectTicketSearchCriteria twoProjects = newTicketSearchCriteria("login");
+        twoProjects.setProjectIds(new SetSearchField<>(1, 2));
+        ProjectTicketSearchCriteria threeProjects = newTicketSearchCriteria("login");
+        threeProjects.setProjectIds(new SetSearchField<>(1, 2, 3));
+
+        BoundSql twoProjectsSql = getBoundSql(statementId, twoProjects);
+        BoundSql threeProjectsSql = getBoundSql(statementId, threeProjects);
+
+        assertThat(threeProjectsSql.getSql()).isNotEqualTo(twoProjectsSql.getSql())
+                .isEqualTo(getRenderedBoundSql(statementId, threeProjects).getSql());
+        assertThat(getParameterValues(threeProjectsSql)).contains(1, 2, 3);
+    }
+
+    @Test
+    public void testForeachItemsWrittenInText() {
+        SqlSource sqlSource = new VelocityDriverDeclare().createSqlSource(sqlSessionFactory.getConfiguration(),
+                "SELECT #foreach($column in $_parameter.columns)${column}#if($foreach.hasNext), #end#end FROM m_tracker_bug",
+                Object.class);
+        Map<String, Object> nameColumns = new HashMap<>();
+        nameColumns.put("columns", Arrays.asList("name", "id"));
+        Map<String, Object> statusColumns = new HashMap<>();
+        statusColumns.put("columns", Arrays.asList("status", "id"));
+
+        BoundSql nameSql = sqlSource.getBoundSql(nameColumns);
+        BoundSql statusSql = sqlSource.getBoundSql(statusColumns);
+
+        assertThat(nameSql.getSql()).contains("name").doesNotContain("status");
+        assertThat(statusSql.getSql()).contains("status").doesNotContain("name")
+                .isEqualTo(((ShapeCachedSqlSource) sqlSource).getDelegate().getBoundSql(statusColumns).getSql());
+    }
+
+    @Test(expected = MyCollabException.class)
+    public void testRejectLiteralValue() {
+        new VelocityDriverDeclare().createSqlSource(sqlSessionFactory.getConfiguration(),
+                "SELECT count(*) FROM m_tracker_bug WHERE name LIKE '%${searchCriteria.name.value}%'", Object.class);
+    }
+
+    private static BugSearchCriteria newBugSearchCriteria(String name, String assignUser) {
+        BugSearchCriteria criteria = new BugSearchCriteria();
+        criteria.setSaccountid(null);
+        criteria.setName(StringSearchField.and(name));
+        criteria.setAssignuser(StringSearchField.and(assignUser));
+        return criteria;
+    }
+
+    private static ProjectTicketSearchCriteria newTicketSearchCriteria(String name) {
+        ProjectTicketSearchCriteria criteria = new ProjectTicketSearchCriteria();
+        criteria.setSaccountid(null);
+        criteria.addExtraField(((StringParam) ProjectTicketSearchCriteria.p_name).buildSearchField(SearchField.AND,
+                StringI18nEnum.CONTAINS.name(), name));
+        return criteria;
+    }
+
+    private BoundSql getBoundSql(String statementId, Object searchCriteria) {
+        MapperMethod.ParamMap<Object> params = new MapperMethod.ParamMap<>();
+        params.put("searchCriteria", searchCriteria);
+        params.put("param1", searchCriteria);
+        return sqlSessionFactory.getConfiguration().getMappedStatement(statementId).getBoundSql(params);
+    }
+
+    private BoundSql getRenderedBoundSql(String statementId, Object searchCriteria) {
+        MapperMethod.ParamMap<Object> params = new MapperMethod.ParamMap<>();
+        params.put("searchCriteria", searchCriteria);
+        params.put("param1", searchCriteria);
+        SqlSource sqlSource = sqlSessionFactory.getConfiguration().getMappedStatement(statementId).getSqlSource();
+        return ((ShapeCachedSqlSource) sqlSource).getDelegate().getBoundSql(params);
+    }
+
+    private List<Object> getParameterValues(BoundSql boundSql) {
+        Configuration configuration = sqlSessionFactory.getConfiguration();
+        MetaObject metaObject = configuration.newMetaObject(boundSql.getParameterObject());
+        List<Object> values = new ArrayList<>();
+        for (ParameterMapping mapping : boundSql.getParameterMappings()) {
+            String property = mapping.getProperty();
+            values.add(boundSql.hasAdditionalParameter(property) ? boundSql.getAdditionalParameter(property) :
+                    metaObject.getValue(property));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ * This file is part of mycollab-services-community.
+ *
+ * mycollab-services-community is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-services-community is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-services-community.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.module.esb;
+
+import com.google.common.eventbus.AsyncEventBus;
+import com.google.common.eventbus.Subscribe;
+import com.mycollab.test.service.IntegrationServiceTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The events are delivered by the event bus of the application context, the subscribers are
+ * registered before posting so that its poller can not deliver an event without them.
+ *
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+public class DurableEventBusTest extends IntegrationServiceTest {
+    private static final long TIMEOUT = TimeUnit.SECONDS.toMillis(20);
+
+    @Autowired
+    private AsyncEventBus asyncEventBus;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private DurableEventBus eventBus;
+    private JdbcTemplate jdbcTemplate;
+    private CountingSubscriber countingSubscriber;
+    private FailingSubscriber failingSubscriber;
+
+    @Before
+    public void setUp() {
+        eventBus = (DurableEventBus) asyncEventBus;
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        countingSubscriber = new CountingSubscriber();
+        failingSubscriber = new FailingSubscriber();
+        eventBus.register(countingSubscriber);
+        eventBus.register(failingSubscriber);
+    }
+
+    @After
+    public void tearDown() {
+        eventBus.unregister(countingSubscriber);
+        eventBus.unregister(failingSubscriber);
+        jdbcTemplate.update("DELETE FROM `s_event_outbox` WHERE eventType=?", TestEvent.class.getName());
+    }
+
+    @Test
+    public void testFailedSubscriberIsRetriedAlone() {
+        failingSubscriber.failures.set(1);
+        eventBus.post(new TestEvent());
+        await(() -> attempts() == 1);
+        assertThat(countingSubscriber.count.get()).isEqualTo(1);
+        assertThat(failingSubscriber.count.get()).isEqualTo(1);
+
+        makeDue();
+        eventBus.dispatchOutbox();
+        await(() -> outboxSize() == 0);
+        assertThat(countingSubscriber.count.get()).isEqualTo(1);
+        assertThat(failingSubscriber.count.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testEventIsDeadLetterAfterMaxAttempts() {
+        failingSubscriber.failures.set(Integer.MAX_VALUE);
+        long deadLetterCount = eventBus.getDeadLetterCount();
+        eventBus.post(new TestEvent());
+        await(() -> attempts() == 1);
+
+        jdbcTemplate.update("UPDATE `s_event_outbox` SET attempts=? WHERE eventType=?", DurableEventBus.MAX_ATTEMPTS - 1,
+                TestEvent.class.getName());
+        makeDue();
+        eventBus.dispatchOutbox();
+        await(() -> attempts() == DurableEventBus.MAX_ATTEMPTS);
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM `s_event_outbox` WHERE eventType=?", Integer.class,
+                TestEvent.class.getName())).isEqualTo(1);
+        assertThat(eventBus.getDeadLetterCount()).isEqualTo(deadLetterCount + 1);
+
+        eventBus.dispatchOutbox();
+        assertThat(outboxSize()).isEqualTo(1);
+        assertThat(countingSubscriber.count.get()).isEqualTo(1);
+        assertThat(failingSubscriber.count.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testEventOfStoppedBusIsDeliveredAfterRestart() {
+        DurableEventBus stoppedEventBus = new DurableEventBus(dataSource);
+        stoppedEventBus.init();
+        new TransactionTemplate(transactionManager).execute(status -> {
+            stoppedEventBus.post(new TestEvent());
+            stoppedEventBus.destroy();
+            return null;
+        });
+
+        eventBus.dispatchOutbox();
+        await(() -> outboxSize() == 0);
+        assertThat(countingSubscriber.count.get()).isEqualTo(1);
+        assertThat(failingSubscriber.count.get()).isEqualTo(1);
+    }
+
+    private void makeDue() {
+        jdbcTemplate.update("UPDATE `s_event_outbox` SET nextAttemptTime=? WHERE eventType=?",
+                new Timestamp(System.currentTimeMillis()), TestEvent.class.getName());
+    }
+
+    private int attempts() {
+        Integer attempts = jdbcTemplate.queryForObject("SELECT MAX(attempts) FROM `s_event_outbox` WHERE eventType=?",
+                Integer.class, TestEvent.class.getName());
+        return (attempts == null) ? 0 : attempts;
+    }
+
+    private int outboxSize() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM `s_event_outbox` WHERE eventType=?", Integer.class,
+                TestEvent.class.getName());
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("timeout").isLessThan(deadline);
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    public static class TestEvent implements DurableEvent {
+    }
+
+    public static class CountingSubscriber {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Subscribe
+        public void handle(TestEvent event) {
+            count.incrementAndGet();
+        }
+    }
+
+    public static class FailingSubscriber {
+        private final AtomicInteger count = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+
+        @Subscribe
+        public void handle(TestEvent event) {
+            count.incrementAndGet();
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("Subscriber failure " + count.get());
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/**
+ * This file is part of mycollab-services-community.
+ *
+ * mycollab-services-community is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-services-community is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-services-community.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.module.mail.service.impl;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.mycollab.common.domain.MailRecipientField;
+import com.mycollab.configuration.EmailConfiguration;
+import com.mycollab.configuration.SiteConfiguration;
+import com.mycollab.module.mail.MailMessage;
+import com.mycollab.module.mail.service.MailDeliveryService;
+import com.mycollab.test.service.IntegrationServiceTest;
+import com.sun.mail.smtp.SMTPAddressFailedException;
+import com.sun.mail.smtp.SMTPSendFailedException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.internet.InternetAddress;
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+public class MailDeliveryServiceImplTest extends IntegrationServiceTest {
+    private static final long TIMEOUT = TimeUnit.SECONDS.toMillis(20);
+
+    @Autowired
+    private MailDeliveryService mailDeliveryService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+    private GreenMail greenMail;
+    private EmailConfiguration previousEmailConf;
+
+    @Before
+    public void setUp() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("DELETE FROM `s_mail_queue` WHERE id > 0");
+        greenMail = new GreenMail(ServerSetupTest.SMTP);
+        greenMail.start();
+        greenMail.setUser("mycollab@localhost", "mycollab", "secret");
+        previousEmailConf = SiteConfiguration.getEmailConfiguration();
+        SiteConfiguration.setEmailConfiguration(newEmailConfiguration(ServerSetupTest.SMTP.getPort()));
+    }
+
+    @After
+    public void tearDown() {
+        SiteConfiguration.setEmailConfiguration(previousEmailConf);
+        greenMail.stop();
+        jdbcTemplate.update("DELETE FROM `s_mail_queue` WHERE id > 0");
+    }
+
+    @Test
+    public void testQueuedMailIsSent() {
+        long sentCount = mailDeliveryService.getSentCount();
+        mailDeliveryService.enqueue(newMessage(true));
+
+        assertThat(greenMail.waitForIncomingEmail(TIMEOUT, 1)).isTrue();
+        await(() -> mailDeliveryService.getQueueDepth() == 0);
+        assertThat(mailDeliveryService.getSentCount()).isEqualTo(sentCount + 1);
+    }
+
+    @Test
+    public void testTransientFailureIsRetriedWithBackoff() {
+        SiteConfiguration.setEmailConfiguration(newEmailConfiguration(ServerSetupTest.SMTP.getPort() + 1));
+        long retryCount = mailDeliveryService.getRetryCount();
+        long enqueueTime = System.currentTimeMillis();
+        mailDeliveryService.enqueue(newMessage(true));
+        await(() -> attempts() == 1);
+
+        assertThat(mailDeliveryService.getRetryCount()).isEqualTo(retryCount + 1);
+        long delay = jdbcTemplate.queryForObject("SELECT nextAttemptTime FROM `s_mail_queue`", Timestamp.class).getTime()
+                - enqueueTime;
+        assertThat(delay).isBetween(TimeUnit.SECONDS.toMillis(50), TimeUnit.SECONDS.toMillis(70));
+
+        SiteConfiguration.setEmailConfiguration(newEmailConfiguration(ServerSetupTest.SMTP.getPort()));
+        jdbcTemplate.update("UPDATE `s_mail_queue` SET nextAttemptTime=?", new Timestamp(System.currentTimeMillis()));
+        mailDeliveryService.dispatchQueue();
+
+        assertThat(greenMail.waitForIncomingEmail(TIMEOUT, 1)).isTrue();
+        assertThat(mailDeliveryService.getQueueDepth()).isEqualTo(0);
+    }
+
+    @Test
+    public void testMailWhichCanNotBeRetriedIsDropped() {
+        SiteConfiguration.setEmailConfiguration(newEmailConfiguration(ServerSetupTest.SMTP.getPort() + 1));
+        long failedCount = mailDeliveryService.getFailedCount();
+        mailDeliveryService.enqueue(newMessage(false));
+
+        await(() -> mailDeliveryService.getFailedCount() == failedCount + 1);
+        assertThat(mailDeliveryService.getQueueDepth()).isEqualTo(0);
+    }
+
+    @Test
+    public void testMailIsDroppedAfterLastAttempt() {
+        SiteConfiguration.setEmailConfiguration(newEmailConfiguration(ServerSetupTest.SMTP.getPort() + 1));
+        mailDeliveryService.enqueue(newMessage(true));
+        await(() -> attempts() == 1);
+
+        long failedCount = mailDeliveryService.getFailedCount();
+        jdbcTemplate.update("UPDATE `s_mail_queue` SET attempts=5, nextAttemptTime=?", new Timestamp(System.currentTimeMillis()));
+        mailDeliveryService.dispatchQueue();
+
+        assertThat(mailDeliveryService.getFailedCount()).isEqualTo(failedCount + 1);
+        assertThat(mailDeliveryService.getQueueDepth()).isEqualTo(0);
+    }
+
+    @Test
+    public void testTransientAndPermanentFailures() throws Exception {
+        InternetAddress address = new InternetAddress("user@localhost");
+        assertThat(MailDeliveryServiceImpl.isTransientFailure(new MessagingException("Connection refused"))).isTrue();
+        assertThat(MailDeliveryServiceImpl.isTransientFailure(new SMTPSendFailedException("DATA", 451,
+                "451 Try again later", null, null, null, null))).isTrue();
+        assertThat(MailDeliveryServiceImpl.isTransientFailure(new SMTPSendFailedException("DATA", 554,
+                "554 Transaction failed", null, null, null, null))).isFalse();
+        assertThat(MailDeliveryServiceImpl.isTransientFailure(new SMTPAddressFailedException(address, "RCPT TO", 450,
+                "450 Mailbox busy"))).isTrue();
+        assertThat(MailDeliveryServiceImpl.isTransientFailure(new SMTPAddressFailedException(address, "RCPT TO", 550,
+                "550 No such user"))).isFalse();
+        assertThat(MailDeliveryServiceImpl.isTransientFailure(new SendFailedException("Invalid Addresses"))).isFalse();
+        assertThat(MailDeliveryServiceImpl.isTransientFailure(new IllegalStateException())).isFalse();
+    }
+
+    private int attempts() {
+        Integer attempts = jdbcTemplate.queryForObject("SELECT MAX(attempts) FROM `s_mail_queue`", Integer.class);
+        return (attempts == null) ? 0 : attempts;
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("timeout").isLessThan(deadline);
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static EmailConfiguration newEmailConfiguration(int port) {
+        EmailConfiguration emailConf = new EmailConfiguration();
+        emailConf.setHost("localhost");
+        emailConf.setPort(port);
+        emailConf.setUser("mycollab");
+        emailConf.setPassword("secret");
+        return emailConf;
+    }
+
+    private static MailMessage newMessage(boolean canRetry) {
+        MailMessage message = new MailMessage("mycollab@localhost", "MyCollab",
+                Collections.singletonList(new MailRecipientField("user@localhost", "User")), null, null,
+                "Subject", "<p>Content</p>");
+        message.setCanRetry(canRetry);
+        return message;
+    }
+}
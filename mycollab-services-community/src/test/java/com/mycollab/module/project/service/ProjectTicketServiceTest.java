@@ -21,6 +21,7 @@ import com.mycollab.db.arguments.BasicSearchRequest;
 import com.mycollab.db.arguments.NumberSearchField;
 import com.mycollab.db.arguments.RangeDateSearchField;
 import com.mycollab.db.arguments.SetSearchField;
+import com.mycollab.db.arguments.StringSearchField;
 import com.mycollab.module.project.domain.ProjectTicket;
 import com.mycollab.module.project.domain.criteria.ProjectTicketSearchCriteria;
 import com.mycollab.module.user.domain.BillingAccount;
@@ -69,6 +70,19 @@ public class ProjectTicketServiceTest extends IntegrationServiceTest {
                         tuple("Risk 1", "hai79", "Nguyen Hai", null, "Project-Risk"));
     }
 
+    @DataSet
+    @Test
+    public void testSearchTicketsByNameWithoutFullTextIndexes() {
+        assertThat(StringSearchField.getFullTextTokenSize()).isEqualTo(0);
+        ProjectTicketSearchCriteria criteria = new ProjectTicketSearchCriteria();
+        criteria.setSaccountid(NumberSearchField.equal(2));
+        criteria.setProjectIds(new SetSearchField<>(3));
+        criteria.setName(StringSearchField.and("isk"));
+        List<ProjectTicket> tickets = projectTicketService.findTicketsByCriteria(new BasicSearchRequest<>(criteria));
+        assertThat(tickets).extracting("name").containsExactly("Risk 1");
+        assertThat(projectTicketService.getTotalTicketsCount(criteria)).isEqualTo(1);
+    }
+
     @DataSet
     @Test
     public void testGetAssigneeSummary() {
@@ -0,0 +1,151 @@
+/**
+ * This file is part of mycollab-services-community.
+ *
+ * mycollab-services-community is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-services-community is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-services-community.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.module.project.service;
+
+import com.mycollab.module.project.ProjectTypeConstants;
+import com.mycollab.module.project.domain.Task;
+import com.mycollab.module.tracker.domain.BugWithBLOBs;
+import com.mycollab.module.tracker.service.BugService;
+import com.mycollab.test.DataSet;
+import com.mycollab.test.service.IntegrationServiceTest;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+public class TicketKeyServiceTest extends IntegrationServiceTest {
+    private static final int THREADS = 8;
+    private static final int TICKETS_PER_THREAD = 250;
+
+    @Autowired
+    private TicketKeyService ticketKeyService;
+
+    @Autowired
+    private BugService bugService;
+
+    @Autowired
+    private ProjectTaskService projectTaskService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @DataSet
+    @Test
+    public void testKeysStartAfterExistingTickets() {
+        assertThat(ticketKeyService.nextKey(101, ProjectTypeConstants.BUG)).isGreaterThan(7);
+        assertThat(ticketKeyService.nextKey(101, ProjectTypeConstants.TASK)).isGreaterThan(3);
+    }
+
+    @DataSet
+    @Test
+    public void testReserveKeysWhileCreatorsHoldEveryConnection() throws Exception {
+        int creators = ((HikariDataSource) dataSource).getMaximumPoolSize();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        CyclicBarrier connectionsHeld = new CyclicBarrier(creators);
+        Set<Integer> keys = ConcurrentHashMap.newKeySet();
+
+        ExecutorService executor = Executors.newFixedThreadPool(creators);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int creator = 0; creator < creators; creator++) {
+            futures.add(executor.submit(() -> new TransactionTemplate(transactionManager).execute(status -> {
+                jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+                try {
+                    connectionsHeld.await(1, TimeUnit.MINUTES);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                return keys.add(ticketKeyService.nextKey(103, ProjectTypeConstants.BUG));
+            })));
+        }
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        assertThat(keys).hasSize(creators);
+    }
+
+    @DataSet
+    @Test
+    public void testCreateTicketsConcurrently() throws Exception {
+        Set<Integer> bugKeys101 = ConcurrentHashMap.newKeySet();
+        Set<Integer> bugKeys102 = ConcurrentHashMap.newKeySet();
+        Set<Integer> taskKeys101 = ConcurrentHashMap.newKeySet();
+        Set<Integer> taskKeys102 = ConcurrentHashMap.newKeySet();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch startSignal = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            final int threadIndex = thread;
+            futures.add(executor.submit(() -> {
+                startSignal.await();
+                for (int i = 0; i < TICKETS_PER_THREAD; i++) {
+                    int projectId = (i % 2 == 0) ? 101 : 102;
+                    String name = "ticket " + threadIndex + "-" + i;
+                    if ((i / 2) % 2 == 0) {
+                        BugWithBLOBs bug = new BugWithBLOBs();
+                        bug.setName(name);
+                        bug.setProjectid(projectId);
+                        bug.setSaccountid(1);
+                        bugService.saveWithSession(bug, "admin");
+                        assertThat((projectId == 101 ? bugKeys101 : bugKeys102).add(bug.getBugkey())).isTrue();
+                    } else {
+                        Task task = new Task();
+                        task.setName(name);
+                        task.setProjectid(projectId);
+                        task.setSaccountid(1);
+                        projectTaskService.saveWithSession(task, "admin");
+                        assertThat((projectId == 101 ? taskKeys101 : taskKeys102).add(task.getTaskkey())).isTrue();
+                    }
+                }
+                return null;
+            }));
+        }
+        startSignal.countDown();
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        int ticketsPerSet = THREADS * TICKETS_PER_THREAD / 4;
+        assertThat(bugKeys101).hasSize(ticketsPerSet);
+        assertThat(bugKeys102).hasSize(ticketsPerSet);
+        assertThat(taskKeys101).hasSize(ticketsPerSet);
+        assertThat(taskKeys102).hasSize(ticketsPerSet);
+        assertThat(bugKeys101).allMatch(key -> key > 7);
+        assertThat(taskKeys101).allMatch(key -> key > 3);
+        assertThat(bugKeys102).allMatch(key -> key > 0);
+        assertThat(taskKeys102).allMatch(key -> key > 0);
+    }
+}
@@ -31,6 +31,7 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.tuple;
@@ -53,6 +54,28 @@ public class BugServiceTest extends IntegrationServiceTest {
                 tuple(3, "detail 3", "name 3"));
     }
 
+    @DataSet
+    @Test
+    public void testNextPageFromCursorEqualsOffsetPage() {
+        BugSearchCriteria criteria = new BugSearchCriteria();
+        criteria.setSaccountid(new NumberSearchField(1));
+        BasicSearchRequest<BugSearchCriteria> searchRequest = new BasicSearchRequest<>(criteria, 1, 1);
+        for (int page = 1; page < 3; page++) {
+            List<SimpleBug> bugs = bugService.findPageableListByCriteria(searchRequest);
+            assertThat(bugs).hasSize(1);
+            SearchCursor cursor = bugService.getNextPageCursor(searchRequest, bugs.get(0));
+            assertThat(cursor).isNotNull();
+
+            searchRequest = new BasicSearchRequest<>(criteria, page + 1, 1);
+            List<SimpleBug> offsetBugs = bugService.findPageableListByCriteria(searchRequest);
+            searchRequest.setCursor(cursor);
+            List<SimpleBug> cursorBugs = bugService.findPageableListByCriteria(searchRequest);
+            assertThat(cursorBugs).extracting("id").containsExactlyElementsOf(offsetBugs.stream().map(SimpleBug::getId)
+                    .collect(Collectors.toList()));
+        }
+        assertThat(bugService.findPageableListByCriteria(searchRequest)).extracting("id").containsExactly(1);
+    }
+
     @DataSet
     @Test
     public void testSearchDefectsByUserCriteria() {
@@ -0,0 +1,167 @@
+/**
+ * This file is part of mycollab-services-community.
+ *
+ * mycollab-services-community is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-services-community is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-services-community.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.module.tracker.service;
+
+import com.mycollab.aspect.AuditBatchWriter;
+import com.mycollab.configuration.SiteConfiguration;
+import com.mycollab.module.tracker.dao.BugMapper;
+import com.mycollab.module.tracker.domain.BugWithBLOBs;
+import com.mycollab.spring.test.service.RootConfigurationTest;
+import org.joda.time.DateTimeZone;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares the throughput of the bug updates through {@link BugService}, which are audited,
+ * with the updates of the same rows through the bug mapper, which are not. It runs on the test
+ * database, run it with the main method from the test classpath.
+ *
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BugUpdateBenchmark {
+    private static final Logger LOG = LoggerFactory.getLogger(BugUpdateBenchmark.class);
+
+    private static final int ACCOUNT_ID = 900;
+    private static final int PROJECT_ID = 900;
+    private static final int BUGS = 100;
+    private static final String USERNAME = "benchmark-user";
+
+    private AnnotationConfigApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private BugService bugService;
+    private BugMapper bugMapper;
+    private AuditBatchWriter auditBatchWriter;
+    private BugWithBLOBs[] bugs;
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Setup
+    public void setUp() {
+        SiteConfiguration.loadConfiguration();
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        DateTimeZone.setDefault(DateTimeZone.UTC);
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().setActiveProfiles("test");
+        context.register(RootConfigurationTest.class);
+        context.refresh();
+
+        jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+        bugService = context.getBean(BugService.class);
+        bugMapper = context.getBean(BugMapper.class);
+        auditBatchWriter = context.getBean(AuditBatchWriter.class);
+
+        deleteData();
+        jdbcTemplate.update("INSERT INTO s_user(username, firstname, lastname, email) VALUES (?, 'Benchmark', 'User', " +
+                "'benchmark@mycollab.com')", USERNAME);
+        jdbcTemplate.update("INSERT INTO s_account(id, createdTime, paymentMethod, status) VALUES (?, NOW(), 'Credit Card', 'Active')",
+                ACCOUNT_ID);
+        jdbcTemplate.update("INSERT INTO m_prj_project(id, name, sAccountId, shortname, projectStatus) VALUES (?, 'benchmark', ?, 'bmk', 'Open')",
+                PROJECT_ID, ACCOUNT_ID);
+        bugs = new BugWithBLOBs[BUGS];
+        for (int i = 0; i < BUGS; i++) {
+            BugWithBLOBs bug = new BugWithBLOBs();
+            bug.setName("bug " + i);
+            bug.setProjectid(PROJECT_ID);
+            bug.setSaccountid(ACCOUNT_ID);
+            bug.setCreateduser(USERNAME);
+            bugService.saveWithSession(bug, USERNAME);
+            bugs[i] = bug;
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        awaitAuditRecords();
+        LOG.info("Audit records written: {} in {} batches, by caller: {}", auditBatchWriter.getWrittenCount(),
+                auditBatchWriter.getBatchCount(), auditBatchWriter.getCallerWriteCount());
+        deleteData();
+        context.close();
+    }
+
+    /**
+     * Waits until the audit writer has written the records queued by the updates, so none is
+     * written after the data is deleted.
+     */
+    private void awaitAuditRecords() throws InterruptedException {
+        long processedCount = -1;
+        while (auditBatchWriter.getQueueSize() > 0 || processedCount != auditBatchWriter.getWrittenCount() +
+                auditBatchWriter.getFailedCount()) {
+            processedCount = auditBatchWriter.getWrittenCount() + auditBatchWriter.getFailedCount();
+            Thread.sleep(500);
+        }
+    }
+
+    private void deleteData() {
+        jdbcTemplate.update("DELETE FROM m_audit_log WHERE sAccountId=?", ACCOUNT_ID);
+        jdbcTemplate.update("DELETE FROM s_activitystream WHERE sAccountId=?", ACCOUNT_ID);
+        jdbcTemplate.update("DELETE FROM s_relay_email_notification WHERE sAccountId=?", ACCOUNT_ID);
+        jdbcTemplate.update("DELETE FROM m_monitor_item WHERE sAccountId=?", ACCOUNT_ID);
+        jdbcTemplate.update("DELETE FROM m_tracker_bug WHERE sAccountId=?", ACCOUNT_ID);
+        jdbcTemplate.update("DELETE FROM m_prj_project WHERE sAccountId=?", ACCOUNT_ID);
+        jdbcTemplate.update("DELETE FROM s_account WHERE id=?", ACCOUNT_ID);
+        jdbcTemplate.update("DELETE FROM s_user WHERE username=?", USERNAME);
+    }
+
+    private BugWithBLOBs nextBug() {
+        int index = counter.incrementAndGet();
+        BugWithBLOBs bug = bugs[index % BUGS];
+        BugWithBLOBs update = new BugWithBLOBs();
+        update.setId(bug.getId());
+        update.setBugkey(bug.getBugkey());
+        update.setName("bug " + index);
+        update.setProjectid(PROJECT_ID);
+        update.setSaccountid(ACCOUNT_ID);
+        update.setCreateduser(USERNAME);
+        update.setCreatedtime(bug.getCreatedtime());
+        update.setStatus(bug.getStatus());
+        update.setPriority(bug.getPriority());
+        return update;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void updateWithAuditing() {
+        bugService.updateWithSession(nextBug(), USERNAME);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void updateWithoutAuditing() {
+        bugMapper.updateByPrimaryKeyWithBLOBs(nextBug());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(BugUpdateBenchmark.class.getSimpleName()).build()).run();
+    }
+}
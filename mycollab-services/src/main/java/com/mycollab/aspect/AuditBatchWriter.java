@@ -0,0 +1,318 @@
+/**
+ * This file is part of mycollab-services.
+ *
+ * mycollab-services is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-services is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-services.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.aspect;
+
+import com.google.common.eventbus.AsyncEventBus;
+import com.mycollab.cache.CleanCacheEvent;
+import com.mycollab.common.dao.*;
+import com.mycollab.common.domain.*;
+import com.mycollab.common.service.ActivityStreamService;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes the monitor items, activity streams, audit logs and relay notifications of the
+ * audited services in background. The records are queued once the transaction of the change
+ * is committed, then a single thread writes them by batches: the monitor items with one
+ * multi-row insert, the other rows with JDBC batches in one transaction of the transaction
+ * manager. When a batch fails, it is rolled back and its records are written one at a time,
+ * each in its own transaction, so a bad record does not lose the others. When the
+ * queue is full, the records are written by the caller.
+ *
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+@Component
+public class AuditBatchWriter {
+    private static final Logger LOG = LoggerFactory.getLogger(AuditBatchWriter.class);
+
+    private static final int QUEUE_CAPACITY = 10000;
+    private static final int BATCH_SIZE = 500;
+    private static final long FLUSH_INTERVAL = 200;
+
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+
+    @Autowired
+    private AsyncEventBus asyncEventBus;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private final BlockingQueue<AuditRecord> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private Thread writerThread;
+    private volatile boolean running;
+
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong callerWriteCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionTemplate.PROPAGATION_REQUIRES_NEW);
+        running = true;
+        writerThread = new Thread(this::writeLoop, "audit-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        running = false;
+        writerThread.interrupt();
+        writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        List<AuditRecord> records = new ArrayList<>();
+        queue.drainTo(records);
+        if (records.size() > 0) {
+            write(records);
+        }
+    }
+
+    /**
+     * Queues <code>record</code> once the current transaction is committed, it is dropped if
+     * the transaction is rolled back.
+     *
+     * @param record
+     */
+    public void submit(final AuditRecord record) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    enqueue(record);
+                }
+            });
+        } else {
+            enqueue(record);
+        }
+    }
+
+    private void enqueue(AuditRecord record) {
+        if (!running || !queue.offer(record)) {
+            callerWriteCount.incrementAndGet();
+            write(Collections.singletonList(record));
+        }
+    }
+
+    private void writeLoop() {
+        List<AuditRecord> records = new ArrayList<>(BATCH_SIZE);
+        while (running) {
+            try {
+                AuditRecord record = queue.poll(FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+                if (record == null) {
+                    continue;
+                }
+                records.add(record);
+                queue.drainTo(records, BATCH_SIZE - 1);
+                write(records);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                LOG.error("Error while writing audit records", e);
+            } finally {
+                records.clear();
+            }
+        }
+    }
+
+    void write(List<AuditRecord> records) {
+        Set<Integer> activityAccountIds;
+        try {
+            activityAccountIds = L2CacheAspect.withoutMapperEviction(() -> transactionTemplate.execute(status -> writeBatch(records)));
+            writtenCount.addAndGet(records.size());
+            batchCount.incrementAndGet();
+        } catch (Exception e) {
+            if (records.size() == 1) {
+                failedCount.incrementAndGet();
+                LOG.error("Can not write the audit record", e);
+                return;
+            }
+            LOG.warn("Can not write " + records.size() + " audit records in one batch, write them one at a time", e);
+            for (AuditRecord record : records) {
+                record.resetIds();
+                write(Collections.singletonList(record));
+            }
+            return;
+        }
+
+        for (Integer sAccountId : activityAccountIds) {
+            asyncEventBus.post(new CleanCacheEvent(sAccountId, new Class[]{ActivityStreamService.class}));
+        }
+    }
+
+    /**
+     * Inserts the rows of <code>records</code> in the transaction of the caller, the SQL session
+     * runs on the connection of that transaction.
+     *
+     * @return the accounts of the activity streams written
+     */
+    private Set<Integer> writeBatch(List<AuditRecord> records) {
+        List<MonitorItem> monitorItems = new ArrayList<>();
+        Set<String> monitorKeys = new HashSet<>();
+        Set<Integer> activityAccountIds = new HashSet<>();
+        for (AuditRecord record : records) {
+            for (MonitorItem monitorItem : record.monitorItems) {
+                if (monitorKeys.add(monitorItem.getType() + "-" + monitorItem.getTypeid() + "-" + monitorItem.getUser())) {
+                    monitorItems.add(monitorItem);
+                }
+            }
+        }
+
+        try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH, false)) {
+            MonitorItemMapper monitorItemMapper = session.getMapper(MonitorItemMapper.class);
+            List<MonitorItem> newMonitorItems = new ArrayList<>();
+            for (MonitorItem monitorItem : monitorItems) {
+                MonitorItemExample ex = new MonitorItemExample();
+                ex.createCriteria().andTypeEqualTo(monitorItem.getType()).andTypeidEqualTo(monitorItem.getTypeid())
+                        .andUserEqualTo(monitorItem.getUser());
+                if (monitorItemMapper.countByExample(ex) == 0) {
+                    newMonitorItems.add(monitorItem);
+                }
+            }
+            if (newMonitorItems.size() > 0) {
+                session.getMapper(MonitorItemMapperExt.class).saveMonitorItems(newMonitorItems);
+            }
+
+            ActivityStreamMapper activityStreamMapper = session.getMapper(ActivityStreamMapper.class);
+            for (AuditRecord record : records) {
+                if (record.activity != null) {
+                    activityStreamMapper.insertAndReturnKey(record.activity);
+                    activityAccountIds.add(record.activity.getSaccountid());
+                }
+            }
+            session.flushStatements();
+
+            AuditLogMapper auditLogMapper = session.getMapper(AuditLogMapper.class);
+            for (AuditRecord record : records) {
+                if (record.auditLog != null) {
+                    if (record.activity != null) {
+                        record.auditLog.setActivitylogid(record.activity.getId());
+                    }
+                    auditLogMapper.insertAndReturnKey(record.auditLog);
+                }
+            }
+            session.flushStatements();
+
+            RelayEmailNotificationMapper relayNotificationMapper = session.getMapper(RelayEmailNotificationMapper.class);
+            for (AuditRecord record : records) {
+                if (record.relayNotification != null) {
+                    if (record.auditLog != null) {
+                        record.relayNotification.setExtratypeid(record.auditLog.getId());
+                    }
+                    relayNotificationMapper.insertAndReturnKey(record.relayNotification);
+                }
+            }
+            session.flushStatements();
+        }
+        return activityAccountIds;
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * @return number of records written by the caller because the queue was full
+     */
+    public long getCallerWriteCount() {
+        return callerWriteCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * The rows written for one change of a bean. The audit log is linked to the activity
+     * stream and the relay notification to the audit log once they are inserted.
+     */
+    public static class AuditRecord {
+        private final List<MonitorItem> monitorItems = new ArrayList<>();
+        private ActivityStreamWithBLOBs activity;
+        private AuditLog auditLog;
+        private RelayEmailNotificationWithBLOBs relayNotification;
+
+        public AuditRecord addMonitorItem(MonitorItem monitorItem) {
+            monitorItems.add(monitorItem);
+            return this;
+        }
+
+        public AuditRecord setActivity(ActivityStreamWithBLOBs activity) {
+            this.activity = activity;
+            return this;
+        }
+
+        public AuditRecord setAuditLog(AuditLog auditLog) {
+            this.auditLog = auditLog;
+            return this;
+        }
+
+        public AuditRecord setRelayNotification(RelayEmailNotificationWithBLOBs relayNotification) {
+            this.relayNotification = relayNotification;
+            return this;
+        }
+
+        /**
+         * Clears the keys assigned by an insert of a batch which is rolled back.
+         */
+        private void resetIds() {
+            if (activity != null) {
+                activity.setId(null);
+            }
+            if (auditLog != null) {
+                auditLog.setId(null);
+            }
+            if (relayNotification != null) {
+                relayNotification.setId(null);
+            }
+        }
+
+        public boolean isEmpty() {
+            return monitorItems.isEmpty() && activity == null && auditLog == null && relayNotification == null;
+        }
+    }
+}
@@ -23,10 +23,6 @@ import com.mycollab.common.domain.ActivityStreamWithBLOBs;
 import com.mycollab.common.domain.AuditLog;
 import com.mycollab.common.domain.MonitorItem;
 import com.mycollab.common.domain.RelayEmailNotificationWithBLOBs;
-import com.mycollab.common.service.ActivityStreamService;
-import com.mycollab.common.service.AuditLogService;
-import com.mycollab.common.service.MonitorItemService;
-import com.mycollab.common.service.RelayEmailNotificationService;
 import com.mycollab.core.utils.BeanUtility;
 import org.apache.commons.beanutils.PropertyUtils;
 import org.aspectj.lang.JoinPoint;
@@ -43,8 +39,14 @@ import org.springframework.stereotype.Component;
 import java.lang.reflect.Method;
 import java.util.GregorianCalendar;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
+ * Records the changes of the updated beans of the traceable services. The monitor items,
+ * activity stream, audit log and relay notification of a change are handed to
+ * {@link AuditBatchWriter}, they are not written during the update.
+ *
  * @author MyCollab Ltd.
  * @since 1.0
  */
@@ -56,20 +58,13 @@ public class AuditLogAspect {
 
     private static final String AUDIT_TEMP_CACHE = "AUDIT_TEMP_CACHE";
 
-    @Autowired
-    private CacheService cacheService;
-
-    @Autowired
-    private AuditLogService auditLogService;
+    private static final ConcurrentMap<Class<?>, Method> findMethods = new ConcurrentHashMap<>();
 
     @Autowired
-    private ActivityStreamService activityStreamService;
-
-    @Autowired
-    private MonitorItemService monitorItemService;
+    private CacheService cacheService;
 
     @Autowired
-    private RelayEmailNotificationService relayEmailNotificationService;
+    private AuditBatchWriter auditBatchWriter;
 
     @Before("(execution(public * com.mycollab..service..*.updateWithSession(..)) || (execution(public * com.mycollab..service..*.updateSelectiveWithSession(..)))) && args(bean, username)")
     public void traceBeforeUpdateActivity(JoinPoint joinPoint, Object bean, String username) {
@@ -86,14 +81,7 @@ public class AuditLogAspect {
 
                 // get old value
                 Object service = advised.getTargetSource().getTarget();
-                Method findMethod;
-                Object oldValue;
-                try {
-                    findMethod = cls.getMethod("findById", Integer.class, Integer.class);
-                } catch (Exception e) {
-                    findMethod = cls.getMethod("findByPrimaryKey", Integer.class, Integer.class);
-                }
-                oldValue = findMethod.invoke(service, typeId, sAccountId);
+                Object oldValue = getFindMethod(cls).invoke(service, typeId, sAccountId);
                 String key = bean.toString() + ClassInfoMap.getType(cls) + typeId;
 
                 cacheService.putValue(AUDIT_TEMP_CACHE, key, oldValue);
@@ -103,12 +91,26 @@ public class AuditLogAspect {
         }
     }
 
+    private static Method getFindMethod(Class<?> cls) throws NoSuchMethodException {
+        Method findMethod = findMethods.get(cls);
+        if (findMethod == null) {
+            try {
+                findMethod = cls.getMethod("findById", Integer.class, Integer.class);
+            } catch (Exception e) {
+                findMethod = cls.getMethod("findByPrimaryKey", Integer.class, Integer.class);
+            }
+            findMethods.putIfAbsent(cls, findMethod);
+        }
+        return findMethod;
+    }
+
     @AfterReturning("(execution(public * com.mycollab..service..*.updateWithSession(..)) || (execution(public * com.mycollab..service..*.updateSelectiveWithSession(..))))  && args(bean, username)")
     public void traceAfterUpdateActivity(JoinPoint joinPoint, Object bean, String username) {
         Advised advised = (Advised) joinPoint.getThis();
         Class<?> cls = advised.getTargetSource().getTargetClass();
         boolean isSelective = "updateSelectiveWithSession".equals(joinPoint.getSignature().getName());
 
+        AuditBatchWriter.AuditRecord record = new AuditBatchWriter.AuditRecord();
         try {
             Watchable watchableAnnotation = cls.getAnnotation(Watchable.class);
             if (watchableAnnotation != null) {
@@ -128,15 +130,20 @@ public class AuditLogAspect {
                 monitorItem.setExtratypeid(extraTypeId);
                 monitorItem.setUser(username);
                 monitorItem.setSaccountid(sAccountId);
-                monitorItemService.saveWithSession(monitorItem, username);
+                record.addMonitorItem(monitorItem);
 
                 // check whether the current user is in monitor list, if not add him in
                 if (!watchableAnnotation.userFieldName().equals("")) {
                     String moreUser = (String) PropertyUtils.getProperty(bean, watchableAnnotation.userFieldName());
                     if (moreUser != null && !moreUser.equals(username)) {
-                        monitorItem.setId(null);
-                        monitorItem.setUser(moreUser);
-                        monitorItemService.saveWithSession(monitorItem, moreUser);
+                        MonitorItem moreUserMonitorItem = new MonitorItem();
+                        moreUserMonitorItem.setMonitorDate(monitorItem.getMonitorDate());
+                        moreUserMonitorItem.setType(monitorType);
+                        moreUserMonitorItem.setTypeid(typeId);
+                        moreUserMonitorItem.setExtratypeid(extraTypeId);
+                        moreUserMonitorItem.setUser(moreUser);
+                        moreUserMonitorItem.setSaccountid(sAccountId);
+                        record.addMonitorItem(moreUserMonitorItem);
                     }
                 }
             }
@@ -145,14 +152,14 @@ public class AuditLogAspect {
             if (traceableAnnotation != null) {
                 try {
                     ClassInfo classInfo = ClassInfoMap.getClassInfo(cls);
-                    String changeSet = getChangeSet(cls, bean, classInfo.getExcludeHistoryFields(),isSelective);
+                    String changeSet = getChangeSet(cls, bean, classInfo.getExcludeHistoryFields(), isSelective);
                     if (changeSet != null) {
                         ActivityStreamWithBLOBs activity = TraceableCreateAspect.constructActivity(cls,
                                 traceableAnnotation, bean, username, ActivityStreamConstants.ACTION_UPDATE);
-                        Integer activityStreamId = activityStreamService.save(activity);
+                        record.setActivity(activity);
 
                         Integer sAccountId = (Integer) PropertyUtils.getProperty(bean, "saccountid");
-                        Integer auditLogId = saveAuditLog(cls, bean, changeSet, username, sAccountId, activityStreamId);
+                        record.setAuditLog(buildAuditLog(cls, bean, changeSet, username, sAccountId));
 
                         Integer typeId = (Integer) PropertyUtils.getProperty(bean, "id");
                         // Save notification email
@@ -162,12 +169,8 @@ public class AuditLogAspect {
                         relayNotification.setSaccountid(sAccountId);
                         relayNotification.setType(ClassInfoMap.getType(cls));
                         relayNotification.setTypeid("" + typeId);
-                        if (auditLogId != null) {
-                            relayNotification.setExtratypeid(auditLogId);
-                        }
                         relayNotification.setAction(MonitorTypeConstants.UPDATE_ACTION);
-
-                        relayEmailNotificationService.saveWithSession(relayNotification, username);
+                        record.setRelayNotification(relayNotification);
                     }
                 } catch (Exception e) {
                     LOG.error("Error when save activity for save action of service " + cls.getName(), e);
@@ -177,6 +180,10 @@ public class AuditLogAspect {
             LOG.error("Error when save audit for save action of service "
                     + cls.getName() + "and bean: " + BeanUtility.printBeanObj(bean), e);
         }
+
+        if (!record.isEmpty()) {
+            auditBatchWriter.submit(record);
+        }
     }
 
     private String getChangeSet(Class<?> targetCls, Object bean, List<String> excludeHistoryFields, boolean isSelective) {
@@ -195,8 +202,7 @@ public class AuditLogAspect {
         }
     }
 
-    private Integer saveAuditLog(Class<?> targetCls, Object bean, String changeSet, String username, Integer sAccountId,
-                                 Integer activityStreamId) {
+    private AuditLog buildAuditLog(Class<?> targetCls, Object bean, String changeSet, String username, Integer sAccountId) {
         try {
             Integer typeId = (Integer) PropertyUtils.getProperty(bean, "id");
             AuditLog auditLog = new AuditLog();
@@ -208,11 +214,7 @@ public class AuditLogAspect {
             auditLog.setPosteddate(new GregorianCalendar().getTime());
             auditLog.setChangeset(changeSet);
             auditLog.setObjectClass(bean.getClass().getName());
-            if (activityStreamId != null) {
-                auditLog.setActivitylogid(activityStreamId);
-            }
-
-            return auditLogService.saveWithSession(auditLog, "");
+            return auditLog;
         } catch (Exception e) {
             LOG.error("Error when save audit for save action of service "
                     + targetCls.getName() + "and bean: " + BeanUtility.printBeanObj(bean)
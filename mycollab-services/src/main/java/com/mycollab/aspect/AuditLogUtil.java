@@ -18,47 +18,49 @@ package com.mycollab.aspect;
 
 import com.mycollab.common.domain.AuditChangeItem;
 import com.mycollab.core.utils.JsonDeSerializer;
-import org.apache.commons.beanutils.PropertyUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.List;
+import java.lang.reflect.Method;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
+ * Computes the change set of an updated bean. The properties compared between the classes of
+ * the old and the new bean are resolved once per pair of classes, then every diff only invokes
+ * the cached read methods.
+ *
  * @author MyCollab Ltd
  * @since 5.1.2
  */
 public class AuditLogUtil {
     private static Logger LOG = LoggerFactory.getLogger(AuditLogUtil.class);
 
+    private static final DateTimeFormatter W3C_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssxxx");
+
+    private static final ConcurrentMap<Class<?>, ConcurrentMap<Class<?>, DiffPlan>> diffPlans = new ConcurrentHashMap<>();
+
     static public String getChangeSet(Object oldObj, Object newObj, List<String> excludeFields, boolean isSelective) {
-        Class cl = oldObj.getClass();
         List<AuditChangeItem> changeItems = new ArrayList<>();
 
         try {
-            BeanInfo beanInfo = Introspector.getBeanInfo(cl, Object.class);
-
-            for (PropertyDescriptor propertyDescriptor : beanInfo.getPropertyDescriptors()) {
-                String fieldName = propertyDescriptor.getName();
+            DiffPlan plan = getDiffPlan(oldObj.getClass(), newObj.getClass());
+            for (int i = 0; i < plan.fieldNames.length; i++) {
+                String fieldName = plan.fieldNames[i];
                 if (excludeFields.contains(fieldName)) {
                     continue;
                 }
-                String oldProp = getValue(PropertyUtils.getProperty(oldObj, fieldName));
-
-                Object newPropVal;
-                try {
-                    newPropVal = PropertyUtils.getProperty(newObj, fieldName);
-                } catch (Exception e) {
-                    continue;
-                }
-                String newProp = getValue(newPropVal);
+                String oldProp = getValue(plan.oldReadMethods[i].invoke(oldObj));
+                String newProp = getValue(plan.newReadMethods[i].invoke(newObj));
 
                 if (!oldProp.equals(newProp)) {
                     if (isSelective && newProp.equals("")) {
@@ -79,6 +81,16 @@ public class AuditLogUtil {
         return (changeItems.size() > 0) ? JsonDeSerializer.toJson(changeItems) : null;
     }
 
+    private static DiffPlan getDiffPlan(Class<?> oldClass, Class<?> newClass) throws IntrospectionException {
+        ConcurrentMap<Class<?>, DiffPlan> classPlans = diffPlans.computeIfAbsent(oldClass, cls -> new ConcurrentHashMap<>());
+        DiffPlan plan = classPlans.get(newClass);
+        if (plan == null) {
+            plan = new DiffPlan(oldClass, newClass);
+            classPlans.putIfAbsent(newClass, plan);
+        }
+        return plan;
+    }
+
     private static String getValue(Object obj) {
         if (obj != null) {
             if (obj instanceof Date) {
@@ -92,8 +104,46 @@ public class AuditLogUtil {
     }
 
     static private String formatDateW3C(Date date) {
-        DateFormat df = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ");
-        String text = df.format(date);
-        return text.substring(0, 22) + ":" + text.substring(22);
+        return ZonedDateTime.ofInstant(Instant.ofEpochMilli(date.getTime()), ZoneId.systemDefault()).format(W3C_DATE_FORMATTER);
+    }
+
+    /**
+     * The properties of the old bean class which are readable in the new bean class too, with
+     * their read methods in both classes.
+     */
+    private static class DiffPlan {
+        private final String[] fieldNames;
+        private final Method[] oldReadMethods;
+        private final Method[] newReadMethods;
+
+        private DiffPlan(Class<?> oldClass, Class<?> newClass) throws IntrospectionException {
+            Map<String, Method> newClassReadMethods = new HashMap<>();
+            for (PropertyDescriptor descriptor : Introspector.getBeanInfo(newClass, Object.class).getPropertyDescriptors()) {
+                if (descriptor.getReadMethod() != null) {
+                    newClassReadMethods.put(descriptor.getName(), descriptor.getReadMethod());
+                }
+            }
+
+            List<String> names = new ArrayList<>();
+            List<Method> oldMethods = new ArrayList<>();
+            List<Method> newMethods = new ArrayList<>();
+            BeanInfo oldBeanInfo = Introspector.getBeanInfo(oldClass, Object.class);
+            for (PropertyDescriptor descriptor : oldBeanInfo.getPropertyDescriptors()) {
+                Method newReadMethod = newClassReadMethods.get(descriptor.getName());
+                if (descriptor.getReadMethod() != null && newReadMethod != null) {
+                    names.add(descriptor.getName());
+                    oldMethods.add(accessible(descriptor.getReadMethod()));
+                    newMethods.add(accessible(newReadMethod));
+                }
+            }
+            fieldNames = names.toArray(new String[names.size()]);
+            oldReadMethods = oldMethods.toArray(new Method[oldMethods.size()]);
+            newReadMethods = newMethods.toArray(new Method[newMethods.size()]);
+        }
+
+        private static Method accessible(Method method) {
+            method.setAccessible(true);
+            return method;
+        }
     }
 }
@@ -0,0 +1,345 @@
+/**
+ * This file is part of mycollab-services.
+ *
+ * mycollab-services is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-services is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-services.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.aspect;
+
+import com.mycollab.cache.IgnoreCacheClass;
+import com.mycollab.cache.service.CacheService;
+import com.mycollab.core.cache.*;
+import com.mycollab.core.utils.BeanUtility;
+import com.mycollab.core.utils.JsonDeSerializer;
+import com.mycollab.db.arguments.BasicSearchRequest;
+import com.mycollab.db.arguments.NumberSearchField;
+import com.mycollab.db.arguments.SearchCriteria;
+import com.mycollab.db.persistence.service.IService;
+import org.apache.commons.beanutils.PropertyUtils;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.framework.Advised;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Configurable;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.ClassUtils;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Serves service methods annotated with {@link Cacheable} from the {@link CacheService}
+ * and evicts them on {@link CacheEvict} and {@link CleanCache}. Entries are grouped per
+ * account and prefixed by the service interface name, so the same keys can be cleaned
+ * by {@link com.mycollab.cache.CleanCacheEvent}. {@link CleanCache} and {@link CacheEvict}
+ * both evict the prefix of the service and of its {@link CacheArgs} classes, the entries of
+ * other prefixes in the group, like the broadcast notifications, are kept.
+ * <p>
+ * A missed value is put with the generation of the group read before the method runs, so it is
+ * dropped when an eviction happens meanwhile. The writes done by mappers outside of an evicting
+ * service method, like the ESB commands, are reported by {@link CacheEvictionInterceptor} and
+ * evict every cached service of the account. The evictions are repeated after the commit of
+ * the current transaction, if any. It is disabled in tests because their data sets are
+ * changed directly in the database.
+ *
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+@Aspect
+@Component
+@Configurable
+@Profile("production")
+public class L2CacheAspect {
+    private static final Logger LOG = LoggerFactory.getLogger(L2CacheAspect.class);
+
+    private static final CacheMethodInfo NO_CACHE = new CacheMethodInfo(null, null, -1, new Class<?>[0]);
+
+    private static final ThreadLocal<Integer> MAPPER_EVICTION_SUSPENSIONS = ThreadLocal.withInitial(() -> 0);
+
+    @Autowired
+    private CacheService cacheService;
+
+    private final Map<Class<?>, Map<Method, CacheMethodInfo>> methodInfos = new ConcurrentHashMap<>();
+
+    private final Set<Class<?>> cachedServiceClasses = ConcurrentHashMap.newKeySet();
+
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictCount = new AtomicLong();
+
+    @Around("execution(public * com.mycollab..service..*(..)) && !within(com.mycollab.cache..*)")
+    public Object cacheAccess(ProceedingJoinPoint pjp) throws Throwable {
+        if (!(pjp.getThis() instanceof Advised)) {
+            return pjp.proceed();
+        }
+        Class<?> cls = ((Advised) pjp.getThis()).getTargetSource().getTargetClass();
+        Method method = ((MethodSignature) pjp.getSignature()).getMethod();
+        CacheMethodInfo info = getMethodInfo(cls, method);
+        if (info == NO_CACHE) {
+            return pjp.proceed();
+        }
+
+        Object[] args = pjp.getArgs();
+        Integer sAccountId = getAccountId(args[info.keyIndex]);
+        if (sAccountId == null) {
+            return pjp.proceed();
+        }
+        String group = sAccountId.toString();
+
+        if (info.annotation == Cacheable.class) {
+            String key = constructKey(info.serviceCls, method, args);
+            if (key == null) {
+                return pjp.proceed();
+            }
+            Object value = cacheService.getValue(group, key);
+            if (value != null) {
+                hitCount.incrementAndGet();
+                LOG.debug("Get cache value of key {} in group {}", key, group);
+                return BeanUtility.deepClone(value);
+            }
+            missCount.incrementAndGet();
+            long generation = cacheService.getGeneration(group);
+            Object result = pjp.proceed();
+            if (result != null && !cacheService.putValue(group, key, BeanUtility.deepClone(result), generation)) {
+                LOG.debug("Do not cache the value of key {} in group {} evicted while it is loaded", key, group);
+            }
+            return result;
+        } else {
+            Object result;
+            MAPPER_EVICTION_SUSPENSIONS.set(MAPPER_EVICTION_SUSPENSIONS.get() + 1);
+            try {
+                result = pjp.proceed();
+            } finally {
+                MAPPER_EVICTION_SUSPENSIONS.set(MAPPER_EVICTION_SUSPENSIONS.get() - 1);
+            }
+            evict(group, info.evictClasses);
+            return result;
+        }
+    }
+
+    /**
+     * Runs <code>task</code> without evicting the cached services on its mapper writes, for
+     * the writers which evict their own entries.
+     */
+    public static <T> T withoutMapperEviction(Supplier<T> task) {
+        MAPPER_EVICTION_SUSPENSIONS.set(MAPPER_EVICTION_SUSPENSIONS.get() + 1);
+        try {
+            return task.get();
+        } finally {
+            MAPPER_EVICTION_SUSPENSIONS.set(MAPPER_EVICTION_SUSPENSIONS.get() - 1);
+        }
+    }
+
+    /**
+     * Evicts the cached services after a write of a mapper, unless the write is done by a service
+     * method evicting its own entries.
+     *
+     * @param parameter parameter of the mapper statement, its account is evicted when it has one
+     */
+    void evictAfterMapperWrite(Object parameter) {
+        if (MAPPER_EVICTION_SUSPENSIONS.get() > 0 || cachedServiceClasses.isEmpty()) {
+            return;
+        }
+        Integer sAccountId = getAccountId(parameter);
+        evict((sAccountId != null) ? sAccountId.toString() : null, cachedServiceClasses.toArray(new Class<?>[0]));
+    }
+
+    private void evict(String group, Class<?>[] classes) {
+        removeCacheItems(group, classes);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    removeCacheItems(group, classes);
+                }
+            });
+        }
+    }
+
+    private void removeCacheItems(String group, Class<?>[] classes) {
+        evictCount.incrementAndGet();
+        if (group != null) {
+            cacheService.removeCacheItems(group, classes);
+        } else {
+            cacheService.removeCacheItemsOfAllGroups(classes);
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictCount() {
+        return evictCount.get();
+    }
+
+    private CacheMethodInfo getMethodInfo(Class<?> cls, Method method) {
+        Map<Method, CacheMethodInfo> infos = methodInfos.computeIfAbsent(cls, key -> new ConcurrentHashMap<>());
+        return infos.computeIfAbsent(method, key -> {
+            CacheMethodInfo info = resolveMethodInfo(cls, method);
+            if (info.annotation == Cacheable.class) {
+                cachedServiceClasses.add(info.serviceCls);
+            }
+            return info;
+        });
+    }
+
+    private static CacheMethodInfo resolveMethodInfo(Class<?> cls, Method method) {
+        Class<?> serviceCls = getServiceInterface(cls);
+        if (serviceCls == null || serviceCls.isAnnotationPresent(IgnoreCacheClass.class)
+                || cls.isAnnotationPresent(IgnoreCacheClass.class)) {
+            return NO_CACHE;
+        }
+
+        for (Class<?> itf : ClassUtils.getAllInterfacesForClassAsSet(cls)) {
+            for (Method itfMethod : itf.getMethods()) {
+                if (!isSameSignature(itfMethod, method)) {
+                    continue;
+                }
+                Class<? extends Annotation> annotation;
+                if (itfMethod.isAnnotationPresent(Cacheable.class)) {
+                    annotation = Cacheable.class;
+                } else if (itfMethod.isAnnotationPresent(CacheEvict.class)) {
+                    annotation = CacheEvict.class;
+                } else if (itfMethod.isAnnotationPresent(CleanCache.class)) {
+                    annotation = CleanCache.class;
+                } else {
+                    continue;
+                }
+
+                int keyIndex = getCacheKeyIndex(itfMethod);
+                if (keyIndex == -1) {
+                    LOG.warn("Method {} of {} has no @CacheKey argument", itfMethod.getName(), itf.getName());
+                    return NO_CACHE;
+                }
+
+                List<Class<?>> evictClasses = new ArrayList<>();
+                evictClasses.add(serviceCls);
+                CacheArgs cacheArgs = itfMethod.getAnnotation(CacheArgs.class);
+                if (cacheArgs != null) {
+                    for (Class<?> relatedCls : cacheArgs.values()) {
+                        evictClasses.add(relatedCls);
+                    }
+                }
+                return new CacheMethodInfo(annotation, serviceCls, keyIndex, evictClasses.toArray(new Class<?>[0]));
+            }
+        }
+        return NO_CACHE;
+    }
+
+    private static Class<?> getServiceInterface(Class<?> cls) {
+        for (Class<?> itf : cls.getInterfaces()) {
+            if (IService.class.isAssignableFrom(itf)) {
+                return itf;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isSameSignature(Method itfMethod, Method method) {
+        if (!itfMethod.getName().equals(method.getName())) {
+            return false;
+        }
+        Class<?>[] itfParamTypes = itfMethod.getParameterTypes();
+        Class<?>[] paramTypes = method.getParameterTypes();
+        if (itfParamTypes.length != paramTypes.length) {
+            return false;
+        }
+        for (int i = 0; i < itfParamTypes.length; i++) {
+            if (!ClassUtils.isAssignable(itfParamTypes[i], paramTypes[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int getCacheKeyIndex(Method method) {
+        Annotation[][] paramAnnotations = method.getParameterAnnotations();
+        for (int i = 0; i < paramAnnotations.length; i++) {
+            for (Annotation paramAnnotation : paramAnnotations[i]) {
+                if (paramAnnotation instanceof CacheKey) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static Integer getAccountId(Object keyArg) {
+        try {
+            if (keyArg == null) {
+                return null;
+            } else if (keyArg instanceof Number) {
+                return ((Number) keyArg).intValue();
+            } else if (keyArg instanceof BasicSearchRequest) {
+                return getAccountId(((BasicSearchRequest) keyArg).getSearchCriteria());
+            } else if (keyArg instanceof SearchCriteria) {
+                NumberSearchField saccountid = ((SearchCriteria) keyArg).getSaccountid();
+                return (saccountid != null && saccountid.getValue() != null) ? saccountid.getValue().intValue() : null;
+            } else {
+                Object saccountid = PropertyUtils.getProperty(keyArg, "saccountid");
+                return (saccountid instanceof Number) ? ((Number) saccountid).intValue() : null;
+            }
+        } catch (Exception e) {
+            LOG.debug("Can not get account id of cache key {}", keyArg);
+            return null;
+        }
+    }
+
+    private static String constructKey(Class<?> serviceCls, Method method, Object[] args) {
+        try {
+            StringBuilder key = new StringBuilder(serviceCls.getName()).append(CacheService.KEY_SEPARATOR)
+                    .append(method.getName());
+            for (Object arg : args) {
+                key.append(CacheService.KEY_SEPARATOR).append(JsonDeSerializer.toJson(arg));
+            }
+            return key.toString();
+        } catch (Exception e) {
+            LOG.debug("Can not construct cache key of method {} of {}", method.getName(), serviceCls.getName());
+            return null;
+        }
+    }
+
+    private static class CacheMethodInfo {
+        private final Class<? extends Annotation> annotation;
+        private final Class<?> serviceCls;
+        private final int keyIndex;
+        private final Class<?>[] evictClasses;
+
+        CacheMethodInfo(Class<? extends Annotation> annotation, Class<?> serviceCls, int keyIndex, Class<?>[] evictClasses) {
+            this.annotation = annotation;
+            this.serviceCls = serviceCls;
+            this.keyIndex = keyIndex;
+            this.evictClasses = evictClasses;
+        }
+    }
+}
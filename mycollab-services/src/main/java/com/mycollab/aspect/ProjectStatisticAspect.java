@@ -0,0 +1,118 @@
+/**
+ * This file is part of mycollab-services.
+ *
+ * mycollab-services is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-services is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-services.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.aspect;
+
+import com.google.common.eventbus.AsyncEventBus;
+import com.mycollab.module.project.esb.RefreshProjectStatisticEvent;
+import org.apache.commons.beanutils.PropertyUtils;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Aspect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Configurable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Refreshes the project statistics of the projects touched by a change of tickets,
+ * members, milestones or time logs. The refresh is posted once the current transaction
+ * is committed so the counters are computed from the committed data.
+ *
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+@Aspect
+@Component
+@Configurable
+public class ProjectStatisticAspect {
+    private static final Logger LOG = LoggerFactory.getLogger(ProjectStatisticAspect.class);
+
+    @Autowired
+    private AsyncEventBus asyncEventBus;
+
+    @AfterReturning("(target(com.mycollab.module.tracker.service.BugService) " +
+            "|| target(com.mycollab.module.project.service.ProjectTaskService) " +
+            "|| target(com.mycollab.module.project.service.RiskService) " +
+            "|| target(com.mycollab.module.project.service.MilestoneService) " +
+            "|| target(com.mycollab.module.project.service.ProjectMemberService) " +
+            "|| target(com.mycollab.module.project.service.ItemTimeLoggingService)) " +
+            "&& (execution(public * *WithSession(..)) || execution(public * massUpdate*Statuses(..)) " +
+            "|| execution(public * batchSave*(..)))")
+    public void refreshProjectStatistic(JoinPoint joinPoint) {
+        Set<Integer> projectIds = new LinkedHashSet<>();
+        Integer sAccountId = null;
+        try {
+            for (Object arg : joinPoint.getArgs()) {
+                if (arg instanceof Integer) {
+                    sAccountId = (Integer) arg;
+                } else if (arg instanceof Collection) {
+                    for (Object item : (Collection<?>) arg) {
+                        Integer itemAccountId = collectProjectId(item, projectIds);
+                        sAccountId = (itemAccountId != null) ? itemAccountId : sAccountId;
+                    }
+                } else {
+                    Integer itemAccountId = collectProjectId(arg, projectIds);
+                    sAccountId = (itemAccountId != null) ? itemAccountId : sAccountId;
+                }
+            }
+        } catch (Exception e) {
+            LOG.error("Can not get projects of method " + joinPoint.getSignature().getName(), e);
+            return;
+        }
+
+        if (sAccountId != null) {
+            postAfterCommit(new RefreshProjectStatisticEvent(projectIds.toArray(new Integer[projectIds.size()]), sAccountId));
+        }
+    }
+
+    private static Integer collectProjectId(Object bean, Set<Integer> projectIds) throws Exception {
+        if (bean == null || bean instanceof String || bean instanceof Number) {
+            return null;
+        }
+        if (PropertyUtils.isReadable(bean, "projectid")) {
+            Object projectId = PropertyUtils.getProperty(bean, "projectid");
+            if (projectId instanceof Integer) {
+                projectIds.add((Integer) projectId);
+            }
+        }
+        if (PropertyUtils.isReadable(bean, "saccountid")) {
+            Object sAccountId = PropertyUtils.getProperty(bean, "saccountid");
+            return (sAccountId instanceof Integer) ? (Integer) sAccountId : null;
+        }
+        return null;
+    }
+
+    private void postAfterCommit(final RefreshProjectStatisticEvent event) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    asyncEventBus.post(event);
+                }
+            });
+        } else {
+            asyncEventBus.post(event);
+        }
+    }
+}
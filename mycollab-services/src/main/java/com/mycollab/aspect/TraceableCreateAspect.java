@@ -18,7 +18,6 @@ package com.mycollab.aspect;
 
 import com.mycollab.common.ActivityStreamConstants;
 import com.mycollab.common.domain.ActivityStreamWithBLOBs;
-import com.mycollab.common.service.ActivityStreamService;
 import com.mycollab.core.utils.DateTimeUtils;
 import org.apache.commons.beanutils.PropertyUtils;
 import org.aspectj.lang.JoinPoint;
@@ -36,6 +35,9 @@ import java.util.GregorianCalendar;
 import java.util.Locale;
 
 /**
+ * Records the activity streams of the created and deleted beans of the traceable services,
+ * they are written by {@link AuditBatchWriter}.
+ *
  * @author MyCollab Ltd.
  * @since 1.0
  */
@@ -45,7 +47,7 @@ public class TraceableCreateAspect {
     private static final Logger LOG = LoggerFactory.getLogger(TraceableCreateAspect.class);
 
     @Autowired
-    private ActivityStreamService activityStreamService;
+    private AuditBatchWriter auditBatchWriter;
 
     @AfterReturning("execution(public * com.mycollab..service..*.saveWithSession(..)) && args(bean, username)")
     public void traceSaveActivity(JoinPoint joinPoint, Object bean, String username) {
@@ -57,7 +59,7 @@ public class TraceableCreateAspect {
             try {
                 ActivityStreamWithBLOBs activity = constructActivity(cls, traceableAnnotation, bean, username,
                         ActivityStreamConstants.ACTION_CREATE);
-                activityStreamService.save(activity);
+                auditBatchWriter.submit(new AuditBatchWriter.AuditRecord().setActivity(activity));
             } catch (Exception e) {
                 LOG.error("Error when save activity for save action of service " + cls.getName(), e);
             }
@@ -74,7 +76,7 @@ public class TraceableCreateAspect {
             try {
                 ActivityStreamWithBLOBs activity = constructActivity(cls, traceableAnnotation, bean, username,
                         ActivityStreamConstants.ACTION_DELETE);
-                activityStreamService.save(activity);
+                auditBatchWriter.submit(new AuditBatchWriter.AuditRecord().setActivity(activity));
             } catch (Exception e) {
                 LOG.error("Error when save activity for save action of service " + cls.getName(), e);
             }
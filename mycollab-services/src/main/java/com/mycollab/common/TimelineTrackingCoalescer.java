@@ -0,0 +1,431 @@
+/**
+ * This file is part of mycollab-services.
+ *
+ * mycollab-services is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-services is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-services.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.common;
+
+import com.mycollab.common.domain.TimelineTracking;
+import com.mycollab.common.event.TimelineTrackingUpdateEvent;
+import org.joda.time.LocalDate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Merges the timeline tracking updates of an item field received within a short window. The
+ * updates of an account are applied together: one query reads the latest rows of the updated
+ * fields, the updates are replayed in memory in their order of arrival, then the resulting
+ * rows are written with one multi-row insert and one batch of updates. The replay follows the
+ * rules of the former one-by-one processing, so the same rows are produced.
+ * <p>
+ * The write of an account must be atomic: when it fails, the updates of the window are put back
+ * before the updates received since, and they are written by the next window. An update
+ * failing {@link #MAX_WRITE_ATTEMPTS} times is dropped. Once shut down, the coalescer writes the
+ * pending updates and rejects the new ones.
+ *
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+public class TimelineTrackingCoalescer {
+    private static final Logger LOG = LoggerFactory.getLogger(TimelineTrackingCoalescer.class);
+
+    private static final byte ENTRY_FLAG = 1;
+    private static final byte EXIT_FLAG = -1;
+    private static final int MAX_WRITE_ATTEMPTS = 10;
+
+    /**
+     * Storage of the timeline rows of an account.
+     */
+    public interface Store {
+        /**
+         * @return the latest entry row (flag 1) of each tracking item of <code>keys</code>
+         */
+        List<TimelineTracking> findLatestTimelines(Integer sAccountId, List<TimelineTracking> keys);
+
+        void insertTimelines(List<TimelineTracking> timelines);
+
+        void updateTimelines(List<TimelineTracking> timelines);
+    }
+
+    private final Store store;
+    private final long windowMillis;
+    private final int maxPendingUpdates;
+    private final ScheduledExecutorService scheduler;
+
+    private final ConcurrentMap<Integer, AccountUpdates> pendingUpdates = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final ReadWriteLock shutdownLock = new ReentrantReadWriteLock();
+    private boolean shutdown;
+
+    private final AtomicLong receivedCount = new AtomicLong();
+    private final AtomicLong statementCount = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    /**
+     * @param store
+     * @param windowMillis      delay between two writes of the pending updates
+     * @param maxPendingUpdates number of pending updates triggering a write before the end of the window
+     */
+    public TimelineTrackingCoalescer(Store store, long windowMillis, int maxPendingUpdates) {
+        this.store = store;
+        this.windowMillis = windowMillis;
+        this.maxPendingUpdates = maxPendingUpdates;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "timeline-tracking-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flush, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void submit(TimelineTrackingUpdateEvent event) {
+        submit(event, new LocalDate());
+    }
+
+    /**
+     * @param event
+     * @param day   day of the update
+     * @throws IllegalStateException if the coalescer is shut down
+     */
+    public void submit(TimelineTrackingUpdateEvent event, LocalDate day) {
+        if (event.fieldVal() == null) {
+            return;
+        }
+        shutdownLock.readLock().lock();
+        try {
+            if (shutdown) {
+                throw new IllegalStateException("The timeline tracking coalescer is shut down");
+            }
+            receivedCount.incrementAndGet();
+            TrackingKey key = new TrackingKey(event.typevar(), event.typeId(), event.fieldgroup(), event.extratypeid());
+            FieldUpdate update = new FieldUpdate(event.fieldVal(), day);
+            while (true) {
+                AccountUpdates updates = pendingUpdates.computeIfAbsent(event.accountId(), accountId -> new AccountUpdates());
+                if (updates.add(key, update)) {
+                    break;
+                }
+            }
+            if (pendingCount.incrementAndGet() == maxPendingUpdates) {
+                scheduler.execute(this::flush);
+            }
+        } finally {
+            shutdownLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the pending updates of every account. The writes run in the thread of the
+     * coalescer, this method waits for them.
+     */
+    public void flushAndWait() throws InterruptedException, ExecutionException {
+        scheduler.submit(this::flush).get();
+    }
+
+    /**
+     * Writes the pending updates, the updates submitted after this call are rejected.
+     */
+    public void shutdown() {
+        shutdownLock.writeLock().lock();
+        try {
+            shutdown = true;
+        } finally {
+            shutdownLock.writeLock().unlock();
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        if (pendingCount.get() > 0) {
+            LOG.error("Lost " + pendingCount.get() + " timeline tracking updates which can not be written at shutdown");
+        }
+    }
+
+    private synchronized void flush() {
+        for (Integer sAccountId : new ArrayList<>(pendingUpdates.keySet())) {
+            AccountUpdates updates = pendingUpdates.remove(sAccountId);
+            if (updates != null) {
+                Map<TrackingKey, List<FieldUpdate>> fieldUpdates = updates.close();
+                pendingCount.addAndGet(-updates.getSize());
+                try {
+                    runForAccount(sAccountId, () -> write(sAccountId, fieldUpdates));
+                    flushCount.incrementAndGet();
+                } catch (Exception e) {
+                    LOG.error("Can not write the timeline tracking of account " + sAccountId + ", retry it with the " +
+                            "next window", e);
+                    retry(sAccountId, fieldUpdates);
+                }
+            }
+        }
+    }
+
+    /**
+     * Puts the updates of a failed write back before the updates received since, the updates
+     * failing too many times are dropped.
+     */
+    private void retry(Integer sAccountId, Map<TrackingKey, List<FieldUpdate>> fieldUpdates) {
+        Map<TrackingKey, List<FieldUpdate>> retriedUpdates = new LinkedHashMap<>();
+        int retriedSize = 0;
+        for (Map.Entry<TrackingKey, List<FieldUpdate>> entry : fieldUpdates.entrySet()) {
+            List<FieldUpdate> keyUpdates = new ArrayList<>();
+            for (FieldUpdate update : entry.getValue()) {
+                if (++update.attempts < MAX_WRITE_ATTEMPTS) {
+                    keyUpdates.add(update);
+                } else {
+                    droppedCount.incrementAndGet();
+                }
+            }
+            if (!keyUpdates.isEmpty()) {
+                retriedUpdates.put(entry.getKey(), keyUpdates);
+                retriedSize += keyUpdates.size();
+            }
+        }
+        if (retriedSize < fieldUpdates.values().stream().mapToInt(List::size).sum()) {
+            LOG.error("Drop the timeline tracking updates of account " + sAccountId + " failing " + MAX_WRITE_ATTEMPTS +
+                    " times");
+        }
+        if (retriedSize > 0) {
+            while (true) {
+                AccountUpdates updates = pendingUpdates.computeIfAbsent(sAccountId, accountId -> new AccountUpdates());
+                if (updates.addFirst(retriedUpdates, retriedSize)) {
+                    break;
+                }
+            }
+            pendingCount.addAndGet(retriedSize);
+            retryCount.addAndGet(retriedSize);
+        }
+    }
+
+    /**
+     * Runs the write of the updates of an account, it can be overridden to hold a lock of the
+     * account and a transaction during the write. It throws an exception if the write is not
+     * done, so the updates are retried.
+     */
+    protected void runForAccount(Integer sAccountId, Runnable write) {
+        write.run();
+    }
+
+    private void write(Integer sAccountId, Map<TrackingKey, List<FieldUpdate>> fieldUpdates) {
+        List<TimelineTracking> keys = new ArrayList<>(fieldUpdates.size());
+        for (TrackingKey key : fieldUpdates.keySet()) {
+            keys.add(key.toTimeline(sAccountId));
+        }
+        List<TimelineTracking> latestRows = store.findLatestTimelines(sAccountId, keys);
+        statementCount.incrementAndGet();
+
+        List<TimelineTracking> insertedRows = new ArrayList<>();
+        Set<TimelineTracking> updatedRows = new LinkedHashSet<>();
+        for (Map.Entry<TrackingKey, List<FieldUpdate>> entry : fieldUpdates.entrySet()) {
+            TrackingKey key = entry.getKey();
+            TimelineTracking latest = key.findLatest(latestRows);
+            boolean isLatestStored = true;
+            for (FieldUpdate update : entry.getValue()) {
+                boolean isNew = true;
+                if (latest != null) {
+                    if (update.day.isEqual(new LocalDate(latest.getForday()))) {
+                        if (!update.fieldVal.equals(latest.getFieldval())) {
+                            latest.setFieldval(update.fieldVal);
+                            if (isLatestStored) {
+                                updatedRows.add(latest);
+                            }
+                            isNew = false;
+                        }
+                    } else {
+                        insertedRows.add(key.newTimeline(sAccountId, latest.getFieldval(), update.day, EXIT_FLAG));
+                    }
+                }
+                if (isNew) {
+                    latest = key.newTimeline(sAccountId, update.fieldVal, update.day, ENTRY_FLAG);
+                    insertedRows.add(latest);
+                    isLatestStored = false;
+                }
+            }
+        }
+
+        if (!insertedRows.isEmpty()) {
+            store.insertTimelines(insertedRows);
+            statementCount.incrementAndGet();
+        }
+        if (!updatedRows.isEmpty()) {
+            store.updateTimelines(new ArrayList<>(updatedRows));
+            statementCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return number of updates received
+     */
+    public long getReceivedCount() {
+        return receivedCount.get();
+    }
+
+    /**
+     * @return number of queries, multi-row inserts and update batches sent to the store
+     */
+    public long getStatementCount() {
+        return statementCount.get();
+    }
+
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    /**
+     * @return number of updates put back after a failed write
+     */
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+
+    /**
+     * @return number of updates dropped after {@link #MAX_WRITE_ATTEMPTS} failed writes
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    private static class FieldUpdate {
+        private final String fieldVal;
+        private final LocalDate day;
+        private int attempts;
+
+        private FieldUpdate(String fieldVal, LocalDate day) {
+            this.fieldVal = fieldVal;
+            this.day = day;
+        }
+    }
+
+    /**
+     * Pending updates of an account in their order of arrival. Once closed for the write, the
+     * updates are added to a new instance.
+     */
+    private static class AccountUpdates {
+        private final Map<TrackingKey, List<FieldUpdate>> fieldUpdates = new LinkedHashMap<>();
+        private boolean closed;
+        private int size;
+
+        synchronized boolean add(TrackingKey key, FieldUpdate update) {
+            if (closed) {
+                return false;
+            }
+            fieldUpdates.computeIfAbsent(key, k -> new ArrayList<>()).add(update);
+            size++;
+            return true;
+        }
+
+        /**
+         * Adds the updates of a failed write before the updates of this instance.
+         */
+        synchronized boolean addFirst(Map<TrackingKey, List<FieldUpdate>> updates, int updateCount) {
+            if (closed) {
+                return false;
+            }
+            Map<TrackingKey, List<FieldUpdate>> laterUpdates = new LinkedHashMap<>(fieldUpdates);
+            fieldUpdates.clear();
+            fieldUpdates.putAll(updates);
+            for (Map.Entry<TrackingKey, List<FieldUpdate>> entry : laterUpdates.entrySet()) {
+                fieldUpdates.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).addAll(entry.getValue());
+            }
+            size += updateCount;
+            return true;
+        }
+
+        synchronized Map<TrackingKey, List<FieldUpdate>> close() {
+            closed = true;
+            return fieldUpdates;
+        }
+
+        synchronized int getSize() {
+            return size;
+        }
+    }
+
+    private static class TrackingKey {
+        private final String type;
+        private final Integer typeId;
+        private final String fieldgroup;
+        private final Integer extraTypeId;
+
+        private TrackingKey(String type, Integer typeId, String fieldgroup, Integer extraTypeId) {
+            this.type = type;
+            this.typeId = typeId;
+            this.fieldgroup = fieldgroup;
+            this.extraTypeId = extraTypeId;
+        }
+
+        /**
+         * @return the latest row of this item in <code>rows</code>, by day then by id
+         */
+        TimelineTracking findLatest(List<TimelineTracking> rows) {
+            TimelineTracking latest = null;
+            for (TimelineTracking row : rows) {
+                if (type.equals(row.getType()) && typeId.equals(row.getTypeid()) && fieldgroup.equals(row.getFieldgroup())
+                        && (extraTypeId == null || extraTypeId.equals(row.getExtratypeid()))) {
+                    if (latest == null || row.getForday().after(latest.getForday()) ||
+                            (row.getForday().equals(latest.getForday()) && row.getId() > latest.getId())) {
+                        latest = row;
+                    }
+                }
+            }
+            return latest;
+        }
+
+        TimelineTracking toTimeline(Integer sAccountId) {
+            TimelineTracking timeline = new TimelineTracking();
+            timeline.setType(type);
+            timeline.setTypeid(typeId);
+            timeline.setFieldgroup(fieldgroup);
+            timeline.setExtratypeid(extraTypeId);
+            timeline.setSaccountid(sAccountId);
+            return timeline;
+        }
+
+        TimelineTracking newTimeline(Integer sAccountId, String fieldVal, LocalDate day, byte flag) {
+            TimelineTracking timeline = toTimeline(sAccountId);
+            timeline.setFieldval(fieldVal);
+            timeline.setForday(day.toDate());
+            timeline.setFlag(flag);
+            return timeline;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            TrackingKey that = (TrackingKey) o;
+            return type.equals(that.type) && typeId.equals(that.typeId) && fieldgroup.equals(that.fieldgroup)
+                    && Objects.equals(extraTypeId, that.extraTypeId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, typeId, fieldgroup, extraTypeId);
+        }
+    }
+}
@@ -16,12 +16,43 @@
  */
 package com.mycollab.common.dao;
 
+import com.mycollab.common.domain.SimpleRelayEmailNotification;
 import com.mycollab.common.domain.criteria.RelayEmailNotificationSearchCriteria;
 import com.mycollab.db.persistence.ISearchableDAO;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Date;
+import java.util.List;
 
 /**
  * @author MyCollab Ltd
  * @since 1.0.0
  */
 public interface RelayEmailNotificationMapperExt extends ISearchableDAO<RelayEmailNotificationSearchCriteria> {
+    /**
+     * Marks at most <code>limit</code> unclaimed notifications of <code>types</code> with
+     * <code>claimToken</code>, so concurrent schedulers do not process the same notifications.
+     *
+     * @param types
+     * @param claimToken
+     * @param claimTime
+     * @param limit
+     * @return number of claimed notifications
+     */
+    int claimNotifications(@Param("types") List<String> types, @Param("claimToken") String claimToken,
+                           @Param("claimTime") Date claimTime, @Param("limit") Integer limit);
+
+    /**
+     * Releases the notifications claimed before <code>expiredTime</code>, their scheduler
+     * was stopped before finishing them.
+     *
+     * @param expiredTime
+     */
+    void releaseExpiredClaims(@Param("expiredTime") Date expiredTime);
+
+    List<SimpleRelayEmailNotification> findClaimedNotifications(@Param("claimToken") String claimToken);
+
+    Date getOldestClaimedTime(@Param("claimToken") String claimToken);
+
+    void removeClaimedNotifications(@Param("claimToken") String claimToken);
 }
@@ -29,6 +29,8 @@ import java.util.List;
  */
 public interface TimelineTrackingCachingMapperExt {
     List<GroupItem> findTimelineItems(@Param("groupVals") List<String> groupVals,
-                                      @Param("dates") List<Date> dates,
+                                      @Param("type") String type,
+                                      @Param("start") Date start,
+                                      @Param("end") Date end,
                                       @Param("searchCriteria") TimelineTrackingSearchCriteria criteria);
 }
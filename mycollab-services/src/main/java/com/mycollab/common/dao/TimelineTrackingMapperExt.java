@@ -16,6 +16,8 @@
  */
 package com.mycollab.common.dao;
 
+import com.mycollab.common.domain.GroupItem;
+import com.mycollab.common.domain.TimelineTracking;
 import com.mycollab.common.domain.criteria.TimelineTrackingSearchCriteria;
 import org.apache.ibatis.annotations.Param;
 
@@ -27,6 +29,25 @@ import java.util.List;
  * @since 5.2.2
  */
 public interface TimelineTrackingMapperExt {
-    List findTimelineItems(@Param("groupVals") List<String> groupVal, @Param("dates") List<Date> dates,
-                           @Param("searchCriteria") TimelineTrackingSearchCriteria criteria);
+    /**
+     * @param groupVals
+     * @param fromDay   exclusive lower bound of the days, or null to start from the first tracking day
+     * @param toDay     inclusive upper bound of the days
+     * @param criteria
+     * @return the sum of flags per group value and day in ascending order of days
+     */
+    List<GroupItem> findTimelineDeltas(@Param("groupVals") List<String> groupVals, @Param("fromDay") Date fromDay,
+                                       @Param("toDay") Date toDay,
+                                       @Param("searchCriteria") TimelineTrackingSearchCriteria criteria);
+
+    /**
+     * @param sAccountId
+     * @param keys       the type, type id, field group and extra type id (if it is not null) of
+     *                   the searched tracking items
+     * @return the latest entry row (flag 1, highest id) of each tracking item of <code>keys</code>
+     */
+    List<TimelineTracking> findLatestTimelines(@Param("sAccountId") Integer sAccountId,
+                                               @Param("keys") List<TimelineTracking> keys);
+
+    void insertTimelines(@Param("timelines") List<TimelineTracking> timelines);
 }
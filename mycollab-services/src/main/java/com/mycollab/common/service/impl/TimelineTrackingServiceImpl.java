@@ -28,10 +28,7 @@ import com.mycollab.db.arguments.SetSearchField;
 import com.mycollab.db.arguments.StringSearchField;
 import com.mycollab.db.persistence.ICrudGenericDAO;
 import com.mycollab.db.persistence.service.DefaultCrudService;
-import com.google.common.base.Predicate;
-import com.google.common.collect.Collections2;
-import org.joda.time.DateTime;
-import org.joda.time.Duration;
+import org.joda.time.LocalDate;
 import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
 import org.slf4j.Logger;
@@ -42,7 +39,6 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
 import javax.sql.DataSource;
-import java.math.BigDecimal;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.*;
@@ -55,6 +51,8 @@ import java.util.*;
 public class TimelineTrackingServiceImpl extends DefaultCrudService<Integer, TimelineTracking> implements TimelineTrackingService {
     private static final Logger LOG = LoggerFactory.getLogger(TimelineTrackingServiceImpl.class);
 
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormat.forPattern("yyyy-MM-dd");
+
     @Autowired
     private TimelineTrackingMapper timelineTrackingMapper;
 
@@ -72,110 +70,114 @@ public class TimelineTrackingServiceImpl extends DefaultCrudService<Integer, Tim
         return timelineTrackingMapper;
     }
 
+    /**
+     * The counts of each day are the running totals of the tracking flags. Days that are
+     * already cached are read from the cache, the flag deltas of the remaining days are
+     * fetched in one query and accumulated here, then the complete days (before today)
+     * are written back to the cache. A cache row is unique per day and group value, a day
+     * written concurrently by two renders is overwritten with the same count.
+     */
     @Override
     public Map<String, List<GroupItem>> findTimelineItems(String fieldGroup, List<String> groupVals, Date start, Date end,
                                                           TimelineTrackingSearchCriteria criteria) {
         try {
-            DateTime startDate = new DateTime(start);
-            final DateTime endDate = new DateTime(end);
+            final LocalDate startDate = new LocalDate(start);
+            final LocalDate endDate = new LocalDate(end);
             if (startDate.isAfter(endDate)) {
                 throw new UserInvalidInputException("Start date must be greaterThan than end date");
             }
-            List<Date> dates = boundDays(startDate, endDate.minusDays(1));
             Map<String, List<GroupItem>> items = new HashMap<>();
+            if (groupVals == null || groupVals.isEmpty()) {
+                return items;
+            }
             criteria.setFieldgroup(StringSearchField.and(fieldGroup));
-            List<GroupItem> cacheTimelineItems = timelineTrackingCachingMapperExt.findTimelineItems(groupVals, dates, criteria);
-
-            DateTime calculatedDate = startDate.toDateTime();
-            if (cacheTimelineItems.size() > 0) {
-                GroupItem item = cacheTimelineItems.get(cacheTimelineItems.size() - 1);
-                String dateValue = item.getGroupname();
-                calculatedDate = DateTime.parse(dateValue, DateTimeFormat.forPattern("yyyy-MM-dd"));
-
-                for (GroupItem map : cacheTimelineItems) {
-                    String groupVal = map.getGroupid();
-                    Object obj = items.get(groupVal);
-                    if (obj == null) {
-                        List<GroupItem> itemLst = new ArrayList<>();
-                        itemLst.add(map);
-                        items.put(groupVal, itemLst);
-                    } else {
-                        List<GroupItem> itemLst = (List<GroupItem>) obj;
-                        itemLst.add(map);
+
+            SetSearchField<Integer> extraTypeIds = criteria.getExtraTypeIds();
+            final Integer extraTypeId = (extraTypeIds != null && extraTypeIds.getValues().size() == 1) ?
+                    extraTypeIds.getValues().iterator().next() : null;
+            final String cacheType = getCacheType(criteria.getTypes());
+            boolean isCacheable = (extraTypeId != null) && (cacheType != null);
+
+            // Values of the last cached day, the running totals continue from them
+            Map<String, Double> totals = new HashMap<>();
+            LocalDate lastCachedDate = null;
+            if (isCacheable) {
+                List<GroupItem> cacheTimelineItems = timelineTrackingCachingMapperExt.findTimelineItems(groupVals, cacheType,
+                        startDate.toDate(), endDate.minusDays(1).toDate(), criteria);
+                lastCachedDate = getLastContinuousDate(cacheTimelineItems, groupVals, startDate);
+                if (lastCachedDate != null) {
+                    for (GroupItem item : cacheTimelineItems) {
+                        LocalDate forDay = LocalDate.parse(item.getGroupname(), DATE_FORMATTER);
+                        if (!forDay.isAfter(lastCachedDate)) {
+                            addGroupItem(items, item);
+                            if (forDay.isEqual(lastCachedDate)) {
+                                totals.put(item.getGroupid(), item.getValue());
+                            }
+                        }
                     }
                 }
             }
 
-            dates = boundDays(calculatedDate.plusDays(1), endDate);
-            if (dates.size() > 0) {
-                boolean isValidForBatchSave = true;
-                final Set<String> types = criteria.getTypes().getValues();
-                SetSearchField<Integer> extraTypeIds = criteria.getExtraTypeIds();
-                Integer tmpExtraTypeId = null;
-                if (extraTypeIds != null) {
-                    if (extraTypeIds.getValues().size() == 1) {
-                        tmpExtraTypeId = extraTypeIds.getValues().iterator().next();
-                    } else {
-                        isValidForBatchSave = false;
-                    }
-                }
-                final Integer extraTypeId = tmpExtraTypeId;
-
-                final List<Map> timelineItems = timelineTrackingMapperExt.findTimelineItems(groupVals, dates, criteria);
-                if (isValidForBatchSave) {
-                    final Integer sAccountId = (Integer) criteria.getSaccountid().getValue();
-                    final String itemFieldGroup = criteria.getFieldgroup().getValue();
-                    JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
-
-                    final DateTimeFormatter formatter = DateTimeFormat.forPattern("yyyy-MM-dd");
-                    final List<Map> filterCollections = new ArrayList<>(Collections2.filter(timelineItems, input -> {
-                        String dateStr = (String) input.get("groupname");
-                        DateTime dt = formatter.parseDateTime(dateStr);
-                        return !dt.equals(endDate);
-                    }));
-                    jdbcTemplate.batchUpdate("INSERT INTO `s_timeline_tracking_cache`(type, fieldval,extratypeid,sAccountId," +
-                            "forDay, fieldgroup,count) VALUES(?,?,?,?,?,?,?)", new BatchPreparedStatementSetter() {
-                        @Override
-                        public void setValues(PreparedStatement preparedStatement, int i) throws SQLException {
-                            Map item = filterCollections.get(i);
-//                            preparedStatement.setString(1, types);
-                            String fieldVal = (String) item.get("groupid");
-                            preparedStatement.setString(2, fieldVal);
-                            preparedStatement.setInt(3, extraTypeId);
-                            preparedStatement.setInt(4, sAccountId);
-                            String dateStr = (String) item.get("groupname");
-                            DateTime dt = formatter.parseDateTime(dateStr);
-                            preparedStatement.setDate(5, new java.sql.Date(dt.toDate().getTime()));
-                            preparedStatement.setString(6, itemFieldGroup);
-                            int value = ((BigDecimal) item.get("value")).intValue();
-                            preparedStatement.setInt(7, value);
-                        }
+            LocalDate calculatedDate = (lastCachedDate != null) ? lastCachedDate.plusDays(1) : startDate;
+            if (calculatedDate.isAfter(endDate)) {
+                return items;
+            }
 
-                        @Override
-                        public int getBatchSize() {
-                            return filterCollections.size();
-                        }
-                    });
-                }
+            List<GroupItem> deltas = timelineTrackingMapperExt.findTimelineDeltas(groupVals,
+                    (lastCachedDate != null) ? lastCachedDate.toDate() : null, endDate.toDate(), criteria);
+            int deltaIndex = 0;
+            // deltas before the first calculated day are only accumulated
+            while (deltaIndex < deltas.size() && LocalDate.parse(deltas.get(deltaIndex).getGroupname(), DATE_FORMATTER)
+                    .isBefore(calculatedDate)) {
+                addToTotal(totals, deltas.get(deltaIndex++));
+            }
 
-                for (Map map : timelineItems) {
-                    String groupVal = (String) map.get("groupid");
+            final List<GroupItem> newCacheItems = new ArrayList<>();
+            LocalDate today = new LocalDate();
+            for (LocalDate day = calculatedDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+                while (deltaIndex < deltas.size() && !LocalDate.parse(deltas.get(deltaIndex).getGroupname(),
+                        DATE_FORMATTER).isAfter(day)) {
+                    addToTotal(totals, deltas.get(deltaIndex++));
+                }
+                String dayStr = DATE_FORMATTER.print(day);
+                for (String groupVal : groupVals) {
+                    Double total = totals.get(groupVal);
                     GroupItem item = new GroupItem();
-                    item.setValue(((BigDecimal) map.get("value")).doubleValue());
-                    item.setGroupid((String) map.get("groupid"));
-                    item.setGroupname((String) map.get("groupname"));
-                    Object obj = items.get(groupVal);
-                    if (obj == null) {
-                        List<GroupItem> itemLst = new ArrayList<>();
-                        itemLst.add(item);
-                        items.put(groupVal, itemLst);
-                    } else {
-                        List<GroupItem> itemLst = (List<GroupItem>) obj;
-                        itemLst.add(item);
+                    item.setGroupid(groupVal);
+                    item.setGroupname(dayStr);
+                    item.setValue((total != null) ? total : 0d);
+                    addGroupItem(items, item);
+                    if (isCacheable && day.isBefore(today)) {
+                        newCacheItems.add(item);
                     }
                 }
             }
 
+            if (newCacheItems.size() > 0) {
+                final Integer sAccountId = (Integer) criteria.getSaccountid().getValue();
+                JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+                jdbcTemplate.batchUpdate("INSERT INTO `s_timeline_tracking_cache`(type, fieldval,extratypeid,sAccountId," +
+                        "forDay, fieldgroup,count) VALUES(?,?,?,?,?,?,?) ON DUPLICATE KEY UPDATE count=VALUES(count)", new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement preparedStatement, int i) throws SQLException {
+                        GroupItem item = newCacheItems.get(i);
+                        preparedStatement.setString(1, cacheType);
+                        preparedStatement.setString(2, item.getGroupid());
+                        preparedStatement.setInt(3, extraTypeId);
+                        preparedStatement.setInt(4, sAccountId);
+                        LocalDate forDay = LocalDate.parse(item.getGroupname(), DATE_FORMATTER);
+                        preparedStatement.setDate(5, new java.sql.Date(forDay.toDate().getTime()));
+                        preparedStatement.setString(6, fieldGroup);
+                        preparedStatement.setInt(7, item.getValue().intValue());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return newCacheItems.size();
+                    }
+                });
+            }
+
             return items;
         } catch (Exception e) {
             LOG.error("Error", e);
@@ -183,14 +185,45 @@ public class TimelineTrackingServiceImpl extends DefaultCrudService<Integer, Tim
         }
     }
 
-    private List<Date> boundDays(DateTime start, DateTime end) {
-        Duration duration = new Duration(start, end);
-        long days = duration.getStandardDays();
-        List<Date> dates = new ArrayList<>();
-        //Will try to get from cache values from the end date to (startdate - 1)
-        for (int i = 0; i <= days; i++) {
-            dates.add(start.plusDays(i).toDate());
+    private static String getCacheType(SetSearchField<String> types) {
+        if (types == null || types.getValues().isEmpty()) {
+            return null;
+        }
+        String cacheType = String.join(",", new TreeSet<>(types.getValues()));
+        return (cacheType.length() <= 45) ? cacheType : null;
+    }
+
+    /**
+     * @return the last day of the cached items that all days from <code>startDate</code> to it are cached
+     * for every group value of <code>groupVals</code>
+     */
+    private static LocalDate getLastContinuousDate(List<GroupItem> cacheTimelineItems, List<String> groupVals,
+                                                   LocalDate startDate) {
+        Map<LocalDate, Set<String>> cachedDays = new HashMap<>();
+        for (GroupItem item : cacheTimelineItems) {
+            cachedDays.computeIfAbsent(LocalDate.parse(item.getGroupname(), DATE_FORMATTER), day -> new HashSet<>())
+                    .add(item.getGroupid());
+        }
+        Set<String> allGroupVals = new HashSet<>(groupVals);
+        LocalDate lastDate = null;
+        for (LocalDate day = startDate; cachedDays.containsKey(day) && cachedDays.get(day).containsAll(allGroupVals);
+             day = day.plusDays(1)) {
+            lastDate = day;
+        }
+        return lastDate;
+    }
+
+    private static void addToTotal(Map<String, Double> totals, GroupItem delta) {
+        Double total = totals.get(delta.getGroupid());
+        totals.put(delta.getGroupid(), (total == null) ? delta.getValue() : total + delta.getValue());
+    }
+
+    private static void addGroupItem(Map<String, List<GroupItem>> items, GroupItem item) {
+        List<GroupItem> itemLst = items.get(item.getGroupid());
+        if (itemLst == null) {
+            itemLst = new ArrayList<>();
+            items.put(item.getGroupid(), itemLst);
         }
-        return dates;
+        itemLst.add(item);
     }
 }
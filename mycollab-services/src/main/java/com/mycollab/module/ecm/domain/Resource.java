@@ -20,13 +20,15 @@ import com.mycollab.core.arguments.NotBindable;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 
+import java.io.Serializable;
 import java.util.Calendar;
 
 /**
  * @author MyCollab Ltd.
  * @since 1.0
  */
-public class Resource implements Comparable<Resource> {
+public class Resource implements Comparable<Resource>, Serializable {
+    private static final long serialVersionUID = 1L;
 
     @NotBindable
     private boolean selected = false;
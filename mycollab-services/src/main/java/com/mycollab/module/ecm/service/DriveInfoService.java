@@ -31,6 +31,28 @@ public interface DriveInfoService extends ICrudService<Integer, DriveInfo> {
     @CacheEvict
     void saveOrUpdateDriveInfo(@CacheKey DriveInfo driveInfo);
 
+    /**
+     * Atomically adds <code>delta</code> bytes to the used volume of account, the used volume
+     * never goes below zero.
+     *
+     * @param sAccountId
+     * @param delta      number of bytes added (positive) or removed (negative)
+     */
+    @CacheEvict
+    void addUsedVolume(@CacheKey Integer sAccountId, long delta);
+
+    /**
+     * Sets the used volume of account to <code>usedVolume</code> only if it is still
+     * <code>expectedVolume</code>, so a volume changed by a concurrent upload or deletion is kept.
+     *
+     * @param sAccountId
+     * @param expectedVolume the used volume read before <code>usedVolume</code> was measured
+     * @param usedVolume     the measured used volume
+     * @return true if the used volume is set
+     */
+    @CacheEvict
+    boolean replaceUsedVolume(@CacheKey Integer sAccountId, long expectedVolume, long usedVolume);
+
     @Cacheable
     DriveInfo getDriveInfo(@CacheKey Integer sAccountId);
 
@@ -22,6 +22,7 @@ import com.mycollab.module.ecm.domain.Content;
 import com.mycollab.module.ecm.domain.Folder;
 import com.mycollab.module.ecm.domain.Resource;
 
+import java.io.File;
 import java.io.InputStream;
 import java.util.List;
 
@@ -93,6 +94,13 @@ public interface ResourceService extends IService {
      */
     InputStream getContentStream(String path);
 
+    /**
+     * @param path
+     * @return the local file of content, or null if the content is not kept in the local file
+     * system
+     */
+    File getContentFile(String path);
+
     /**
      * @param oldPath
      * @param newPath
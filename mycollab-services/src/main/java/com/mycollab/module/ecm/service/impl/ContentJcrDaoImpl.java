@@ -21,6 +21,7 @@ import com.mycollab.core.UserInvalidInputException;
 import com.mycollab.core.utils.FileUtils;
 import com.mycollab.core.utils.MimeTypesUtil;
 import com.mycollab.module.ecm.ContentException;
+import com.mycollab.module.ecm.NodeListingCache;
 import com.mycollab.module.ecm.NodesUtil;
 import com.mycollab.module.ecm.domain.Content;
 import com.mycollab.module.ecm.domain.Folder;
@@ -52,6 +53,10 @@ public class ContentJcrDaoImpl implements ContentJcrDao {
     @Autowired
     private JcrTemplate jcrTemplate;
 
+    @Qualifier("contentListingCache")
+    @Autowired
+    private NodeListingCache listingCache;
+
     @SuppressWarnings({"unchecked", "rawtypes"})
     @Override
     public void saveContent(final Content content, final String createdUser) {
@@ -118,6 +123,7 @@ public class ContentJcrDaoImpl implements ContentJcrDao {
                 return null;
             }
         });
+        listingCache.invalidateNode(content.getPath());
     }
 
     @SuppressWarnings({"rawtypes", "unchecked"})
@@ -169,6 +175,7 @@ public class ContentJcrDaoImpl implements ContentJcrDao {
                 return null;
             }
         });
+        listingCache.invalidateNode(folder.getPath());
     }
 
     private static boolean isNodeFolder(Node node) {
@@ -233,12 +240,12 @@ public class ContentJcrDaoImpl implements ContentJcrDao {
                 return null;
             }
         });
-
+        listingCache.invalidateNode(path);
     }
 
     @Override
     public List<Resource> getResources(final String path) {
-        return jcrTemplate.execute(new JcrCallback<List<Resource>>() {
+        return listingCache.get("resources", path, () -> jcrTemplate.execute(new JcrCallback<List<Resource>>() {
 
             @Override
             public List<Resource> doInJcr(Session session) throws IOException, RepositoryException {
@@ -272,12 +279,12 @@ public class ContentJcrDaoImpl implements ContentJcrDao {
                 LOG.debug("There is no resource in path {}", path);
                 return null;
             }
-        });
+        }));
     }
 
     @Override
     public List<Content> getContents(final String path) {
-        return jcrTemplate.execute(new JcrCallback<List<Content>>() {
+        return listingCache.get("contents", path, () -> jcrTemplate.execute(new JcrCallback<List<Content>>() {
 
             @Override
             public List<Content> doInJcr(Session session) throws IOException, RepositoryException {
@@ -303,12 +310,12 @@ public class ContentJcrDaoImpl implements ContentJcrDao {
                 }
                 return null;
             }
-        });
+        }));
     }
 
     @Override
     public List<Folder> getSubFolders(final String path) {
-        return jcrTemplate.execute(new JcrCallback<List<Folder>>() {
+        return listingCache.get("folders", path, () -> jcrTemplate.execute(new JcrCallback<List<Folder>>() {
 
             @Override
             public List<Folder> doInJcr(Session session) throws IOException, RepositoryException {
@@ -335,7 +342,7 @@ public class ContentJcrDaoImpl implements ContentJcrDao {
 
                 return null;
             }
-        });
+        }));
     }
 
     private static void convertContentToNode(Content content, Node node, String createdUser) {
@@ -427,6 +434,8 @@ public class ContentJcrDaoImpl implements ContentJcrDao {
                 return null;
             }
         });
+        listingCache.invalidateNode(oldPath);
+        listingCache.invalidateNode(newPath);
     }
 
     @SuppressWarnings({"unchecked", "rawtypes"})
@@ -453,5 +462,7 @@ public class ContentJcrDaoImpl implements ContentJcrDao {
                 return null;
             }
         });
+        listingCache.invalidateNode(oldPath);
+        listingCache.invalidateNode(destinationPath);
     }
 }
\ No newline at end of file
@@ -17,31 +17,36 @@
 package com.mycollab.module.ecm.service.impl;
 
 import com.mycollab.core.cache.CacheKey;
-import com.mycollab.core.utils.BeanUtility;
 import com.mycollab.db.persistence.ICrudGenericDAO;
 import com.mycollab.db.persistence.service.DefaultCrudService;
-import com.mycollab.lock.DistributionLockUtil;
 import com.mycollab.module.ecm.dao.DriveInfoMapper;
 import com.mycollab.module.ecm.domain.DriveInfo;
 import com.mycollab.module.ecm.domain.DriveInfoExample;
 import com.mycollab.module.ecm.service.DriveInfoService;
 import org.apache.commons.collections.CollectionUtils;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import javax.sql.DataSource;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
 
+/**
+ * The used volume of an account is changed by atomic statements on its unique drive info row,
+ * so the concurrent uploads and deletions of an account do not wait for each other.
+ *
+ * @author MyCollab Ltd
+ * @since 1.0.0
+ */
 @Service
 public class DriveInfoServiceImpl extends DefaultCrudService<Integer, DriveInfo> implements DriveInfoService {
-    private static Logger LOG = LoggerFactory.getLogger(DriveInfoServiceImpl.class);
 
     @Autowired
     private DriveInfoMapper driveInfoMapper;
 
+    @Autowired
+    private DataSource dataSource;
+
     @SuppressWarnings("unchecked")
     @Override
     public ICrudGenericDAO<Integer, DriveInfo> getCrudMapper() {
@@ -50,25 +55,27 @@ public class DriveInfoServiceImpl extends DefaultCrudService<Integer, DriveInfo>
 
     @Override
     public void saveOrUpdateDriveInfo(@CacheKey DriveInfo driveInfo) {
-        Integer sAccountId = driveInfo.getSaccountid();
-        DriveInfoExample ex = new DriveInfoExample();
-        ex.createCriteria().andSaccountidEqualTo(sAccountId);
-        Lock lock = DistributionLockUtil.getLock("ecm-service" + sAccountId);
-        try {
-            if (lock.tryLock(15, TimeUnit.SECONDS)) {
-                if (driveInfoMapper.countByExample(ex) > 0) {
-                    driveInfo.setId(null);
-                    driveInfoMapper.updateByExampleSelective(driveInfo, ex);
-                } else {
-                    driveInfoMapper.insert(driveInfo);
-                }
-            }
-        } catch (Exception e) {
-            LOG.error("Error while save drive info " + BeanUtility.printBeanObj(driveInfo), e);
-        } finally {
-            DistributionLockUtil.removeLock("ecm-service" + sAccountId);
-            lock.unlock();
+        long usedVolume = (driveInfo.getUsedvolume() == null) ? 0L : Math.max(0L, driveInfo.getUsedvolume());
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("INSERT INTO `m_ecm_driveinfo`(`sAccountId`, `usedVolume`) VALUES (?, ?) " +
+                "ON DUPLICATE KEY UPDATE `usedVolume` = VALUES(`usedVolume`)", driveInfo.getSaccountid(), usedVolume);
+    }
+
+    @Override
+    public void addUsedVolume(@CacheKey Integer sAccountId, long delta) {
+        if (delta == 0) {
+            return;
         }
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("INSERT INTO `m_ecm_driveinfo`(`sAccountId`, `usedVolume`) VALUES (?, GREATEST(?, 0)) " +
+                "ON DUPLICATE KEY UPDATE `usedVolume` = GREATEST(IFNULL(`usedVolume`, 0) + ?, 0)", sAccountId, delta, delta);
+    }
+
+    @Override
+    public boolean replaceUsedVolume(@CacheKey Integer sAccountId, long expectedVolume, long usedVolume) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        return jdbcTemplate.update("UPDATE `m_ecm_driveinfo` SET `usedVolume` = ? WHERE `sAccountId` = ? " +
+                "AND IFNULL(`usedVolume`, 0) = ?", Math.max(0L, usedVolume), sAccountId, expectedVolume) > 0;
     }
 
     @Override
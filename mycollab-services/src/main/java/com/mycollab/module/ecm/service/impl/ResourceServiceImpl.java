@@ -117,6 +117,8 @@ public class ResourceServiceImpl implements ResourceService {
 
         String contentPath = content.getPath();
         rawContentService.saveContent(contentPath, refStream);
+        // the available bytes of stream are only an estimation, keep the stored size for the drive usage
+        content.setSize(rawContentService.getSize(contentPath));
 
         if (MimeTypesUtil.isImage(mimeType)) {
             try (InputStream newInputStream = rawContentService.getContentStream(contentPath)) {
@@ -172,6 +174,11 @@ public class ResourceServiceImpl implements ResourceService {
         return rawContentService.getContentStream(path);
     }
 
+    @Override
+    public File getContentFile(String path) {
+        return rawContentService.getContentFile(path);
+    }
+
     @Override
     public void rename(String oldPath, String newPath, String userUpdate) {
         contentJcrDao.rename(oldPath, newPath);
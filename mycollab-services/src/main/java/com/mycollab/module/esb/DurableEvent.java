@@ -0,0 +1,30 @@
+/**
+ * This file is part of mycollab-services.
+ *
+ * mycollab-services is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-services is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-services.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.module.esb;
+
+import java.io.Serializable;
+
+/**
+ * Marks the events posted to {@link DurableEventBus} which are written into the event outbox
+ * and delivered at least once, even across a restart. Their subscribers must tolerate a second
+ * delivery of the same event. The other events are delivered in memory.
+ *
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+public interface DurableEvent extends Serializable {
+}
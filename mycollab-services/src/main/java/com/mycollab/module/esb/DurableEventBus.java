@@ -0,0 +1,492 @@
+/**
+ * This file is part of mycollab-services.
+ *
+ * mycollab-services is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-services is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-services.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.module.esb;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.eventbus.AsyncEventBus;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.SubscriberExceptionContext;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.mycollab.core.MyCollabException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.ClassUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.io.*;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Event bus delivering the events to the subscribers on a bounded pool of workers.
+ * <p>
+ * The {@link DurableEvent} events are written into the outbox table <code>s_event_outbox</code>
+ * within the transaction of the business change and dispatched after the commit. When some
+ * subscribers of an event fail, the event is retried with backoff for these subscribers only,
+ * the events still failing after {@link #MAX_ATTEMPTS} attempts are kept in the outbox as dead
+ * letters. The events of a type are spread over {@link #MAX_CONCURRENCY_PER_TYPE} lanes, each
+ * lane delivers its events one at a time so a slow subscriber only holds back its own lane.
+ * <p>
+ * Other events are delivered in memory once the current transaction, if any, is committed.
+ * When the workers are saturated, the posting thread delivers the event itself.
+ * <p>
+ * The subscribers are identified by their class, which must stay the same across restarts
+ * for the retries of the durable events to reach them.
+ *
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+@ManagedResource(objectName = "com.mycollab:name=DurableEventBus", description = "Event bus of the ESB")
+public class DurableEventBus extends AsyncEventBus {
+    private static final Logger LOG = LoggerFactory.getLogger(DurableEventBus.class);
+
+    private static final int WORKER_COUNT = 8;
+    private static final int WORKER_QUEUE_CAPACITY = 1000;
+    private static final int MAX_CONCURRENCY_PER_TYPE = 2;
+    private static final int BATCH_SIZE = 100;
+    private static final int MAX_IN_FLIGHT = 1000;
+    static final int MAX_ATTEMPTS = 8;
+    private static final long RETRY_DELAY = TimeUnit.SECONDS.toMillis(30);
+    private static final long CLAIM_TIMEOUT = TimeUnit.MINUTES.toMillis(30);
+    private static final long POLL_INTERVAL = TimeUnit.SECONDS.toMillis(10);
+    private static final long SHUTDOWN_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+    private static final int STATUS_PENDING = 0;
+    private static final int STATUS_DEAD = 1;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<Delivery> currentDelivery = new ThreadLocal<>();
+    private final ConcurrentMap<String, Lane[]> lanes = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor workers;
+    private ScheduledExecutorService dispatcher;
+    private volatile boolean stopped;
+
+    private final AtomicBoolean dispatchPending = new AtomicBoolean();
+    private final AtomicInteger inFlightCount = new AtomicInteger();
+    private final AtomicLong deliveredCount = new AtomicLong();
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong deadLetterCount = new AtomicLong();
+    private final AtomicLong latencyCount = new AtomicLong();
+    private final AtomicLong totalLatency = new AtomicLong();
+    private final AtomicLong maxLatency = new AtomicLong();
+
+    public DurableEventBus(DataSource dataSource) {
+        super(MoreExecutors.directExecutor());
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        workers = new ThreadPoolExecutor(WORKER_COUNT, WORKER_COUNT, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(WORKER_QUEUE_CAPACITY), runnable -> {
+            Thread thread = new Thread(runnable, "event-bus-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        workers.allowCoreThreadTimeOut(true);
+        dispatcher = Executors.newSingleThreadScheduledExecutor();
+        dispatcher.scheduleWithFixedDelay(this::dispatchOutbox, POLL_INTERVAL, POLL_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the delivery. The claimed events which are not delivered yet are released so that
+     * the next start delivers them.
+     */
+    @PreDestroy
+    public void destroy() {
+        stopped = true;
+        dispatcher.shutdown();
+        workers.shutdown();
+        try {
+            workers.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<Object[]> undeliveredIds = new ArrayList<>();
+        for (Lane[] typeLanes : lanes.values()) {
+            for (Lane lane : typeLanes) {
+                OutboxEvent event;
+                while ((event = lane.events.poll()) != null) {
+                    undeliveredIds.add(new Object[]{event.id});
+                }
+            }
+        }
+        if (undeliveredIds.size() > 0) {
+            jdbcTemplate.batchUpdate("UPDATE `s_event_outbox` SET claimToken=NULL, claimTime=NULL WHERE id=?", undeliveredIds);
+        }
+    }
+
+    @Override
+    public void register(Object object) {
+        Subscriber subscriber = new Subscriber(object);
+        subscriber.eventBus.register(object);
+        subscribers.add(subscriber);
+    }
+
+    @Override
+    public void unregister(Object object) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.target == object) {
+                subscribers.remove(subscriber);
+                return;
+            }
+        }
+        throw new IllegalArgumentException("missing event subscriber for an annotated method. Is " + object + " registered?");
+    }
+
+    @Override
+    public void post(Object event) {
+        if (event instanceof DurableEvent) {
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            jdbcTemplate.update("INSERT INTO `s_event_outbox`(eventType, payload, status, attempts, nextAttemptTime, " +
+                    "createdTime) VALUES(?,?,?,0,?,?)", event.getClass().getName(), serialize(event), STATUS_PENDING, now, now);
+            afterCommit(this::scheduleDispatch);
+        } else {
+            afterCommit(() -> workers.execute(() -> deliver(event, null)));
+        }
+    }
+
+    private static void afterCommit(Runnable task) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    task.run();
+                }
+            });
+        } else {
+            task.run();
+        }
+    }
+
+    private void scheduleDispatch() {
+        if (!stopped && dispatchPending.compareAndSet(false, true)) {
+            dispatcher.execute(this::dispatchOutbox);
+        }
+    }
+
+    /**
+     * Claims the due events of the outbox and hands them to their lanes. It does not wait for
+     * their delivery, the claiming stops while {@link #MAX_IN_FLIGHT} claimed events are not
+     * delivered yet.
+     */
+    public void dispatchOutbox() {
+        dispatchPending.set(false);
+        try {
+            jdbcTemplate.update("UPDATE `s_event_outbox` SET claimToken=NULL, claimTime=NULL WHERE claimToken IS NOT NULL " +
+                    "AND claimTime < ?", new Timestamp(System.currentTimeMillis() - CLAIM_TIMEOUT));
+
+            int claimed;
+            do {
+                if (stopped || inFlightCount.get() >= MAX_IN_FLIGHT) {
+                    return;
+                }
+                String claimToken = UUID.randomUUID().toString();
+                Timestamp now = new Timestamp(System.currentTimeMillis());
+                claimed = jdbcTemplate.update("UPDATE `s_event_outbox` SET claimToken=?, claimTime=? WHERE claimToken IS NULL " +
+                        "AND status=? AND nextAttemptTime <= ? ORDER BY id LIMIT ?", claimToken, now, STATUS_PENDING, now, BATCH_SIZE);
+                if (claimed > 0) {
+                    List<OutboxEvent> events = jdbcTemplate.query("SELECT id, eventType, payload, attempts, pendingSubscribers, " +
+                            "createdTime FROM `s_event_outbox` WHERE claimToken=? ORDER BY id", OUTBOX_EVENT_ROW_MAPPER, claimToken);
+                    for (OutboxEvent event : events) {
+                        inFlightCount.incrementAndGet();
+                        Lane[] typeLanes = lanes.computeIfAbsent(event.eventType, key -> newLanes());
+                        typeLanes[(int) (event.id % MAX_CONCURRENCY_PER_TYPE)].add(event);
+                    }
+                }
+            } while (claimed == BATCH_SIZE);
+        } catch (Exception e) {
+            LOG.error("Error while dispatching the event outbox", e);
+        }
+    }
+
+    private Lane[] newLanes() {
+        Lane[] typeLanes = new Lane[MAX_CONCURRENCY_PER_TYPE];
+        for (int i = 0; i < typeLanes.length; i++) {
+            typeLanes[i] = new Lane();
+        }
+        return typeLanes;
+    }
+
+    private void recordResults(List<OutboxEvent> events) {
+        List<Object[]> deliveredIds = new ArrayList<>();
+        List<Object[]> failures = new ArrayList<>();
+        for (OutboxEvent event : events) {
+            if (event.failure == null) {
+                deliveredIds.add(new Object[]{event.id});
+            } else {
+                int attempts = event.attempts + 1;
+                int status = (attempts < MAX_ATTEMPTS) ? STATUS_PENDING : STATUS_DEAD;
+                if (status == STATUS_DEAD) {
+                    deadLetterCount.incrementAndGet();
+                    LOG.error("Event {} of type {} is moved to the dead letters after {} attempts", event.id,
+                            event.eventType, attempts, event.failure);
+                } else {
+                    retryCount.incrementAndGet();
+                }
+                String pendingSubscribers = (event.failedSubscribers.isEmpty()) ? event.pendingSubscribers :
+                        Joiner.on(',').join(event.failedSubscribers);
+                failures.add(new Object[]{status, attempts, truncate(event.failure.toString()), pendingSubscribers,
+                        new Timestamp(System.currentTimeMillis() + (RETRY_DELAY << Math.min(attempts - 1, 10))), event.id});
+            }
+        }
+        if (deliveredIds.size() > 0) {
+            jdbcTemplate.batchUpdate("DELETE FROM `s_event_outbox` WHERE id=?", deliveredIds);
+        }
+        if (failures.size() > 0) {
+            jdbcTemplate.batchUpdate("UPDATE `s_event_outbox` SET status=?, attempts=?, lastError=?, pendingSubscribers=?, " +
+                    "nextAttemptTime=?, claimToken=NULL, claimTime=NULL WHERE id=?", failures);
+        }
+    }
+
+    private void deliverOutboxEvent(OutboxEvent event) {
+        Object payload;
+        try {
+            payload = deserialize(event.payload);
+        } catch (Exception e) {
+            event.failure = e;
+            return;
+        }
+        Set<String> subscriberNames = (event.pendingSubscribers == null) ? null :
+                new HashSet<>(Splitter.on(',').splitToList(event.pendingSubscribers));
+        Map<String, Throwable> failures = deliver(payload, subscriberNames);
+        if (failures.isEmpty()) {
+            long latency = System.currentTimeMillis() - event.createdTime.getTime();
+            latencyCount.incrementAndGet();
+            totalLatency.addAndGet(latency);
+            maxLatency.accumulateAndGet(latency, Math::max);
+        } else {
+            event.failedSubscribers = failures.keySet();
+            event.failure = failures.values().iterator().next();
+        }
+    }
+
+    /**
+     * Delivers <code>event</code> in the current thread to the subscribers named in
+     * <code>subscriberNames</code>, or to all of them when it is null. A subscriber may post
+     * an event delivered by this thread while <code>event</code> is delivered, so the failures
+     * are recorded on the delivery of the event they come from.
+     *
+     * @return the first failure of each failing subscriber
+     */
+    private Map<String, Throwable> deliver(Object event, Set<String> subscriberNames) {
+        Delivery delivery = new Delivery(event, currentDelivery.get());
+        currentDelivery.set(delivery);
+        try {
+            for (Subscriber subscriber : subscribers) {
+                if (subscriberNames == null || subscriberNames.contains(subscriber.name)) {
+                    subscriber.eventBus.post(event);
+                }
+            }
+            return delivery.failures;
+        } finally {
+            if (delivery.outer != null) {
+                currentDelivery.set(delivery.outer);
+            } else {
+                currentDelivery.remove();
+            }
+            deliveredCount.incrementAndGet();
+        }
+    }
+
+    private void handleSubscriberException(Throwable throwable, SubscriberExceptionContext context) {
+        LOG.error("Error in event bus execution", throwable);
+        for (Delivery delivery = currentDelivery.get(); delivery != null; delivery = delivery.outer) {
+            if (delivery.event == context.getEvent()) {
+                delivery.failures.putIfAbsent(subscriberName(context.getSubscriber()), throwable);
+                return;
+            }
+        }
+    }
+
+    private static String subscriberName(Object subscriber) {
+        return ClassUtils.getUserClass(subscriber).getName();
+    }
+
+    /**
+     * @return number of durable events waiting for delivery
+     */
+    @ManagedAttribute(description = "Durable events waiting for delivery")
+    public long getBacklog() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM `s_event_outbox` WHERE status=?", Long.class, STATUS_PENDING);
+    }
+
+    @ManagedAttribute(description = "Durable events moved to the dead letters")
+    public long getDeadLetterCount() {
+        return deadLetterCount.get();
+    }
+
+    @ManagedAttribute(description = "Events delivered to their subscribers")
+    public long getDeliveredCount() {
+        return deliveredCount.get();
+    }
+
+    @ManagedAttribute(description = "Failed deliveries of durable events scheduled again")
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+
+    /**
+     * @return number of durable events claimed by this bus and not delivered yet
+     */
+    @ManagedAttribute(description = "Claimed durable events not delivered yet")
+    public int getInFlightCount() {
+        return inFlightCount.get();
+    }
+
+    /**
+     * @return number of in memory events waiting for a worker
+     */
+    @ManagedAttribute(description = "Tasks waiting for a worker")
+    public int getWorkerQueueSize() {
+        return workers.getQueue().size();
+    }
+
+    /**
+     * @return average time between the posting and the delivery of the durable events
+     */
+    @ManagedAttribute(description = "Average time in milliseconds between the posting and the delivery of the durable events")
+    public long getAverageLatencyMillis() {
+        long count = latencyCount.get();
+        return (count == 0) ? 0 : totalLatency.get() / count;
+    }
+
+    @ManagedAttribute(description = "Maximum time in milliseconds between the posting and the delivery of the durable events")
+    public long getMaxLatencyMillis() {
+        return maxLatency.get();
+    }
+
+    private static byte[] serialize(Object event) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(event);
+        } catch (IOException e) {
+            throw new MyCollabException("Can not serialize the durable event " + event.getClass().getName(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] payload) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(payload))) {
+            return input.readObject();
+        }
+    }
+
+    private static String truncate(String value) {
+        return (value.length() > 4000) ? value.substring(0, 4000) : value;
+    }
+
+    /**
+     * A registered object with its own event bus, so that an event can be delivered to some
+     * subscribers only.
+     */
+    private class Subscriber {
+        private final Object target;
+        private final String name;
+        private final EventBus eventBus;
+
+        private Subscriber(Object target) {
+            this.target = target;
+            this.name = subscriberName(target);
+            this.eventBus = new EventBus(DurableEventBus.this::handleSubscriberException);
+        }
+    }
+
+    /**
+     * Claimed events of one type delivered in order by at most one worker at a time.
+     */
+    private class Lane {
+        private final Queue<OutboxEvent> events = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean running = new AtomicBoolean();
+
+        private void add(OutboxEvent event) {
+            events.add(event);
+            if (running.compareAndSet(false, true)) {
+                workers.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                List<OutboxEvent> deliveredEvents = new ArrayList<>();
+                try {
+                    OutboxEvent event;
+                    while (!stopped && deliveredEvents.size() < BATCH_SIZE && (event = events.poll()) != null) {
+                        deliverOutboxEvent(event);
+                        deliveredEvents.add(event);
+                    }
+                    recordResults(deliveredEvents);
+                } catch (Exception e) {
+                    LOG.error("Error while delivering events", e);
+                } finally {
+                    inFlightCount.addAndGet(-deliveredEvents.size());
+                    running.set(false);
+                }
+            } while (!stopped && !events.isEmpty() && running.compareAndSet(false, true));
+        }
+    }
+
+    private static class Delivery {
+        private final Object event;
+        private final Delivery outer;
+        private final Map<String, Throwable> failures = new LinkedHashMap<>();
+
+        private Delivery(Object event, Delivery outer) {
+            this.event = event;
+            this.outer = outer;
+        }
+    }
+
+    private static class OutboxEvent {
+        private long id;
+        private String eventType;
+        private byte[] payload;
+        private int attempts;
+        private String pendingSubscribers;
+        private Timestamp createdTime;
+        private Set<String> failedSubscribers = Collections.emptySet();
+        private Throwable failure;
+    }
+
+    private static final RowMapper<OutboxEvent> OUTBOX_EVENT_ROW_MAPPER = (rs, rowNum) -> {
+        OutboxEvent event = new OutboxEvent();
+        event.id = rs.getLong("id");
+        event.eventType = rs.getString("eventType");
+        event.payload = rs.getBytes("payload");
+        event.attempts = rs.getInt("attempts");
+        event.pendingSubscribers = rs.getString("pendingSubscribers");
+        event.createdTime = rs.getTimestamp("createdTime");
+        return event;
+    };
+}
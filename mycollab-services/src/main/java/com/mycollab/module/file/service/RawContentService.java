@@ -18,6 +18,7 @@ package com.mycollab.module.file.service;
 
 import com.mycollab.db.persistence.service.IService;
 
+import java.io.File;
 import java.io.InputStream;
 
 /**
@@ -48,6 +49,16 @@ public interface RawContentService extends IService {
      */
     InputStream getContentStream(String objectPath);
 
+    /**
+     * Get the local file of content, it lets the content be sent without reading it through
+     * a stream
+     *
+     * @param objectPath path of content
+     * @return file of content has path <code>objectPath</code>, the file may not exist. Return
+     * null if the content is not kept in the local file system
+     */
+    File getContentFile(String objectPath);
+
     /**
      * Remove content
      *
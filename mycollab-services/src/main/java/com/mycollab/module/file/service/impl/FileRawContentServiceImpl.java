@@ -78,6 +78,19 @@ public class FileRawContentServiceImpl implements RawContentService {
         }
     }
 
+    @Override
+    public File getContentFile(String objectPath) {
+        File file = new File(baseFolder, objectPath);
+        try {
+            if (!file.getCanonicalPath().startsWith(baseFolder.getCanonicalPath() + File.separator)) {
+                throw new ResourceNotFoundException("Invalid path " + objectPath);
+            }
+        } catch (IOException e) {
+            throw new MyCollabException(e);
+        }
+        return file;
+    }
+
     @Override
     public void removePath(String object) {
         try {
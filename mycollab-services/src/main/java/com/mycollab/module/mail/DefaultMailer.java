@@ -27,6 +27,8 @@ import org.apache.commons.mail.HtmlEmail;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
 import java.util.List;
 
 /**
@@ -129,6 +131,31 @@ public class DefaultMailer implements IMailer {
         }
     }
 
+    /**
+     * Builds the MIME content of <code>message</code> without sending it, so it can be sent
+     * through a shared {@link javax.mail.Transport}.
+     *
+     * @param message
+     * @return
+     */
+    public MimeMessage createMimeMessage(MailMessage message) {
+        try {
+            HtmlEmail email = getBasicEmail(message.getFromEmail(), message.getFromName(), message.getToEmails(),
+                    message.getCcEmails(), message.getBccEmails(), message.getSubject(), message.getHtml());
+            if (CollectionUtils.isNotEmpty(message.getAttachments())) {
+                for (AttachmentSource attachment : message.getAttachments()) {
+                    email.attach(attachment.getAttachmentObj());
+                }
+            }
+            email.buildMimeMessage();
+            MimeMessage mimeMessage = email.getMimeMessage();
+            mimeMessage.saveChanges();
+            return mimeMessage;
+        } catch (EmailException | MessagingException e) {
+            throw new MyCollabException(e);
+        }
+    }
+
     private boolean isValidate(String val) {
         return StringUtils.isNotBlank(val);
     }
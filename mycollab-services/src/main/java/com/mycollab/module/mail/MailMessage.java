@@ -0,0 +1,144 @@
+/**
+ * This file is part of mycollab-services.
+ *
+ * mycollab-services is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-services is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-services.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.module.mail;
+
+import com.mycollab.common.domain.MailRecipientField;
+
+import java.util.List;
+
+/**
+ * An outgoing HTML email. Messages without attachments are persisted in the mail queue
+ * until they are delivered, <code>id</code> and <code>attempts</code> are the queue state.
+ *
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+public class MailMessage {
+    private Integer id;
+    private String fromEmail;
+    private String fromName;
+    private List<MailRecipientField> toEmails;
+    private List<MailRecipientField> ccEmails;
+    private List<MailRecipientField> bccEmails;
+    private String subject;
+    private String html;
+    private List<? extends AttachmentSource> attachments;
+    private boolean canRetry = true;
+    private int attempts;
+
+    public MailMessage() {
+    }
+
+    public MailMessage(String fromEmail, String fromName, List<MailRecipientField> toEmails, List<MailRecipientField> ccEmails,
+                       List<MailRecipientField> bccEmails, String subject, String html) {
+        this.fromEmail = fromEmail;
+        this.fromName = fromName;
+        this.toEmails = toEmails;
+        this.ccEmails = ccEmails;
+        this.bccEmails = bccEmails;
+        this.subject = subject;
+        this.html = html;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getFromEmail() {
+        return fromEmail;
+    }
+
+    public void setFromEmail(String fromEmail) {
+        this.fromEmail = fromEmail;
+    }
+
+    public String getFromName() {
+        return fromName;
+    }
+
+    public void setFromName(String fromName) {
+        this.fromName = fromName;
+    }
+
+    public List<MailRecipientField> getToEmails() {
+        return toEmails;
+    }
+
+    public void setToEmails(List<MailRecipientField> toEmails) {
+        this.toEmails = toEmails;
+    }
+
+    public List<MailRecipientField> getCcEmails() {
+        return ccEmails;
+    }
+
+    public void setCcEmails(List<MailRecipientField> ccEmails) {
+        this.ccEmails = ccEmails;
+    }
+
+    public List<MailRecipientField> getBccEmails() {
+        return bccEmails;
+    }
+
+    public void setBccEmails(List<MailRecipientField> bccEmails) {
+        this.bccEmails = bccEmails;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    public String getHtml() {
+        return html;
+    }
+
+    public void setHtml(String html) {
+        this.html = html;
+    }
+
+    public List<? extends AttachmentSource> getAttachments() {
+        return attachments;
+    }
+
+    public void setAttachments(List<? extends AttachmentSource> attachments) {
+        this.attachments = attachments;
+    }
+
+    public boolean isCanRetry() {
+        return canRetry;
+    }
+
+    public void setCanRetry(boolean canRetry) {
+        this.canRetry = canRetry;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+}
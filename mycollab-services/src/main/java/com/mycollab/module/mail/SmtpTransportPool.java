@@ -0,0 +1,178 @@
+/**
+ * This file is part of mycollab-services.
+ *
+ * mycollab-services is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-services is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-services.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.module.mail;
+
+import com.mycollab.configuration.EmailConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of connected SMTP transports of one {@link EmailConfiguration}. A transport is
+ * borrowed for a whole batch of messages, so the SMTP connection and authentication
+ * are done once per batch instead of once per message.
+ *
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+public class SmtpTransportPool {
+    private static final Logger LOG = LoggerFactory.getLogger(SmtpTransportPool.class);
+
+    private static final String TIMEOUT = "60000";
+
+    private final EmailConfiguration emailConf;
+    private final Session session;
+    private final Semaphore permits;
+    private final BlockingQueue<Transport> idleTransports = new LinkedBlockingQueue<>();
+    private final AtomicInteger connectCount = new AtomicInteger();
+    private volatile boolean closed;
+
+    public SmtpTransportPool(EmailConfiguration emailConf, int maxConnections) {
+        this.emailConf = emailConf;
+        this.permits = new Semaphore(maxConnections);
+        Properties props = new Properties();
+        props.setProperty("mail.smtp.host", emailConf.getHost());
+        props.setProperty("mail.smtp.port", String.valueOf(emailConf.getPort()));
+        props.setProperty("mail.smtp.auth", String.valueOf(emailConf.getUser() != null));
+        props.setProperty("mail.smtp.starttls.enable", String.valueOf(emailConf.getIsStartTls()));
+        props.setProperty("mail.smtp.ssl.enable", String.valueOf(emailConf.getIsSsl()));
+        props.setProperty("mail.smtp.connectiontimeout", TIMEOUT);
+        props.setProperty("mail.smtp.timeout", TIMEOUT);
+        this.session = Session.getInstance(props);
+    }
+
+    public EmailConfiguration getEmailConfiguration() {
+        return emailConf;
+    }
+
+    /**
+     * @return a connected transport, blocks while all transports of the pool are in use
+     * @throws MessagingException
+     */
+    public Transport borrow() throws MessagingException {
+        if (closed) {
+            throw new MessagingException("Transport pool is closed");
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while waiting for a SMTP transport", e);
+        }
+
+        try {
+            Transport transport;
+            while ((transport = idleTransports.poll()) != null) {
+                if (transport.isConnected()) {
+                    return transport;
+                }
+                closeQuietly(transport);
+            }
+            transport = session.getTransport("smtp");
+            transport.connect(emailConf.getHost(), emailConf.getPort(), emailConf.getUser(), emailConf.getPassword());
+            connectCount.incrementAndGet();
+            return transport;
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns <code>transport</code> to the pool, it is closed if it is not usable anymore.
+     *
+     * @param transport
+     */
+    public void release(Transport transport) {
+        if (!closed && transport.isConnected()) {
+            idleTransports.offer(transport);
+        } else {
+            closeQuietly(transport);
+        }
+        permits.release();
+    }
+
+    /**
+     * Sends <code>messages</code> through one borrowed transport. A broken connection is
+     * replaced and the remaining messages are sent through the new one.
+     *
+     * @param mailer   builds the MIME content of the messages
+     * @param messages
+     * @return the messages could not be sent and their failures
+     */
+    public Map<MailMessage, Exception> send(DefaultMailer mailer, List<MailMessage> messages) {
+        Map<MailMessage, Exception> failures = new LinkedHashMap<>();
+        Transport transport = null;
+        try {
+            for (MailMessage message : messages) {
+                try {
+                    MimeMessage mimeMessage = mailer.createMimeMessage(message);
+                    if (transport == null) {
+                        transport = borrow();
+                    }
+                    transport.sendMessage(mimeMessage, mimeMessage.getAllRecipients());
+                } catch (Exception e) {
+                    failures.put(message, e);
+                    if (transport != null && !transport.isConnected()) {
+                        release(transport);
+                        transport = null;
+                    }
+                }
+            }
+        } finally {
+            if (transport != null) {
+                release(transport);
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * @return number of SMTP connections opened by this pool
+     */
+    public int getConnectCount() {
+        return connectCount.get();
+    }
+
+    public void close() {
+        closed = true;
+        Transport transport;
+        while ((transport = idleTransports.poll()) != null) {
+            closeQuietly(transport);
+        }
+    }
+
+    private static void closeQuietly(Transport transport) {
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            LOG.debug("Error while closing SMTP transport", e);
+        }
+    }
+}
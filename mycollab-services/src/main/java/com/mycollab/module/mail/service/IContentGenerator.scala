@@ -44,4 +44,19 @@ trait IContentGenerator {
     * @return
     */
   def parseFile(templateFilePath: String, currentLocale: Locale): String
+
+  /**
+    * @return an immutable copy of the current variables, later changes of the variables do not
+    *         affect it so it can be rendered by any thread
+    */
+  def createModel(): java.util.Map[String, Any]
+
+  /**
+    *
+    * @param templateFilePath
+    * @param currentLocale
+    * @param model variables of the template, usually created by createModel
+    * @return
+    */
+  def parseFile(templateFilePath: String, currentLocale: Locale, model: java.util.Map[String, Any]): String
 }
@@ -0,0 +1,51 @@
+/**
+ * This file is part of mycollab-services.
+ *
+ * mycollab-services is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-services is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-services.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.module.mail.service;
+
+import com.mycollab.db.persistence.service.IService;
+import com.mycollab.module.mail.MailMessage;
+
+/**
+ * Delivers the outgoing emails in background. Messages are queued in the database and
+ * sent in batches through pooled SMTP connections, transient failures are retried with
+ * backoff if the message allows retrying.
+ *
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+public interface MailDeliveryService extends IService {
+    /**
+     * Queues <code>message</code>, it is delivered after the current transaction is committed.
+     * Messages with attachments are kept in memory only because their sources are local resources.
+     *
+     * @param message
+     */
+    void enqueue(MailMessage message);
+
+    /**
+     * Sends the due messages of the queue.
+     */
+    void dispatchQueue();
+
+    long getQueueDepth();
+
+    long getSentCount();
+
+    long getRetryCount();
+
+    long getFailedCount();
+}
@@ -20,11 +20,12 @@ import com.mycollab.common.domain.MailRecipientField;
 import com.mycollab.configuration.EmailConfiguration;
 import com.mycollab.configuration.SiteConfiguration;
 import com.mycollab.core.utils.StringUtils;
-import com.mycollab.module.mail.DefaultMailer;
 import com.mycollab.module.mail.AttachmentSource;
-import com.mycollab.module.mail.IMailer;
+import com.mycollab.module.mail.MailMessage;
 import com.mycollab.module.mail.NullMailer;
 import com.mycollab.module.mail.service.ExtMailService;
+import com.mycollab.module.mail.service.MailDeliveryService;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -36,6 +37,9 @@ import java.util.List;
 @Service
 public class ExtMailServiceImpl implements ExtMailService {
 
+    @Autowired
+    private MailDeliveryService mailDeliveryService;
+
     @Override
     public boolean isMailSetupValid() {
         EmailConfiguration emailConfiguration = SiteConfiguration.getEmailConfiguration();
@@ -43,24 +47,15 @@ public class ExtMailServiceImpl implements ExtMailService {
                 && (emailConfiguration.getPort() > -1);
     }
 
-    private IMailer getMailer() {
-        EmailConfiguration emailConfiguration = SiteConfiguration.getEmailConfiguration();
-        if (!isMailSetupValid()) {
-            return new NullMailer();
-        }
-
-        return new DefaultMailer(emailConfiguration);
-    }
-
     @Override
     public void sendHTMLMail(String fromEmail, String fromName, List<MailRecipientField> toEmail, String subject, String html) {
-        getMailer().sendHTMLMail(fromEmail, fromName, toEmail, null, null, subject, html, null);
+        sendHTMLMail(fromEmail, fromName, toEmail, null, null, subject, html, null, true);
     }
 
     @Override
     public void sendHTMLMail(String fromEmail, String fromName, List<MailRecipientField> toEmail, List<MailRecipientField> ccEmail,
                              List<MailRecipientField> bccEmail, String subject, String html) {
-        getMailer().sendHTMLMail(fromEmail, fromName, toEmail, ccEmail, bccEmail, subject, html, null);
+        sendHTMLMail(fromEmail, fromName, toEmail, ccEmail, bccEmail, subject, html, null, true);
     }
 
     @Override
@@ -68,6 +63,14 @@ public class ExtMailServiceImpl implements ExtMailService {
                              List<MailRecipientField> toEmail, List<MailRecipientField> ccEmail,
                              List<MailRecipientField> bccEmail, String subject, String html,
                              List<? extends AttachmentSource> attachments, boolean canRetry) {
-        getMailer().sendHTMLMail(fromEmail, fromName, toEmail, ccEmail, bccEmail, subject, html, attachments);
+        if (!isMailSetupValid()) {
+            new NullMailer().sendHTMLMail(fromEmail, fromName, toEmail, ccEmail, bccEmail, subject, html, attachments);
+            return;
+        }
+
+        MailMessage message = new MailMessage(fromEmail, fromName, toEmail, ccEmail, bccEmail, subject, html);
+        message.setAttachments(attachments);
+        message.setCanRetry(canRetry);
+        mailDeliveryService.enqueue(message);
     }
 }
@@ -0,0 +1,352 @@
+/**
+ * This file is part of mycollab-services.
+ *
+ * mycollab-services is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-services is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-services.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.module.mail.service.impl;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.google.common.collect.Lists;
+import com.mycollab.common.domain.MailRecipientField;
+import com.mycollab.configuration.EmailConfiguration;
+import com.mycollab.configuration.SiteConfiguration;
+import com.mycollab.core.utils.JsonDeSerializer;
+import com.mycollab.core.utils.StringUtils;
+import com.mycollab.module.mail.DefaultMailer;
+import com.mycollab.module.mail.MailMessage;
+import com.mycollab.module.mail.SmtpTransportPool;
+import com.mycollab.module.mail.service.MailDeliveryService;
+import com.sun.mail.smtp.SMTPAddressFailedException;
+import com.sun.mail.smtp.SMTPSendFailedException;
+import org.apache.commons.collections.CollectionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+@Service
+public class MailDeliveryServiceImpl implements MailDeliveryService {
+    private static final Logger LOG = LoggerFactory.getLogger(MailDeliveryServiceImpl.class);
+
+    private static final int BATCH_SIZE = 200;
+    private static final int MAX_CONNECTIONS = 4;
+    private static final int MAX_ATTEMPTS = 6;
+    private static final long RETRY_DELAY = TimeUnit.MINUTES.toMillis(1);
+    private static final long CLAIM_TIMEOUT = TimeUnit.MINUTES.toMillis(15);
+    private static final long POLL_INTERVAL = TimeUnit.SECONDS.toMillis(30);
+
+    private static final String MESSAGE_COLUMNS = "id, fromEmail, fromName, toEmails, ccEmails, bccEmails, subject, html, " +
+            "canRetry, attempts";
+
+    @Autowired
+    private DataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+    private ScheduledExecutorService dispatcher;
+    private ExecutorService senders;
+    private SmtpTransportPool transportPool;
+    private String transportPoolKey;
+
+    private final AtomicBoolean dispatchPending = new AtomicBoolean();
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        dispatcher = Executors.newSingleThreadScheduledExecutor();
+        senders = Executors.newFixedThreadPool(MAX_CONNECTIONS);
+        dispatcher.scheduleWithFixedDelay(this::dispatchQueue, POLL_INTERVAL, POLL_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        dispatcher.shutdown();
+        senders.shutdown();
+        synchronized (this) {
+            if (transportPool != null) {
+                transportPool.close();
+            }
+        }
+    }
+
+    @Override
+    public void enqueue(MailMessage message) {
+        if (CollectionUtils.isNotEmpty(message.getAttachments())) {
+            senders.execute(() -> deliverInMemory(message));
+            return;
+        }
+
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        jdbcTemplate.update("INSERT INTO `s_mail_queue`(fromEmail, fromName, toEmails, ccEmails, bccEmails, subject, html, " +
+                        "canRetry, attempts, nextAttemptTime, createdTime) VALUES(?,?,?,?,?,?,?,?,0,?,?)",
+                message.getFromEmail(), message.getFromName(), toJson(message.getToEmails()), toJson(message.getCcEmails()),
+                toJson(message.getBccEmails()), message.getSubject(), message.getHtml(), message.isCanRetry(), now, now);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    scheduleDispatch();
+                }
+            });
+        } else {
+            scheduleDispatch();
+        }
+    }
+
+    private void scheduleDispatch() {
+        if (dispatchPending.compareAndSet(false, true)) {
+            dispatcher.execute(this::dispatchQueue);
+        }
+    }
+
+    @Override
+    public void dispatchQueue() {
+        dispatchPending.set(false);
+        try {
+            SmtpTransportPool pool = getTransportPool();
+            if (pool == null) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            jdbcTemplate.update("UPDATE `s_mail_queue` SET claimToken=NULL, claimTime=NULL WHERE claimToken IS NOT NULL " +
+                    "AND claimTime < ?", new Timestamp(now - CLAIM_TIMEOUT));
+
+            int claimed;
+            do {
+                String claimToken = UUID.randomUUID().toString();
+                claimed = jdbcTemplate.update("UPDATE `s_mail_queue` SET claimToken=?, claimTime=? WHERE claimToken IS NULL " +
+                                "AND nextAttemptTime <= ? ORDER BY id LIMIT ?", claimToken,
+                        new Timestamp(System.currentTimeMillis()), new Timestamp(System.currentTimeMillis()), BATCH_SIZE);
+                if (claimed > 0) {
+                    List<MailMessage> messages = jdbcTemplate.query("SELECT " + MESSAGE_COLUMNS + " FROM `s_mail_queue` " +
+                            "WHERE claimToken=? ORDER BY id", MESSAGE_ROW_MAPPER, claimToken);
+                    long startTime = System.currentTimeMillis();
+                    deliverQueuedMessages(pool, messages);
+                    LOG.debug("Delivered {} queued mails in {} ms", messages.size(), System.currentTimeMillis() - startTime);
+                }
+            } while (claimed == BATCH_SIZE);
+        } catch (Exception e) {
+            LOG.error("Error while dispatching the mail queue", e);
+        }
+    }
+
+    private void deliverQueuedMessages(SmtpTransportPool pool, List<MailMessage> messages) throws InterruptedException {
+        Map<MailMessage, Exception> failures = send(pool, messages);
+
+        List<Object[]> deletedIds = new ArrayList<>();
+        List<Object[]> retries = new ArrayList<>();
+        for (MailMessage message : messages) {
+            Exception failure = failures.get(message);
+            if (failure == null) {
+                sentCount.incrementAndGet();
+                deletedIds.add(new Object[]{message.getId()});
+            } else if (shouldRetry(message, failure)) {
+                retryCount.incrementAndGet();
+                int attempts = message.getAttempts() + 1;
+                retries.add(new Object[]{attempts, new Timestamp(System.currentTimeMillis() + getRetryDelay(attempts)),
+                        message.getId()});
+            } else {
+                failedCount.incrementAndGet();
+                LOG.error("Can not send mail '{}' to {}", message.getSubject(), toJson(message.getToEmails()), failure);
+                deletedIds.add(new Object[]{message.getId()});
+            }
+        }
+
+        if (deletedIds.size() > 0) {
+            jdbcTemplate.batchUpdate("DELETE FROM `s_mail_queue` WHERE id=?", deletedIds);
+        }
+        if (retries.size() > 0) {
+            jdbcTemplate.batchUpdate("UPDATE `s_mail_queue` SET attempts=?, nextAttemptTime=?, claimToken=NULL, " +
+                    "claimTime=NULL WHERE id=?", retries);
+        }
+    }
+
+    private void deliverInMemory(MailMessage message) {
+        try {
+            SmtpTransportPool pool = getTransportPool();
+            if (pool == null) {
+                return;
+            }
+            Exception failure = pool.send(new DefaultMailer(pool.getEmailConfiguration()),
+                    Collections.singletonList(message)).get(message);
+            if (failure == null) {
+                sentCount.incrementAndGet();
+            } else if (shouldRetry(message, failure)) {
+                retryCount.incrementAndGet();
+                message.setAttempts(message.getAttempts() + 1);
+                dispatcher.schedule(() -> senders.execute(() -> deliverInMemory(message)),
+                        getRetryDelay(message.getAttempts()), TimeUnit.MILLISECONDS);
+            } else {
+                failedCount.incrementAndGet();
+                LOG.error("Can not send mail '{}' to {}", message.getSubject(), toJson(message.getToEmails()), failure);
+            }
+        } catch (Exception e) {
+            LOG.error("Error while sending mail", e);
+        }
+    }
+
+    /**
+     * Splits <code>messages</code> between the pooled connections and sends them in parallel.
+     * When a chunk fails as a whole, all its messages are reported with a transient failure as
+     * it is not known which of them were sent.
+     */
+    private Map<MailMessage, Exception> send(SmtpTransportPool pool, List<MailMessage> messages) throws InterruptedException {
+        if (messages.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        DefaultMailer mailer = new DefaultMailer(pool.getEmailConfiguration());
+        int chunkSize = (messages.size() + MAX_CONNECTIONS - 1) / MAX_CONNECTIONS;
+        List<List<MailMessage>> chunks = Lists.partition(messages, chunkSize);
+        List<Future<Map<MailMessage, Exception>>> futures = new ArrayList<>();
+        for (List<MailMessage> chunk : chunks) {
+            futures.add(senders.submit(() -> pool.send(mailer, chunk)));
+        }
+
+        Map<MailMessage, Exception> failures = new HashMap<>();
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                failures.putAll(futures.get(i).get());
+            } catch (ExecutionException e) {
+                LOG.error("Error while sending mails", e);
+                MessagingException failure = new MessagingException("Error while sending mails",
+                        (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e);
+                for (MailMessage message : chunks.get(i)) {
+                    failures.put(message, failure);
+                }
+            }
+        }
+        return failures;
+    }
+
+    private static boolean shouldRetry(MailMessage message, Exception failure) {
+        return message.isCanRetry() && (message.getAttempts() + 1 < MAX_ATTEMPTS) && isTransientFailure(failure);
+    }
+
+    /**
+     * SMTP replies 4xx and connection problems are transient, rejected recipients and invalid
+     * messages are not.
+     */
+    static boolean isTransientFailure(Exception failure) {
+        if (failure instanceof SMTPSendFailedException) {
+            return ((SMTPSendFailedException) failure).getReturnCode() / 100 == 4;
+        } else if (failure instanceof SMTPAddressFailedException) {
+            return ((SMTPAddressFailedException) failure).getReturnCode() / 100 == 4;
+        } else if (failure instanceof SendFailedException) {
+            return false;
+        } else {
+            return failure instanceof MessagingException;
+        }
+    }
+
+    private static long getRetryDelay(int attempts) {
+        return RETRY_DELAY << Math.min(attempts - 1, 10);
+    }
+
+    /**
+     * @return the pool of the current email configuration, or null if the mail setup is invalid.
+     * The pool is recreated when the configuration is changed.
+     */
+    private synchronized SmtpTransportPool getTransportPool() {
+        EmailConfiguration emailConf = SiteConfiguration.getEmailConfiguration();
+        if (StringUtils.isBlank(emailConf.getHost()) || StringUtils.isBlank(emailConf.getUser()) || emailConf.getPort() <= -1) {
+            return null;
+        }
+        String poolKey = String.format("%s:%d:%s:%s:%b:%b", emailConf.getHost(), emailConf.getPort(), emailConf.getUser(),
+                emailConf.getPassword(), emailConf.getIsSsl(), emailConf.getIsStartTls());
+        if (!poolKey.equals(transportPoolKey)) {
+            if (transportPool != null) {
+                transportPool.close();
+            }
+            transportPool = new SmtpTransportPool(emailConf.clone(), MAX_CONNECTIONS);
+            transportPoolKey = poolKey;
+        }
+        return transportPool;
+    }
+
+    @Override
+    public long getQueueDepth() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM `s_mail_queue`", Long.class);
+    }
+
+    @Override
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    @Override
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+
+    @Override
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    private static String toJson(List<MailRecipientField> recipients) {
+        if (CollectionUtils.isEmpty(recipients)) {
+            return null;
+        }
+        List<String[]> values = new ArrayList<>(recipients.size());
+        for (MailRecipientField recipient : recipients) {
+            values.add(new String[]{recipient.getEmail(), recipient.getName()});
+        }
+        return JsonDeSerializer.toJson(values);
+    }
+
+    private static List<MailRecipientField> fromJson(String value) {
+        if (StringUtils.isBlank(value)) {
+            return null;
+        }
+        List<String[]> values = JsonDeSerializer.fromJson(value, new TypeReference<List<String[]>>() {
+        });
+        List<MailRecipientField> recipients = new ArrayList<>(values.size());
+        for (String[] recipient : values) {
+            recipients.add(new MailRecipientField(recipient[0], recipient[1]));
+        }
+        return recipients;
+    }
+
+    private static final RowMapper<MailMessage> MESSAGE_ROW_MAPPER = (rs, rowNum) -> {
+        MailMessage message = new MailMessage(rs.getString("fromEmail"), rs.getString("fromName"),
+                fromJson(rs.getString("toEmails")), fromJson(rs.getString("ccEmails")),
+                fromJson(rs.getString("bccEmails")), rs.getString("subject"), rs.getString("html"));
+        message.setId(rs.getInt("id"));
+        message.setCanRetry(rs.getBoolean("canRetry"));
+        message.setAttempts(rs.getInt("attempts"));
+        return message;
+    };
+}
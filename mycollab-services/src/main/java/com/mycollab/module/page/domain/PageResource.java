@@ -18,13 +18,16 @@ package com.mycollab.module.page.domain;
 
 import com.mycollab.core.arguments.NotBindable;
 
+import java.io.Serializable;
 import java.util.Calendar;
 
 /**
  * @author MyCollab Ltd.
  * @since 4.4.0
  */
-public class PageResource {
+public class PageResource implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     @NotBindable
     private Calendar createdTime;
 
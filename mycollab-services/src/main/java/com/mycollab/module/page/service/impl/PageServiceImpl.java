@@ -20,6 +20,7 @@ import com.mycollab.common.i18n.WikiI18nEnum;
 import com.mycollab.core.MyCollabException;
 import com.mycollab.core.utils.StringUtils;
 import com.mycollab.module.ecm.ContentException;
+import com.mycollab.module.ecm.NodeListingCache;
 import com.mycollab.module.ecm.NodesUtil;
 import com.mycollab.module.page.domain.Folder;
 import com.mycollab.module.page.domain.Page;
@@ -63,6 +64,10 @@ public class PageServiceImpl implements PageService {
     @Autowired
     private JcrTemplate jcrTemplate;
 
+    @Qualifier("pageListingCache")
+    @Autowired
+    private NodeListingCache listingCache;
+
     @SuppressWarnings({"unchecked", "rawtypes"})
     @Override
     public void savePage(final Page page, final String createdUser) {
@@ -130,7 +135,7 @@ public class PageServiceImpl implements PageService {
                 return null;
             }
         });
-
+        listingCache.invalidateNode(page.getPath());
     }
 
     @Override
@@ -223,7 +228,7 @@ public class PageServiceImpl implements PageService {
 
     @Override
     public Page restorePage(final String path, final String versionName) {
-        return jcrTemplate.execute(new JcrCallback<Page>() {
+        Page page = jcrTemplate.execute(new JcrCallback<Page>() {
 
             @Override
             public Page doInJcr(Session session) throws IOException, RepositoryException {
@@ -242,7 +247,8 @@ public class PageServiceImpl implements PageService {
                 return null;
             }
         });
-
+        listingCache.invalidateNode(path);
+        return page;
     }
 
     private PageVersion convertNodeToPageVersion(Version node) {
@@ -313,11 +319,12 @@ public class PageServiceImpl implements PageService {
                 return null;
             }
         });
+        listingCache.invalidateNode(path);
     }
 
     @Override
     public List<Page> getPages(final String path, final String requestedUser) {
-        return jcrTemplate.execute(new JcrCallback<List<Page>>() {
+        List<Page> pages = listingCache.get("pages", path, () -> jcrTemplate.execute(new JcrCallback<List<Page>>() {
 
             @Override
             public List<Page> doInJcr(Session session) throws IOException,
@@ -331,10 +338,8 @@ public class PageServiceImpl implements PageService {
                         while (childNodes.hasNext()) {
                             Node childNode = childNodes.nextNode();
                             if (isNodePage(childNode)) {
-                                if (isAccessible(childNode, requestedUser)) {
-                                    Page page = convertNodeToPage(childNode);
-                                    pages.add(page);
-                                }
+                                Page page = convertNodeToPage(childNode);
+                                pages.add(page);
                             }
                         }
 
@@ -346,12 +351,14 @@ public class PageServiceImpl implements PageService {
                 }
                 return new ArrayList<Page>();
             }
-        });
+        }));
+        pages.removeIf(page -> !isAccessible(page, requestedUser));
+        return pages;
     }
 
     @Override
     public List<PageResource> getResources(final String path, final String requestedUser) {
-        return jcrTemplate.execute(new JcrCallback<List<PageResource>>() {
+        List<PageResource> resources = listingCache.get("resources", path, () -> jcrTemplate.execute(new JcrCallback<List<PageResource>>() {
 
             @Override
             public List<PageResource> doInJcr(Session session)
@@ -368,10 +375,8 @@ public class PageServiceImpl implements PageService {
                                 Folder subFolder = convertNodeToFolder(childNode);
                                 resources.add(subFolder);
                             } else if (isNodePage(childNode)) {
-                                if (isAccessible(childNode, requestedUser)) {
-                                    Page page = convertNodeToPage(childNode);
-                                    resources.add(page);
-                                }
+                                Page page = convertNodeToPage(childNode);
+                                resources.add(page);
                             } else {
                                 String errorString = "Node %s has type not mycollab:content or mycollab:folder";
                                 LOG.error(String.format(errorString,
@@ -390,7 +395,9 @@ public class PageServiceImpl implements PageService {
                 LOG.debug("There is no resource in path {}", path);
                 return new ArrayList<>();
             }
-        });
+        }));
+        resources.removeIf(resource -> (resource instanceof Page) && !isAccessible((Page) resource, requestedUser));
+        return resources;
     }
 
     @SuppressWarnings({"rawtypes", "unchecked"})
@@ -450,6 +457,7 @@ public class PageServiceImpl implements PageService {
                 return null;
             }
         });
+        listingCache.invalidateNode(folder.getPath());
     }
 
     private static Node convertPageToNode(Node node, Page page,
@@ -479,6 +487,14 @@ public class PageServiceImpl implements PageService {
         return true;
     }
 
+    private static boolean isAccessible(Page page, String requestedUser) {
+        if (WikiI18nEnum.status_private.name().equals(page.getStatus())) {
+            return (requestedUser.equals(page.getCreatedUser()));
+        }
+
+        return true;
+    }
+
     private Page convertNodeToPage(Node node) {
         try {
             Page page = new Page();
@@ -52,5 +52,9 @@ public interface ProjectMapperExt extends ISearchableDAO<ProjectSearchCriteria>
 
     List<FollowingTicket> getProjectFollowingTickets(@Param("searchCriteria") MonitorSearchCriteria searchRequest, RowBounds rowBounds);
 
-    List<ProjectRelayEmailNotification> findProjectRelayEmailNotifications();
+    /**
+     * @param claimToken if not null, only the notifications claimed by this token are returned
+     * @return
+     */
+    List<ProjectRelayEmailNotification> findProjectRelayEmailNotifications(@Param("claimToken") String claimToken);
 }
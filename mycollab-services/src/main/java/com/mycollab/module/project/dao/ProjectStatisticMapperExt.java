@@ -0,0 +1,38 @@
+/**
+ * This file is part of mycollab-services.
+ *
+ * mycollab-services is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-services is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-services.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.module.project.dao;
+
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * Maintains the denormalized counters of table <code>m_prj_project_statistic</code> which
+ * are read by the project queries instead of counting tickets, members, milestones and
+ * time logs per project row.
+ *
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+public interface ProjectStatisticMapperExt {
+
+    void refreshProjectStatistics(@Param("projectIds") List<Integer> projectIds);
+
+    void refreshAccountProjectStatistics(@Param("sAccountId") Integer sAccountId);
+
+    void rebuildProjectStatistics();
+}
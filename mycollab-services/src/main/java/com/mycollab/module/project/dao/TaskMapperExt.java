@@ -32,8 +32,6 @@ public interface TaskMapperExt extends ISearchableDAO<TaskSearchCriteria> {
 
     SimpleTask findTaskById(int taskId);
 
-    Integer getMaxKey(int projectId);
-
     List<GroupItem> getPrioritySummary(@Param("searchCriteria") TaskSearchCriteria criteria);
 
     List<GroupItem> getStatusSummary(@Param("searchCriteria") TaskSearchCriteria criteria);
@@ -36,4 +36,12 @@ public interface ProjectRoleService extends IDefaultService<Integer, ProjectRole
 
     @Cacheable
     SimpleProjectRole findById(Integer roleId, @CacheKey Integer sAccountId);
+
+    /**
+     * @param projectId
+     * @param roleId
+     * @param sAccountId
+     * @return the compiled permission map of project role, it is shared so it can not be changed
+     */
+    PermissionMap findProjectRolePermission(Integer projectId, Integer roleId, Integer sAccountId);
 }
@@ -0,0 +1,36 @@
+/**
+ * This file is part of mycollab-services.
+ *
+ * mycollab-services is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-services is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-services.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.module.project.service;
+
+import com.mycollab.db.persistence.service.IService;
+
+/**
+ * Allocates the keys of the tickets of a project. The keys of a ticket type are unique in a
+ * project and increase, but they may have gaps since each server reserves them by blocks.
+ *
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+public interface TicketKeyService extends IService {
+    /**
+     * @param projectId
+     * @param ticketType type of ticket, {@link com.mycollab.module.project.ProjectTypeConstants#BUG} or
+     *                   {@link com.mycollab.module.project.ProjectTypeConstants#TASK}
+     * @return a new key of ticket type <code>ticketType</code> in project <code>projectId</code>
+     */
+    int nextKey(Integer projectId, String ticketType);
+}
@@ -34,9 +34,13 @@ import com.mycollab.module.project.domain.SimpleProjectRole;
 import com.mycollab.module.project.domain.criteria.ProjectRoleSearchCriteria;
 import com.mycollab.module.project.service.ProjectRoleService;
 import com.mycollab.security.PermissionMap;
+import com.mycollab.security.PermissionMapCache;
+import org.apache.commons.collections.CollectionUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 /**
  * @author MyCollab Ltd.
  * @since 1.0
@@ -57,6 +61,8 @@ public class ProjectRoleServiceImpl extends DefaultService<Integer, ProjectRole,
     @Autowired
     private ProjectRolePermissionMapper projectRolePermissionMapper;
 
+    private final PermissionMapCache<Integer> permissionMapCache = new PermissionMapCache<>();
+
     @Override
     public ICrudGenericDAO<Integer, ProjectRole> getCrudMapper() {
         return roleMapper;
@@ -85,7 +91,18 @@ public class ProjectRoleServiceImpl extends DefaultService<Integer, ProjectRole,
         } else {
             projectRolePermissionMapper.insert(rolePer);
         }
+        permissionMapCache.invalidate(roleId);
+    }
 
+    @Override
+    public PermissionMap findProjectRolePermission(Integer projectId, Integer roleId, Integer sAccountId) {
+        return permissionMapCache.get(roleId, () -> {
+            ProjectRolePermissionExample ex = new ProjectRolePermissionExample();
+            ex.createCriteria().andRoleidEqualTo(roleId).andProjectidEqualTo(projectId);
+            List<ProjectRolePermission> rolePermissions = projectRolePermissionMapper.selectByExampleWithBLOBs(ex);
+            return CollectionUtils.isNotEmpty(rolePermissions) ?
+                    PermissionMap.fromJsonString(rolePermissions.get(0).getRoleval()) : null;
+        });
     }
 
     @Override
@@ -263,7 +263,7 @@ public class ProjectServiceImpl extends DefaultService<Integer, Project, Project
 
     @Override
     public List<ProjectRelayEmailNotification> findProjectRelayEmailNotifications() {
-        return projectMapperExt.findProjectRelayEmailNotifications();
+        return projectMapperExt.findProjectRelayEmailNotifications(null);
     }
 
     @Override
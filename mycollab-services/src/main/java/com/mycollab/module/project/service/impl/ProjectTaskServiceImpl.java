@@ -27,7 +27,6 @@ import com.mycollab.common.domain.GroupItem;
 import com.mycollab.common.event.TimelineTrackingAdjustIfEntityDeleteEvent;
 import com.mycollab.common.event.TimelineTrackingUpdateEvent;
 import com.mycollab.common.i18n.OptionI18nEnum.StatusI18nEnum;
-import com.mycollab.core.MyCollabException;
 import com.mycollab.core.cache.CacheKey;
 import com.mycollab.core.cache.CleanCache;
 import com.mycollab.core.utils.StringUtils;
@@ -37,7 +36,6 @@ import com.mycollab.db.arguments.SearchField;
 import com.mycollab.db.persistence.ICrudGenericDAO;
 import com.mycollab.db.persistence.ISearchableDAO;
 import com.mycollab.db.persistence.service.DefaultService;
-import com.mycollab.lock.DistributionLockUtil;
 import com.mycollab.module.project.ProjectTypeConstants;
 import com.mycollab.module.project.dao.TaskMapper;
 import com.mycollab.module.project.dao.TaskMapperExt;
@@ -62,8 +60,6 @@ import java.sql.SQLException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
 
 /**
  * @author MyCollab Ltd.
@@ -86,6 +82,9 @@ public class ProjectTaskServiceImpl extends DefaultService<Integer, Task, TaskSe
     @Autowired
     private TaskMapperExt taskMapperExt;
 
+    @Autowired
+    private TicketKeyService ticketKeyService;
+
     @Autowired
     private AsyncEventBus asyncEventBus;
 
@@ -122,26 +121,12 @@ public class ProjectTaskServiceImpl extends DefaultService<Integer, Task, TaskSe
             record.setPriority(Priority.Medium.name());
         }
         record.setCreateduser(username);
-        Lock lock = DistributionLockUtil.getLock("task-" + record.getSaccountid());
-
-        try {
-            if (lock.tryLock(120, TimeUnit.SECONDS)) {
-                Integer key = taskMapperExt.getMaxKey(record.getProjectid());
-                record.setTaskkey((key == null) ? 1 : (key + 1));
+        record.setTaskkey(ticketKeyService.nextKey(record.getProjectid(), ProjectTypeConstants.TASK));
 
-                int taskId = super.saveWithSession(record, username);
-                asyncEventBus.post(new TimelineTrackingUpdateEvent(ProjectTypeConstants.TASK, taskId, "status",
-                        record.getStatus(), record.getProjectid(), record.getSaccountid()));
-                return taskId;
-            } else {
-                throw new MyCollabException("Timeout operation.");
-            }
-        } catch (InterruptedException e) {
-            throw new MyCollabException(e);
-        } finally {
-            DistributionLockUtil.removeLock("task-" + record.getSaccountid());
-            lock.unlock();
-        }
+        int taskId = super.saveWithSession(record, username);
+        asyncEventBus.post(new TimelineTrackingUpdateEvent(ProjectTypeConstants.TASK, taskId, "status",
+                record.getStatus(), record.getProjectid(), record.getSaccountid()));
+        return taskId;
     }
 
     @Transactional
@@ -0,0 +1,213 @@
+/**
+ * This file is part of mycollab-services.
+ *
+ * mycollab-services is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-services is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-services.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.module.project.service.impl;
+
+import com.mycollab.core.MyCollabException;
+import com.mycollab.module.project.ProjectTypeConstants;
+import com.mycollab.module.project.service.TicketKeyService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The next key of every ticket type of a project is kept in table
+ * <code>m_prj_ticket_key_sequence</code>. A server reserves a block of keys with one atomic
+ * increment of that row, then hands the keys of the block out in memory. The reservation is
+ * committed in its own transaction, so it does not hold the sequence row until the end of the
+ * transaction creating the ticket. That transaction runs on a small pool of its own: the
+ * tickets are created within a transaction already holding a connection of the main pool, so
+ * reserving from the main pool could wait forever once every connection is held by a creator.
+ * The keys of a block not used before a restart are lost.
+ *
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+@Service
+public class TicketKeyServiceImpl implements TicketKeyService {
+    private static final Logger LOG = LoggerFactory.getLogger(TicketKeyServiceImpl.class);
+
+    private static final int BLOCK_SIZE = 20;
+    private static final int RESERVATION_POOL_SIZE = 2;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private HikariDataSource reservationDataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate reservationTemplate;
+
+    private final ConcurrentMap<SequenceId, KeyBlock> blocks = new ConcurrentHashMap<>();
+    private final ConcurrentMap<SequenceId, Object> reservationLocks = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        DataSource keyDataSource = dataSource;
+        if (dataSource instanceof HikariDataSource) {
+            HikariDataSource mainDataSource = (HikariDataSource) dataSource;
+            reservationDataSource = new HikariDataSource();
+            reservationDataSource.setPoolName("ticket-key");
+            reservationDataSource.setDriverClassName(mainDataSource.getDriverClassName());
+            reservationDataSource.setJdbcUrl(mainDataSource.getJdbcUrl());
+            reservationDataSource.setUsername(mainDataSource.getUsername());
+            reservationDataSource.setPassword(mainDataSource.getPassword());
+            reservationDataSource.setDataSourceProperties(mainDataSource.getDataSourceProperties());
+            reservationDataSource.setMaximumPoolSize(RESERVATION_POOL_SIZE);
+            reservationDataSource.setMinimumIdle(0);
+            reservationDataSource.setInitializationFailTimeout(-1);
+            keyDataSource = reservationDataSource;
+        } else {
+            LOG.warn("The ticket keys are reserved from the main data source {}", dataSource.getClass().getName());
+        }
+        jdbcTemplate = new JdbcTemplate(keyDataSource);
+        reservationTemplate = new TransactionTemplate(new DataSourceTransactionManager(keyDataSource));
+        reservationTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (reservationDataSource != null) {
+            reservationDataSource.close();
+        }
+    }
+
+    @Override
+    public int nextKey(Integer projectId, String ticketType) {
+        SequenceId sequenceId = new SequenceId(projectId, ticketType);
+        KeyBlock block = blocks.get(sequenceId);
+        while (true) {
+            if (block != null) {
+                int key = block.next.getAndIncrement();
+                if (key < block.limit) {
+                    return key;
+                }
+            }
+            block = nextBlock(sequenceId, block);
+        }
+    }
+
+    /**
+     * Replaces the exhausted block <code>exhaustedBlock</code> of sequence, only one thread
+     * reserves the next block while the others wait for it.
+     */
+    private KeyBlock nextBlock(SequenceId sequenceId, KeyBlock exhaustedBlock) {
+        synchronized (reservationLocks.computeIfAbsent(sequenceId, id -> new Object())) {
+            KeyBlock block = blocks.get(sequenceId);
+            if (block == exhaustedBlock) {
+                int limit = reserveKeys(sequenceId, BLOCK_SIZE);
+                block = new KeyBlock(limit - BLOCK_SIZE, limit);
+                blocks.put(sequenceId, block);
+            }
+            return block;
+        }
+    }
+
+    /**
+     * @return the key following the <code>count</code> keys reserved
+     */
+    private int reserveKeys(SequenceId sequenceId, int count) {
+        Integer limit = reservationTemplate.execute(status -> {
+            Integer reservedLimit = incrementSequence(sequenceId, count);
+            if (reservedLimit == null) {
+                createSequence(sequenceId);
+                reservedLimit = incrementSequence(sequenceId, count);
+            }
+            return reservedLimit;
+        });
+        if (limit == null) {
+            throw new MyCollabException("Can not reserve the keys of " + sequenceId.ticketType + " in project " +
+                    sequenceId.projectId);
+        }
+        return limit;
+    }
+
+    /**
+     * LAST_INSERT_ID() is read on the connection of the reservation transaction, which did the
+     * increment.
+     */
+    private Integer incrementSequence(SequenceId sequenceId, int count) {
+        int updated = jdbcTemplate.update("UPDATE `m_prj_ticket_key_sequence` SET `nextKey` = LAST_INSERT_ID(`nextKey` + ?) " +
+                "WHERE `projectId` = ? AND `ticketType` = ?", count, sequenceId.projectId, sequenceId.ticketType);
+        if (updated == 0) {
+            return null;
+        }
+        return jdbcTemplate.queryForObject("SELECT LAST_INSERT_ID()", Integer.class);
+    }
+
+    /**
+     * Starts the sequence after the greatest key of the tickets of project, it does nothing if
+     * the sequence already exists.
+     */
+    private void createSequence(SequenceId sequenceId) {
+        String maxKeyQuery;
+        if (ProjectTypeConstants.BUG.equals(sequenceId.ticketType)) {
+            maxKeyQuery = "SELECT IFNULL(MAX(`bugkey`), 0) + 1 FROM `m_tracker_bug` WHERE `projectId` = ?";
+        } else if (ProjectTypeConstants.TASK.equals(sequenceId.ticketType)) {
+            maxKeyQuery = "SELECT IFNULL(MAX(`taskkey`), 0) + 1 FROM `m_prj_task` WHERE `projectId` = ?";
+        } else {
+            throw new MyCollabException("Ticket type " + sequenceId.ticketType + " has no key");
+        }
+        jdbcTemplate.update("INSERT IGNORE INTO `m_prj_ticket_key_sequence`(`projectId`, `ticketType`, `nextKey`) " +
+                "SELECT ?, ?, (" + maxKeyQuery + ")", sequenceId.projectId, sequenceId.ticketType, sequenceId.projectId);
+    }
+
+    private static class KeyBlock {
+        private final AtomicInteger next;
+        private final int limit;
+
+        private KeyBlock(int first, int limit) {
+            this.next = new AtomicInteger(first);
+            this.limit = limit;
+        }
+    }
+
+    private static class SequenceId {
+        private final int projectId;
+        private final String ticketType;
+
+        private SequenceId(int projectId, String ticketType) {
+            this.projectId = projectId;
+            this.ticketType = ticketType;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            SequenceId that = (SequenceId) o;
+            return projectId == that.projectId && ticketType.equals(that.ticketType);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(projectId, ticketType);
+        }
+    }
+}
@@ -17,7 +17,7 @@
 package com.mycollab.module.tracker.dao;
 
 import com.mycollab.common.domain.GroupItem;
-import com.mycollab.db.persistence.ISearchableDAO;
+import com.mycollab.db.persistence.IKeysetSearchableDAO;
 import com.mycollab.module.tracker.domain.BugStatusGroupItem;
 import com.mycollab.module.tracker.domain.SimpleBug;
 import com.mycollab.module.tracker.domain.criteria.BugSearchCriteria;
@@ -29,7 +29,7 @@ import java.util.List;
  * @author MyCollab Ltd.
  * @since 1.0
  */
-public interface BugMapperExt extends ISearchableDAO<BugSearchCriteria> {
+public interface BugMapperExt extends IKeysetSearchableDAO<BugSearchCriteria> {
 
     SimpleBug getBugById(int bugid);
 
@@ -52,5 +52,4 @@ public interface BugMapperExt extends ISearchableDAO<BugSearchCriteria> {
 
     List<BugStatusGroupItem> getBugStatusGroupItemBaseComponent(@Param("searchCriteria") BugSearchCriteria criteria);
 
-    Integer getMaxKey(int projectId);
 }
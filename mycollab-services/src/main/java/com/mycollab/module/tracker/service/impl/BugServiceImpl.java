@@ -27,13 +27,13 @@ import com.mycollab.common.domain.GroupItem;
 import com.mycollab.common.event.TimelineTrackingUpdateEvent;
 import com.mycollab.common.service.TagService;
 import com.mycollab.common.service.TimelineTrackingService;
-import com.mycollab.core.MyCollabException;
 import com.mycollab.core.cache.CacheKey;
 import com.mycollab.core.cache.CleanCache;
+import com.mycollab.db.arguments.KeysetOrder;
+import com.mycollab.db.arguments.SearchCriteria;
 import com.mycollab.db.persistence.ICrudGenericDAO;
 import com.mycollab.db.persistence.ISearchableDAO;
 import com.mycollab.db.persistence.service.DefaultService;
-import com.mycollab.lock.DistributionLockUtil;
 import com.mycollab.module.project.ProjectTypeConstants;
 import com.mycollab.module.project.esb.DeleteProjectBugEvent;
 import com.mycollab.module.project.i18n.OptionI18nEnum;
@@ -57,8 +57,6 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
 
 /**
  * @author MyCollab Ltd.
@@ -75,6 +73,15 @@ public class BugServiceImpl extends DefaultService<Integer, BugWithBLOBs, BugSea
         ClassInfoMap.put(BugServiceImpl.class, bugInfo);
     }
 
+    private static final KeysetOrder KEYSET_ORDER = new KeysetOrder()
+            .column("id", "m_tracker_bug.id").column("bugkey", "m_tracker_bug.bugkey")
+            .column("name", "m_tracker_bug.name").column("status", "m_tracker_bug.status")
+            .column("priority", "m_tracker_bug.priority").column("severity", "m_tracker_bug.severity")
+            .column("resolution", "m_tracker_bug.resolution").column("duedate", "m_tracker_bug.duedate")
+            .column("startdate", "m_tracker_bug.startDate").column("enddate", "m_tracker_bug.endDate")
+            .column("createdtime", "m_tracker_bug.createdTime").column("lastupdatedtime", "m_tracker_bug.lastUpdatedTime")
+            .defaultOrder("lastupdatedtime", SearchCriteria.DESC).defaultOrder("id", SearchCriteria.DESC);
+
     @Autowired
     private DataSource dataSource;
 
@@ -84,6 +91,9 @@ public class BugServiceImpl extends DefaultService<Integer, BugWithBLOBs, BugSea
     @Autowired
     private BugMapperExt bugMapperExt;
 
+    @Autowired
+    private TicketKeyService ticketKeyService;
+
     @Autowired
     private AsyncEventBus asyncEventBus;
 
@@ -97,34 +107,26 @@ public class BugServiceImpl extends DefaultService<Integer, BugWithBLOBs, BugSea
         return bugMapperExt;
     }
 
+    @Override
+    protected KeysetOrder getKeysetOrder() {
+        return KEYSET_ORDER;
+    }
+
     @Transactional(isolation = Isolation.READ_UNCOMMITTED)
     @Override
     public Integer saveWithSession(BugWithBLOBs record, String username) {
-        Lock lock = DistributionLockUtil.getLock("bug-" + record.getSaccountid());
-        try {
-            if (lock.tryLock(120, TimeUnit.SECONDS)) {
-                Integer maxKey = bugMapperExt.getMaxKey(record.getProjectid());
-                record.setBugkey((maxKey == null) ? 1 : (maxKey + 1));
-                if (record.getPriority() == null) {
-                    record.setPriority(OptionI18nEnum.Priority.Medium.name());
-                }
-                if (record.getStatus() == null) {
-                    record.setStatus(OptionI18nEnum.BugStatus.Open.name());
-                }
-                Integer bugId = super.saveWithSession(record, username);
-
-                asyncEventBus.post(new TimelineTrackingUpdateEvent(ProjectTypeConstants.BUG, bugId, "status", record.getStatus(),
-                        record.getProjectid(), record.getSaccountid()));
-                return bugId;
-            } else {
-                throw new MyCollabException("Timeout operation");
-            }
-        } catch (InterruptedException e) {
-            throw new MyCollabException(e);
-        } finally {
-            DistributionLockUtil.removeLock("bug-" + record.getSaccountid());
-            lock.unlock();
+        record.setBugkey(ticketKeyService.nextKey(record.getProjectid(), ProjectTypeConstants.BUG));
+        if (record.getPriority() == null) {
+            record.setPriority(OptionI18nEnum.Priority.Medium.name());
+        }
+        if (record.getStatus() == null) {
+            record.setStatus(OptionI18nEnum.BugStatus.Open.name());
         }
+        Integer bugId = super.saveWithSession(record, username);
+
+        asyncEventBus.post(new TimelineTrackingUpdateEvent(ProjectTypeConstants.BUG, bugId, "status", record.getStatus(),
+                record.getProjectid(), record.getSaccountid()));
+        return bugId;
     }
 
     @Override
@@ -37,4 +37,11 @@ public interface RoleService extends IDefaultService<Integer, Role, RoleSearchCr
     SimpleRole findById(Integer roleId, @CacheKey Integer sAccountId);
 
     Integer getDefaultRoleId(Integer sAccountId);
+
+    /**
+     * @param roleId
+     * @param sAccountId
+     * @return the compiled permission map of role, it is shared so it can not be changed
+     */
+    PermissionMap findPermissionMap(Integer roleId, Integer sAccountId);
 }
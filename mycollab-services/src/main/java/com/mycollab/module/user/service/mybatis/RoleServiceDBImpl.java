@@ -26,6 +26,7 @@ import com.mycollab.module.user.domain.*;
 import com.mycollab.module.user.domain.criteria.RoleSearchCriteria;
 import com.mycollab.module.user.service.RoleService;
 import com.mycollab.security.PermissionMap;
+import com.mycollab.security.PermissionMapCache;
 import org.apache.commons.collections.CollectionUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -47,6 +48,8 @@ public class RoleServiceDBImpl extends DefaultService<Integer, Role, RoleSearchC
     @Autowired
     private RolePermissionMapper rolePermissionMapper;
 
+    private final PermissionMapCache<Integer> permissionMapCache = new PermissionMapCache<>();
+
     @Override
     public ICrudGenericDAO<Integer, Role> getCrudMapper() {
         return roleMapper;
@@ -98,6 +101,18 @@ public class RoleServiceDBImpl extends DefaultService<Integer, Role, RoleSearchC
         } else {
             rolePermissionMapper.insert(rolePer);
         }
+        permissionMapCache.invalidate(roleId);
+    }
+
+    @Override
+    public PermissionMap findPermissionMap(Integer roleId, Integer sAccountId) {
+        return permissionMapCache.get(roleId, () -> {
+            RolePermissionExample ex = new RolePermissionExample();
+            ex.createCriteria().andRoleidEqualTo(roleId);
+            List<RolePermission> rolePermissions = rolePermissionMapper.selectByExampleWithBLOBs(ex);
+            return CollectionUtils.isNotEmpty(rolePermissions) ?
+                    PermissionMap.fromJsonString(rolePermissions.get(0).getRoleval()) : null;
+        });
     }
 
     @Override
@@ -30,7 +30,6 @@ import com.mycollab.db.persistence.service.DefaultService;
 import com.mycollab.module.billing.RegisterStatusConstants;
 import com.mycollab.module.billing.service.BillingPlanCheckerService;
 import com.mycollab.module.file.service.UserAvatarService;
-import com.mycollab.module.user.dao.RolePermissionMapper;
 import com.mycollab.module.user.dao.UserAccountMapper;
 import com.mycollab.module.user.dao.UserMapper;
 import com.mycollab.module.user.dao.UserMapperExt;
@@ -40,6 +39,7 @@ import com.mycollab.module.user.esb.DeleteUserEvent;
 import com.mycollab.module.user.esb.NewUserJoinEvent;
 import com.mycollab.module.user.esb.RequestToResetPasswordEvent;
 import com.mycollab.module.user.esb.SendUserInvitationEvent;
+import com.mycollab.module.user.service.RoleService;
 import com.mycollab.module.user.service.UserService;
 import com.mycollab.security.PermissionMap;
 import org.apache.commons.collections.CollectionUtils;
@@ -74,7 +74,7 @@ public class UserServiceDBImpl extends DefaultService<String, User, UserSearchCr
     private UserAccountMapper userAccountMapper;
 
     @Autowired
-    private RolePermissionMapper rolePermissionMapper;
+    private RoleService roleService;
 
     @Autowired
     private UserAvatarService userAvatarService;
@@ -306,12 +306,8 @@ public class UserServiceDBImpl extends DefaultService<String, User, UserSearchCr
 
             if (user.getIsAccountOwner() == null || (user.getIsAccountOwner() != null && !user.getIsAccountOwner())) {
                 if (user.getRoleid() != null) {
-                    RolePermissionExample ex = new RolePermissionExample();
-                    ex.createCriteria().andRoleidEqualTo(user.getRoleid());
-                    List roles = rolePermissionMapper.selectByExampleWithBLOBs(ex);
-                    if (CollectionUtils.isNotEmpty(roles)) {
-                        RolePermission rolePer = (RolePermission) roles.get(0);
-                        PermissionMap permissionMap = PermissionMap.fromJsonString(rolePer.getRoleval());
+                    PermissionMap permissionMap = roleService.findPermissionMap(user.getRoleid(), user.getAccountId());
+                    if (permissionMap != null) {
                         user.setPermissionMaps(permissionMap);
                         LOG.debug(String.format("Find role match to user %s", username));
                     } else {
@@ -16,31 +16,24 @@
  */
 package com.mycollab.spring;
 
-import com.google.common.eventbus.AsyncEventBus;
-import com.google.common.eventbus.SubscriberExceptionContext;
-import com.google.common.eventbus.SubscriberExceptionHandler;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.mycollab.module.esb.DurableEventBus;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableMBeanExport;
+import org.springframework.jmx.support.RegistrationPolicy;
 
-import java.util.concurrent.Executors;
+import javax.sql.DataSource;
 
 /**
  * @author MyCollab Ltd
  * @since 5.1.0
  */
 @Configuration
+@EnableMBeanExport(registration = RegistrationPolicy.IGNORE_EXISTING)
 public class AppEventBus {
-    private static Logger LOG = LoggerFactory.getLogger(AppEventBus.class);
 
     @Bean
-    public AsyncEventBus asyncEventBus() {
-        return new AsyncEventBus(Executors.newCachedThreadPool(), new SubscriberExceptionHandler() {
-            @Override
-            public void handleException(Throwable throwable, SubscriberExceptionContext subscriberExceptionContext) {
-                LOG.error("Error in event bus execution", throwable);
-            }
-        });
+    public DurableEventBus asyncEventBus(DataSource dataSource) {
+        return new DurableEventBus(dataSource);
     }
 }
@@ -46,14 +46,14 @@ public class DataSourceConfiguration {
         dataSource.setJdbcUrl(dbConf.getDbUrl());
         dataSource.setUsername(dbConf.getUser());
         dataSource.setPassword(dbConf.getPassword());
+        dataSource.setMaximumPoolSize(20);
+        dataSource.setInitializationFailTimeout(-1);
 
         Properties dsProperties = new Properties();
         dsProperties.setProperty("cachePrepStmts", "true");
         dsProperties.setProperty("prepStmtCacheSize", "250");
         dsProperties.setProperty("prepStmtCacheSqlLimit", "2048");
         dsProperties.setProperty("useServerPrepStmts", "true");
-        dsProperties.setProperty("maximumPoolSize", "20");
-        dsProperties.setProperty("initializationFailFast", "false");
         dataSource.setDataSourceProperties(dsProperties);
         return dataSource;
     }
@@ -17,6 +17,7 @@
 package com.mycollab.spring;
 
 import com.mycollab.module.ecm.MyCollabContentSessionFactory;
+import com.mycollab.module.ecm.NodeListingCache;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.DependsOn;
@@ -60,4 +61,9 @@ public class EcmConfiguration {
         bean.setAllowCreate(true);
         return bean;
     }
+
+    @Bean
+    public NodeListingCache contentListingCache() throws Exception {
+        return new NodeListingCache(jcrSessionFactory());
+    }
 }
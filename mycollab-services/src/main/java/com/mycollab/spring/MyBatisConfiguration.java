@@ -16,19 +16,28 @@
  */
 package com.mycollab.spring;
 
+import com.mycollab.aspect.CacheEvictionInterceptor;
+import com.mycollab.aspect.L2CacheAspect;
 import com.mycollab.db.arguments.SearchCriteria;
+import com.mycollab.db.arguments.StringSearchField;
 import com.mycollab.db.persistence.VelocityDriverDeclare;
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.ibatis.plugin.Interceptor;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.mybatis.spring.SqlSessionFactoryBean;
 import org.mybatis.spring.SqlSessionTemplate;
 import org.mybatis.spring.annotation.MapperScan;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.*;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
 
+import javax.sql.DataSource;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -46,13 +55,19 @@ import java.util.ArrayList;
         "com.mycollab.module.project.dao", "com.mycollab.module.tracker.dao", "com.mycollab.pro.common.dao",
         "com.mycollab.pro.module.project.dao", "com.mycollab.ondemand.module.support.dao"})
 public class MyBatisConfiguration {
+    private static final Logger LOG = LoggerFactory.getLogger(MyBatisConfiguration.class);
+
     @Autowired
     private DataSourceConfiguration dbConfig;
 
+    @Autowired(required = false)
+    private L2CacheAspect l2CacheAspect;
+
     @Bean
     public SqlSessionFactory sqlSessionFactory() throws Exception {
         SqlSessionFactoryBean sqlSessionFactory = new SqlSessionFactoryBean();
         sqlSessionFactory.setDataSource(dbConfig.dataSource());
+        configureFullTextSearch(dbConfig.dataSource());
         sqlSessionFactory.setTypeAliasesPackage("com.mycollab.common.domain.criteria;" +
                 "com.mycollab.module.crm.domain.criteria;" +
                 "com.mycollab.module.ecm.domain.criteria;" +
@@ -65,6 +80,9 @@ public class MyBatisConfiguration {
         sqlSessionFactory.setTypeAliasesSuperType(SearchCriteria.class);
         sqlSessionFactory.setTypeAliases(new Class[]{VelocityDriverDeclare.class});
         sqlSessionFactory.setTypeHandlersPackage("com.mycollab.mybatis.plugin.ext");
+        if (l2CacheAspect != null) {
+            sqlSessionFactory.setPlugins(new Interceptor[]{new CacheEvictionInterceptor(l2CacheAspect)});
+        }
         sqlSessionFactory.setMapperLocations(buildBatchMapperResources(
                 "classpath:sqlMap/billing/*Mapper*.xml",
                 "classpath:sqlMap/common/*Mapper*.xml",
@@ -81,6 +99,23 @@ public class MyBatisConfiguration {
         return sqlSessionFactory.getObject();
     }
 
+    /**
+     * Enables the full text queries of the search fields when the migration could create the
+     * n-gram full text indexes.
+     */
+    private static void configureFullTextSearch(DataSource dataSource) {
+        try {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            Integer indexes = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.STATISTICS " +
+                    "WHERE TABLE_SCHEMA = DATABASE() AND INDEX_NAME = 'FT_m_tracker_bug_1'", Integer.class);
+            if (indexes > 0) {
+                StringSearchField.setFullTextTokenSize(jdbcTemplate.queryForObject("SELECT @@ngram_token_size", Integer.class));
+            }
+        } catch (DataAccessException e) {
+            LOG.warn("Can not check the full text indexes, the searches will use LIKE patterns", e);
+        }
+    }
+
     @Bean
     public SqlSessionTemplate sqlMapClient() throws Exception {
         return new SqlSessionTemplate(sqlSessionFactory());
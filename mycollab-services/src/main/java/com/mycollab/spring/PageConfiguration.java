@@ -16,6 +16,7 @@
  */
 package com.mycollab.spring;
 
+import com.mycollab.module.ecm.NodeListingCache;
 import com.mycollab.module.page.PageSessionFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -60,4 +61,9 @@ public class PageConfiguration {
         bean.setAllowCreate(true);
         return bean;
     }
+
+    @Bean
+    public NodeListingCache pageListingCache() throws Exception {
+        return new NodeListingCache(pageJcrSessionFactory());
+    }
 }
@@ -16,11 +16,13 @@
  */
 package com.mycollab.common.event
 
+import com.mycollab.module.esb.DurableEvent
+
 /**
   * @author MyCollab Ltd
   * @since 5.2.7
   */
 class TimelineTrackingAdjustIfEntityDeleteEvent(val typevar: String, val typeId: Integer, val groupVals: Array[String],
-                                                val extratypeid: Integer, val accountId: Integer) {
+                                                val extratypeid: Integer, val accountId: Integer) extends DurableEvent {
   
 }
@@ -16,11 +16,13 @@
  */
 package com.mycollab.common.event
 
+import com.mycollab.module.esb.DurableEvent
+
 /**
  * @author MyCollab Ltd
  * @since 5.2.2
  */
 class TimelineTrackingUpdateEvent(val typevar: String, val typeId: Integer, val fieldgroup: String, val fieldVal: String,
-                                  val extratypeid: Integer, val accountId: Integer) {
+                                  val extratypeid: Integer, val accountId: Integer) extends DurableEvent {
     
 }
@@ -16,8 +16,10 @@
  */
 package com.mycollab.module.billing.esb
 
+import com.mycollab.module.esb.DurableEvent
+
 /**
   * @author MyCollab Ltd
   * @since 5.1.1
   */
-class AccountCreatedEvent(val accountId: Integer, val initialUser: String, val createSampleData: Boolean) {}
+class AccountCreatedEvent(val accountId: Integer, val initialUser: String, val createSampleData: Boolean) extends DurableEvent {}
@@ -16,10 +16,12 @@
  */
 package com.mycollab.module.ecm.esb
 
+import com.mycollab.module.esb.DurableEvent
+
 /**
  * @author MyCollab Ltd
  * @since 5.1.0
  */
-class DeleteResourcesEvent(val paths: Array[String], val userDelete: String, val isUpdateDriveInfo: Boolean, val sAccountId: Integer) {
+class DeleteResourcesEvent(val paths: Array[String], val userDelete: String, val isUpdateDriveInfo: Boolean, val sAccountId: Integer) extends DurableEvent {
     
 }
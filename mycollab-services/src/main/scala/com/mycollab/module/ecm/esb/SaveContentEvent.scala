@@ -17,11 +17,12 @@
 package com.mycollab.module.ecm.esb
 
 import com.mycollab.module.ecm.domain.Content
+import com.mycollab.module.esb.DurableEvent
 
 /**
  * @author MyCollab Ltd
  * @since 5.1.0
  */
-class SaveContentEvent(val content: Content, val createdUser: String, val sAccountId: Integer) {
+class SaveContentEvent(val content: Content, val createdUser: String, val sAccountId: Integer) extends DurableEvent {
     
 }
@@ -18,12 +18,13 @@ package com.mycollab.module.mail.service.impl
 
 import java.io._
 import java.util.Locale
+import java.util.concurrent.ConcurrentHashMap
 
 import com.mycollab.configuration.{SiteConfiguration, StorageFactory}
 import com.mycollab.module.mail.service.IContentGenerator
 import com.mycollab.schedule.email.MailStyles
 import freemarker.ext.beans.BeansWrapperBuilder
-import freemarker.template.Configuration
+import freemarker.template.{Configuration, Template}
 import org.joda.time.LocalDate
 import org.springframework.beans.factory.InitializingBean
 import org.springframework.beans.factory.annotation.Autowired
@@ -72,10 +73,27 @@ class ContentGenerator extends IContentGenerator with InitializingBean {
   
   override def parseFile(templateFilePath: String): String = parseFile(templateFilePath, null)
   
-  override def parseFile(templateFilePath: String, locale: Locale): String = {
+  override def parseFile(templateFilePath: String, locale: Locale): String =
+    parseFile(templateFilePath, locale, templateContext)
+  
+  override def createModel(): java.util.Map[String, Any] =
+    java.util.Collections.unmodifiableMap(new java.util.HashMap[String, Any](templateContext))
+  
+  override def parseFile(templateFilePath: String, locale: Locale, model: java.util.Map[String, Any]): String = {
     val writer = new StringWriter
-    val template = templateEngine.getTemplate(templateFilePath, locale)
-    template.process(templateContext, writer)
+    val template = ContentGenerator.getTemplate(templateEngine, templateFilePath, locale)
+    template.process(model, writer)
     writer.toString
   }
+}
+
+object ContentGenerator {
+  /**
+    * Compiled templates per (template, locale). Templates are immutable after they are parsed,
+    * so they are shared by all generators and rendered without checking the template files again.
+    */
+  private val templates = new ConcurrentHashMap[(String, Locale), Template]()
+  
+  private def getTemplate(templateEngine: Configuration, templateFilePath: String, locale: Locale): Template =
+    templates.computeIfAbsent((templateFilePath, locale), _ => templateEngine.getTemplate(templateFilePath, locale))
 }
\ No newline at end of file
@@ -16,8 +16,10 @@
  */
 package com.mycollab.module.project.esb
 
+import com.mycollab.module.esb.DurableEvent
+
 /**
  * @author MyCollab Ltd
  * @since 5.1.1
  */
-class AddProjectEvent(val projectId: Integer, val accountId: Integer) {}
+class AddProjectEvent(val projectId: Integer, val accountId: Integer) extends DurableEvent {}
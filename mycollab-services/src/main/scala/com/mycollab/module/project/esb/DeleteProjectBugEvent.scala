@@ -16,10 +16,11 @@
  */
 package com.mycollab.module.project.esb
 
+import com.mycollab.module.esb.DurableEvent
 import com.mycollab.module.tracker.domain.BugWithBLOBs
 
 /**
  * @author MyCollab Ltd
  * @since 5.1.0
  */
-class DeleteProjectBugEvent(val bugs: Array[BugWithBLOBs], val username: String, val accountId: Integer) {}
+class DeleteProjectBugEvent(val bugs: Array[BugWithBLOBs], val username: String, val accountId: Integer) extends DurableEvent {}
@@ -16,10 +16,12 @@
  */
 package com.mycollab.module.project.esb
 
+import com.mycollab.module.esb.DurableEvent
+
 /**
  * @author MyCollab Ltd
  * @since 5.1.0
  */
-class DeleteProjectComponentEvent(val username: String, val accountId: Integer, val projectId: Integer, val componentId: Integer) {
+class DeleteProjectComponentEvent(val username: String, val accountId: Integer, val projectId: Integer, val componentId: Integer) extends DurableEvent {
     
 }
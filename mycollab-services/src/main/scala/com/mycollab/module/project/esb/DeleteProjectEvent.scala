@@ -16,10 +16,11 @@
  */
 package com.mycollab.module.project.esb
 
+import com.mycollab.module.esb.DurableEvent
 import com.mycollab.module.project.domain.Project
 
 /**
  * @author MyCollab Ltd
  * @since 5.1.0
  */
-class DeleteProjectEvent(val projects: Array[Project], val accountId: Integer) {}
+class DeleteProjectEvent(val projects: Array[Project], val accountId: Integer) extends DurableEvent {}
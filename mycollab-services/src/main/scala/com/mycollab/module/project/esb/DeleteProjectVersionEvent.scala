@@ -16,10 +16,12 @@
  */
 package com.mycollab.module.project.esb
 
+import com.mycollab.module.esb.DurableEvent
+
 /**
  * @author MyCollab Ltd
  * @since 5.1.0
  */
-class DeleteProjectVersionEvent(val username: String, val accountId: Integer, val projectId: Integer, val versionId: Integer) {
+class DeleteProjectVersionEvent(val username: String, val accountId: Integer, val projectId: Integer, val versionId: Integer) extends DurableEvent {
     
 }
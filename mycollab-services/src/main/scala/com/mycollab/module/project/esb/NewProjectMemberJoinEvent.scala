@@ -16,10 +16,12 @@
  */
 package com.mycollab.module.project.esb
 
+import com.mycollab.module.esb.DurableEvent
+
 /**
   * @author MyCollab Ltd
   * @since 5.2.6
   */
-class NewProjectMemberJoinEvent(val username: String, val projectId: Integer, val sAccountId: Integer) {
+class NewProjectMemberJoinEvent(val username: String, val projectId: Integer, val sAccountId: Integer) extends DurableEvent {
   
 }
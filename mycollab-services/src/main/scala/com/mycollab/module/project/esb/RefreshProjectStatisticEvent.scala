@@ -0,0 +1,28 @@
+/**
+ * This file is part of mycollab-services.
+ *
+ * mycollab-services is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-services is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-services.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.module.project.esb
+
+import com.mycollab.module.esb.DurableEvent
+
+/**
+  * Projects whose tickets, members, milestones or time logs were changed. An empty
+  * <code>projectIds</code> means every project of the account must be refreshed.
+  *
+  * @author MyCollab Ltd
+  * @since 5.4.7
+  */
+class RefreshProjectStatisticEvent(val projectIds: Array[Integer], val accountId: Integer) extends DurableEvent {}
@@ -16,10 +16,12 @@
  */
 package com.mycollab.module.user.esb
 
+import com.mycollab.module.esb.DurableEvent
+
 /**
  * @author MyCollab Ltd
  * @since 5.1.0
  */
-class DeleteUserEvent(val username: String, val accountid: Integer) {
+class DeleteUserEvent(val username: String, val accountid: Integer) extends DurableEvent {
     
 }
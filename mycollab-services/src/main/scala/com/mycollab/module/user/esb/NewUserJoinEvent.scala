@@ -16,10 +16,12 @@
  */
 package com.mycollab.module.user.esb
 
+import com.mycollab.module.esb.DurableEvent
+
 /**
   * @author MyCollab Ltd
   * @since 5.2.6
   */
-class NewUserJoinEvent(val username: String, val sAccountId: Integer) {
+class NewUserJoinEvent(val username: String, val sAccountId: Integer) extends DurableEvent {
   
 }
@@ -0,0 +1,118 @@
+/**
+ * This file is part of mycollab-services.
+ *
+ * mycollab-services is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-services is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-services.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.aspect;
+
+import com.mycollab.cache.service.impl.InfinispanCacheService;
+import com.mycollab.module.tracker.domain.BugWithBLOBs;
+import com.mycollab.module.tracker.domain.SimpleBug;
+import com.mycollab.module.tracker.service.BugService;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+public class L2CacheAspectTest {
+    private InfinispanCacheService cacheService;
+    private L2CacheAspect cacheAspect;
+    private BugService bugServiceTarget;
+    private BugService bugService;
+    private SimpleBug bug;
+
+    @Before
+    public void setUp() throws Exception {
+        cacheService = new InfinispanCacheService();
+        cacheService.afterPropertiesSet();
+        cacheAspect = new L2CacheAspect();
+        ReflectionTestUtils.setField(cacheAspect, "cacheService", cacheService);
+
+        bugServiceTarget = mock(BugService.class);
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(bugServiceTarget);
+        proxyFactory.addAspect(cacheAspect);
+        bugService = proxyFactory.getProxy();
+
+        bug = new SimpleBug();
+        bug.setId(1);
+        bug.setSaccountid(1);
+        bug.setName("Bug 1");
+        when(bugServiceTarget.findById(1, 1)).thenReturn(bug);
+    }
+
+    @Test
+    public void testHitReturnsCopyOfCachedValue() {
+        SimpleBug firstBug = bugService.findById(1, 1);
+        SimpleBug secondBug = bugService.findById(1, 1);
+
+        verify(bugServiceTarget, times(1)).findById(1, 1);
+        assertThat(secondBug).isNotSameAs(firstBug);
+        assertThat(secondBug.getName()).isEqualTo("Bug 1");
+        assertThat(cacheAspect.getHitCount()).isEqualTo(1);
+        assertThat(cacheAspect.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testEvictKeepsOtherPrefixesOfAccount() {
+        cacheService.putValue("1", "notification", "message");
+        bugService.findById(1, 1);
+
+        BugWithBLOBs record = new BugWithBLOBs();
+        record.setId(1);
+        record.setSaccountid(1);
+        bugService.updateWithSession(record, "admin");
+        bugService.findById(1, 1);
+
+        verify(bugServiceTarget, times(2)).findById(1, 1);
+        assertThat(cacheService.getValue("1", "notification")).isEqualTo("message");
+    }
+
+    @Test
+    public void testValueEvictedWhileLoadedIsNotCached() {
+        when(bugServiceTarget.findById(1, 1)).thenAnswer(invocation -> {
+            cacheService.removeCacheItems("1", BugService.class);
+            return bug;
+        });
+
+        bugService.findById(1, 1);
+        bugService.findById(1, 1);
+
+        verify(bugServiceTarget, times(2)).findById(1, 1);
+    }
+
+    @Test
+    public void testMapperWriteEvictsCachedServices() {
+        BugWithBLOBs record = new BugWithBLOBs();
+        record.setSaccountid(1);
+        bugService.findById(1, 1);
+
+        L2CacheAspect.withoutMapperEviction(() -> {
+            cacheAspect.evictAfterMapperWrite(record);
+            return null;
+        });
+        bugService.findById(1, 1);
+        verify(bugServiceTarget, times(1)).findById(1, 1);
+
+        cacheAspect.evictAfterMapperWrite(record);
+        bugService.findById(1, 1);
+        verify(bugServiceTarget, times(2)).findById(1, 1);
+    }
+}
@@ -0,0 +1,242 @@
+/**
+ * This file is part of mycollab-services.
+ *
+ * mycollab-services is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-services is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-services.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.common;
+
+import com.mycollab.common.domain.TimelineTracking;
+import com.mycollab.common.event.TimelineTrackingUpdateEvent;
+import org.joda.time.LocalDate;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+public class TimelineTrackingCoalescerTest {
+    private static final String[] STATUSES = {"Open", "InProgress", "Resolved", "Closed"};
+
+    private TimelineTrackingTable table;
+    private TimelineTrackingCoalescer coalescer;
+
+    @Before
+    public void setUp() {
+        table = new TimelineTrackingTable();
+        coalescer = new TimelineTrackingCoalescer(table, 3600000, Integer.MAX_VALUE);
+    }
+
+    @After
+    public void tearDown() {
+        coalescer.shutdown();
+    }
+
+    @Test
+    public void testSameRowsAsSequentialUpdates() throws Exception {
+        TimelineTrackingTable expectedTable = new TimelineTrackingTable();
+        Random random = new Random(17);
+        LocalDate day = new LocalDate(2017, 1, 16);
+        int eventCount = 0;
+        for (int dayIndex = 0; dayIndex < 5; dayIndex++) {
+            for (int i = 0; i < 2000; i++) {
+                int item = random.nextInt(50);
+                TimelineTrackingUpdateEvent event = new TimelineTrackingUpdateEvent("Project-Bug", item,
+                        "status", STATUSES[random.nextInt(STATUSES.length)], (item % 2 == 0) ? 7 : null, 1 + item % 3);
+                updateSequentially(expectedTable, event, day);
+                coalescer.submit(event, day);
+                eventCount++;
+                if (i % 700 == 0) {
+                    coalescer.flushAndWait();
+                }
+            }
+            coalescer.flushAndWait();
+            day = day.plusDays(1);
+        }
+
+        Assert.assertEquals(expectedTable.getRowValues(), table.getRowValues());
+        Assert.assertEquals(eventCount, coalescer.getReceivedCount());
+        Assert.assertEquals(0, coalescer.getPendingCount());
+        Assert.assertTrue(coalescer.getStatementCount() < eventCount / 20);
+    }
+
+    @Test
+    public void testSameValueStillInsertsRow() throws Exception {
+        LocalDate day = new LocalDate(2017, 1, 16);
+        coalescer.submit(new TimelineTrackingUpdateEvent("Project-Task", 1, "status", "Open", 7, 1), day);
+        coalescer.submit(new TimelineTrackingUpdateEvent("Project-Task", 1, "status", "Open", 7, 1), day);
+        coalescer.flushAndWait();
+        coalescer.submit(new TimelineTrackingUpdateEvent("Project-Task", 1, "status", "Open", 7, 1), day);
+        coalescer.submit(new TimelineTrackingUpdateEvent("Project-Task", 1, "status", "Closed", 7, 1), day);
+        coalescer.submit(new TimelineTrackingUpdateEvent("Project-Task", 1, "status", null, 7, 1), day);
+        coalescer.flushAndWait();
+
+        Assert.assertEquals(Arrays.asList(
+                "Project-Task|1|status|Closed|7|1|2017-01-16|1",
+                "Project-Task|1|status|Open|7|1|2017-01-16|1",
+                "Project-Task|1|status|Open|7|1|2017-01-16|1"), table.getRowValues());
+        Assert.assertEquals(4, coalescer.getReceivedCount());
+    }
+
+    @Test
+    public void testFailedWriteIsRetried() throws Exception {
+        LocalDate day = new LocalDate(2017, 1, 16);
+        coalescer.submit(new TimelineTrackingUpdateEvent("Project-Task", 1, "status", "Open", 7, 1), day);
+        table.failNextInserts(2);
+        coalescer.flushAndWait();
+        coalescer.submit(new TimelineTrackingUpdateEvent("Project-Task", 1, "status", "Closed", 7, 1), day.plusDays(1));
+        coalescer.flushAndWait();
+        Assert.assertEquals(2, coalescer.getPendingCount());
+        coalescer.flushAndWait();
+
+        Assert.assertEquals(Arrays.asList(
+                "Project-Task|1|status|Closed|7|1|2017-01-17|1",
+                "Project-Task|1|status|Open|7|1|2017-01-16|1",
+                "Project-Task|1|status|Open|7|1|2017-01-17|-1"), table.getRowValues());
+        Assert.assertEquals(0, coalescer.getPendingCount());
+        Assert.assertEquals(3, coalescer.getRetryCount());
+        Assert.assertEquals(0, coalescer.getDroppedCount());
+    }
+
+    @Test
+    public void testPendingUpdatesWrittenAtShutdown() {
+        LocalDate day = new LocalDate(2017, 1, 16);
+        coalescer.submit(new TimelineTrackingUpdateEvent("Project-Task", 1, "status", "Open", 7, 1), day);
+        coalescer.shutdown();
+
+        Assert.assertEquals(Collections.singletonList("Project-Task|1|status|Open|7|1|2017-01-16|1"), table.getRowValues());
+        try {
+            coalescer.submit(new TimelineTrackingUpdateEvent("Project-Task", 1, "status", "Closed", 7, 1), day);
+            Assert.fail("The updates submitted after the shutdown must be rejected");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals(1, coalescer.getReceivedCount());
+        }
+    }
+
+    /**
+     * Applies an update the way it was processed before the coalescer, one statement at a time.
+     */
+    private static void updateSequentially(TimelineTrackingTable table, TimelineTrackingUpdateEvent event, LocalDate day) {
+        TimelineTracking key = newTimeline(event, null, day, (byte) 1);
+        List<TimelineTracking> items = table.findLatestTimelines(event.accountId(), Collections.singletonList(key));
+        items.sort(Comparator.comparing(TimelineTracking::getForday).thenComparing(TimelineTracking::getId).reversed());
+        boolean isNew = true;
+        if (!items.isEmpty()) {
+            TimelineTracking timeline = items.get(0);
+            if (day.isEqual(new LocalDate(timeline.getForday()))) {
+                if (!event.fieldVal().equals(timeline.getFieldval())) {
+                    timeline.setFieldval(event.fieldVal());
+                    table.updateTimelines(Collections.singletonList(timeline));
+                    isNew = false;
+                }
+            } else {
+                table.insertTimelines(Collections.singletonList(newTimeline(event, timeline.getFieldval(), day, (byte) -1)));
+            }
+        }
+        if (isNew) {
+            table.insertTimelines(Collections.singletonList(newTimeline(event, event.fieldVal(), day, (byte) 1)));
+        }
+    }
+
+    private static TimelineTracking newTimeline(TimelineTrackingUpdateEvent event, String fieldVal, LocalDate day, byte flag) {
+        TimelineTracking timeline = new TimelineTracking();
+        timeline.setType(event.typevar());
+        timeline.setTypeid(event.typeId());
+        timeline.setFieldgroup(event.fieldgroup());
+        timeline.setExtratypeid(event.extratypeid());
+        timeline.setSaccountid(event.accountId());
+        timeline.setFieldval(fieldVal);
+        timeline.setForday(day.toDate());
+        timeline.setFlag(flag);
+        return timeline;
+    }
+
+    private static TimelineTracking copy(TimelineTracking source) {
+        TimelineTracking timeline = new TimelineTracking();
+        timeline.setId(source.getId());
+        timeline.setType(source.getType());
+        timeline.setTypeid(source.getTypeid());
+        timeline.setFieldgroup(source.getFieldgroup());
+        timeline.setExtratypeid(source.getExtratypeid());
+        timeline.setSaccountid(source.getSaccountid());
+        timeline.setFieldval(source.getFieldval());
+        timeline.setForday(source.getForday());
+        timeline.setFlag(source.getFlag());
+        return timeline;
+    }
+
+    /**
+     * In memory m_timeline_tracking table.
+     */
+    private static class TimelineTrackingTable implements TimelineTrackingCoalescer.Store {
+        private final Map<Integer, TimelineTracking> rows = new LinkedHashMap<>();
+        private int nextId = 1;
+        private int failingInserts;
+
+        synchronized void failNextInserts(int count) {
+            failingInserts = count;
+        }
+
+        @Override
+        public synchronized List<TimelineTracking> findLatestTimelines(Integer sAccountId, List<TimelineTracking> keys) {
+            Map<List<Object>, TimelineTracking> latestRows = new LinkedHashMap<>();
+            for (TimelineTracking row : rows.values()) {
+                if (row.getSaccountid().equals(sAccountId) && row.getFlag() == 1 && keys.stream().anyMatch(key ->
+                        key.getType().equals(row.getType()) && key.getTypeid().equals(row.getTypeid())
+                                && key.getFieldgroup().equals(row.getFieldgroup())
+                                && (key.getExtratypeid() == null || key.getExtratypeid().equals(row.getExtratypeid())))) {
+                    latestRows.put(Arrays.asList(row.getType(), row.getTypeid(), row.getFieldgroup(), row.getExtratypeid()),
+                            copy(row));
+                }
+            }
+            return new ArrayList<>(latestRows.values());
+        }
+
+        @Override
+        public synchronized void insertTimelines(List<TimelineTracking> timelines) {
+            if (failingInserts > 0) {
+                failingInserts--;
+                throw new IllegalStateException("Insert failure");
+            }
+            for (TimelineTracking timeline : timelines) {
+                TimelineTracking row = copy(timeline);
+                row.setId(nextId++);
+                rows.put(row.getId(), row);
+            }
+        }
+
+        @Override
+        public synchronized void updateTimelines(List<TimelineTracking> timelines) {
+            for (TimelineTracking timeline : timelines) {
+                Assert.assertTrue(rows.containsKey(timeline.getId()));
+                rows.put(timeline.getId(), copy(timeline));
+            }
+        }
+
+        synchronized List<String> getRowValues() {
+            List<String> values = new ArrayList<>();
+            for (TimelineTracking row : rows.values()) {
+                values.add(String.join("|", row.getType(), String.valueOf(row.getTypeid()), row.getFieldgroup(),
+                        row.getFieldval(), String.valueOf(row.getExtratypeid()), String.valueOf(row.getSaccountid()),
+                        new LocalDate(row.getForday()).toString(), String.valueOf(row.getFlag())));
+            }
+            Collections.sort(values);
+            return values;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * This file is part of mycollab-services.
+ *
+ * mycollab-services is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-services is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-services.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.module.mail;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.mycollab.common.domain.MailRecipientField;
+import com.mycollab.configuration.EmailConfiguration;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.mail.MessagingException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+public class SmtpTransportPoolTest {
+    private GreenMail greenMail;
+    private SmtpTransportPool pool;
+
+    @Before
+    public void setUp() {
+        greenMail = new GreenMail(ServerSetupTest.SMTP);
+        greenMail.start();
+        greenMail.setUser("mycollab@localhost", "mycollab", "secret");
+        pool = new SmtpTransportPool(newEmailConfiguration(ServerSetupTest.SMTP.getPort()), 2);
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+        greenMail.stop();
+    }
+
+    @Test
+    public void testSendBatchThroughOneConnection() {
+        Map<MailMessage, Exception> failures = pool.send(new DefaultMailer(pool.getEmailConfiguration()), newMessages(25));
+        Assert.assertTrue(failures.isEmpty());
+        Assert.assertTrue(greenMail.waitForIncomingEmail(5000, 25));
+        Assert.assertEquals(1, pool.getConnectCount());
+    }
+
+    @Test
+    public void testReuseConnectionBetweenBatches() {
+        DefaultMailer mailer = new DefaultMailer(pool.getEmailConfiguration());
+        pool.send(mailer, newMessages(3));
+        pool.send(mailer, newMessages(3));
+        Assert.assertTrue(greenMail.waitForIncomingEmail(5000, 6));
+        Assert.assertEquals(1, pool.getConnectCount());
+    }
+
+    @Test
+    public void testReportFailuresOfUnavailableServer() {
+        SmtpTransportPool unavailablePool = new SmtpTransportPool(newEmailConfiguration(ServerSetupTest.SMTP.getPort() + 1), 1);
+        List<MailMessage> messages = newMessages(2);
+        Map<MailMessage, Exception> failures = unavailablePool.send(new DefaultMailer(unavailablePool.getEmailConfiguration()),
+                messages);
+        Assert.assertEquals(2, failures.size());
+        Assert.assertTrue(failures.get(messages.get(0)) instanceof MessagingException);
+        Assert.assertEquals(0, unavailablePool.getConnectCount());
+    }
+
+    private static EmailConfiguration newEmailConfiguration(int port) {
+        EmailConfiguration emailConf = new EmailConfiguration();
+        emailConf.setHost("localhost");
+        emailConf.setPort(port);
+        emailConf.setUser("mycollab");
+        emailConf.setPassword("secret");
+        return emailConf;
+    }
+
+    private static List<MailMessage> newMessages(int count) {
+        List<MailMessage> messages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            messages.add(new MailMessage("mycollab@localhost", "MyCollab",
+                    Collections.singletonList(new MailRecipientField("user" + i + "@localhost", "User " + i)),
+                    null, null, "Subject " + i, "<p>Content " + i + "</p>"));
+        }
+        return messages;
+    }
+}
@@ -16,9 +16,12 @@
  */
 package com.mycollab.module.file.servlet;
 
+import com.mycollab.core.ResourceNotFoundException;
 import com.mycollab.core.utils.MimeTypesUtil;
 import com.mycollab.module.ecm.service.ResourceService;
+import com.mycollab.servlet.ContentSender;
 import com.mycollab.servlet.GenericHttpServlet;
+import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,8 +30,7 @@ import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -46,19 +48,20 @@ public class ResourceGetHandler extends GenericHttpServlet {
     @Override
     protected void onHandleRequest(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
         String path = request.getPathInfo();
-        InputStream inputStream = resourceService.getContentStream(path);
+        File file = resourceService.getContentFile(path);
+        if (file != null) {
+            if (!file.isFile()) {
+                throw new ResourceNotFoundException("Can not find resource has path " + path);
+            }
+            ContentSender.sendFile(request, response, file, MimeTypesUtil.detectMimeType(path), ContentSender.REVALIDATE);
+            return;
+        }
 
+        InputStream inputStream = resourceService.getContentStream(path);
         if (inputStream != null) {
             response.setHeader("Content-Type", MimeTypesUtil.detectMimeType(path));
-            response.setHeader("Content-Length", String.valueOf(inputStream.available()));
-
-            try (BufferedInputStream input = new BufferedInputStream(inputStream);
-                 BufferedOutputStream output = new BufferedOutputStream(response.getOutputStream())) {
-                byte[] buffer = new byte[8192];
-                int length;
-                while ((length = input.read(buffer)) > 0) {
-                    output.write(buffer, 0, length);
-                }
+            try (InputStream input = inputStream) {
+                IOUtils.copyLarge(input, response.getOutputStream());
             }
         } else {
             LOG.error("Can not find resource has path {}", path);
@@ -21,6 +21,7 @@ import com.mycollab.configuration.SiteConfiguration;
 import com.mycollab.configuration.StorageFactory;
 import com.mycollab.core.MyCollabException;
 import com.mycollab.core.ResourceNotFoundException;
+import com.mycollab.servlet.ContentSender;
 import com.mycollab.servlet.GenericHttpServlet;
 import org.apache.commons.io.FilenameUtils;
 import org.slf4j.Logger;
@@ -30,7 +31,8 @@ import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.*;
+import java.io.File;
+import java.io.IOException;
 
 /**
  * @author MyCollab Ltd.
@@ -56,29 +58,15 @@ public class UserAvatarHttpServletRequestHandler extends GenericHttpServlet {
                 int size = Integer.valueOf(path.substring(lastIndex + 1, path.length()));
                 FileStorage fileStorage = (FileStorage) StorageFactory.getInstance();
                 File avatarFile = fileStorage.getAvatarFile(username, size);
-                InputStream avatarInputStream;
                 if (avatarFile != null) {
-                    avatarInputStream = new FileInputStream(avatarFile);
+                    ContentSender.sendFile(request, response, avatarFile, "image/png", ContentSender.REVALIDATE);
                 } else {
                     String userAvatarPath = String.format("assets/icons/default_user_avatar_%d.png", size);
-                    avatarInputStream = UserAvatarHttpServletRequestHandler.class.getClassLoader().getResourceAsStream(userAvatarPath);
-                    if (avatarInputStream == null) {
+                    if (!ContentSender.sendClasspathResource(request, response, userAvatarPath, "image/png", ContentSender.REVALIDATE)) {
                         LOG.error("Error to get avatar", new MyCollabException("Invalid request for avatar " + path));
                         throw new ResourceNotFoundException("Invalid path " + path);
                     }
                 }
-
-                response.setHeader("Content-Type", "image/png");
-                response.setHeader("Content-Length", String.valueOf(avatarInputStream.available()));
-
-                try (BufferedInputStream input = new BufferedInputStream(avatarInputStream);
-                     BufferedOutputStream output = new BufferedOutputStream(response.getOutputStream())) {
-                    byte[] buffer = new byte[8192];
-                    int length;
-                    while ((length = input.read(buffer)) > 0) {
-                        output.write(buffer, 0, length);
-                    }
-                }
             } else {
                 throw new ResourceNotFoundException("Invalid path " + path);
             }
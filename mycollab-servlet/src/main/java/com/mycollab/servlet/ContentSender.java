@@ -0,0 +1,376 @@
+/**
+ * This file is part of mycollab-servlet.
+ *
+ * mycollab-servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.servlet;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.commons.io.IOUtils;
+import org.eclipse.jetty.server.HttpOutput;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Sends the files and the class path resources as HTTP responses. The responses carry the
+ * validators <code>ETag</code> and <code>Last-Modified</code> so the clients revalidate their
+ * copies by conditional requests answered with 304, and they accept a single byte range so the
+ * downloads can be resumed. Files are written from the page cache, without copying them through
+ * a heap buffer. Small class path resources are kept in memory with their gzip variant.
+ *
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+public final class ContentSender {
+    /**
+     * The client keeps the content but checks it is not changed before each use.
+     */
+    public static final String REVALIDATE = "private, no-cache";
+
+    /**
+     * The content does not change during the life of the deployment.
+     */
+    public static final String PUBLIC_CACHE = "public, max-age=86400";
+
+    private static final int MAX_CACHED_ASSET_SIZE = 256 * 1024;
+    private static final long MAX_CACHED_ASSETS_WEIGHT = 32 * 1024 * 1024;
+    private static final int MIN_COMPRESSED_ASSET_SIZE = 1024;
+    private static final long MAPPED_CHUNK_SIZE = 8 * 1024 * 1024;
+    private static final long START_TIME = System.currentTimeMillis() / 1000 * 1000;
+
+    private static final Cache<String, Asset> assets = CacheBuilder.newBuilder()
+            .maximumWeight(MAX_CACHED_ASSETS_WEIGHT)
+            .weigher((String path, Asset asset) -> asset.content.length + ((asset.gzipContent != null) ? asset.gzipContent.length : 0))
+            .build();
+
+    private ContentSender() {
+    }
+
+    /**
+     * Sends <code>file</code> or the byte range of it requested by the client.
+     *
+     * @param request
+     * @param response
+     * @param file         an existing file
+     * @param contentType
+     * @param cacheControl value of header <code>Cache-Control</code>
+     * @throws IOException
+     */
+    public static void sendFile(HttpServletRequest request, HttpServletResponse response, File file, String contentType,
+                                String cacheControl) throws IOException {
+        long length = file.length();
+        long lastModified = file.lastModified() / 1000 * 1000;
+        String eTag = String.format("\"%x-%x\"", length, lastModified);
+        ByteRange range = prepareResponse(request, response, contentType, cacheControl, eTag, lastModified, length);
+        if (range == null || isHeadRequest(request) || range.length() == 0) {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            OutputStream output = response.getOutputStream();
+            long position = range.start;
+            long remaining = range.length();
+            if (output instanceof HttpOutput) {
+                // Jetty writes a mapped buffer from the page cache to the socket without copying it
+                while (remaining > 0) {
+                    long chunkSize = Math.min(remaining, MAPPED_CHUNK_SIZE);
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, chunkSize);
+                    ((HttpOutput) output).write(buffer);
+                    position += chunkSize;
+                    remaining -= chunkSize;
+                }
+            } else {
+                WritableByteChannel target = Channels.newChannel(output);
+                while (remaining > 0) {
+                    long written = channel.transferTo(position, remaining, target);
+                    if (written <= 0) {
+                        break;
+                    }
+                    position += written;
+                    remaining -= written;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends the class path resource <code>resourcePath</code>. The resources smaller than
+     * {@link #MAX_CACHED_ASSET_SIZE} are read once and served from memory, compressed if the
+     * client accepts it.
+     *
+     * @param request
+     * @param response
+     * @param resourcePath
+     * @param contentType
+     * @param cacheControl value of header <code>Cache-Control</code>
+     * @return false if there is no resource <code>resourcePath</code>
+     * @throws IOException
+     */
+    public static boolean sendClasspathResource(HttpServletRequest request, HttpServletResponse response, String resourcePath,
+                                                String contentType, String cacheControl) throws IOException {
+        Asset asset = assets.getIfPresent(resourcePath);
+        if (asset == null) {
+            URL url = ContentSender.class.getClassLoader().getResource(resourcePath);
+            if (url == null) {
+                return false;
+            }
+
+            URLConnection connection = url.openConnection();
+            long length = connection.getContentLengthLong();
+            long lastModified = (connection.getLastModified() > 0) ? connection.getLastModified() / 1000 * 1000 : START_TIME;
+            if (length < 0 || length > MAX_CACHED_ASSET_SIZE) {
+                sendStream(request, response, connection, length, lastModified, contentType, cacheControl);
+                return true;
+            }
+
+            try (InputStream input = connection.getInputStream()) {
+                asset = new Asset(IOUtils.toByteArray(input), lastModified, isCompressible(contentType));
+            }
+            assets.put(resourcePath, asset);
+        }
+
+        boolean isGzip = asset.gzipContent != null && request.getHeader("Range") == null && acceptsGzip(request);
+        if (asset.gzipContent != null) {
+            response.setHeader("Vary", "Accept-Encoding");
+        }
+        byte[] content = isGzip ? asset.gzipContent : asset.content;
+        String eTag = isGzip ? asset.gzipETag : asset.eTag;
+        ByteRange range = prepareResponse(request, response, contentType, cacheControl, eTag, asset.lastModified, content.length);
+        if (range == null || isHeadRequest(request)) {
+            return true;
+        }
+        if (isGzip) {
+            response.setHeader("Content-Encoding", "gzip");
+        }
+        response.getOutputStream().write(content, (int) range.start, (int) range.length());
+        return true;
+    }
+
+    private static void sendStream(HttpServletRequest request, HttpServletResponse response, URLConnection connection,
+                                   long length, long lastModified, String contentType, String cacheControl) throws IOException {
+        try (InputStream input = connection.getInputStream()) {
+            if (length < 0) {
+                response.setHeader("Content-Type", contentType);
+                response.setHeader("Cache-Control", cacheControl);
+                if (!isHeadRequest(request)) {
+                    IOUtils.copyLarge(input, response.getOutputStream());
+                }
+                return;
+            }
+
+            String eTag = String.format("\"%x-%x\"", length, lastModified);
+            ByteRange range = prepareResponse(request, response, contentType, cacheControl, eTag, lastModified, length);
+            if (range != null && !isHeadRequest(request)) {
+                IOUtils.copyLarge(input, response.getOutputStream(), range.start, range.length());
+            }
+        }
+    }
+
+    /**
+     * Sets the headers of the response to a request of a content.
+     *
+     * @return the range of the content to send, or null if the response is complete (not
+     * modified content or unsatisfiable range)
+     */
+    private static ByteRange prepareResponse(HttpServletRequest request, HttpServletResponse response, String contentType,
+                                             String cacheControl, String eTag, long lastModified, long length) {
+        response.setHeader("ETag", eTag);
+        response.setDateHeader("Last-Modified", lastModified);
+        response.setHeader("Cache-Control", cacheControl);
+        response.setHeader("Accept-Ranges", "bytes");
+
+        if (isNotModified(request, eTag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return null;
+        }
+
+        ByteRange range = null;
+        if (isRangeApplicable(request, eTag, lastModified)) {
+            range = parseRange(request.getHeader("Range"), length);
+            if (range == ByteRange.UNSATISFIABLE) {
+                response.setHeader("Content-Range", "bytes */" + length);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return null;
+            }
+        }
+
+        response.setHeader("Content-Type", contentType);
+        if (range == null) {
+            range = new ByteRange(0, length - 1);
+        } else {
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader("Content-Range", String.format("bytes %d-%d/%d", range.start, range.end, length));
+        }
+        response.setContentLengthLong(range.length());
+        return range;
+    }
+
+    private static boolean isNotModified(HttpServletRequest request, String eTag, long lastModified) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            return matchesETag(ifNoneMatch, eTag);
+        }
+        long ifModifiedSince = getDateHeader(request, "If-Modified-Since");
+        return ifModifiedSince != -1 && lastModified <= ifModifiedSince;
+    }
+
+    /**
+     * A range of a changed content is not valid for the copy of the client, it must get the
+     * whole content.
+     */
+    private static boolean isRangeApplicable(HttpServletRequest request, String eTag, long lastModified) {
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.trim().equals(eTag);
+        }
+        return getDateHeader(request, "If-Range") == lastModified;
+    }
+
+    private static boolean matchesETag(String header, String eTag) {
+        for (String value : header.split(",")) {
+            String tag = value.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param rangeHeader value of header <code>Range</code>
+     * @param length      length of content
+     * @return the single byte range requested, {@link ByteRange#UNSATISFIABLE} if it is out of
+     * the content, or null if the whole content must be sent (no range, several ranges or
+     * invalid syntax)
+     */
+    static ByteRange parseRange(String rangeHeader, long length) {
+        if (rangeHeader == null || !rangeHeader.startsWith("bytes=")) {
+            return null;
+        }
+        String spec = rangeHeader.substring("bytes=".length()).trim();
+        int dashIndex = spec.indexOf('-');
+        if (dashIndex == -1 || spec.indexOf(',') != -1) {
+            return null;
+        }
+
+        try {
+            String startValue = spec.substring(0, dashIndex).trim();
+            String endValue = spec.substring(dashIndex + 1).trim();
+            if (startValue.isEmpty()) {
+                long suffixLength = Long.parseLong(endValue);
+                if (suffixLength <= 0 || length == 0) {
+                    return ByteRange.UNSATISFIABLE;
+                }
+                return new ByteRange(Math.max(0, length - suffixLength), length - 1);
+            }
+
+            long start = Long.parseLong(startValue);
+            long end = endValue.isEmpty() ? length - 1 : Math.min(Long.parseLong(endValue), length - 1);
+            if (start >= length) {
+                return ByteRange.UNSATISFIABLE;
+            }
+            return (end < start) ? null : new ByteRange(start, end);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static long getDateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    private static boolean isHeadRequest(HttpServletRequest request) {
+        return "HEAD".equals(request.getMethod());
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        return acceptEncoding != null && acceptEncoding.contains("gzip");
+    }
+
+    private static boolean isCompressible(String contentType) {
+        return contentType != null && (contentType.startsWith("text/") || contentType.contains("javascript")
+                || contentType.contains("json") || contentType.contains("xml"));
+    }
+
+    static class ByteRange {
+        static final ByteRange UNSATISFIABLE = new ByteRange(0, -1);
+
+        final long start;
+        final long end;
+
+        ByteRange(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        long length() {
+            return end - start + 1;
+        }
+    }
+
+    private static class Asset {
+        private final byte[] content;
+        private final byte[] gzipContent;
+        private final String eTag;
+        private final String gzipETag;
+        private final long lastModified;
+
+        private Asset(byte[] content, long lastModified, boolean isCompressible) throws IOException {
+            this.content = content;
+            this.lastModified = lastModified;
+            CRC32 checksum = new CRC32();
+            checksum.update(content);
+            String tag = String.format("%x-%x", content.length, checksum.getValue());
+            this.eTag = "\"" + tag + "\"";
+            this.gzipETag = "\"" + tag + "-gzip\"";
+            this.gzipContent = (isCompressible && content.length >= MIN_COMPRESSED_ASSET_SIZE) ? compress(content) : null;
+        }
+
+        private static byte[] compress(byte[] content) throws IOException {
+            ByteArrayOutputStream output = new ByteArrayOutputStream(content.length / 2);
+            try (GZIPOutputStream gzipOutput = new GZIPOutputStream(output)) {
+                gzipOutput.write(content);
+            }
+            byte[] compressed = output.toByteArray();
+            return (compressed.length < content.length) ? compressed : null;
+        }
+    }
+}
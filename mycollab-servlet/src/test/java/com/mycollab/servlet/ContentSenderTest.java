@@ -0,0 +1,206 @@
+/**
+ * This file is part of mycollab-servlet.
+ *
+ * mycollab-servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.servlet;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+public class ContentSenderTest {
+    private Server server;
+    private File file;
+    private byte[] fileContent;
+    private String baseUrl;
+
+    @Before
+    public void setUp() throws Exception {
+        fileContent = new byte[100000];
+        for (int i = 0; i < fileContent.length; i++) {
+            fileContent[i] = (byte) (i % 251);
+        }
+        file = File.createTempFile("content-sender", ".bin");
+        FileUtils.writeByteArrayToFile(file, fileContent);
+
+        server = new Server(0);
+        ServletContextHandler context = new ServletContextHandler();
+        context.setContextPath("/");
+        context.addServlet(new ServletHolder(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                ContentSender.sendFile(request, response, file, "application/octet-stream", ContentSender.REVALIDATE);
+            }
+        }), "/file");
+        context.addServlet(new ServletHolder(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                if (!ContentSender.sendClasspathResource(request, response, "assets" + request.getPathInfo(),
+                        "text/css", ContentSender.PUBLIC_CACHE)) {
+                    response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                }
+            }
+        }), "/assets/*");
+        server.setHandler(context);
+        server.start();
+        baseUrl = "http://localhost:" + ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.stop();
+        FileUtils.deleteQuietly(file);
+    }
+
+    @Test
+    public void testSendWholeFile() throws Exception {
+        HttpURLConnection connection = open("/file");
+        assertThat(connection.getResponseCode()).isEqualTo(200);
+        assertThat(connection.getHeaderField("Content-Length")).isEqualTo(String.valueOf(fileContent.length));
+        assertThat(connection.getHeaderField("Accept-Ranges")).isEqualTo("bytes");
+        assertThat(connection.getHeaderField("ETag")).isNotEmpty();
+        assertThat(connection.getHeaderField("Last-Modified")).isNotEmpty();
+        assertThat(read(connection)).isEqualTo(fileContent);
+    }
+
+    @Test
+    public void testSendByteRange() throws Exception {
+        HttpURLConnection connection = open("/file");
+        connection.setRequestProperty("Range", "bytes=1000-1999");
+        assertThat(connection.getResponseCode()).isEqualTo(206);
+        assertThat(connection.getHeaderField("Content-Range")).isEqualTo("bytes 1000-1999/" + fileContent.length);
+        assertThat(read(connection)).isEqualTo(Arrays.copyOfRange(fileContent, 1000, 2000));
+
+        connection = open("/file");
+        connection.setRequestProperty("Range", "bytes=-10");
+        assertThat(connection.getResponseCode()).isEqualTo(206);
+        assertThat(read(connection)).isEqualTo(Arrays.copyOfRange(fileContent, fileContent.length - 10, fileContent.length));
+    }
+
+    @Test
+    public void testUnsatisfiableRange() throws Exception {
+        HttpURLConnection connection = open("/file");
+        connection.setRequestProperty("Range", "bytes=200000-");
+        assertThat(connection.getResponseCode()).isEqualTo(416);
+        assertThat(connection.getHeaderField("Content-Range")).isEqualTo("bytes */" + fileContent.length);
+    }
+
+    @Test
+    public void testRangeOfChangedFileSendsWholeFile() throws Exception {
+        HttpURLConnection connection = open("/file");
+        connection.setRequestProperty("Range", "bytes=0-9");
+        connection.setRequestProperty("If-Range", "\"outdated\"");
+        assertThat(connection.getResponseCode()).isEqualTo(200);
+        assertThat(read(connection)).isEqualTo(fileContent);
+    }
+
+    @Test
+    public void testConditionalRequests() throws Exception {
+        HttpURLConnection connection = open("/file");
+        String eTag = connection.getHeaderField("ETag");
+        String lastModified = connection.getHeaderField("Last-Modified");
+        read(connection);
+
+        connection = open("/file");
+        connection.setRequestProperty("If-None-Match", eTag);
+        assertThat(connection.getResponseCode()).isEqualTo(304);
+
+        connection = open("/file");
+        connection.setRequestProperty("If-Modified-Since", lastModified);
+        assertThat(connection.getResponseCode()).isEqualTo(304);
+
+        connection = open("/file");
+        connection.setRequestProperty("If-None-Match", "\"other\"");
+        assertThat(connection.getResponseCode()).isEqualTo(200);
+        read(connection);
+    }
+
+    @Test
+    public void testSendCachedAsset() throws Exception {
+        byte[] asset;
+        try (InputStream input = ContentSenderTest.class.getClassLoader().getResourceAsStream("assets/content-sender.css")) {
+            asset = IOUtils.toByteArray(input);
+        }
+
+        HttpURLConnection connection = open("/assets/content-sender.css");
+        assertThat(connection.getResponseCode()).isEqualTo(200);
+        assertThat(connection.getHeaderField("Content-Encoding")).isNull();
+        assertThat(read(connection)).isEqualTo(asset);
+
+        connection = open("/assets/content-sender.css");
+        connection.setRequestProperty("Accept-Encoding", "gzip, deflate");
+        assertThat(connection.getResponseCode()).isEqualTo(200);
+        assertThat(connection.getHeaderField("Content-Encoding")).isEqualTo("gzip");
+        assertThat(connection.getHeaderField("Vary")).isEqualTo("Accept-Encoding");
+        try (InputStream input = new GZIPInputStream(connection.getInputStream())) {
+            assertThat(new String(IOUtils.toByteArray(input), StandardCharsets.UTF_8))
+                    .isEqualTo(new String(asset, StandardCharsets.UTF_8));
+        }
+
+        connection = open("/assets/not-existed.css");
+        assertThat(connection.getResponseCode()).isEqualTo(404);
+    }
+
+    @Test
+    public void testParseRange() {
+        assertThat(ContentSender.parseRange(null, 100)).isNull();
+        assertThat(ContentSender.parseRange("bytes=0-9,20-29", 100)).isNull();
+        assertThat(ContentSender.parseRange("bytes=abc-", 100)).isNull();
+        assertThat(ContentSender.parseRange("bytes=100-", 100)).isSameAs(ContentSender.ByteRange.UNSATISFIABLE);
+        assertThat(ContentSender.parseRange("bytes=-0", 100)).isSameAs(ContentSender.ByteRange.UNSATISFIABLE);
+
+        ContentSender.ByteRange range = ContentSender.parseRange("bytes=90-200", 100);
+        assertThat(range.start).isEqualTo(90);
+        assertThat(range.end).isEqualTo(99);
+
+        range = ContentSender.parseRange("bytes=-500", 100);
+        assertThat(range.start).isEqualTo(0);
+        assertThat(range.length()).isEqualTo(100);
+    }
+
+    private HttpURLConnection open(String path) throws IOException {
+        return (HttpURLConnection) new URL(baseUrl + path).openConnection();
+    }
+
+    private static byte[] read(HttpURLConnection connection) throws IOException {
+        try (InputStream input = connection.getInputStream()) {
+            return IOUtils.toByteArray(input);
+        }
+    }
+}
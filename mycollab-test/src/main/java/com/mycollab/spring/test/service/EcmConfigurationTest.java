@@ -17,6 +17,7 @@
 package com.mycollab.spring.test.service;
 
 import com.mycollab.module.ecm.MyCollabContentSessionFactory;
+import com.mycollab.module.ecm.NodeListingCache;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
@@ -58,4 +59,9 @@ public class EcmConfigurationTest {
         bean.setAllowCreate(true);
         return bean;
     }
+
+    @Bean
+    public NodeListingCache contentListingCache() throws Exception {
+        return new NodeListingCache(jcrSessionFactory());
+    }
 }
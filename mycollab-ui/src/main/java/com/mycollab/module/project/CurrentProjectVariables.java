@@ -21,10 +21,10 @@ import com.google.common.eventbus.AsyncEventBus;
 import com.mycollab.core.SecureAccessException;
 import com.mycollab.db.arguments.SetSearchField;
 import com.mycollab.module.file.PathUtils;
-import com.mycollab.module.project.dao.ProjectRolePermissionMapper;
 import com.mycollab.module.project.domain.*;
 import com.mycollab.module.project.esb.NewProjectMemberJoinEvent;
 import com.mycollab.module.project.service.ProjectMemberService;
+import com.mycollab.module.project.service.ProjectRoleService;
 import com.mycollab.security.PermissionMap;
 import com.mycollab.spring.AppContextUtil;
 import com.mycollab.vaadin.MyCollabUI;
@@ -33,8 +33,6 @@ import com.mycollab.vaadin.ui.MyCollabSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.List;
-
 import static com.mycollab.vaadin.ui.MyCollabSession.CURRENT_PROJECT;
 import static com.mycollab.vaadin.ui.MyCollabSession.PROJECT_MEMBER;
 
@@ -66,15 +64,9 @@ public class CurrentProjectVariables {
                 if (prjMember.getProjectroleid() == null) {
                     throw new UserNotBelongProjectException("You are not belong to this project");
                 }
-                ProjectRolePermissionExample ex = new ProjectRolePermissionExample();
-                ex.createCriteria().andRoleidEqualTo(prjMember.getProjectroleid()).andProjectidEqualTo(CurrentProjectVariables.getProjectId());
-                ProjectRolePermissionMapper rolePermissionMapper = AppContextUtil.getSpringBean(ProjectRolePermissionMapper.class);
-                List<ProjectRolePermission> rolePermissions = rolePermissionMapper.selectByExampleWithBLOBs(ex);
-                if (!rolePermissions.isEmpty()) {
-                    ProjectRolePermission rolePer = rolePermissions.get(0);
-                    PermissionMap permissionMap = PermissionMap.fromJsonString(rolePer.getRoleval());
-                    prjMember.setPermissionMaps(permissionMap);
-                }
+                ProjectRoleService projectRoleService = AppContextUtil.getSpringBean(ProjectRoleService.class);
+                prjMember.setPermissionMaps(projectRoleService.findProjectRolePermission(project.getId(),
+                        prjMember.getProjectroleid(), MyCollabUI.getAccountId()));
             }
 
             if (ProjectMemberStatusConstants.NOT_ACCESS_YET.equals(prjMember.getStatus())) {
@@ -18,6 +18,7 @@ package com.mycollab.module.project;
 
 import com.mycollab.module.project.domain.SimpleProjectMember;
 import com.mycollab.module.project.service.ProjectMemberService;
+import com.mycollab.module.project.service.ProjectRoleService;
 import com.mycollab.security.PermissionMap;
 import com.mycollab.spring.AppContextUtil;
 import com.mycollab.vaadin.MyCollabUI;
@@ -39,6 +40,10 @@ public class ProjectPermissionChecker {
                 return true;
             } else {
                 PermissionMap permissionMap = member.getPermissionMaps();
+                if (permissionMap == null && member.getProjectroleid() != null) {
+                    permissionMap = AppContextUtil.getSpringBean(ProjectRoleService.class).findProjectRolePermission(prjId,
+                            member.getProjectroleid(), MyCollabUI.getAccountId());
+                }
                 return (permissionMap != null) && permissionMap.canWrite(permissionItem);
             }
         } else {
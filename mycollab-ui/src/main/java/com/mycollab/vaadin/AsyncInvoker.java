@@ -16,68 +16,264 @@
  */
 package com.mycollab.vaadin;
 
+import com.google.common.collect.MapMaker;
 import com.mycollab.configuration.SiteConfiguration;
+import com.vaadin.event.UIEvents;
 import com.vaadin.ui.UI;
+import com.vaadin.ui.UIDetachedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
+ * Runs the page commands in background. A command is executed by a shared bounded pool: its
+ * {@link PageCommand#load()} phase runs without the Vaadin session lock, then its
+ * {@link PageCommand#run()} phase applies the result to the UI components under the session
+ * lock. If the pool is saturated, the command is run synchronously by the caller. The UI
+ * being polled are weakly referenced, so a detached UI is not kept by a pending command.
+ *
  * @author MyCollab Ltd
  * @since 5.2.1
  */
 public class AsyncInvoker {
     private static Logger LOG = LoggerFactory.getLogger(AsyncInvoker.class);
 
+    private static final int POOL_SIZE = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    private static final int QUEUE_CAPACITY = 500;
+    private static final long SLOW_LOCK_HOLD_MILLIS = 500;
+
+    private static final ThreadPoolExecutor executor;
+
+    private static final Map<UI, AtomicInteger> pollingCommands = new MapMaker().weakKeys().makeMap();
+
+    private static final Timing queueWait = new Timing();
+    private static final Timing lockHold = new Timing();
+    private static final AtomicLong rejectedCount = new AtomicLong();
+
+    static {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+            Thread thread = new Thread(runnable, "ui-async-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
     public static void access(final UI ui, final PageCommand pageCommand) {
+        access(ui, pageCommand, SiteConfiguration.getPullMethod() == SiteConfiguration.PullMethod.push);
+    }
+
+    static void access(final UI ui, final PageCommand pageCommand, final boolean isPush) {
         if (ui == null) {
             return;
         }
-        pageCommand.setUI(ui);
-        if (SiteConfiguration.getPullMethod() == SiteConfiguration.PullMethod.push) {
-            new Thread() {
-                @Override
-                public void run() {
-                    ui.access(() -> {
+        pageCommand.setUI(ui, isPush);
+        if (!isPush) {
+            try {
+                startPolling(ui);
+            } catch (UIDetachedException e) {
+                pollingCommands.remove(ui);
+                return;
+            }
+        }
+
+        long submitTime = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                queueWait.record(System.nanoTime() - submitTime);
+                execute(ui, pageCommand, isPush);
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCount.incrementAndGet();
+            LOG.warn("The UI background pool is saturated, run the command in the caller thread");
+            execute(ui, pageCommand, isPush);
+        }
+    }
+
+    private static void execute(final UI ui, final PageCommand pageCommand, final boolean isPush) {
+        boolean loaded = false;
+        try {
+            pageCommand.load();
+            loaded = true;
+        } catch (UIDetachedException e) {
+            pollingCommands.remove(ui);
+            return;
+        } catch (Exception e) {
+            LOG.error("Error while loading the data of page command", e);
+        }
+
+        final boolean isLoaded = loaded;
+        try {
+            accessUI(ui, isPush, () -> {
+                try {
+                    if (isLoaded) {
+                        pageCommand.run();
+                        if (isPush) {
+                            ui.push();
+                        }
+                        pageCommand.postRun();
+                    }
+                } finally {
+                    pageCommand.cleanUp();
+                    if (isPush) {
                         try {
-                            pageCommand.run();
                             ui.push();
-                            pageCommand.postRun();
-                        } finally {
-                            pageCommand.cleanUp();
-                            try {
-                                ui.push();
-                            } catch (Exception e) {
-                                LOG.error("Error", e);
-                            }
+                        } catch (Exception e) {
+                            LOG.error("Error", e);
                         }
-                    });
+                    } else {
+                        stopPolling(ui);
+                    }
                 }
-            }.start();
-        } else {
-            ui.getSession().getLockInstance().lock();
+            });
+        } catch (UIDetachedException e) {
+            LOG.debug("The UI is detached before the page command is applied");
+            pollingCommands.remove(ui);
+        }
+    }
+
+    /**
+     * Runs <code>task</code> under the session lock of <code>ui</code> and records the time the
+     * lock is held.
+     */
+    private static void accessUI(final UI ui, final boolean isPush, final Runnable task) {
+        Runnable timedTask = () -> {
+            long startTime = System.nanoTime();
             try {
-                ui.setPollInterval(1000);
-                pageCommand.run();
-                pageCommand.postRun();
+                task.run();
             } finally {
-                pageCommand.cleanUp();
-                ui.setPollInterval(-1);
-                ui.getSession().getLockInstance().unlock();
+                long duration = System.nanoTime() - startTime;
+                lockHold.record(duration);
+                if (TimeUnit.NANOSECONDS.toMillis(duration) > SLOW_LOCK_HOLD_MILLIS) {
+                    LOG.warn("Page command held the session lock for {} ms", TimeUnit.NANOSECONDS.toMillis(duration));
+                }
             }
+        };
+
+        if (ui.getSession() != null && ui.getSession().hasLock()) {
+            timedTask.run();
+        } else {
+            ui.access(timedTask);
+        }
+    }
+
+    private static void startPolling(final UI ui) {
+        AtomicInteger count = pollingCommands.computeIfAbsent(ui, key -> new AtomicInteger());
+        if (count.getAndIncrement() == 0) {
+            accessUI(ui, false, () -> ui.setPollInterval(1000));
+        }
+    }
+
+    /**
+     * The UI changes of the last command are sent to the client by the next poll request, so
+     * the polling is stopped on that request.
+     */
+    private static void stopPolling(final UI ui) {
+        AtomicInteger count = pollingCommands.get(ui);
+        if (count != null && count.decrementAndGet() <= 0) {
+            pollingCommands.remove(ui);
+            ui.addPollListener(new UIEvents.PollListener() {
+                @Override
+                public void poll(UIEvents.PollEvent event) {
+                    ui.removePollListener(this);
+                    if (!pollingCommands.containsKey(ui)) {
+                        ui.setPollInterval(-1);
+                    }
+                }
+            });
+        }
+    }
+
+    static boolean isPolling(UI ui) {
+        return pollingCommands.containsKey(ui);
+    }
+
+    /**
+     * @return number of commands waiting for a thread of the pool
+     */
+    public static int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    public static int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * @return number of commands run by the caller because the pool was saturated
+     */
+    public static long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public static long getAverageQueueWaitMillis() {
+        return queueWait.getAverageMillis();
+    }
+
+    public static long getMaxQueueWaitMillis() {
+        return queueWait.getMaxMillis();
+    }
+
+    public static long getAverageLockHoldMillis() {
+        return lockHold.getAverageMillis();
+    }
+
+    public static long getMaxLockHoldMillis() {
+        return lockHold.getMaxMillis();
+    }
+
+    private static class Timing {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        long getAverageMillis() {
+            long value = count.get();
+            return (value == 0) ? 0 : TimeUnit.NANOSECONDS.toMillis(totalNanos.get() / value);
+        }
+
+        long getMaxMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
         }
     }
 
     public static abstract class PageCommand {
         UI currentUI;
+        boolean isPush;
 
-        void setUI(UI ui) {
-            currentUI = ui;
+        void setUI(UI ui, boolean isPush) {
+            this.currentUI = ui;
+            this.isPush = isPush;
         }
 
         public UI getUI() {
             return currentUI;
         }
 
+        /**
+         * Loads the data of the command in background, without the session lock. The UI
+         * components must not be touched here, and the values stored in the UI session must be
+         * captured when the command is created. Partial results can be shown with
+         * {@link #access(Runnable)}.
+         */
+        public void load() {
+        }
+
+        /**
+         * Applies the loaded data to the UI components, it runs under the session lock.
+         */
         abstract public void run();
 
         public void postRun() {
@@ -86,8 +282,23 @@ public class AsyncInvoker {
         public void cleanUp() {
         }
 
+        /**
+         * Runs <code>task</code> under the session lock and sends its changes to the client. It
+         * is used in {@link #load()} to display the data progressively.
+         *
+         * @param task
+         */
+        public void access(Runnable task) {
+            accessUI(currentUI, isPush, () -> {
+                task.run();
+                if (isPush) {
+                    currentUI.push();
+                }
+            });
+        }
+
         public void push() {
-            if (SiteConfiguration.getPullMethod() == SiteConfiguration.PullMethod.push) {
+            if (isPush) {
                 currentUI.push();
             }
         }
@@ -0,0 +1,134 @@
+/**
+ * This file is part of mycollab-ui.
+ *
+ * mycollab-ui is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-ui is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-ui.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.vaadin;
+
+import com.vaadin.ui.UI;
+import com.vaadin.ui.UIDetachedException;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+public class AsyncInvokerTest {
+    private final AtomicBoolean locked = new AtomicBoolean();
+    private final AtomicBoolean detached = new AtomicBoolean();
+
+    @Test
+    public void testLoadRunsWithoutSessionLock() throws InterruptedException {
+        UI ui = newUI();
+        List<String> steps = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        AsyncInvoker.access(ui, new AsyncInvoker.PageCommand() {
+            @Override
+            public void load() {
+                steps.add(locked.get() ? "load-locked" : "load");
+            }
+
+            @Override
+            public void run() {
+                steps.add(locked.get() ? "run" : "run-unlocked");
+            }
+
+            @Override
+            public void cleanUp() {
+                steps.add("cleanUp");
+                done.countDown();
+            }
+        }, true);
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(steps).containsExactly("load", "run", "cleanUp");
+        verify(ui, timeout(5000).atLeastOnce()).push();
+    }
+
+    @Test
+    public void testPollingIsStoppedAfterLastCommand() throws InterruptedException {
+        UI ui = newUI();
+        CountDownLatch done = new CountDownLatch(1);
+        AsyncInvoker.access(ui, new AsyncInvoker.PageCommand() {
+            @Override
+            public void run() {
+            }
+
+            @Override
+            public void cleanUp() {
+                done.countDown();
+            }
+        }, false);
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        awaitNotPolling(ui);
+        verify(ui).setPollInterval(1000);
+        verify(ui, timeout(5000)).addPollListener(any());
+    }
+
+    @Test
+    public void testDetachedUIIsNotPolledAnymore() throws InterruptedException {
+        UI ui = newUI();
+        AtomicBoolean hasRun = new AtomicBoolean();
+        AsyncInvoker.access(ui, new AsyncInvoker.PageCommand() {
+            @Override
+            public void load() {
+                detached.set(true);
+            }
+
+            @Override
+            public void run() {
+                hasRun.set(true);
+            }
+        }, false);
+
+        awaitNotPolling(ui);
+        assertThat(hasRun.get()).isFalse();
+    }
+
+    private UI newUI() {
+        UI ui = mock(UI.class);
+        doAnswer(invocation -> {
+            if (detached.get()) {
+                throw new UIDetachedException();
+            }
+            locked.set(true);
+            try {
+                ((Runnable) invocation.getArgument(0)).run();
+            } finally {
+                locked.set(false);
+            }
+            return null;
+        }).when(ui).access(any(Runnable.class));
+        return ui;
+    }
+
+    private static void awaitNotPolling(UI ui) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (AsyncInvoker.isPolling(ui)) {
+            assertThat(System.currentTimeMillis()).as("timeout").isLessThan(deadline);
+            Thread.sleep(20);
+        }
+    }
+}
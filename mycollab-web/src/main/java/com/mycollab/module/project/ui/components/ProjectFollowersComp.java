@@ -130,10 +130,14 @@ public class ProjectFollowersComp<V extends ValuedBean> extends MVerticalLayout
 
     private void loadWatchers() {
         AsyncInvoker.access(getUI(), new AsyncInvoker.PageCommand() {
+            @Override
+            public void load() {
+                followers = monitorItemService.getWatchers(type, typeId);
+            }
+
             @Override
             public void run() {
                 watcherLayout.removeAllComponents();
-                followers = monitorItemService.getWatchers(type, typeId);
                 for (SimpleUser follower : followers) {
                     watcherLayout.addComponent(new FollowerComp(follower));
                 }
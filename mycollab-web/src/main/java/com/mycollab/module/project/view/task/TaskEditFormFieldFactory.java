@@ -113,7 +113,7 @@ class TaskEditFormFieldFactory extends AbstractBeanFieldGroupEditFieldFactory<Si
                     int daysDuration = (int) (duration / DateTimeUtils.MILLISECONDS_IN_A_DAY);
                     if (daysDuration > 0) {
                         DateTime startDateJoda = new DateTime(startDateVal);
-                        LocalDate calculatedDate = BusinessDayTimeUtils.plusDays(startDateJoda.toLocalDate(), daysDuration);
+                        LocalDate calculatedDate = BusinessDayTimeUtils.plusDays(MyCollabUI.getAccountId(), startDateJoda.toLocalDate(), daysDuration);
                         DateTime endDateJoda = new DateTime(calculatedDate.toDate());
                         DateTimeOptionField endDateField = (DateTimeOptionField) fieldGroup.getField(Task.Field.enddate.name());
                         beanItem.setEnddate(endDateJoda.toDate());
@@ -164,7 +164,7 @@ class TaskEditFormFieldFactory extends AbstractBeanFieldGroupEditFieldFactory<Si
         if (startDate != null && endDate != null && startDate.before(endDate) && durationField != null) {
             LocalDate jodaStartDate = new LocalDate(startDate);
             LocalDate jodaEndDate = new LocalDate(endDate);
-            int durationInDays = BusinessDayTimeUtils.duration(jodaStartDate, jodaEndDate);
+            int durationInDays = BusinessDayTimeUtils.duration(MyCollabUI.getAccountId(), jodaStartDate, jodaEndDate);
             durationField.setValue(durationInDays + " d");
         }
     }
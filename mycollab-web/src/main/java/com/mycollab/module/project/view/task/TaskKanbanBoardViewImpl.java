@@ -21,6 +21,7 @@ import com.mycollab.common.domain.OptionVal;
 import com.mycollab.common.i18n.GenericI18Enum;
 import com.mycollab.common.i18n.OptionI18nEnum.StatusI18nEnum;
 import com.mycollab.common.service.OptionValService;
+import com.mycollab.core.utils.BeanUtility;
 import com.mycollab.core.utils.StringUtils;
 import com.mycollab.db.arguments.BasicSearchRequest;
 import com.mycollab.db.arguments.NumberSearchField;
@@ -262,38 +263,47 @@ public class TaskKanbanBoardViewImpl extends AbstractVerticalPageView implements
         kanbanBlocks = new ConcurrentHashMap<>();
 
         setProjectNavigatorVisibility(false);
+        final Integer projectId = CurrentProjectVariables.getProjectId();
+        final Integer accountId = MyCollabUI.getAccountId();
+        final boolean showHiddenColumns = displayHiddenColumns;
+        final TaskSearchCriteria criteria = BeanUtility.deepClone(searchCriteria);
         AsyncInvoker.access(getUI(), new AsyncInvoker.PageCommand() {
             @Override
-            public void run() {
-                List<OptionVal> optionVals = optionValService.findOptionVals(ProjectTypeConstants.TASK,
-                        CurrentProjectVariables.getProjectId(), MyCollabUI.getAccountId());
-                for (OptionVal optionVal : optionVals) {
-                    if (!displayHiddenColumns && Boolean.FALSE.equals(optionVal.getIsshow())) {
-                        continue;
+            public void load() {
+                List<OptionVal> optionVals = optionValService.findOptionVals(ProjectTypeConstants.TASK, projectId, accountId);
+                access(() -> {
+                    for (OptionVal optionVal : optionVals) {
+                        if (!showHiddenColumns && Boolean.FALSE.equals(optionVal.getIsshow())) {
+                            continue;
+                        }
+                        KanbanBlock kanbanBlock = new KanbanBlock(optionVal);
+                        kanbanBlocks.put(optionVal.getTypeval(), kanbanBlock);
+                        kanbanLayout.addComponent(kanbanBlock);
                     }
-                    KanbanBlock kanbanBlock = new KanbanBlock(optionVal);
-                    kanbanBlocks.put(optionVal.getTypeval(), kanbanBlock);
-                    kanbanLayout.addComponent(kanbanBlock);
-                }
-                this.push();
+                });
 
-                int totalTasks = taskService.getTotalCount(searchCriteria);
-                searchPanel.setTotalCountNumber(totalTasks);
+                int totalTasks = taskService.getTotalCount(criteria);
+                access(() -> searchPanel.setTotalCountNumber(totalTasks));
                 int pages = totalTasks / 50;
                 for (int page = 0; page < pages + 1; page++) {
-                    List<SimpleTask> tasks = taskService.findPageableListByCriteria(new BasicSearchRequest<>(searchCriteria, page + 1, 50));
+                    List<SimpleTask> tasks = taskService.findPageableListByCriteria(new BasicSearchRequest<>(criteria, page + 1, 50));
                     if (CollectionUtils.isNotEmpty(tasks)) {
-                        for (SimpleTask task : tasks) {
-                            String status = task.getStatus();
-                            KanbanBlock kanbanBlock = kanbanBlocks.get(status);
-                            if (kanbanBlock != null) {
-                                kanbanBlock.addBlockItem(new KanbanTaskBlockItem(task));
+                        access(() -> {
+                            for (SimpleTask task : tasks) {
+                                String status = task.getStatus();
+                                KanbanBlock kanbanBlock = kanbanBlocks.get(status);
+                                if (kanbanBlock != null) {
+                                    kanbanBlock.addBlockItem(new KanbanTaskBlockItem(task));
+                                }
                             }
-                        }
-                        this.push();
+                        });
                     }
                 }
             }
+
+            @Override
+            public void run() {
+            }
         });
     }
 
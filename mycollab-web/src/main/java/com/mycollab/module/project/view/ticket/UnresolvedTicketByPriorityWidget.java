@@ -30,12 +30,12 @@ import com.mycollab.module.project.i18n.TaskI18nEnum;
 import com.mycollab.module.project.service.ProjectTicketService;
 import com.mycollab.module.project.ui.ProjectAssetsManager;
 import com.mycollab.spring.AppContextUtil;
+import com.mycollab.vaadin.AsyncInvoker;
 import com.mycollab.vaadin.UserUIContext;
 import com.mycollab.vaadin.web.ui.*;
 import com.vaadin.ui.Alignment;
 import com.vaadin.ui.Button;
 import com.vaadin.ui.Button.ClickEvent;
-import com.vaadin.ui.UI;
 import org.vaadin.viritin.button.MButton;
 import org.vaadin.viritin.layouts.MHorizontalLayout;
 import org.vaadin.viritin.layouts.MVerticalLayout;
@@ -65,7 +65,7 @@ public class UnresolvedTicketByPriorityWidget extends Depot {
         @Subscribe
         public void handle(TicketEvent.HasTicketPropertyChanged event) {
             if (searchCriteria != null && ("priority".equals(event.getData()) || "all".equals(event.getData()))) {
-                UI.getCurrent().access(() -> setSearchCriteria(searchCriteria));
+                refresh();
             }
         }
     };
@@ -91,6 +91,33 @@ public class UnresolvedTicketByPriorityWidget extends Depot {
         displayPlainMode();
     }
 
+    /**
+     * Reloads the summary in background, the queries are run without the session lock.
+     */
+    private void refresh() {
+        final ProjectTicketSearchCriteria criteria = searchCriteria;
+        AsyncInvoker.access(getUI(), new AsyncInvoker.PageCommand() {
+            private int count;
+            private List<GroupItem> items;
+
+            @Override
+            public void load() {
+                ProjectTicketService ticketService = AppContextUtil.getSpringBean(ProjectTicketService.class);
+                count = ticketService.getTotalCount(criteria);
+                items = ticketService.getPrioritySummary(criteria);
+            }
+
+            @Override
+            public void run() {
+                if (criteria == searchCriteria) {
+                    totalCount = count;
+                    groupItems = items;
+                    displayPlainMode();
+                }
+            }
+        });
+    }
+
     private void displayPlainMode() {
         bodyContent.removeAllComponents();
         TicketPriorityClickListener listener = new TicketPriorityClickListener();
@@ -33,6 +33,7 @@ import com.mycollab.module.user.CommonTooltipGenerator;
 import com.mycollab.module.user.domain.SimpleUser;
 import com.mycollab.module.user.service.UserService;
 import com.mycollab.spring.AppContextUtil;
+import com.mycollab.vaadin.AsyncInvoker;
 import com.mycollab.vaadin.MyCollabUI;
 import com.mycollab.vaadin.UserUIContext;
 import com.mycollab.vaadin.ui.UIConstants;
@@ -41,7 +42,6 @@ import com.mycollab.vaadin.web.ui.Depot;
 import com.mycollab.vaadin.web.ui.ProgressBarIndicator;
 import com.mycollab.vaadin.web.ui.WebThemes;
 import com.vaadin.ui.Alignment;
-import com.vaadin.ui.UI;
 import org.apache.commons.collections.CollectionUtils;
 import org.vaadin.viritin.button.MButton;
 import org.vaadin.viritin.layouts.MCssLayout;
@@ -67,7 +67,7 @@ public class UnresolvedTicketsByAssigneeWidget extends Depot {
                 @Subscribe
                 public void handle(TicketEvent.HasTicketPropertyChanged event) {
                     if (searchCriteria != null && ("assignUser".equals(event.getData()) || "all".equals(event.getData()))) {
-                        UI.getCurrent().access(() -> setSearchCriteria(searchCriteria));
+                        refresh();
                     }
                 }
             };
@@ -95,7 +95,37 @@ public class UnresolvedTicketsByAssigneeWidget extends Depot {
         ProjectTicketService projectTicketService = AppContextUtil.getSpringBean(ProjectTicketService.class);
         totalCountItems = projectTicketService.getTotalCount(searchCriteria);
         groupItems = projectTicketService.getAssigneeSummary(searchCriteria);
+        displaySummary();
+    }
+
+    /**
+     * Reloads the summary in background, the queries are run without the session lock.
+     */
+    private void refresh() {
+        final ProjectTicketSearchCriteria criteria = searchCriteria;
+        AsyncInvoker.access(getUI(), new AsyncInvoker.PageCommand() {
+            private int count;
+            private List<GroupItem> items;
+
+            @Override
+            public void load() {
+                ProjectTicketService projectTicketService = AppContextUtil.getSpringBean(ProjectTicketService.class);
+                count = projectTicketService.getTotalCount(criteria);
+                items = projectTicketService.getAssigneeSummary(criteria);
+            }
+
+            @Override
+            public void run() {
+                if (criteria == searchCriteria) {
+                    totalCountItems = count;
+                    groupItems = items;
+                    displaySummary();
+                }
+            }
+        });
+    }
 
+    private void displaySummary() {
         this.setTitle(String.format("%s (%d)", UserUIContext.getMessage(TaskI18nEnum.WIDGET_UNRESOLVED_BY_ASSIGNEE_TITLE), totalCountItems));
         displayPlainMode();
     }
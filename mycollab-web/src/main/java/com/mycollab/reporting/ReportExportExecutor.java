@@ -0,0 +1,86 @@
+/**
+ * This file is part of mycollab-web.
+ *
+ * mycollab-web is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-web is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-web.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.reporting;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the report exports of this node on a bounded pool, at most {@link #MAX_RUNNING_EXPORTS}
+ * exports are generated at the same time and at most {@link #MAX_WAITING_EXPORTS} wait for
+ * a free thread, other exports are rejected.
+ *
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+public class ReportExportExecutor {
+    public static final int MAX_RUNNING_EXPORTS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    public static final int MAX_WAITING_EXPORTS = 20;
+
+    private static final Set<ReportExportTask> tasks = ConcurrentHashMap.newKeySet();
+
+    private static final ThreadPoolExecutor executor;
+
+    static {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(MAX_RUNNING_EXPORTS, MAX_RUNNING_EXPORTS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(MAX_WAITING_EXPORTS), runnable -> {
+            Thread thread = new Thread(runnable, "report-export-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @param templateExecutor
+     * @param owner            username of the user exports the report
+     * @return
+     * @throws IOException                if the temporary report file can not be created
+     * @throws RejectedExecutionException if too many reports are being exported
+     */
+    public static ReportExportTask submit(ReportTemplateExecutor templateExecutor, String owner) throws IOException {
+        ReportExportTask task = new ReportExportTask(templateExecutor, owner);
+        tasks.add(task);
+        try {
+            task.setFuture(executor.submit(() -> {
+                try {
+                    task.execute();
+                    return null;
+                } finally {
+                    tasks.remove(task);
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            tasks.remove(task);
+            task.cancel();
+            throw e;
+        }
+        return task;
+    }
+
+    /**
+     * @return the exports are waiting or running
+     */
+    public static Collection<ReportExportTask> getTasks() {
+        return Collections.unmodifiableSet(tasks);
+    }
+}
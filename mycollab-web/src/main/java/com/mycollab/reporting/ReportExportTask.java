@@ -0,0 +1,147 @@
+/**
+ * This file is part of mycollab-web.
+ *
+ * mycollab-web is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * mycollab-web is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with mycollab-web.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mycollab.reporting;
+
+import java.io.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A report export running on the {@link ReportExportExecutor}. The report is written to a
+ * temporary file through a large buffer, its progress can be watched and it can be cancelled
+ * at any time.
+ *
+ * @author MyCollab Ltd
+ * @since 5.4.7
+ */
+public class ReportExportTask {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public enum Stage {
+        WAITING, INITIALIZING, FILLING, WRITING, DONE, FAILED, CANCELLED
+    }
+
+    private final ReportTemplateExecutor templateExecutor;
+    private final String owner;
+    private final File outputFile;
+    private final AtomicLong writtenBytes = new AtomicLong();
+    private volatile Stage stage = Stage.WAITING;
+    private volatile Future<?> future;
+
+    ReportExportTask(ReportTemplateExecutor templateExecutor, String owner) throws IOException {
+        this.templateExecutor = templateExecutor;
+        this.owner = owner;
+        this.outputFile = File.createTempFile("mycollab-report", ".tmp");
+    }
+
+    void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    void execute() throws Exception {
+        try (OutputStream out = new ProgressOutputStream(new BufferedOutputStream(new FileOutputStream(outputFile), BUFFER_SIZE))) {
+            stage = Stage.INITIALIZING;
+            templateExecutor.initReport();
+            checkCancelled();
+            stage = Stage.FILLING;
+            templateExecutor.fillReport();
+            checkCancelled();
+            stage = Stage.WRITING;
+            templateExecutor.outputReport(out);
+        } catch (Exception e) {
+            stage = (stage == Stage.CANCELLED) ? Stage.CANCELLED : Stage.FAILED;
+            outputFile.delete();
+            throw e;
+        }
+        stage = Stage.DONE;
+    }
+
+    /**
+     * Waits until the report is written.
+     *
+     * @param timeout
+     * @param unit
+     * @return the report content, the temporary file is deleted when the stream is closed
+     * @throws Exception
+     */
+    public InputStream getResult(long timeout, TimeUnit unit) throws Exception {
+        try {
+            future.get(timeout, unit);
+        } catch (TimeoutException e) {
+            cancel();
+            throw e;
+        } catch (ExecutionException e) {
+            throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+        }
+        return new FileInputStream(outputFile) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                outputFile.delete();
+            }
+        };
+    }
+
+    public void cancel() {
+        stage = Stage.CANCELLED;
+        if (future != null) {
+            future.cancel(true);
+        }
+        outputFile.delete();
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public Stage getStage() {
+        return stage;
+    }
+
+    public long getWrittenBytes() {
+        return writtenBytes.get();
+    }
+
+    private void checkCancelled() throws InterruptedIOException {
+        if (stage == Stage.CANCELLED || Thread.currentThread().isInterrupted()) {
+            stage = Stage.CANCELLED;
+            throw new InterruptedIOException("Report export is cancelled");
+        }
+    }
+
+    private class ProgressOutputStream extends FilterOutputStream {
+        ProgressOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            writtenBytes.incrementAndGet();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            checkCancelled();
+            out.write(b, off, len);
+            writtenBytes.addAndGet(len);
+        }
+    }
+}
@@ -16,19 +16,24 @@
  */
 package com.mycollab.reporting;
 
-import com.mycollab.core.MyCollabException;
+import com.google.common.eventbus.EventBus;
+import com.mycollab.core.UserInvalidInputException;
 import com.mycollab.eventmanager.EventBusFactory;
 import com.mycollab.shell.events.ShellEvent;
 import com.mycollab.vaadin.MyCollabUI;
 import com.mycollab.vaadin.UserUIContext;
 import com.vaadin.server.StreamResource;
+import com.vaadin.ui.UI;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.*;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author MyCollab Ltd
@@ -37,83 +42,34 @@ import java.util.concurrent.CountDownLatch;
 public abstract class ReportStreamSource implements StreamResource.StreamSource {
     private static Logger LOG = LoggerFactory.getLogger(ReportStreamSource.class);
 
+    private static final long EXPORT_TIMEOUT_MINUTES = 10;
+
     private ReportTemplateExecutor templateExecutor;
 
     public ReportStreamSource(ReportTemplateExecutor templateExecutor) {
         this.templateExecutor = templateExecutor;
     }
 
+    /**
+     * Submits the report to the {@link ReportExportExecutor}. The report parameters are read in
+     * the current request thread because they may depend on the UI. This method is called while
+     * the session is locked, so the returned stream only waits for the report on its first read,
+     * when the download is written after the lock is released.
+     */
     @Override
     public InputStream getStream() {
-        final CountDownLatch latch = new CountDownLatch(1);
-        final PipedInputStream inStream = new PipedInputStream();
-
-        InputStream in = new InputStream() {
-
-            @Override
-            public int read(byte[] b) throws IOException {
-                return inStream.read(b);
-            }
-
-            @Override
-            public int read() throws IOException {
-                return inStream.read();
-            }
-
-            @Override
-            public void close() throws IOException {
-                super.close();
-                latch.countDown();
-            }
-        };
-
-        final PipedOutputStream outputStream = new PipedOutputStream();
-        new Thread(new Runnable() {
-            @Override
-            public void run() {
-                final OutputStream out = new OutputStream() {
-                    @Override
-                    public void write(int b) throws IOException {
-                        outputStream.write(b);
-                    }
-
-                    @Override
-                    public void close() throws IOException {
-                        while (latch.getCount() != 0) {
-                            try {
-                                latch.await();
-                            } catch (InterruptedException e) {
-                                e.printStackTrace();
-                                break;
-                            }
-                        }
-                        super.close();
-                    }
-                };
-
-                try {
-                    templateExecutor.setParameters(initReportParameters());
-                    templateExecutor.initReport();
-                    templateExecutor.fillReport();
-                    templateExecutor.outputReport(out);
-                } catch (Exception e) {
-                    EventBusFactory.getInstance().post(new ShellEvent.NotifyErrorEvent(ReportStreamSource.this, e));
-                } finally {
-                    try {
-                        outputStream.close();
-                        out.close();
-                    } catch (IOException e) {
-                        LOG.error("Try to close reporting stream error", e);
-                    }
-                }
-            }
-        }).start();
         try {
-            outputStream.connect(inStream);
-        } catch (IOException e) {
-            throw new MyCollabException(e);
+            templateExecutor.setParameters(initReportParameters());
+            ReportExportTask task = ReportExportExecutor.submit(templateExecutor, UserUIContext.getUsername());
+            return new DeferredReportStream(task, UI.getCurrent(), EventBusFactory.getInstance());
+        } catch (RejectedExecutionException e) {
+            LOG.warn("Reject the report export because there are too many running exports");
+            EventBusFactory.getInstance().post(new ShellEvent.NotifyErrorEvent(ReportStreamSource.this,
+                    new UserInvalidInputException("Too many reports are being exported, please try again later")));
+        } catch (Exception e) {
+            EventBusFactory.getInstance().post(new ShellEvent.NotifyErrorEvent(ReportStreamSource.this, e));
         }
-        return in;
+        return new ByteArrayInputStream(new byte[0]);
     }
 
     private Map<String, Object> initReportParameters() {
@@ -125,4 +81,76 @@ public abstract class ReportStreamSource implements StreamResource.StreamSource
     }
 
     protected abstract void initReportParameters(Map<String, Object> parameters);
+
+    /**
+     * Content of a submitted report, it waits for the report on its first use. A failure of the
+     * export is notified to the UI under the session lock and fails the download.
+     */
+    private class DeferredReportStream extends InputStream {
+        private final ReportExportTask task;
+        private final UI ui;
+        private final EventBus eventBus;
+        private InputStream content;
+        private boolean closed;
+
+        DeferredReportStream(ReportExportTask task, UI ui, EventBus eventBus) {
+            this.task = task;
+            this.ui = ui;
+            this.eventBus = eventBus;
+        }
+
+        private InputStream getContent() throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            if (content == null) {
+                try {
+                    content = task.getResult(EXPORT_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+                } catch (Exception e) {
+                    closed = true;
+                    if (ui != null) {
+                        ui.access(() -> eventBus.post(new ShellEvent.NotifyErrorEvent(ReportStreamSource.this, e)));
+                    }
+                    throw (e instanceof IOException) ? (IOException) e : new IOException("Can not export the report", e);
+                }
+            }
+            return content;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return getContent().read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return getContent().read(b, off, len);
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            return getContent().skip(n);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return getContent().available();
+        }
+
+        /**
+         * Closing the stream before the report is read cancels the export.
+         */
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (content != null) {
+                content.close();
+            } else {
+                task.cancel();
+            }
+        }
+    }
 }
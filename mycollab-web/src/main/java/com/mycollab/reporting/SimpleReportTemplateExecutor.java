@@ -70,6 +70,7 @@ public abstract class SimpleReportTemplateExecutor<T> extends ReportTemplateExec
         private ISearchableService<S> searchService;
 
         private int totalItems;
+        private GroupIteratorDataSource<ISearchableService<S>, S> dataSource;
 
         public AllItems(String reportTitle, RpFieldsBuilder fieldBuilder, ReportExportType outputForm,
                         Class<T> classType, ISearchableService<S> searchService) {
@@ -82,9 +83,21 @@ public abstract class SimpleReportTemplateExecutor<T> extends ReportTemplateExec
             S searchCriteria = (S) parameters.get(CRITERIA);
             totalItems = searchService.getTotalCount(searchCriteria);
             reportBuilder.setTitle(reportTitle + "(" + totalItems + ")");
-            reportBuilder.setDataSource(new GroupIteratorDataSource(searchService, searchCriteria, totalItems));
+            dataSource = new GroupIteratorDataSource<>(searchService, searchCriteria, totalItems);
+            reportBuilder.setDataSource(dataSource);
             LOG.info(String.format("Fill report %d items", totalItems));
         }
+
+        @Override
+        protected void outputReport(OutputStream outputStream) throws DRException, IOException {
+            try {
+                super.outputReport(outputStream);
+            } finally {
+                if (dataSource != null) {
+                    dataSource.close();
+                }
+            }
+        }
     }
 
     public static class ListData<T> extends SimpleReportTemplateExecutor<T> {
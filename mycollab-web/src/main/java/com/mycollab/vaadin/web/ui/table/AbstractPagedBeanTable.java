@@ -23,7 +23,9 @@ import com.mycollab.common.json.FieldDefAnalyzer;
 import com.mycollab.common.service.CustomViewStoreService;
 import com.mycollab.db.arguments.BasicSearchRequest;
 import com.mycollab.db.arguments.SearchCriteria;
+import com.mycollab.db.arguments.SearchCursor;
 import com.mycollab.spring.AppContextUtil;
+import com.mycollab.vaadin.AsyncInvoker;
 import com.mycollab.vaadin.MyCollabUI;
 import com.mycollab.vaadin.UserUIContext;
 import com.mycollab.vaadin.events.PageableHandler;
@@ -46,6 +48,11 @@ import java.util.*;
 import static com.mycollab.vaadin.web.ui.WebThemes.SCROLLABLE_CONTAINER;
 
 /**
+ * Paged table of the items of a search. The items are counted when the search criteria is
+ * set, a page change renders the page with the known count and counts the items again in
+ * background. The pages following a visited page are read after its last item when the search
+ * supports it.
+ *
  * @param <S>
  * @param <B>
  * @author MyCollab Ltd.
@@ -84,6 +91,8 @@ public abstract class AbstractPagedBeanTable<S extends SearchCriteria, B> extend
 
     private final Map<Object, ColumnGenerator> columnGenerators = new HashMap<>();
 
+    private final Map<Integer, SearchCursor> pageCursors = new HashMap<>();
+
     public AbstractPagedBeanTable(Class<B> type, List<TableViewField> displayColumns) {
         this(type, null, displayColumns);
     }
@@ -208,6 +217,7 @@ public abstract class AbstractPagedBeanTable<S extends SearchCriteria, B> extend
     @Override
     public int setSearchCriteria(final S searchCriteria) {
         searchRequest = new BasicSearchRequest<>(searchCriteria, currentPage, displayNumItems);
+        pageCursors.clear();
         doSearch();
         return totalCount;
     }
@@ -225,6 +235,7 @@ public abstract class AbstractPagedBeanTable<S extends SearchCriteria, B> extend
 
     @Override
     public void refresh() {
+        pageCursors.clear();
         doSearch();
     }
 
@@ -232,7 +243,8 @@ public abstract class AbstractPagedBeanTable<S extends SearchCriteria, B> extend
         if (searchRequest != null) {
             this.currentPage = currentPage;
             searchRequest.setCurrentPage(currentPage);
-            doSearch();
+            displayPage();
+            countItemsInBackground();
 
             if (pageableHandlers != null) {
                 for (final PageableHandler handler : pageableHandlers) {
@@ -316,13 +328,43 @@ public abstract class AbstractPagedBeanTable<S extends SearchCriteria, B> extend
 
     abstract protected List<B> queryCurrentData();
 
+    /**
+     * @param lastItem last item of the current page
+     * @return the cursor reading the next page after <code>lastItem</code>, or null if the
+     * search can only be paged by offset
+     */
+    protected SearchCursor queryNextPageCursor(B lastItem) {
+        return null;
+    }
+
     protected void doSearch() {
         totalCount = this.queryTotalCount();
+        displayPage();
+    }
+
+    private void displayPage() {
         totalPage = (totalCount - 1) / searchRequest.getNumberOfItems() + 1;
         if (searchRequest.getCurrentPage() > totalPage) {
             searchRequest.setCurrentPage(totalPage);
+            currentPage = totalPage;
+        }
+        displayPagingControls();
+
+        searchRequest.setCursor(pageCursors.get(searchRequest.getCurrentPage()));
+        List<B> data = queryCurrentData();
+        if (data.size() == searchRequest.getNumberOfItems()) {
+            SearchCursor cursor = queryNextPageCursor(data.get(data.size() - 1));
+            if (cursor != null) {
+                pageCursors.put(cursor.getPage(), cursor);
+            }
         }
+        currentListData = data;
+        currentViewCount = currentListData.size();
 
+        createTable();
+    }
+
+    private void displayPagingControls() {
         if (totalPage > 1) {
             // Define button layout
             if (controlBarWrapper != null) {
@@ -334,11 +376,31 @@ public abstract class AbstractPagedBeanTable<S extends SearchCriteria, B> extend
                 removeComponent(getComponent(1));
             }
         }
+    }
 
-        currentListData = queryCurrentData();
-        currentViewCount = currentListData.size();
+    /**
+     * Counts the items of the search in background and updates the paging controls if the
+     * count is changed.
+     */
+    private void countItemsInBackground() {
+        final BasicSearchRequest<S> request = searchRequest;
+        AsyncInvoker.access(getUI(), new AsyncInvoker.PageCommand() {
+            private int count;
+
+            @Override
+            public void load() {
+                count = queryTotalCount();
+            }
 
-        createTable();
+            @Override
+            public void run() {
+                if (request == searchRequest && count != totalCount) {
+                    totalCount = count;
+                    totalPage = (totalCount - 1) / searchRequest.getNumberOfItems() + 1;
+                    displayPagingControls();
+                }
+            }
+        });
     }
 
     private void createTable() {
@@ -18,6 +18,7 @@ package com.mycollab.vaadin.web.ui.table;
 
 import com.mycollab.common.TableViewField;
 import com.mycollab.db.arguments.SearchCriteria;
+import com.mycollab.db.arguments.SearchCursor;
 import com.mycollab.db.persistence.service.ISearchableService;
 
 import java.util.List;
@@ -61,4 +62,9 @@ public class DefaultPagedBeanTable<SearchService extends ISearchableService<S>,
         return searchService.findPageableListByCriteria(searchRequest);
     }
 
+    @Override
+    protected SearchCursor queryNextPageCursor(T lastItem) {
+        return searchService.getNextPageCursor(searchRequest, lastItem);
+    }
+
 }
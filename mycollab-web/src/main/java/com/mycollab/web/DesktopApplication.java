@@ -322,7 +322,7 @@ public class DesktopApplication extends MyCollabUI {
         userAccountMapper.updateByExampleSelective(userAccount, ex);
         EventBusFactory.getInstance().post(new ShellEvent.GotoMainPage(this, null));
         broadcastReceiverService.registerApp(this);
-        Broadcaster.register(broadcastReceiverService);
+        Broadcaster.register(MyCollabUI.getAccountId(), broadcastReceiverService);
     }
 
     public void redirectToLoginView() {